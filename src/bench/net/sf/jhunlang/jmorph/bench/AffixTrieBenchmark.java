@@ -0,0 +1,243 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jhunlang.jmorph.AffixEntries;
+import net.sf.jhunlang.jmorph.Rules;
+
+/**
+ * AffixTrieBenchmark reports the heap footprint of the child arrays of the
+ * suffix and prefix {@link AffixEntries} tries of all recursion levels and
+ * measures the speed of walking them along words as the analyser does.
+ * The footprint of the sorted key representation is compared to that of
+ * arrays indexed by the child characters; the lookup speed is compared to
+ * a mirror of the tries built with such arrays.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dinput=file] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.AffixTrieBenchmark [definition]
+ * </pre>
+ */
+public class AffixTrieBenchmark extends Bench
+{
+  /**
+   * The assumed size of an array header in bytes.
+   */
+  public final static int ARRAY_HEADER = 16;
+  /**
+   * The assumed size of a reference in bytes (compressed oops).
+   */
+  public final static int REFERENCE = 4;
+
+  protected String[] words;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    List l = words();
+    words = new String[l.size()];
+    for(int i = 0; i < words.length; i++)
+    {
+      words[i] = ((String)l.get(i)).toLowerCase();
+    }
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+
+    Map seen = new IdentityHashMap();
+    Stats suffix = new Stats();
+    Stats prefix = new Stats();
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      suffix.add(r.getSuffixEntries(), seen);
+      prefix.add(r.getPrefixEntries(), seen);
+    }
+    System.out.println("trie     nodes  parents  children  max  >0xff" +
+      "    dense bytes  compact bytes");
+    suffix.print("suffix");
+    prefix.print("prefix");
+
+    AffixEntries suffixes = rules.getSuffixEntries();
+    AffixEntries prefixes = rules.getPrefixEntries();
+    Dense denseSuffixes = new Dense(suffixes);
+    Dense densePrefixes = new Dense(prefixes);
+
+    // warm up
+    for(int i = 0; i < 3; i++)
+    {
+      walk(suffixes, prefixes);
+      walk(denseSuffixes, densePrefixes);
+    }
+
+    double compact = Double.MAX_VALUE;
+    double dense = Double.MAX_VALUE;
+    int steps = 0;
+    for(int r = 0; r < rounds; r++)
+    {
+      long start = System.nanoTime();
+      steps = walk(suffixes, prefixes);
+      compact = Math.min(compact, millis(start));
+      start = System.nanoTime();
+      walk(denseSuffixes, densePrefixes);
+      dense = Math.min(dense, millis(start));
+    }
+    System.out.println(words.length + " words, " + steps +
+      " trie steps, best of " + rounds + " rounds");
+    System.out.println("compact " +
+      pad(format(1e6 * compact / words.length, 2), 8) + " ns/word");
+    System.out.println("dense   " +
+      pad(format(1e6 * dense / words.length, 2), 8) + " ns/word");
+  }
+
+  /**
+   * Walk the suffix trie from the end and the prefix trie from the start of
+   * each word as far as it goes and return the number of steps.
+   */
+  protected int walk(AffixEntries suffixes, AffixEntries prefixes)
+  {
+    int steps = 0;
+    for(int w = 0; w < words.length; w++)
+    {
+      String word = words[w];
+      AffixEntries node = suffixes;
+      for(int i = word.length() - 1; i >= 0 &&
+        (node = node.getMap(word.charAt(i))) != null; i--)
+      {
+        steps++;
+      }
+      node = prefixes;
+      for(int i = 0; i < word.length() &&
+        (node = node.getMap(word.charAt(i))) != null; i++)
+      {
+        steps++;
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * Walk the dense mirrors like {@link #walk(AffixEntries, AffixEntries)}.
+   */
+  protected int walk(Dense suffixes, Dense prefixes)
+  {
+    int steps = 0;
+    for(int w = 0; w < words.length; w++)
+    {
+      String word = words[w];
+      Dense node = suffixes;
+      for(int i = word.length() - 1; i >= 0 &&
+        (node = node.getMap(word.charAt(i))) != null; i--)
+      {
+        steps++;
+      }
+      node = prefixes;
+      for(int i = 0; i < word.length() &&
+        (node = node.getMap(word.charAt(i))) != null; i++)
+      {
+        steps++;
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * Return <code>bytes</code> aligned to 8.
+   */
+  protected static long align(long bytes)
+  {
+    return (bytes + 7) & ~7L;
+  }
+
+  /**
+   * Statistics of the nodes of a trie.
+   */
+  protected static class Stats
+  {
+    int nodes;
+    int parents;
+    int children;
+    int max;
+    int wide;
+    long dense;
+    long compact;
+
+    void add(AffixEntries node, Map seen)
+    {
+      if (seen.put(node, node) != null)
+      {
+        return;
+      }
+      nodes++;
+      int size = node.size();
+      if (size == 0)
+      {
+        return;
+      }
+      parents++;
+      children += size;
+      max = Math.max(max, size);
+      char last = node.getKey(size - 1);
+      if (last > 0xff)
+      {
+        wide++;
+      }
+      dense += align(ARRAY_HEADER + REFERENCE * (last + 1));
+      compact += align(ARRAY_HEADER + 2 * size) +
+        align(ARRAY_HEADER + REFERENCE * size);
+      // the Latin-1 index of nodes with many children
+      if (size > AffixEntries.LINEAR && node.getKey(0) < 0x100)
+      {
+        int n = 0;
+        while (n < size && node.getKey(n) < 0x100)
+        {
+          n++;
+        }
+        compact += align(ARRAY_HEADER + REFERENCE * (node.getKey(n - 1) + 1));
+      }
+      for(int i = 0; i < size; i++)
+      {
+        add(node.getMap(i), seen);
+      }
+    }
+
+    void print(String name)
+    {
+      System.out.println(name + pad("" + nodes, 10) + pad("" + parents, 9) +
+        pad("" + children, 10) + pad("" + max, 5) + pad("" + wide, 7) +
+        pad("" + dense, 15) + pad("" + compact, 15));
+    }
+  }
+
+  /**
+   * Mirror of an AffixEntries trie with children indexed by character.
+   */
+  protected static class Dense
+  {
+    Dense[] children;
+
+    Dense(AffixEntries node)
+    {
+      int size = node.size();
+      if (size > 0)
+      {
+        children = new Dense[node.getKey(size - 1) + 1];
+        for(int i = 0; i < size; i++)
+        {
+          children[node.getKey(i)] = new Dense(node.getMap(i));
+        }
+      }
+    }
+
+    Dense getMap(char c)
+    {
+      return children != null && c < children.length ? children[c] : null;
+    }
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new AffixTrieBenchmark().run(args);
+  }
+}
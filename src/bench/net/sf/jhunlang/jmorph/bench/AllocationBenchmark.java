@@ -0,0 +1,75 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.List;
+
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+
+/**
+ * AllocationBenchmark measures the heap allocated and the time spent per
+ * word analysed by {@link AnalyserImpl#analyse(String)}. Allocation is read
+ * by {@link Bench#allocated()}, so this benchmark needs a JVM providing
+ * <code>com.sun.management.ThreadMXBean</code>.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dinput=file] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.AllocationBenchmark [definition]
+ * </pre>
+ */
+public class AllocationBenchmark extends Bench
+{
+  public void run(String[] args)
+    throws Exception
+  {
+    if (allocated() < 0)
+    {
+      System.err.println("No thread allocation counter in this JVM");
+      System.exit(1);
+    }
+
+    load(args);
+    List l = words();
+    String[] words = (String[])l.toArray(new String[l.size()]);
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+
+    AnalyserImpl analyser = createAnalyser();
+
+    // warm up
+    for(int i = 0; i < 3; i++)
+    {
+      analyse(analyser, words);
+    }
+
+    double time = Double.MAX_VALUE;
+    long bytes = Long.MAX_VALUE;
+    for(int r = 0; r < rounds; r++)
+    {
+      long allocated = allocated();
+      long start = System.nanoTime();
+      analyse(analyser, words);
+      time = Math.min(time, millis(start));
+      bytes = Math.min(bytes, allocated() - allocated);
+    }
+    System.out.println(words.length + " words, best of " + rounds + " rounds");
+    System.out.println("allocated " +
+      pad(format((double)bytes / words.length, 0), 10) + " bytes/word");
+    System.out.println("time      " +
+      pad(format(1e6 * time / words.length, 0), 10) + " ns/word");
+  }
+
+  /**
+   * Analyse each of <code>words</code> by <code>analyser</code>.
+   */
+  protected void analyse(AnalyserImpl analyser, String[] words)
+  {
+    for(int i = 0; i < words.length; i++)
+    {
+      analyser.analyse(words[i]);
+    }
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new AllocationBenchmark().run(args);
+  }
+}
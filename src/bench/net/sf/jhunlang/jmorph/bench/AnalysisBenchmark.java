@@ -0,0 +1,433 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import net.sf.jhunlang.jmorph.Affix;
+import net.sf.jhunlang.jmorph.AffixEntry;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Prefix;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.Analysis;
+import net.sf.jhunlang.jmorph.analysis.CompoundControl;
+import net.sf.jhunlang.jmorph.analysis.consumer.X;
+
+/**
+ * AnalysisBenchmark measures the throughput and the allocation of
+ * {@link AnalyserImpl#analyse(String, AnalyserContext)} for every depth of
+ * {@link AnalyserControl#DEPTHS}, for both {@link AnalyserControl#XES},
+ * with compound decomposition on and off and for fixed sets of words of
+ * each kind in {@link #SETS}. The model is loaded once.<p>
+ * The word sets are generated from the dictionaries with the fixed
+ * {@link Bench#SEED}: dictionary words, words inflected by a suffix, by a
+ * prefix, by both (crossed), derived by the rules of the sub levels,
+ * concatenations of two dictionary words and reversed words. Prefixes are
+ * taken from the first recursion level having any; in hu.def that is the
+ * derivation level. A candidate is kept only if its analyses at
+ * {@link AnalyserControl#ALL_COMPOUNDS} agree with its kind, see
+ * {@link #accept(int, List)}; so for instance a concatenation the analyser
+ * does not take for a compound is not measured as one.<p>
+ * Each row of the output tells the words analysed per second and the bytes
+ * allocated per word, the best of {@link ScalingBenchmark#ROUNDS} rounds.
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dsample=words per set] [-Ddepths=0,3,...]
+ *     [-Dsets=dictionary,compound,...]
+ *     net.sf.jhunlang.jmorph.bench.AnalysisBenchmark [definition]
+ * </pre>
+ */
+public class AnalysisBenchmark extends Bench
+{
+  /**
+   * Property name for the comma separated list of depths to measure.
+   */
+  public final static String DEPTHS = "depths";
+  /**
+   * Property name for the comma separated list of word sets to measure.
+   */
+  public final static String SETS = "sets";
+  /**
+   * The default number of words per set.
+   */
+  public final static int DEFAULT_SET_SIZE = 200;
+
+  public final static int DICTIONARY = 0;
+  public final static int INFLECTED = 1;
+  public final static int PREFIXED = 2;
+  public final static int CROSSED = 3;
+  public final static int DERIVED = 4;
+  public final static int COMPOUND = 5;
+  public final static int NONWORD = 6;
+  /**
+   * The names of the word sets.
+   */
+  public final static String[] SET_NAMES =
+  {
+    "dictionary", "inflected", "prefixed", "crossed",
+    "derived", "compound", "nonword"
+  };
+
+  protected AnalyserImpl analyser;
+  /**
+   * The word sets indexed by kind.
+   */
+  protected String[][] sets;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    long start = System.nanoTime();
+    load(args);
+    System.out.println("loaded in " + format(millis(start), 0) + " ms");
+
+    analyser = createAnalyser();
+    int size = Integer.getInteger(SAMPLE, DEFAULT_SET_SIZE).intValue();
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+    int[] depths = depths();
+    boolean[] selected = sets();
+
+    start = System.nanoTime();
+    sets = sets(size);
+    System.out.print("sets generated in " + format(millis(start), 0) + " ms:");
+    for(int i = 0; i < sets.length; i++)
+    {
+      System.out.print(" " + SET_NAMES[i] + " " + sets[i].length);
+    }
+    System.out.println();
+
+    // warm up with every set and X
+    for(int x = 0; x < AnalyserControl.XES.length; x++)
+    {
+      AnalyserContext context = new AnalyserContext(new AnalyserControl(
+        AnalyserControl.ALL_COMPOUNDS, AnalyserControl.XES[x]));
+      for(int s = 0; s < sets.length; s++)
+      {
+        analyse(sets[s], context);
+      }
+    }
+
+    System.out.println("best of " + rounds + " rounds");
+    System.out.println(
+      "depth           x          compound  set           words/s  bytes/word");
+
+    for(int d = 0; d < depths.length; d++)
+    {
+      for(int x = 0; x < AnalyserControl.XES.length; x++)
+      {
+        for(int c = 1; c >= 0; c--)
+        {
+          CompoundControl cc = new CompoundControl();
+          cc.setEnabled(c == 1);
+          AnalyserControl control =
+            new AnalyserControl(cc, depths[d], AnalyserControl.XES[x]);
+          AnalyserContext context = new AnalyserContext(control);
+          for(int s = 0; s < sets.length; s++)
+          {
+            if (!selected[s] || sets[s].length == 0)
+            {
+              continue;
+            }
+            measure(sets[s], context, rounds, AnalyserControl.XES[x],
+              SET_NAMES[s]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Analyse <code>words</code> by <code>context</code> once to warm up and
+   * then <code>rounds</code> times; print the best rate and allocation.
+   */
+  protected void measure(String[] words, AnalyserContext context, int rounds,
+    X x, String name)
+  {
+    analyse(words, context);
+    double time = Double.MAX_VALUE;
+    long bytes = Long.MAX_VALUE;
+    for(int r = 0; r < rounds; r++)
+    {
+      long allocated = allocated();
+      long start = System.nanoTime();
+      analyse(words, context);
+      time = Math.min(time, millis(start));
+      bytes = Math.min(bytes, allocated() - allocated);
+    }
+    AnalyserControl control = context.getControl();
+    System.out.println(
+      AnalyserControl.DEPTHS[control.getDepth()] +
+      pad("", 16 - AnalyserControl.DEPTHS[control.getDepth()].length()) +
+      x + pad("", 11 - x.toString().length()) +
+      (control.getCompoundControl().enabled() ? "on " : "off") +
+      pad("", 7) + name + pad("", 10 - name.length()) +
+      pad(format(1000.0 * words.length / time, 0), 11) +
+      pad(allocated() < 0 ? "-" : format((double)bytes / words.length, 0), 12));
+  }
+
+  protected void analyse(String[] words, AnalyserContext context)
+  {
+    for(int i = 0; i < words.length; i++)
+    {
+      analyser.analyse(words[i], context);
+    }
+  }
+
+  /**
+   * Return the depths given by {@link #DEPTHS} or all the depths.
+   */
+  protected int[] depths()
+  {
+    String s = System.getProperty(DEPTHS);
+    if (s == null)
+    {
+      int[] depths = new int[AnalyserControl.DEPTHS.length];
+      for(int i = 0; i < depths.length; i++)
+      {
+        depths[i] = i;
+      }
+      return depths;
+    }
+    StringTokenizer st = new StringTokenizer(s, ", ");
+    int[] depths = new int[st.countTokens()];
+    for(int i = 0; i < depths.length; i++)
+    {
+      depths[i] = Integer.parseInt(st.nextToken());
+    }
+    return depths;
+  }
+
+  /**
+   * Return which sets are selected by {@link #SETS}; all if not set.
+   */
+  protected boolean[] sets()
+  {
+    String s = System.getProperty(SETS);
+    boolean[] selected = new boolean[SET_NAMES.length];
+    for(int i = 0; i < SET_NAMES.length; i++)
+    {
+      selected[i] = s == null ||
+        ("," + s + ",").indexOf("," + SET_NAMES[i] + ",") >= 0;
+    }
+    return selected;
+  }
+
+  /**
+   * Generate at most <code>size</code> words of each kind.
+   * @param size the number of words per set
+   * @return the word sets indexed by kind
+   */
+  protected String[][] sets(int size)
+  {
+    List entries = new ArrayList();
+    Iterator it = dic.iterator();
+    while (it.hasNext())
+    {
+      Iterator wit = ((WordList)it.next()).getWords().values().iterator();
+      while (wit.hasNext())
+      {
+        Object o = wit.next();
+        if (o instanceof DictEntry && ((DictEntry)o).getWord().length() > 1)
+        {
+          entries.add(o);
+        }
+      }
+    }
+
+    List[] lists = new List[SET_NAMES.length];
+    for(int i = 0; i < lists.length; i++)
+    {
+      lists[i] = new ArrayList(size);
+    }
+    int full = 0;
+
+    AnalyserContext classifier =
+      new AnalyserContext(new AnalyserControl(AnalyserControl.ALL_COMPOUNDS));
+    Random random = new Random(SEED);
+    Set seen = new HashSet();
+
+    for(int n = 0; full < lists.length && n < 1000 * size &&
+      entries.size() > 0; n++)
+    {
+      DictEntry entry =
+        (DictEntry)entries.get(random.nextInt(entries.size()));
+      int kind = n % SET_NAMES.length;
+      List l = lists[kind];
+      if (l.size() == size)
+      {
+        continue;
+      }
+      String word = candidate(entry, kind, entries, random);
+      if (word == null || word.length() >= AnalyserContext.MAX_WORD_LENGTH ||
+        !seen.add(word))
+      {
+        continue;
+      }
+      if (accept(kind, analyser.analyse(word, classifier)))
+      {
+        l.add(word);
+        if (l.size() == size)
+        {
+          full++;
+        }
+      }
+    }
+
+    String[][] sets = new String[lists.length][];
+    for(int i = 0; i < lists.length; i++)
+    {
+      sets[i] = (String[])lists[i].toArray(new String[lists[i].size()]);
+    }
+    return sets;
+  }
+
+  /**
+   * Return a candidate word of kind <code>kind</code> made of
+   * <code>entry</code> or <code>null</code>.
+   */
+  protected String candidate(DictEntry entry, int kind, List entries,
+    Random random)
+  {
+    String word = entry.getWord();
+    String flags = entry.getFlagString();
+    AffixEntry affix;
+    switch (kind)
+    {
+      case DICTIONARY:
+        return word;
+      case INFLECTED:
+        affix = affix(rules, word, flags, false, false, random);
+        return affix == null ? null : affix.inflex(word);
+      case PREFIXED:
+        affix = affix(prefixRules(), word, flags, true, false, random);
+        return affix == null ? null : affix.inflex(word);
+      case CROSSED:
+        affix = affix(prefixRules(), word, flags, true, true, random);
+        if (affix == null)
+        {
+          return null;
+        }
+        word = affix.inflex(word);
+        affix = affix(prefixRules(), word, flags, false, true, random);
+        return affix == null ? null : affix.inflex(word);
+      case DERIVED:
+        if (!rules.hasSubRules())
+        {
+          return null;
+        }
+        affix = affix(rules.getSubRules(), word, flags, false, false, random);
+        if (affix == null)
+        {
+          return null;
+        }
+        word = affix.inflex(word);
+        // inflect half of the derivatives
+        if (random.nextBoolean())
+        {
+          AffixEntry suffix = affix(rules, word,
+            affix.getFlags().getFlagString(), false, false, random);
+          if (suffix != null)
+          {
+            word = suffix.inflex(word);
+          }
+        }
+        return word;
+      case COMPOUND:
+        DictEntry other =
+          (DictEntry)entries.get(random.nextInt(entries.size()));
+        return word + other.getWord().toLowerCase();
+      default:
+        return new StringBuffer(word).reverse().toString();
+    }
+  }
+
+  /**
+   * Return the rules of the first recursion level having prefixes; models
+   * like hu.def define prefixes for derivation only.
+   */
+  protected Rules prefixRules()
+  {
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      if (r.numPrefixEntries() > 0)
+      {
+        return r;
+      }
+    }
+    return rules;
+  }
+
+  /**
+   * Return a random affix entry of <code>rules</code> which is a prefix or
+   * suffix entry as told by <code>prefix</code>, crossable if told by
+   * <code>crossable</code>, of an affix named in <code>flags</code> and
+   * applicable to <code>word</code>; return <code>null</code> if none
+   * is found.
+   */
+  protected AffixEntry affix(Rules rules, String word, String flags,
+    boolean prefix, boolean crossable, Random random)
+  {
+    if (flags.length() == 0)
+    {
+      return null;
+    }
+    for(int i = 0; i < flags.length(); i++)
+    {
+      Affix affix = rules.getAffix(
+        Character.valueOf(flags.charAt(random.nextInt(flags.length()))));
+      if (affix == null || (affix instanceof Prefix) != prefix ||
+        (crossable && !affix.crossable()))
+      {
+        continue;
+      }
+      AffixEntry[] entries = affix.getEntries();
+      for(int j = 0; j < entries.length; j++)
+      {
+        AffixEntry entry = entries[random.nextInt(entries.length)];
+        if (entry != null && entry.check4Inflexion(word))
+        {
+          return entry;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return if <code>analyses</code> of a candidate of <code>kind</code>
+   * agree with the kind: a non-word has no analysis, a compound has a
+   * compound first analysis, a derived word has a derived not compound
+   * first analysis and the other kinds have a not compound first analysis.
+   */
+  protected boolean accept(int kind, List analyses)
+  {
+    if (kind == NONWORD || analyses.size() == 0)
+    {
+      return kind == NONWORD && analyses.size() == 0;
+    }
+    Analysis analysis = (Analysis)analyses.get(0);
+    switch (kind)
+    {
+      case COMPOUND:
+        return analysis.compound();
+      case DERIVED:
+        return analysis.derived() && !analysis.compound();
+      default:
+        return !analysis.compound();
+    }
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new AnalysisBenchmark().run(args);
+  }
+}
@@ -0,0 +1,220 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import net.sf.jhunlang.jmorph.AffixEntry;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Suffix;
+import net.sf.jhunlang.jmorph.SuffixEntry;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.cl.Cl;
+import net.sf.jhunlang.jmorph.factory.Loader;
+
+/**
+ * Bench is the common base of the benchmark command line tools. It loads
+ * the model given by the definition file on the command line (the bundled
+ * <code>hu.def</code> by default) and provides the words to measure on.
+ * The words are read from the file given by the system property
+ * {@link #INPUT}, one word per line, or sampled from the loaded
+ * dictionaries if the property is not set.
+ */
+public abstract class Bench extends Loader
+{
+  /**
+   * Property name for the file of words to measure on.
+   */
+  public final static String INPUT = Cl.INPUT;
+  /**
+   * Property name for the number of words to sample if no input is given.
+   */
+  public final static String SAMPLE = "sample";
+  /**
+   * The default number of sampled words.
+   */
+  public final static int DEFAULT_SAMPLE = 20000;
+  /**
+   * The seed of the random generator sampling words.
+   */
+  public final static long SEED = 20050607L;
+
+  /**
+   * The character encoding of the input file.
+   */
+  protected String encoding =
+    System.getProperty(Cl.ENCODING, Cl.DEFAULT_ENCODING);
+
+  /**
+   * Return the words of the file given by {@link #INPUT} if any; otherwise
+   * return words sampled by {@link #sample(int)} from the dictionaries.
+   * @return the list of words to measure on
+   * @throws IOException if reading the input file fails
+   */
+  protected List words()
+    throws IOException
+  {
+    String input = System.getProperty(INPUT);
+    if (input == null)
+    {
+      return sample(Integer.getInteger(SAMPLE, DEFAULT_SAMPLE).intValue());
+    }
+    List words = new ArrayList();
+    BufferedReader reader = new BufferedReader(
+      new InputStreamReader(new FileInputStream(input), encoding));
+    try
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        line = line.trim();
+        if (line.length() > 0)
+        {
+          words.add(line);
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+    return words;
+  }
+
+  /**
+   * Return <code>num</code> words sampled from the dictionaries. Half of
+   * the words are dictionary words, the other half are their forms
+   * inflected by one of the suffixes they admit.
+   * @param num the number of words to return
+   * @return the sampled words in random order
+   */
+  protected List sample(int num)
+  {
+    List entries = new ArrayList();
+    Iterator it = dic.iterator();
+    while (it.hasNext())
+    {
+      Iterator wit = ((WordList)it.next()).getWords().values().iterator();
+      while (wit.hasNext())
+      {
+        Object o = wit.next();
+        if (o instanceof DictEntry)
+        {
+          entries.add(o);
+        }
+      }
+    }
+
+    Random random = new Random(SEED);
+    List words = new ArrayList(num);
+
+    while (words.size() < num && entries.size() > 0)
+    {
+      DictEntry entry =
+        (DictEntry)entries.get(random.nextInt(entries.size()));
+      String word = entry.getWord();
+      if (word.length() >= 2 && (words.size() & 1) == 1)
+      {
+        String inflexed = inflex(entry, random);
+        if (inflexed != null)
+        {
+          word = inflexed;
+        }
+      }
+      words.add(word);
+    }
+    Collections.shuffle(words, random);
+    return words;
+  }
+
+  /**
+   * Return <code>entry</code> inflexed by a random suffix entry it admits or
+   * <code>null</code> if no such suffix found.
+   */
+  private String inflex(DictEntry entry, Random random)
+  {
+    String flags = entry.getFlagString();
+    for(int i = 0; i < flags.length(); i++)
+    {
+      int k = random.nextInt(flags.length());
+      Suffix suffix = rules.getSuffix(Character.valueOf(flags.charAt(k)));
+      if (suffix == null)
+      {
+        continue;
+      }
+      AffixEntry[] entries = suffix.getEntries();
+      for(int j = 0; j < entries.length; j++)
+      {
+        SuffixEntry se = (SuffixEntry)entries[random.nextInt(entries.length)];
+        if (se != null && se.check4Inflexion(entry.getWord()))
+        {
+          return se.inflex(entry.getWord());
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the number of bytes allocated by the current thread so far or
+   * -1 if the JVM does not count allocation per thread. The count is read
+   * from the HotSpot <code>com.sun.management.ThreadMXBean</code>.
+   * @return the number of bytes allocated by the current thread
+   */
+  protected static long allocated()
+  {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean))
+    {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean)bean;
+    if (!threads.isThreadAllocatedMemoryEnabled())
+    {
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Return the elapsed time since <code>start</code> in milliseconds.
+   * @param start the start time as returned by {@link System#nanoTime()}
+   * @return the elapsed milliseconds
+   */
+  protected static double millis(long start)
+  {
+    return (System.nanoTime() - start) / 1e6;
+  }
+
+  /**
+   * Return <code>d</code> formatted with <code>digits</code> fraction digits.
+   */
+  protected static String format(double d, int digits)
+  {
+    return String.format("%." + digits + "f", new Object[] { Double.valueOf(d) });
+  }
+
+  /**
+   * Return <code>s</code> padded with leading spaces to <code>width</code>.
+   */
+  protected static String pad(String s, int width)
+  {
+    StringBuffer sb = new StringBuffer();
+    for(int i = s.length(); i < width; i++)
+    {
+      sb.append(' ');
+    }
+    return sb.append(s).toString();
+  }
+}
@@ -0,0 +1,243 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.Hashtable;
+import java.util.Random;
+import java.util.TreeSet;
+
+import net.sf.jhunlang.jmorph.util.BoundedHashtable;
+import net.sf.jhunlang.jmorph.util.StripedBoundedCache;
+
+/**
+ * CacheBenchmark compares {@link BoundedHashtable} with the former
+ * implementation keeping the age order of its keys in a TreeSet of boxed
+ * ages (mirrored here as {@link TreeSetHashtable}). Both are run on the same
+ * sequence of gets and puts of skewed random keys; the one thread run
+ * prints the time per operation. A {@link StripedBoundedCache} of one and
+ * of {@link ScalingBenchmark#THREADS} stripes is then run by that many
+ * threads.<p>
+ * Usage:
+ * <pre>
+ *   java [-Dthreads=n] [-Drounds=r] [-Dcapacity=c] [-Dops=n]
+ *     net.sf.jhunlang.jmorph.bench.CacheBenchmark
+ * </pre>
+ */
+public class CacheBenchmark extends Bench
+{
+  /**
+   * Property name for the capacity of the caches.
+   */
+  public final static String CAPACITY = "capacity";
+  /**
+   * Property name for the number of operations per round.
+   */
+  public final static String OPS = "ops";
+
+  protected Integer[] keys;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    int capacity = Integer.getInteger(CAPACITY, 10000).intValue();
+    int ops = Integer.getInteger(OPS, 1000000).intValue();
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+    int threads = Integer.getInteger(ScalingBenchmark.THREADS,
+      Runtime.getRuntime().availableProcessors()).intValue();
+    int dropLimit = capacity / 10;
+
+    // keys drawn from 4 times capacity distinct ones with a skew to the
+    // small ones; about half of the gets hit
+    Random random = new Random(SEED);
+    keys = new Integer[ops];
+    for(int i = 0; i < ops; i++)
+    {
+      double d = random.nextDouble();
+      keys[i] = Integer.valueOf((int)(4 * capacity * d * d));
+    }
+
+    Hashtable tree = new TreeSetHashtable(capacity, dropLimit);
+    Hashtable linked = new BoundedHashtable(capacity, dropLimit);
+    run(tree);
+    run(linked);
+
+    double treeTime = Double.MAX_VALUE;
+    double linkedTime = Double.MAX_VALUE;
+    for(int r = 0; r < rounds; r++)
+    {
+      tree.clear();
+      long start = System.nanoTime();
+      run(tree);
+      treeTime = Math.min(treeTime, millis(start));
+      linked.clear();
+      start = System.nanoTime();
+      run(linked);
+      linkedTime = Math.min(linkedTime, millis(start));
+    }
+    System.out.println(ops + " operations, capacity " + capacity +
+      ", drop limit " + dropLimit + ", best of " + rounds + " rounds");
+    System.out.println("TreeSet age order  " +
+      pad(format(1e6 * treeTime / ops, 1), 8) + " ns/op");
+    System.out.println("linked age order   " +
+      pad(format(1e6 * linkedTime / ops, 1), 8) + " ns/op");
+
+    double single = Double.MAX_VALUE;
+    double striped = Double.MAX_VALUE;
+    StripedBoundedCache one = new StripedBoundedCache(capacity, dropLimit);
+    StripedBoundedCache many =
+      new StripedBoundedCache(capacity, dropLimit, threads);
+    for(int r = 0; r < rounds; r++)
+    {
+      single = Math.min(single, run(one, threads));
+      striped = Math.min(striped, run(many, threads));
+    }
+    System.out.println(threads + " threads");
+    System.out.println("1 stripe           " +
+      pad(format(1e6 * single / ops, 1), 8) + " ns/op");
+    System.out.println(pad("" + many.getConcurrency(), 2) +
+      " stripes         " + pad(format(1e6 * striped / ops, 1), 8) + " ns/op");
+  }
+
+  /**
+   * Get each key and put it if it is missing.
+   */
+  protected void run(Hashtable cache)
+  {
+    for(int i = 0; i < keys.length; i++)
+    {
+      Integer key = keys[i];
+      if (cache.get(key) == null)
+      {
+        cache.put(key, key);
+      }
+    }
+  }
+
+  /**
+   * Share out the keys among <code>threads</code> threads getting and
+   * putting them in <code>cache</code>; return the elapsed milliseconds.
+   */
+  protected double run(final StripedBoundedCache cache, int threads)
+    throws InterruptedException
+  {
+    cache.clear();
+    Thread[] workers = new Thread[threads];
+    for(int i = 0; i < threads; i++)
+    {
+      final int first = i;
+      final int step = threads;
+      workers[i] = new Thread()
+      {
+        public void run()
+        {
+          for(int j = first; j < keys.length; j += step)
+          {
+            Integer key = keys[j];
+            if (cache.get(key) == null)
+            {
+              cache.put(key, key);
+            }
+          }
+        }
+      };
+    }
+    long start = System.nanoTime();
+    for(int i = 0; i < threads; i++)
+    {
+      workers[i].start();
+    }
+    for(int i = 0; i < threads; i++)
+    {
+      workers[i].join();
+    }
+    return millis(start);
+  }
+
+  /**
+   * The former BoundedHashtable: entries ordered by boxed age in a TreeSet.
+   */
+  protected static class TreeSetHashtable extends Hashtable
+  {
+    private final static long serialVersionUID = 1L;
+
+    protected long time;
+    protected TreeSet entries = new TreeSet();
+    protected int capacity;
+    protected int dropLimit;
+
+    TreeSetHashtable(int capacity, int dropLimit)
+    {
+      this.capacity = capacity;
+      this.dropLimit = dropLimit;
+    }
+
+    public void remove(int drop)
+    {
+      while(drop-- > 0)
+      {
+        Entry e = (Entry)entries.first();
+        super.remove(e.key);
+        entries.remove(e);
+      }
+    }
+
+    public Object remove(Object key)
+    {
+      Entry o = (Entry)super.remove(key);
+      if (o != null)
+      {
+        entries.remove(o);
+      }
+      return o == null ? null : o.value;
+    }
+
+    public Object put(Object key, Object value)
+    {
+      Entry e = new Entry(key, value);
+      Entry o = (Entry)super.put(key, e);
+      if (o != null)
+      {
+        entries.remove(o);
+      }
+      entries.add(e);
+      int drop = size() - capacity;
+      remove(drop > dropLimit ? drop : 0);
+      return o == null ? null : o.value;
+    }
+
+    public Object get(Object key)
+    {
+      Entry o = (Entry)super.get(key);
+      return o == null ? null : o.value;
+    }
+
+    public void clear()
+    {
+      super.clear();
+      entries.clear();
+    }
+
+    class Entry implements Comparable
+    {
+      Long age;
+      Object key;
+      Object value;
+
+      Entry(Object key, Object value)
+      {
+        age = Long.valueOf(time++);
+        this.key = key;
+        this.value = value;
+      }
+
+      public int compareTo(Object o)
+      {
+        return age.compareTo(((Entry)o).age);
+      }
+    }
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new CacheBenchmark().run(args);
+  }
+}
@@ -0,0 +1,156 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import java.util.regex.Pattern;
+
+import net.sf.jhunlang.jmorph.AffixFlags;
+import net.sf.jhunlang.jmorph.CompoundDictEntry;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.WordList;
+
+/**
+ * CompoundBenchmark creates {@link CompoundDictEntry} instances of random
+ * pairs of dictionary entries and compares them to the former construction,
+ * which removed the prefix and the suffix flags of the rules from the flags
+ * of the components by regular expressions and concatenated the compound
+ * word eagerly. The output tells the time and the heap allocated per entry
+ * of both ways, the best of {@link ScalingBenchmark#ROUNDS} rounds, and if
+ * the flags are the same.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.CompoundBenchmark [definition]
+ * </pre>
+ */
+public class CompoundBenchmark extends Bench
+{
+  protected DictEntry[] left;
+  protected DictEntry[] right;
+  protected Pattern prefixPattern;
+  protected Pattern suffixPattern;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    List entries = new ArrayList();
+    Iterator it = dic.iterator();
+    while (it.hasNext())
+    {
+      Iterator wit = ((WordList)it.next()).getWords().values().iterator();
+      while (wit.hasNext())
+      {
+        Object o = wit.next();
+        if (o instanceof DictEntry)
+        {
+          entries.add(o);
+        }
+      }
+    }
+    int num = Integer.getInteger(SAMPLE, DEFAULT_SAMPLE).intValue();
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+    Random random = new Random(SEED);
+    left = new DictEntry[num];
+    right = new DictEntry[num];
+    for(int i = 0; i < num; i++)
+    {
+      left[i] = (DictEntry)entries.get(random.nextInt(entries.size()));
+      right[i] = (DictEntry)entries.get(random.nextInt(entries.size()));
+    }
+    prefixPattern = pattern(rules.getPrefixFlags());
+    suffixPattern = pattern(rules.getSuffixFlags());
+
+    boolean same = true;
+    for(int i = 0; i < num; i++)
+    {
+      same &= new CompoundDictEntry(rules, left[i], right[i]).getFlags() ==
+        former(left[i], right[i]);
+    }
+
+    String[] names = {"entries", "former"};
+    System.out.println(num + " pairs, best of " + rounds + " rounds");
+    for(int k = 0; k < names.length; k++)
+    {
+      run(k);
+      double time = Double.MAX_VALUE;
+      long bytes = Long.MAX_VALUE;
+      for(int r = 0; r < rounds; r++)
+      {
+        long allocated = allocated();
+        long start = System.nanoTime();
+        run(k);
+        time = Math.min(time, millis(start));
+        bytes = Math.min(bytes, allocated() - allocated);
+      }
+      System.out.println(pad(names[k], 8) + " " +
+        pad(format(1e6 * time / num, 1), 8) + " ns/entry " +
+        pad(format((double)bytes / num, 1), 8) + " bytes/entry");
+    }
+    System.out.println("same flags " + same);
+  }
+
+  /**
+   * Run the <code>k</code>th way on the pairs and return a checksum.
+   */
+  protected int run(int k)
+  {
+    int sum = 0;
+    for(int i = 0; i < left.length; i++)
+    {
+      if (k == 0)
+      {
+        sum += new CompoundDictEntry(rules, left[i], right[i]).length();
+      }
+      else
+      {
+        sum += former(left[i], right[i]).size() +
+          (left[i].getWord() + right[i].getWord()).length();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Return the flags of the compound of <code>left</code> and
+   * <code>right</code> as the former construction derived them.
+   */
+  protected AffixFlags former(DictEntry left, DictEntry right)
+  {
+    return left.getFlags().remove(suffixPattern).add(
+      right.getFlags().remove(prefixPattern));
+  }
+
+  /**
+   * Return the character class matching the characters of
+   * <code>flags</code> or <code>null</code> if there are none.
+   */
+  protected static Pattern pattern(AffixFlags flags)
+  {
+    String s = flags.getFlagString();
+    if (s.length() == 0)
+    {
+      return null;
+    }
+    StringBuffer sb = new StringBuffer("[");
+    for(int i = 0; i < s.length(); i++)
+    {
+      String hex = Integer.toHexString(s.charAt(i));
+      while (hex.length() < 4)
+      {
+        hex = "0" + hex;
+      }
+      sb.append("\\u" + hex);
+    }
+    return Pattern.compile(sb.append("]").toString());
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new CompoundBenchmark().run(args);
+  }
+}
@@ -0,0 +1,160 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.Collection;
+import java.util.List;
+
+import net.sf.jhunlang.jmorph.Condition;
+import net.sf.jhunlang.jmorph.Conditions;
+import net.sf.jhunlang.jmorph.Conditionsmap;
+
+/**
+ * ConditionBenchmark checks the ends of the words to measure on against
+ * all the distinct {@link Conditions} of the loaded rules as the suffix
+ * entries do, by the tables {@link Conditionsmap} compiles them into and
+ * by calling the {@link Condition} instances one by one. The output tells
+ * the number of Conditions, how many are compiled, the number of character
+ * codes and the size of the tables, the time per check of both ways, the
+ * best of {@link ScalingBenchmark#ROUNDS} rounds, and if the results are
+ * the same.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dinput=file] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.ConditionBenchmark [definition]
+ * </pre>
+ */
+public class ConditionBenchmark extends Bench
+{
+  protected String[] words;
+  protected Conditions[] conditions;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    List l = words();
+    words = new String[l.size()];
+    for(int i = 0; i < words.length; i++)
+    {
+      words[i] = ((String)l.get(i)).toLowerCase();
+    }
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+
+    Conditionsmap map = rules.getConditionsMap();
+    Collection c = map.getConditions();
+    conditions = (Conditions[])c.toArray(new Conditions[c.size()]);
+    int compiled = 0;
+    long bytes = 0;
+    for(int i = 0; i < conditions.length; i++)
+    {
+      if (conditions[i].compiled())
+      {
+        compiled++;
+        bytes += AffixTrieBenchmark.ARRAY_HEADER +
+          8 * conditions[i].getTableLength();
+      }
+    }
+    System.out.println(conditions.length + " conditions, " + compiled +
+      " compiled, " + map.getCodeCount() + " character codes, " + bytes +
+      " table bytes");
+
+    // warm up
+    for(int i = 0; i < 3; i++)
+    {
+      compiled();
+      interpreted();
+    }
+
+    double table = Double.MAX_VALUE;
+    double calls = Double.MAX_VALUE;
+    long admitted = 0;
+    long same = 0;
+    for(int r = 0; r < rounds; r++)
+    {
+      long start = System.nanoTime();
+      admitted = compiled();
+      table = Math.min(table, millis(start));
+      start = System.nanoTime();
+      same = interpreted();
+      calls = Math.min(calls, millis(start));
+    }
+    long checks = (long)words.length * conditions.length;
+    System.out.println(words.length + " words, " + checks + " checks, " +
+      "best of " + rounds + " rounds");
+    System.out.println("table      " +
+      pad(format(1e6 * table / checks, 2), 8) + " ns/check");
+    System.out.println("conditions " +
+      pad(format(1e6 * calls / checks, 2), 8) + " ns/check");
+    System.out.println("same results " + (admitted == same));
+  }
+
+  /**
+   * Check the end of each word by the compiled tables and return the hash
+   * of the admitted checks.
+   */
+  protected long compiled()
+  {
+    long admitted = 0;
+    for(int w = 0; w < words.length; w++)
+    {
+      String word = words[w];
+      for(int i = 0; i < conditions.length; i++)
+      {
+        Conditions conds = conditions[i];
+        int j = word.length() - conds.getConditions().length;
+        if (j >= 0 && conds.admit(word, j))
+        {
+          admitted = 31 * admitted + i + 1;
+        }
+      }
+    }
+    return admitted;
+  }
+
+  /**
+   * Check the end of each word by calling the conditions and return the
+   * hash of the admitted checks.
+   */
+  protected long interpreted()
+  {
+    long admitted = 0;
+    for(int w = 0; w < words.length; w++)
+    {
+      String word = words[w];
+      for(int i = 0; i < conditions.length; i++)
+      {
+        if (admit(conditions[i].getConditions(), word))
+        {
+          admitted = 31 * admitted + i + 1;
+        }
+      }
+    }
+    return admitted;
+  }
+
+  /**
+   * Return if the end of <code>word</code> satisfies
+   * <code>conditions</code>.
+   */
+  protected boolean admit(Condition[] conditions, String word)
+  {
+    int j = word.length() - conditions.length;
+    if (j < 0)
+    {
+      return false;
+    }
+    for(int i = 0; i < conditions.length; i++, j++)
+    {
+      if (!conditions[i].admit(word.charAt(j)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new ConditionBenchmark().run(args);
+  }
+}
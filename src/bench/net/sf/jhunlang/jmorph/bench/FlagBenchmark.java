@@ -0,0 +1,170 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.List;
+import java.util.Random;
+
+import net.sf.jhunlang.jmorph.AffixFlags;
+import net.sf.jhunlang.jmorph.Registry;
+
+/**
+ * FlagBenchmark reports the heap footprint of the {@link AffixFlags}
+ * interned in the registry of the loaded model compared to that of the
+ * former layout, where each instance had an <code>int</code> bitmap of the
+ * flag capacity and was mapped by its ordered flag string in a concurrent
+ * hash map. The footprints are estimated from the layout of the objects
+ * with compressed references; the flag strings, kept by both layouts, are
+ * left out. Then it measures the time and the heap allocated per
+ * {@link AffixFlags#hasFlag(int)}, {@link AffixFlags#contains(AffixFlags)},
+ * {@link AffixFlags#add(AffixFlags)} and
+ * {@link AffixFlags#remove(AffixFlags)} on random pairs of the interned
+ * flags, the best of {@link ScalingBenchmark#ROUNDS} rounds; the flags
+ * derived by the first round are interned before measuring.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.FlagBenchmark [definition]
+ * </pre>
+ */
+public class FlagBenchmark extends Bench
+{
+  /**
+   * The assumed size of an object header in bytes.
+   */
+  public final static int OBJECT_HEADER = 12;
+  /**
+   * The assumed size of a concurrent hash map node in bytes.
+   */
+  public final static int MAP_NODE = 32;
+
+  protected AffixFlags[] left;
+  protected AffixFlags[] right;
+  protected char[] characters;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    Registry registry = rules.getRegistry();
+    List flags = registry.getAffixFlags();
+    int count = flags.size();
+
+    // six references of the former instances, the bitmap and the map entry
+    long former = count *
+      (align(OBJECT_HEADER + 6 * AffixTrieBenchmark.REFERENCE) +
+      align(AffixTrieBenchmark.ARRAY_HEADER + registry.getFlagCapacity() / 8) +
+      MAP_NODE + 2 * AffixTrieBenchmark.REFERENCE);
+    // five references, two longs and the hash, the rest arrays and the table
+    long compact = count * align(OBJECT_HEADER +
+      5 * AffixTrieBenchmark.REFERENCE + 2 * 8 + 4) +
+      AffixTrieBenchmark.ARRAY_HEADER +
+      (long)AffixTrieBenchmark.REFERENCE * registry.getAffixFlagsTableLength() +
+      AffixTrieBenchmark.ARRAY_HEADER + 2 * registry.getFlagIds().length;
+    int rests = 0;
+    for(int i = 0; i < count; i++)
+    {
+      AffixFlags f = (AffixFlags)flags.get(i);
+      int n = f.size();
+      if (registry.getFlagCount() > 128 && n > 0)
+      {
+        // an upper bound: the flags of ids below 128 are in the bitmaps
+        rests++;
+        compact += align(AffixTrieBenchmark.ARRAY_HEADER + 2 * n);
+      }
+    }
+    System.out.println(count + " flags of " + registry.getFlagCount() +
+      " flag characters, " + rests + " with ids over 127");
+    System.out.println("former  " + pad("" + former, 10) + " bytes");
+    System.out.println("compact " + pad("" + compact, 10) + " bytes");
+    System.out.println("saved   " + pad("" + (former - compact), 10) +
+      " bytes, " + format(100.0 * (former - compact) / former, 1) + "%");
+
+    int num = Integer.getInteger(SAMPLE, DEFAULT_SAMPLE).intValue();
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 5).intValue();
+    Random random = new Random(SEED);
+    left = new AffixFlags[num];
+    right = new AffixFlags[num];
+    for(int i = 0; i < num; i++)
+    {
+      left[i] = (AffixFlags)flags.get(random.nextInt(count));
+      right[i] = (AffixFlags)flags.get(random.nextInt(count));
+    }
+    characters = new char[registry.getFlagCount()];
+    char[] ids = registry.getFlagIds();
+    for(int c = 0; c < ids.length; c++)
+    {
+      if (ids[c] != 0)
+      {
+        characters[ids[c] - 1] = (char)c;
+      }
+    }
+
+    String[] names = {"hasFlag", "contains", "add", "remove"};
+    int[] ops = {num * characters.length, num, num, num};
+    System.out.println(num + " pairs, best of " + rounds + " rounds");
+    for(int k = 0; k < names.length; k++)
+    {
+      run(k);
+      double time = Double.MAX_VALUE;
+      long bytes = Long.MAX_VALUE;
+      for(int r = 0; r < rounds; r++)
+      {
+        long allocated = allocated();
+        long start = System.nanoTime();
+        run(k);
+        time = Math.min(time, millis(start));
+        bytes = Math.min(bytes, allocated() - allocated);
+      }
+      System.out.println(pad(names[k], 8) + " " +
+        pad(format(1e6 * time / ops[k], 2), 8) + " ns/op " +
+        pad(format((double)bytes / ops[k], 2), 8) + " bytes/op");
+    }
+    System.out.println(registry.getAffixFlagsCount() + " flags interned");
+  }
+
+  /**
+   * Run the <code>k</code>th operation on the pairs and return a checksum.
+   */
+  protected int run(int k)
+  {
+    int sum = 0;
+    for(int i = 0; i < left.length; i++)
+    {
+      AffixFlags l = left[i];
+      switch (k)
+      {
+        case 0:
+          for(int c = 0; c < characters.length; c++)
+          {
+            if (l.hasFlag(characters[c]))
+            {
+              sum++;
+            }
+          }
+          break;
+        case 1:
+          sum += l.contains(right[i]) ? 1 : 0;
+          break;
+        case 2:
+          sum += l.add(right[i]).size();
+          break;
+        default:
+          sum += l.remove(right[i]).size();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Return <code>size</code> aligned to 8 bytes.
+   */
+  protected static long align(long size)
+  {
+    return (size + 7) & ~7L;
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new FlagBenchmark().run(args);
+  }
+}
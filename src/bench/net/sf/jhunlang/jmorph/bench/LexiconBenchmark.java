@@ -0,0 +1,119 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.List;
+
+import java.io.File;
+
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.Lexicon;
+import net.sf.jhunlang.jmorph.synth.LexiconBuilder;
+
+/**
+ * LexiconBenchmark builds the {@link Lexicon} of the words to measure on,
+ * writes it to a temporary file and reads it back, then analyses the words
+ * by an {@link AnalyserImpl} without and with the lexicon at the depth of
+ * {@link LexiconBuilder#DEPTH}. The output tells the size of the lexicon,
+ * the time of building it, the share of the words it answers, the time
+ * per word of both ways, the best of {@link ScalingBenchmark#ROUNDS}
+ * rounds, and if the analyses are the same.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dsample=n] [-Dinput=words] [-Dlexicon.depth=d]
+ *     [-Dlexicon.verify=false]
+ *     net.sf.jhunlang.jmorph.bench.LexiconBenchmark [definition]
+ * </pre>
+ */
+public class LexiconBenchmark extends Bench
+{
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    List words = words();
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+
+    LexiconBuilder builder = new LexiconBuilder(rules, dic);
+    builder.setFilter(words);
+    long start = System.nanoTime();
+    Lexicon lexicon = builder.build();
+    double buildTime = millis(start);
+
+    File file = File.createTempFile("lexicon", ".lex");
+    try
+    {
+      lexicon.write(file);
+      lexicon = Lexicon.read(file, rules, dic);
+      System.out.println(lexicon + ", " + file.length() + " bytes");
+    }
+    finally
+    {
+      file.delete();
+    }
+    System.out.println("built of " + builder.getRecordCount() +
+      " records in " + format(buildTime, 0) + " ms, " +
+      builder.getDropCount() + " of " + builder.getFormCount() +
+      " forms left out");
+
+    AnalyserImpl analyser = new AnalyserImpl(rules, dic);
+    AnalyserContext context =
+      new AnalyserContext(new AnalyserControl(lexicon.getDepth()));
+
+    int hits = 0;
+    for(int i = 0; i < words.size(); i++)
+    {
+      if (lexicon.analyse((String)words.get(i), context.getControl()) != null)
+      {
+        hits++;
+      }
+    }
+
+    List[] without = new List[words.size()];
+    List[] with = new List[words.size()];
+    double searchTime = Double.MAX_VALUE;
+    double lexiconTime = Double.MAX_VALUE;
+    for(int r = 0; r < rounds; r++)
+    {
+      analyser.setLexicon(null);
+      start = System.nanoTime();
+      for(int i = 0; i < without.length; i++)
+      {
+        without[i] = analyser.analyse((String)words.get(i), context);
+      }
+      searchTime = Math.min(searchTime, millis(start));
+      analyser.setLexicon(lexicon);
+      start = System.nanoTime();
+      for(int i = 0; i < with.length; i++)
+      {
+        with[i] = analyser.analyse((String)words.get(i), context);
+      }
+      lexiconTime = Math.min(lexiconTime, millis(start));
+    }
+
+    int differ = 0;
+    for(int i = 0; i < with.length; i++)
+    {
+      if (!with[i].toString().equals(without[i].toString()))
+      {
+        differ++;
+      }
+    }
+    System.out.println(words.size() + " words at " +
+      AnalyserControl.DEPTHS[lexicon.getDepth()] + ", " +
+      format(100.0 * hits / words.size(), 1) + "% answered by the lexicon, " +
+      "best of " + rounds + " rounds");
+    System.out.println("search           " +
+      pad(format(1e3 * searchTime / words.size(), 2), 8) + " us/word");
+    System.out.println("lexicon first    " +
+      pad(format(1e3 * lexiconTime / words.size(), 2), 8) + " us/word");
+    System.out.println("same analyses    " +
+      (differ == 0 ? "yes" : "NO, " + differ + " words differ"));
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new LexiconBenchmark().run(args);
+  }
+}
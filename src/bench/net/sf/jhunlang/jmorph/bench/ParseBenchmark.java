@@ -0,0 +1,160 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import net.sf.jhunlang.jmorph.Affix;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Registry;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.factory.Definition;
+import net.sf.jhunlang.jmorph.parser.AbstractReader;
+import net.sf.jhunlang.jmorph.parser.ListReader;
+
+/**
+ * ParseBenchmark compares reading the affix file and the dictionary files
+ * of a definition through a character stream with reading them by a
+ * {@link net.sf.jhunlang.jmorph.parser.ByteScanner}. Each file is read
+ * {@link ScalingBenchmark#ROUNDS} times each way in the calling thread with
+ * a new {@link Registry}; the dictionaries are read after the affix file
+ * they depend on. The output tells the best time, the bytes allocated
+ * while reading and if the two ways read the same rules and words.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] net.sf.jhunlang.jmorph.bench.ParseBenchmark
+ *     [definition]
+ * </pre>
+ */
+public class ParseBenchmark extends Bench
+{
+  protected String[] args;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    this.args = args;
+    read(args);
+    int files = adef.length;
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+
+    System.out.println("best of " + rounds + " rounds");
+    System.out.println(
+      "file                  reader        ms   MB allocated  same");
+    for(int i = 0; i < files; i++)
+    {
+      String name = adef[i].getURL().getPath();
+      name = name.substring(name.lastIndexOf('/') + 1);
+      long[] stream = measure(i, false, rounds);
+      long[] scan = measure(i, true, rounds);
+      print(name, "stream", stream, null);
+      print(name, "scanner", scan, stream[2] == scan[2] ? "yes" : "NO");
+    }
+  }
+
+  /**
+   * Read the file of the <code>index</code>th definition
+   * <code>rounds</code> times by or without a scanner. Return the best
+   * time in nanoseconds, the least bytes allocated and the checksum of
+   * the result.
+   */
+  protected long[] measure(int index, boolean scan, int rounds)
+    throws Exception
+  {
+    long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, 0 };
+    for(int r = 0; r < rounds; r++)
+    {
+      Registry old = Registry.setCurrent(new Registry());
+      try
+      {
+        read(args);
+        if (index > 0)
+        {
+          // the dictionaries depend on the derivatives of the affix file
+          adef[0].read();
+        }
+        Definition def = adef[index];
+        AbstractReader reader = def.getReader();
+        reader.setScan(scan);
+        if (reader instanceof ListReader)
+        {
+          ((ListReader)reader).setThreads(1);
+        }
+        System.gc();
+        long bytes = allocated();
+        long start = System.nanoTime();
+        Object result = def.read();
+        long time = System.nanoTime() - start;
+        bytes = allocated() - bytes;
+        best[0] = Math.min(best[0], time);
+        best[1] = Math.min(best[1], bytes);
+        best[2] = checksum(result);
+      }
+      finally
+      {
+        Registry.setCurrent(old);
+      }
+    }
+    return best;
+  }
+
+  protected void print(String name, String reader, long[] m, String same)
+  {
+    System.out.println(name + pad("", 22 - name.length()) + reader +
+      pad("", 8 - reader.length()) + pad(format(m[0] / 1e6, 0), 8) +
+      pad(m[1] < 0 ? "n/a" : format(m[1] / 1048576.0, 1), 17) +
+      (same == null ? "" : pad(same, 6)));
+  }
+
+  /**
+   * Return the checksum of the affix entries of <code>result</code> if it is
+   * a {@link Rules} or of the entries of it if it is a {@link WordList}.
+   */
+  protected long checksum(Object result)
+  {
+    long sum = 0;
+    if (result instanceof Rules)
+    {
+      Rules rules = (Rules)result;
+      Iterator it = rules.getSuffixes().iterator();
+      while (it.hasNext())
+      {
+        sum = 31 * sum + ((Affix)it.next()).toLongString().hashCode();
+      }
+      it = rules.getPrefixes().iterator();
+      while (it.hasNext())
+      {
+        sum = 31 * sum + ((Affix)it.next()).toLongString().hashCode();
+      }
+    }
+    else if (result instanceof WordList)
+    {
+      Iterator it = ((WordList)result).getWords().values().iterator();
+      while (it.hasNext())
+      {
+        Object o = it.next();
+        if (o instanceof Map)
+        {
+          // homonyms
+          Iterator hit = ((Map)o).values().iterator();
+          while (hit.hasNext())
+          {
+            DictEntry entry = (DictEntry)hit.next();
+            sum = 31 * sum + entry.toLongString().hashCode();
+          }
+        }
+        else
+        {
+          sum = 31 * sum + ((DictEntry)o).toLongString().hashCode();
+        }
+      }
+    }
+    return sum;
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new ParseBenchmark().run(args);
+  }
+}
@@ -0,0 +1,263 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+
+/**
+ * Regression analyses the words of a fixture for each depth of
+ * {@link #DEPTHS} and each of {@link AnalyserControl#XES} and compares the
+ * analyses to the expected ones, one line per word and control:
+ * <pre>
+ *   depth x word [analyses]
+ * </pre>
+ * The fixture files are UTF-8 encoded. The output is written to the file
+ * given by {@link #OUTPUT} if set. The differing lines are reported and
+ * the exit status is 1 if there are any. The <code>regression</code>
+ * target of the build file runs it with the default settings and with
+ * each switch of the analysis.<p>
+ * If {@link #THREADS} is set to more than one then the lines are analysed
+ * by that many threads at the same time, each taking every n-th line.
+ * The lines of the default control of the analyser are analysed by
+ * {@link AnalyserImpl#analyse(String)} with concurrent analysis switched
+ * on, so the threads borrow their contexts from the
+ * {@link net.sf.jhunlang.jmorph.analysis.AnalyserContextPool}; the other
+ * lines are analysed by contexts of the threads' own.<p>
+ * Usage:
+ * <pre>
+ *   java [-Dregression.output=file] [-Dregression.threads=n]
+ *     net.sf.jhunlang.jmorph.bench.Regression words expected [definition]
+ * </pre>
+ */
+public class Regression extends Bench
+{
+  /**
+   * System property for the file to write the output to.
+   */
+  public final static String OUTPUT = "regression.output";
+  /**
+   * System property for the number of threads analysing the lines.
+   */
+  public final static String THREADS = "regression.threads";
+  /**
+   * The depths the words are analysed for.
+   */
+  public final static int[] DEPTHS =
+  {
+    AnalyserControl.FIRST_STEM, AnalyserControl.ALL_SUFFIXES,
+    AnalyserControl.ALL_CROSSES, AnalyserControl.ALL_COMPOUNDS
+  };
+  /**
+   * The number of differing lines reported.
+   */
+  public final static int REPORT = 20;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    if (args.length < 2 || args.length > 3)
+    {
+      System.err.println("Usage: Regression words expected [definition]");
+      System.exit(2);
+    }
+    String[] defArgs = new String[args.length - 2];
+    System.arraycopy(args, 2, defArgs, 0, defArgs.length);
+    List words = lines(args[0]);
+    List expected = lines(args[1]);
+
+    load(defArgs);
+    AnalyserImpl analyser = createAnalyser();
+
+    int threads = Integer.getInteger(THREADS, 1).intValue();
+    List actual = threads > 1 ?
+      analyseConcurrently(analyser, words, threads) :
+      analyse(analyser, words);
+
+    String output = System.getProperty(OUTPUT);
+    if (output != null)
+    {
+      PrintWriter p = new PrintWriter(new OutputStreamWriter(
+        new FileOutputStream(output), "UTF-8"));
+      try
+      {
+        for(int i = 0; i < actual.size(); i++)
+        {
+          p.println(actual.get(i));
+        }
+      }
+      finally
+      {
+        p.close();
+      }
+    }
+
+    int differ = Math.abs(actual.size() - expected.size());
+    for(int i = 0; i < Math.min(actual.size(), expected.size()); i++)
+    {
+      if (!actual.get(i).equals(expected.get(i)))
+      {
+        if (differ++ < REPORT)
+        {
+          System.out.println("expected " + expected.get(i));
+          System.out.println("actual   " + actual.get(i));
+        }
+      }
+    }
+    System.out.println(actual.size() + " lines, " + differ + " differ");
+    if (differ > 0)
+    {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Return the lines of <code>words</code> analysed one after the other.
+   */
+  protected static List analyse(AnalyserImpl analyser, List words)
+  {
+    List actual = new ArrayList();
+    for(int i = 0; i < DEPTHS.length; i++)
+    {
+      for(int j = 0; j < AnalyserControl.XES.length; j++)
+      {
+        AnalyserContext context = new AnalyserContext(
+          new AnalyserControl(DEPTHS[i], AnalyserControl.XES[j]));
+        for(int k = 0; k < words.size(); k++)
+        {
+          actual.add(line(i, j, (String)words.get(k),
+            analyser.analyse((String)words.get(k), context)));
+        }
+      }
+    }
+    return actual;
+  }
+
+  /**
+   * Return the lines of <code>words</code> analysed by <code>threads</code>
+   * threads at the same time.
+   */
+  protected static List analyseConcurrently(final AnalyserImpl analyser,
+    final List words, final int threads)
+    throws Exception
+  {
+    if (analyser.getContextPool() == null)
+    {
+      analyser.setConcurrent(threads);
+    }
+    final String[] lines =
+      new String[DEPTHS.length * AnalyserControl.XES.length * words.size()];
+    final Throwable[] failure = new Throwable[1];
+    Thread[] workers = new Thread[threads];
+    for(int t = 0; t < threads; t++)
+    {
+      final int first = t;
+      workers[t] = new Thread("regression-" + t)
+      {
+        public void run()
+        {
+          try
+          {
+            AnalyserContext[][] contexts =
+              new AnalyserContext[DEPTHS.length][AnalyserControl.XES.length];
+            for(int n = first; n < lines.length; n += threads)
+            {
+              int k = n % words.size();
+              int j = n / words.size() % AnalyserControl.XES.length;
+              int i = n / words.size() / AnalyserControl.XES.length;
+              String word = (String)words.get(k);
+              List analyses;
+              if (DEPTHS[i] == AnalyserControl.DEFAULT_DEPTH &&
+                  AnalyserControl.XES[j] == AnalyserControl.DEFAULT_X)
+              {
+                analyses = analyser.analyse(word);
+              }
+              else
+              {
+                if (contexts[i][j] == null)
+                {
+                  contexts[i][j] = new AnalyserContext(
+                    new AnalyserControl(DEPTHS[i], AnalyserControl.XES[j]));
+                }
+                analyses = analyser.analyse(word, contexts[i][j]);
+              }
+              lines[n] = line(i, j, word, analyses);
+            }
+          }
+          catch (Throwable x)
+          {
+            synchronized (failure)
+            {
+              if (failure[0] == null)
+              {
+                failure[0] = x;
+              }
+            }
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for(int t = 0; t < threads; t++)
+    {
+      workers[t].join();
+    }
+    if (failure[0] != null)
+    {
+      throw new RuntimeException("analysis failed", failure[0]);
+    }
+    System.out.println(threads + " threads, " +
+      analyser.getContextPool().getCreated() + " pooled contexts");
+    return Arrays.asList(lines);
+  }
+
+  protected static String line(int i, int j, String word, List analyses)
+  {
+    return DEPTHS[i] + " " + AnalyserControl.XES[j] + " " + word + " " +
+      analyses;
+  }
+
+  /**
+   * Return the non-empty lines of the UTF-8 file <code>file</code>.
+   */
+  protected static List lines(String file)
+    throws IOException
+  {
+    List lines = new ArrayList();
+    BufferedReader reader = new BufferedReader(
+      new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        if (line.trim().length() > 0)
+        {
+          lines.add(line);
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+    return lines;
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new Regression().run(args);
+  }
+}
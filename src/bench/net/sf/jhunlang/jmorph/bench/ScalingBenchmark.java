@@ -0,0 +1,123 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.List;
+
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+
+/**
+ * ScalingBenchmark measures the throughput of concurrent analysis by
+ * {@link AnalyserImpl#analyse(String)} with a context pool switched on.
+ * It analyses the same words with 1, 2, 4 ... up to {@link #THREADS}
+ * threads and prints the words analysed per second, the speedup relative
+ * to the single thread run and the parallel efficiency.<p>
+ * Usage:
+ * <pre>
+ *   java [-Dthreads=n] [-Drounds=r] [-Dinput=file] [-Dsample=num]
+ *     net.sf.jhunlang.jmorph.bench.ScalingBenchmark [definition]
+ * </pre>
+ */
+public class ScalingBenchmark extends Bench
+{
+  /**
+   * Property name for the maximum number of threads.
+   */
+  public final static String THREADS = "threads";
+  /**
+   * Property name for the number of times each run analyses the words.
+   */
+  public final static String ROUNDS = "rounds";
+
+  protected AnalyserImpl analyser;
+
+  protected String[] words;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    long start = System.nanoTime();
+    load(args);
+    System.out.println("loaded in " + format(millis(start), 0) + " ms");
+
+    int maxThreads = Integer.getInteger(THREADS,
+      Runtime.getRuntime().availableProcessors()).intValue();
+    int rounds = Integer.getInteger(ROUNDS, 3).intValue();
+
+    List l = words();
+    words = (String[])l.toArray(new String[l.size()]);
+
+    analyser = createAnalyser();
+    analyser.setConcurrent(maxThreads);
+
+    // warm up with all threads so that every pooled context is initialised
+    measure(maxThreads, 1);
+
+    System.out.println(words.length + " words, " + rounds + " rounds");
+    System.out.println("threads     words/s  speedup  efficiency");
+
+    double single = 0;
+    for(int threads = 1; ; threads = Math.min(threads * 2, maxThreads))
+    {
+      double rate = measure(threads, rounds);
+      if (threads == 1)
+      {
+        single = rate;
+      }
+      double speedup = rate / single;
+      System.out.println(pad("" + threads, 7) +
+        pad(format(rate, 0), 12) + pad(format(speedup, 2), 9) +
+        pad(format(100 * speedup / threads, 1) + "%", 12));
+      if (threads == maxThreads)
+      {
+        break;
+      }
+    }
+    System.out.println(analyser.getContextPool());
+  }
+
+  /**
+   * Analyse all the words <code>rounds</code> times by <code>threads</code>
+   * threads and return the number of words analysed per second.
+   * @param threads the number of threads
+   * @param rounds the number of rounds
+   * @return words per second
+   */
+  protected double measure(int threads, final int rounds)
+    throws InterruptedException
+  {
+    Thread[] workers = new Thread[threads];
+    for(int i = 0; i < threads; i++)
+    {
+      final int first = i;
+      final int step = threads;
+      workers[i] = new Thread()
+      {
+        public void run()
+        {
+          for(int r = 0; r < rounds; r++)
+          {
+            for(int j = first; j < words.length; j += step)
+            {
+              analyser.analyse(words[j]);
+            }
+          }
+        }
+      };
+    }
+    long start = System.nanoTime();
+    for(int i = 0; i < threads; i++)
+    {
+      workers[i].start();
+    }
+    for(int i = 0; i < threads; i++)
+    {
+      workers[i].join();
+    }
+    return 1000.0 * words.length * rounds / millis(start);
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new ScalingBenchmark().run(args);
+  }
+}
@@ -0,0 +1,195 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.SplitAutomaton;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserMetrics;
+import net.sf.jhunlang.jmorph.analysis.CompoundControl;
+
+/**
+ * SplitBenchmark measures how many compound split points the
+ * {@link SplitAutomaton} of the dictionaries skips on long compounds and
+ * what it saves. The words are concatenations of 3 or 4 lowercase
+ * dictionary words of 20 to 40 characters generated with the fixed
+ * {@link Bench#SEED}, or the words of the file given by {@link Bench#INPUT}.
+ * They are analysed with the automaton and without it; the output tells
+ * the split points tried and skipped, the dictionary probes and the time
+ * per word, the best of {@link ScalingBenchmark#ROUNDS} rounds, and if the
+ * analyses of the two runs are the same.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dinput=file] [-Dsample=num] [-Ddepth=d]
+ *     net.sf.jhunlang.jmorph.bench.SplitBenchmark [definition]
+ * </pre>
+ */
+public class SplitBenchmark extends Bench
+{
+  /**
+   * Property name for the depth of the analysis.
+   */
+  public final static String DEPTH = "depth";
+  /**
+   * The default number of generated compounds.
+   */
+  public final static int DEFAULT_COMPOUNDS = 200;
+
+  protected AnalyserImpl analyser;
+  protected String[] words;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    analyser = createAnalyser();
+    analyser.setMetrics(true);
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+    int depth = Integer.getInteger(DEPTH,
+      AnalyserControl.DEFAULT_DEPTH).intValue();
+
+    List l = System.getProperty(INPUT) == null ?
+      compounds(Integer.getInteger(SAMPLE, DEFAULT_COMPOUNDS).intValue()) :
+      words();
+    words = (String[])l.toArray(new String[l.size()]);
+
+    long start = System.nanoTime();
+    automaton(true);
+    double build = millis(start);
+    System.out.println(dic.getAutomaton() + " built in " +
+      format(build, 0) + " ms");
+
+    // warm up both ways
+    AnalyserContext context = new AnalyserContext(new AnalyserControl(depth));
+    for(int i = 1; i >= 0; i--)
+    {
+      automaton(i == 1);
+      for(int j = 0; j < words.length; j++)
+      {
+        analyser.analyse(words[j], context);
+      }
+    }
+
+    System.out.println(words.length + " words, depth " +
+      AnalyserControl.DEPTHS[depth] + ", best of " + rounds + " rounds");
+    System.out.println(
+      "automaton  split points   skipped  probes/word  ms/word");
+    automaton(true);
+    List pruned = measure(depth, rounds, "on ");
+    automaton(false);
+    List all = measure(depth, rounds, "off");
+    automaton(true);
+    System.out.println("same analyses " + pruned.equals(all));
+  }
+
+  /**
+   * Build the automaton of the dictionaries if <code>on</code>; otherwise
+   * drop it.
+   */
+  protected void automaton(boolean on)
+  {
+    String property = System.getProperty(Dictionaries.AUTOMATON);
+    System.setProperty(Dictionaries.AUTOMATON, "" + on);
+    dic.buildAutomaton(rules, CompoundControl.DEFAULT_MIN);
+    if (property == null)
+    {
+      System.getProperties().remove(Dictionaries.AUTOMATON);
+    }
+    else
+    {
+      System.setProperty(Dictionaries.AUTOMATON, property);
+    }
+  }
+
+  /**
+   * Analyse the words once recording metrics and then <code>rounds</code>
+   * times; print the metrics and the best time. Return the analyses.
+   */
+  protected List measure(int depth, int rounds, String name)
+  {
+    AnalyserContext context =
+      new AnalyserContext(new AnalyserControl(depth));
+    analyser.getMonitor().reset();
+    List analyses = new ArrayList(words.length);
+    for(int i = 0; i < words.length; i++)
+    {
+      analyses.add(analyser.analyse(words[i], context).toString());
+    }
+    AnalyserMetrics metrics = analyser.getMonitor().getTotal();
+
+    double time = Double.MAX_VALUE;
+    for(int r = 0; r < rounds; r++)
+    {
+      long start = System.nanoTime();
+      for(int i = 0; i < words.length; i++)
+      {
+        analyser.analyse(words[i], context);
+      }
+      time = Math.min(time, millis(start));
+    }
+    long splits = metrics.getSplitPoints();
+    long skipped = metrics.getSkippedSplitPoints();
+    System.out.println(name + pad("" + splits, 20) +
+      pad(format(splits == 0 ? 0 : 100.0 * skipped / splits, 1) + "%", 10) +
+      pad(format((double)metrics.getDictionaryProbes() / words.length, 0), 13) +
+      pad(format(time / words.length, 2), 9));
+    return analyses;
+  }
+
+  /**
+   * Return <code>num</code> concatenations of 3 or 4 lowercase dictionary
+   * words of 4 to 9 characters, 20 to 40 characters long.
+   */
+  protected List compounds(int num)
+  {
+    List parts = new ArrayList();
+    Iterator it = dic.iterator();
+    while (it.hasNext())
+    {
+      Iterator wit = ((WordList)it.next()).getWords().values().iterator();
+      while (wit.hasNext())
+      {
+        Object o = wit.next();
+        if (o instanceof DictEntry)
+        {
+          String word = ((DictEntry)o).getWord();
+          if (word.length() >= 4 && word.length() <= 9 &&
+              word.equals(word.toLowerCase()))
+          {
+            parts.add(word);
+          }
+        }
+      }
+    }
+
+    Random random = new Random(SEED);
+    List compounds = new ArrayList(num);
+    while (compounds.size() < num && parts.size() > 0)
+    {
+      StringBuffer sb = new StringBuffer();
+      int n = 3 + random.nextInt(2);
+      for(int i = 0; i < n; i++)
+      {
+        sb.append(parts.get(random.nextInt(parts.size())));
+      }
+      if (sb.length() >= 20 && sb.length() <= 40)
+      {
+        compounds.add(sb.toString());
+      }
+    }
+    return compounds;
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new SplitBenchmark().run(args);
+  }
+}
@@ -0,0 +1,77 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.io.File;
+
+import java.net.URL;
+
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.factory.ModelImage;
+
+/**
+ * StartupBenchmark compares the time needed to get a ready analyser from
+ * the text model (parsing the definition, the affix file and the
+ * dictionaries) with the time needed to get it from a precompiled
+ * {@link ModelImage}. The image is written to the file given on the
+ * command line; each run is repeated {@link ScalingBenchmark#ROUNDS} times.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] net.sf.jhunlang.jmorph.bench.StartupBenchmark
+ *     [definition] image
+ * </pre>
+ */
+public class StartupBenchmark extends Bench
+{
+  public void run(String[] args)
+    throws Exception
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: StartupBenchmark [definition] image");
+      System.exit(2);
+    }
+    String[] defArgs = new String[args.length - 1];
+    System.arraycopy(args, 0, defArgs, 0, defArgs.length);
+    File file = new File(args[args.length - 1]);
+    URL url = file.toURI().toURL();
+
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+
+    double text = Double.MAX_VALUE;
+    for(int i = 0; i < rounds; i++)
+    {
+      long start = System.nanoTime();
+      load(defArgs);
+      new AnalyserImpl(rules, dic).analyse("");
+      text = Math.min(text, millis(start));
+    }
+
+    long start = System.nanoTime();
+    new ModelImage(rules, dic).write(file);
+    double write = millis(start);
+
+    double image = Double.MAX_VALUE;
+    for(int i = 0; i < rounds; i++)
+    {
+      rules = null;
+      dic = null;
+      start = System.nanoTime();
+      loadImage(url);
+      new AnalyserImpl(rules, dic).analyse("");
+      image = Math.min(image, millis(start));
+    }
+
+    System.out.println("image " + file + ": " + file.length() +
+      " bytes, written in " + format(write, 0) + " ms");
+    System.out.println("best of " + rounds + " rounds");
+    System.out.println("text  load " + pad(format(text, 0), 8) + " ms");
+    System.out.println("image load " + pad(format(image, 0), 8) + " ms");
+    System.out.println("speedup    " + pad(format(text / image, 2), 8));
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new StartupBenchmark().run(args);
+  }
+}
@@ -0,0 +1,140 @@
+package net.sf.jhunlang.jmorph.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.StemAutomaton;
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserMetrics;
+
+/**
+ * StemBenchmark measures what the {@link StemAutomaton} of the dictionaries
+ * saves in the suffix phase. The words are sampled from the dictionaries
+ * or read from the file given by {@link Bench#INPUT}; they are analysed
+ * with the automaton and without it. The output tells the stems pruned,
+ * the condition checks, the dictionary probes and the time per word, the
+ * best of {@link ScalingBenchmark#ROUNDS} rounds, and if the analyses of
+ * the two runs are the same.<p>
+ * Usage:
+ * <pre>
+ *   java [-Drounds=r] [-Dinput=file] [-Dsample=num] [-Ddepth=d]
+ *     net.sf.jhunlang.jmorph.bench.StemBenchmark [definition]
+ * </pre>
+ */
+public class StemBenchmark extends Bench
+{
+  protected AnalyserImpl analyser;
+  protected String[] words;
+
+  public void run(String[] args)
+    throws Exception
+  {
+    load(args);
+    analyser = createAnalyser();
+    analyser.setMetrics(true);
+    int rounds = Integer.getInteger(ScalingBenchmark.ROUNDS, 3).intValue();
+    int depth = Integer.getInteger(SplitBenchmark.DEPTH,
+      AnalyserControl.DEFAULT_DEPTH).intValue();
+
+    List l = words();
+    words = (String[])l.toArray(new String[l.size()]);
+
+    long start = System.nanoTime();
+    automaton(true);
+    double build = millis(start);
+    System.out.println(dic.getStemAutomaton() + " built in " +
+      format(build, 0) + " ms");
+
+    AnalyserContext context = new AnalyserContext(new AnalyserControl(depth));
+    automaton(true);
+    AnalyserMetrics on = new AnalyserMetrics();
+    List pruned = analyse(context, on);
+    automaton(false);
+    AnalyserMetrics off = new AnalyserMetrics();
+    List all = analyse(context, off);
+
+    // alternate the rounds of both ways
+    analyser.setMetrics(false);
+    double[] times = {Double.MAX_VALUE, Double.MAX_VALUE};
+    for(int r = 0; r < rounds; r++)
+    {
+      for(int k = 0; k < 2; k++)
+      {
+        automaton(k == 0);
+        start = System.nanoTime();
+        for(int i = 0; i < words.length; i++)
+        {
+          analyser.analyse(words[i], context);
+        }
+        times[k] = Math.min(times[k], millis(start));
+      }
+    }
+    automaton(true);
+
+    System.out.println(words.length + " words, depth " +
+      AnalyserControl.DEPTHS[depth] + ", best of " + rounds + " rounds");
+    System.out.println(
+      "automaton  pruned/word  conditions/word  probes/word  us/word");
+    print("on ", on, times[0]);
+    print("off", off, times[1]);
+    System.out.println("same analyses " + pruned.equals(all));
+  }
+
+  /**
+   * Build the stem automaton of the dictionaries if <code>on</code>;
+   * otherwise drop it.
+   */
+  protected void automaton(boolean on)
+  {
+    String property = System.getProperty(Dictionaries.STEMS);
+    System.setProperty(Dictionaries.STEMS, "" + on);
+    dic.buildStemAutomaton(rules);
+    if (property == null)
+    {
+      System.getProperties().remove(Dictionaries.STEMS);
+    }
+    else
+    {
+      System.setProperty(Dictionaries.STEMS, property);
+    }
+  }
+
+  /**
+   * Analyse the words by <code>context</code>, add the metrics of the
+   * analyses to <code>metrics</code> and return the analyses.
+   */
+  protected List analyse(AnalyserContext context, AnalyserMetrics metrics)
+  {
+    analyser.getMonitor().reset();
+    List analyses = new ArrayList(words.length);
+    for(int i = 0; i < words.length; i++)
+    {
+      analyses.add(analyser.analyse(words[i], context).toString());
+    }
+    metrics.add(analyser.getMonitor().getTotal());
+    return analyses;
+  }
+
+  /**
+   * Print the metrics per word and the time per word.
+   */
+  protected void print(String name, AnalyserMetrics metrics, double time)
+  {
+    long conditions =
+      metrics.getConditionHits() + metrics.getConditionEvaluations();
+    System.out.println(name +
+      pad(format((double)metrics.getPrunedStems() / words.length, 1), 19) +
+      pad(format((double)conditions / words.length, 1), 17) +
+      pad(format((double)metrics.getDictionaryProbes() / words.length, 1), 13) +
+      pad(format(1e3 * time / words.length, 1), 9));
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    new StemBenchmark().run(args);
+  }
+}
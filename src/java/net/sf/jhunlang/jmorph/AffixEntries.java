@@ -1,32 +1,63 @@
 package net.sf.jhunlang.jmorph;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.LinkedList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
  * AffixEntries stands for storing affix entry instances so that finding them
- * by their append be fast and easy.
+ * by their append be fast and easy. {@link #freeze()} makes an instance and
+ * its children immutable.
  */
 public class AffixEntries implements Serializable
 {
+  /**
+   * The number of children up to which {@link #getMap(char)} scans the keys;
+   * nodes with more children index their Latin-1 children in {@link #latin}.
+   */
+  public final static int LINEAR = 8;
+
+  /**
+   * The characters the elements of {@link #affixes} are associated with in
+   * ascending order. Only the first {@link #size} elements are used.
+   */
+  protected transient char[] keys;
   /**
    * AffixEntries instances for affix entries with append longer than the
-   * path to this instance, indexed by the character in their append next to
-   * the character this instance stands for.
+   * path to this instance; the i-th element stands for the character
+   * <code>keys[i]</code> in their append next to the character this
+   * instance stands for. Keeping the keys sorted instead of indexing by the
+   * characters themselves spares the mostly empty arrays of nodes with
+   * children like \u0151 or \u0171.
+   */
+  protected transient AffixEntries[] affixes;
+  /**
+   * The children of nodes with more than {@link #LINEAR} children indexed by
+   * their characters below \u0100 or <code>null</code>. It is as long as the
+   * greatest such character + 1; other children are searched in
+   * {@link #keys}.
    */
-  protected AffixEntries[] affixes;
+  protected transient AffixEntries[] latin;
   /**
-   * The size of {@link #affixes}.
+   * The number of children in {@link #keys} and {@link #affixes}.
    */
   protected int size;
   /**
    * Affix entries belonging to this instance hashed by their strip or null.
    */
-  protected Map byStrip;
+  protected transient Map byStrip;
+  /**
+   * Tells if this instance is frozen.
+   */
+  protected transient boolean frozen;
 
   /**
    * Create an affix entries instance for empty append string.
@@ -53,7 +84,73 @@ public class AffixEntries implements Serializable
    */
   public AffixEntries getMap(char c)
   {
-    return c < size ? affixes[c] : null;
+    if (latin != null && c < latin.length)
+    {
+      return latin[c];
+    }
+    if (size <= LINEAR)
+    {
+      for(int i = 0; i < size; i++)
+      {
+        if (keys[i] == c)
+        {
+          return affixes[i];
+        }
+      }
+      return null;
+    }
+    int low = 0;
+    int high = size - 1;
+    while (low <= high)
+    {
+      int mid = (low + high) >>> 1;
+      char key = keys[mid];
+      if (key < c)
+      {
+        low = mid + 1;
+      }
+      else if (key > c)
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        return affixes[mid];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the number of children of this instance.
+   * @return the number of characters associated with an AffixEntries
+   * instance
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Return the <code>i</code>th character associated with an AffixEntries
+   * instance in ascending order.
+   * @param i the index of the character
+   * @return the <code>i</code>th character
+   */
+  public char getKey(int i)
+  {
+    return keys[i];
+  }
+
+  /**
+   * Return the AffixEntries instance associated with the <code>i</code>th
+   * character.
+   * @param i the index of the character
+   * @return the <code>i</code>th AffixEntries instance
+   */
+  public AffixEntries getMap(int i)
+  {
+    return affixes[i];
   }
 
   /**
@@ -74,15 +171,18 @@ public class AffixEntries implements Serializable
    */
   protected void add(AffixEntry entry, int i)
   {    
+    if (frozen)
+    {
+      throw new IllegalStateException("frozen: " + this);
+    }
     if (i >= 0)
     {
       char affix = entry.getAppendCharAt(i);
-      assure(affix);
-      AffixEntries aff = affixes[affix];
+      AffixEntries aff = getMap(affix);
       if (aff == null)
       {
         aff = new AffixEntries();
-        affixes[affix] = aff;
+        insert(affix, aff);
       }
       aff.add(entry, i - 1);
       return;
@@ -117,24 +217,187 @@ public class AffixEntries implements Serializable
   }
 
   /**
-   * Assure that the length of {@link #affixes} be greater than
-   * <code>index</code>.
-   * @param index the index to assure
+   * Make this instance and its children immutable: {@link #byStrip} and
+   * its collections of entries with the same strip are replaced by
+   * unmodifiable views and adding entries throws
+   * <code>IllegalStateException</code>.
    */
-  protected void assure(int index)
+  public void freeze()
   {
-    if (size <= index)
+    if (frozen)
     {
-      AffixEntries[] at = new AffixEntries[index + 1];
-      if (affixes != null)
+      return;
+    }
+    for(int i = 0; i < size; i++)
+    {
+      affixes[i].freeze();
+    }
+    if (byStrip != null)
+    {
+      Map m = new TreeMap();
+      Iterator it = byStrip.entrySet().iterator();
+      while (it.hasNext())
       {
-        System.arraycopy(affixes, 0, at, 0, size);
+        Map.Entry e = (Map.Entry)it.next();
+        Object o = e.getValue();
+        m.put(e.getKey(), o instanceof Collection ?
+          Collections.unmodifiableCollection((Collection)o) : o);
       }
-      size = index + 1;
-      affixes = at;
+      byStrip = Collections.unmodifiableMap(m);
+    }
+    frozen = true;
+  }
+
+  /**
+   * Return if this instance is frozen.
+   * @return if this instance is frozen
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Associate <code>aff</code> with <code>c</code> not associated yet.
+   * The arrays grow by one so that they are never longer than needed.
+   * @param c the character
+   * @param aff the AffixEntries instance
+   */
+  protected void insert(char c, AffixEntries aff)
+  {
+    int at = 0;
+    while (at < size && keys[at] < c)
+    {
+      at++;
+    }
+    char[] k = new char[size + 1];
+    AffixEntries[] a = new AffixEntries[size + 1];
+    if (size > 0)
+    {
+      System.arraycopy(keys, 0, k, 0, at);
+      System.arraycopy(keys, at, k, at + 1, size - at);
+      System.arraycopy(affixes, 0, a, 0, at);
+      System.arraycopy(affixes, at, a, at + 1, size - at);
+    }
+    k[at] = c;
+    a[at] = aff;
+    keys = k;
+    affixes = a;
+    size++;
+    index();
+  }
+
+  /**
+   * Build {@link #latin} if this instance has more than {@link #LINEAR}
+   * children.
+   */
+  protected void index()
+  {
+    latin = null;
+    if (size <= LINEAR || keys[0] >= 0x100)
+    {
+      return;
+    }
+    int n = 0;
+    while (n < size && keys[n] < 0x100)
+    {
+      n++;
+    }
+    latin = new AffixEntries[keys[n - 1] + 1];
+    for(int i = 0; i < n; i++)
+    {
+      latin[keys[i]] = affixes[i];
     }
   }
   
+  /**
+   * Write the elements of {@link #affixes} with their characters and the
+   * affix entries of {@link #byStrip} instead of the arrays, the maps and
+   * the collections themselves.
+   */
+  private void writeObject(ObjectOutputStream out)
+    throws IOException
+  {
+    out.defaultWriteObject();
+    for(int i = 0; i < size; i++)
+    {
+      out.writeChar(keys[i]);
+      out.writeObject(affixes[i]);
+    }
+    if (byStrip == null)
+    {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(byStrip.size());
+    Iterator it = byStrip.entrySet().iterator();
+    while (it.hasNext())
+    {
+      Map.Entry e = (Map.Entry)it.next();
+      out.writeObject(e.getKey());
+      Object o = e.getValue();
+      if (o instanceof Collection)
+      {
+        Collection stripColl = (Collection)o;
+        out.writeInt(stripColl.size());
+        Iterator cit = stripColl.iterator();
+        while (cit.hasNext())
+        {
+          out.writeObject(cit.next());
+        }
+      }
+      else
+      {
+        out.writeInt(0);
+        out.writeObject(o);
+      }
+    }
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    if (size > 0)
+    {
+      keys = new char[size];
+      affixes = new AffixEntries[size];
+    }
+    for(int i = 0; i < size; i++)
+    {
+      keys[i] = in.readChar();
+      affixes[i] = (AffixEntries)in.readObject();
+    }
+    if (size > 0)
+    {
+      index();
+    }
+    int strips = in.readInt();
+    if (strips == -1)
+    {
+      return;
+    }
+    byStrip = new TreeMap();
+    for(int i = 0; i < strips; i++)
+    {
+      Object strip = in.readObject();
+      int n = in.readInt();
+      if (n == 0)
+      {
+        byStrip.put(strip, in.readObject());
+      }
+      else
+      {
+        Collection stripColl = new LinkedList();
+        for(int j = 0; j < n; j++)
+        {
+          stripColl.add(in.readObject());
+        }
+        byStrip.put(strip, stripColl);
+      }
+    }
+  }
+
   public String toString()
   {
     return "AffixEntries[" + 
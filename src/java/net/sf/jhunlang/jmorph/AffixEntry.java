@@ -194,6 +194,12 @@ public abstract class AffixEntry implements Serializable
     al = append.length();
   }
   
+  /**
+   * Create an entry to be filled in by {@link ImageReader}.
+   */
+  protected AffixEntry()
+  {}
+
   protected AffixEntry(Affix parent, AffixEntry ae, int index, AffixFlags flags)
   {
     this.parent = parent;
@@ -1,102 +1,194 @@
 package net.sf.jhunlang.jmorph;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.TreeMap;
 
 import java.util.regex.Pattern;
 
 import java.io.Serializable;
 
 /**
- * AdffixFlags instance encapsulate testable strings of affix flag characters
+ * AdffixFlags instance encapsulate testable strings of affix flag characters.
+ * The instances are interned in the {@link Registry} current when they are
+ * created; the flags derived from an instance are interned in the same one.
+ * The {@link #empty} flags are shared by all registries.<p>
+ * The registry maps the flag characters to dense ids in the order they
+ * first occur. The flags of ids below 128 are kept in two <code>long</code>
+ * bitmaps, those of higher ids in a sorted <code>short</code> array, so
+ * {@link #hasFlag(int)}, {@link #contains(AffixFlags)} and the
+ * <code>add</code> and <code>remove</code> methods deriving interned flags
+ * allocate nothing unless a new instance is interned.
  */
 public class AffixFlags implements Serializable
 {
-  protected static int capacity = 1024;
   /**
-   * Stores different interned AffixFlag instances
-   * @see AffixFlags#getAffixFlags(String)
-   */
-  protected final static Map flags = new TreeMap();
-   /**
    * Convenience constant for the empty flags.
    */
-  public static AffixFlags empty = getAffixFlags("");
- 
+  public final static AffixFlags empty =
+    new AffixFlags(null, new char[0], new char[0], 0, 0, null);
+
   /**
-   * The <code>String</code> representation of the affix flags
+   * The registry this instance is interned in; <code>null</code> for
+   * {@link #empty}.
    */
-  protected String flagstring;
+  protected final transient Registry registry;
+  /**
+   * The <code>String</code> representation of the affix flags in
+   * alphabetical order
+   */
+  protected final String flagstring;
   /**
    * Hack for factor.
    */
   protected String filteredFlagstring;
   /**
-   * The ordered <code>Set</code> representation of the affix flags
-   */  
-  protected Set charset;
+   * Bitmap of the flags of ids 0 to 63
+   */
+  protected final transient long low;
+  /**
+   * Bitmap of the flags of ids 64 to 127
+   */
+  protected final transient long high;
+  /**
+   * The sorted ids of the flags of ids from 128 on or <code>null</code>
+   */
+  protected final transient short[] rest;
+  /**
+   * The ids plus one of the flag characters indexed by the characters as
+   * the registry has mapped them when this instance was created.
+   * @see Registry#getFlagIds()
+   */
+  protected final transient char[] ids;
   /**
-   * The ordered <code>String</code> representation of the affix flags
+   * The hash code of the flags
    */
-  protected String intern;
+  protected final transient int hash;
+
+  /**
+   * Return the number of flag characters the flag bitmaps of the current
+   * registry were meant to hold. The flags are not bound by it any more;
+   * it is kept for model images.
+   * @return the flag capacity
+   */
+  public static int getFlagCapacity()
+  {
+    return Registry.getCurrent().getFlagCapacity();
+  }
+
   /**
-   * Bitmap of the affix flags
+   * Set the number of flag characters the flag bitmaps of the current
+   * registry were meant to hold.
+   * @param cap the flag capacity
    */
-  protected int[] flagmap;
-  
   public static void setFlagCapacity(int cap)
   {
-    capacity = cap;
-    if (empty.flagmap.length != capacity / 32)
+    Registry.getCurrent().setFlagCapacity(cap);
+  }
+
+  /**
+   * Create the flags of the ids set in <code>low</code>, <code>high</code>
+   * and <code>rest</code> as mapped by <code>ids</code>; the character of
+   * each id is given by <code>characters</code>. Called by
+   * {@link Registry#intern(long, long, short[])}.
+   */
+  protected AffixFlags(Registry registry, char[] ids, char[] characters,
+    long low, long high, short[] rest)
+  {
+    this.registry = registry;
+    this.ids = ids;
+    this.low = low;
+    this.high = high;
+    this.rest = rest;
+    hash = hash(low, high, rest);
+
+    int n = Long.bitCount(low) + Long.bitCount(high) +
+      (rest == null ? 0 : rest.length);
+    char[] flagCharacters = new char[n];
+    int k = 0;
+    for(long bits = low; bits != 0; bits &= bits - 1)
+    {
+      flagCharacters[k++] = characters[Long.numberOfTrailingZeros(bits)];
+    }
+    for(long bits = high; bits != 0; bits &= bits - 1)
     {
-      empty.flagmap = new int[capacity / 32]; 
+      flagCharacters[k++] =
+        characters[64 + Long.numberOfTrailingZeros(bits)];
     }
+    for(int i = 0; rest != null && i < rest.length; i++)
+    {
+      flagCharacters[k++] = characters[rest[i]];
+    }
+    Arrays.sort(flagCharacters);
+    flagstring = new String(flagCharacters);
   }
 
-  protected AffixFlags(String flagstring)
+  /**
+   * Return the hash code of the flags <code>low</code>, <code>high</code>
+   * and <code>rest</code>.
+   */
+  protected static int hash(long low, long high, short[] rest)
   {
-    this.flagstring = flagstring;
-    flagmap = new int[capacity/32];
-    
-    char[] flagCharacters = flagstring.toCharArray();
-
-    for(int i = flagCharacters.length - 1; i >= 0; i--)
+    long h = low + 0x9E3779B97F4A7C15L * high;
+    if (rest != null)
     {
-      try
-      {
-        int flag = flagCharacters[i];
-        flagmap[flag/32] |= 1 << ((flag % 32));
-      }
-      catch (Throwable t)
-      {
-        throw new RuntimeException("FlagCharacters: flag too big: >>" +
-          (int)flagCharacters[i] + ": " +
-          i + "th >>" + (int)flagCharacters[i] + "<< " + t);
-      }
+      h = 31 * h + Arrays.hashCode(rest);
     }
+    // the finalizer of MurmurHash3 spreads the bits over the table
+    h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return (int)(h ^ (h >>> 33));
+  }
+
+  /**
+   * Return if this instance holds the flags <code>low</code>,
+   * <code>high</code> and <code>rest</code>.
+   */
+  protected boolean same(long low, long high, short[] rest)
+  {
+    return this.low == low && this.high == high &&
+      (this.rest == null ? rest == null : Arrays.equals(this.rest, rest));
   }
-  
+
   public boolean isEmpty()
   {
     return this == empty;
   }
 
   /**
-   * Return if {@link #flagmap} contains <code>flag</code>
-   * @param flag the flag to check
-   * @return if <code>flagmap</code> containsc <code>flag</code>
+   * Return if this instance has the flag of id <code>id</code>.
    */
-  public boolean hasFlag(int flag)
+  protected boolean has(int id)
   {
-    if (flag/32 >= flagmap.length)
+    if (id < 64)
+    {
+      return (low & (1L << id)) != 0;
+    }
+    if (id < 128)
     {
-      System.out.println(flag + ": " + (flag/32) + " >= " + capacity +
-        ", " + flagmap.length + ", " + isEmpty());
+      return (high & (1L << id)) != 0;
     }
-    return (flagmap[flag/32] & (1 << (flag % 32))) != 0;
+    return rest != null && Arrays.binarySearch(rest, (short)id) >= 0;
+  }
+
+  /**
+   * Return the id of <code>flag</code> in {@link #ids} or -1.
+   */
+  protected int id(int flag)
+  {
+    char[] ids = this.ids;
+    return flag >= 0 && flag < ids.length ? ids[flag] - 1 : -1;
+  }
+
+  /**
+   * Return if the flags contain <code>flag</code>
+   * @param flag the flag to check
+   * @return if the flags contain <code>flag</code>
+   */
+  public boolean hasFlag(int flag)
+  {
+    int id = id(flag);
+    return id >= 0 && has(id);
   }
 
   /**
@@ -115,150 +207,334 @@ public class AffixFlags implements Serializable
       filteredFlagstring;
   }
 
+  /**
+   * Return the number of flags.
+   * @return the number of flags
+   */
+  public int size()
+  {
+    return flagstring.length();
+  }
+
+  /**
+   * Return the registry the flags derived from this instance are interned
+   * in: the registry of this instance or the current one for
+   * {@link #empty}. Adding flags to {@link #empty} uses the registry of
+   * the flags added.
+   * @return the registry of the derived flags
+   */
+  protected Registry registry()
+  {
+    return registry == null ? Registry.getCurrent() : registry;
+  }
+
+  /**
+   * Return if the ids of this instance and <code>flags</code> are mapped by
+   * the same registry.
+   */
+  protected boolean compatible(AffixFlags flags)
+  {
+    return registry == flags.registry || registry == null ||
+      flags.registry == null;
+  }
+
   public AffixFlags add(AffixFlags flags)
   {
-    return getAffixFlags(flagstring + flags.getFlagString());
+    if (!compatible(flags))
+    {
+      return getAffixFlags(registry, flagstring + flags.getFlagString());
+    }
+    if (contains(flags))
+    {
+      return this;
+    }
+    if (flags.contains(this))
+    {
+      return flags;
+    }
+    return registry.intern(low | flags.low, high | flags.high,
+      union(rest, flags.rest));
   }
 
   public AffixFlags remove(AffixFlags flags)
   {
-    Set remove = flags.order();
-    StringBuffer sb = new StringBuffer();
-    for(int i = 0; i < flagstring.length(); i++)
+    if (!compatible(flags))
     {
-      if (!remove.contains(new Character(flagstring.charAt(i))))
+      StringBuffer sb = new StringBuffer();
+      for(int i = 0; i < flagstring.length(); i++)
       {
-        sb.append(flagstring.charAt(i));
+        if (flags.getFlagString().indexOf(flagstring.charAt(i)) == -1)
+        {
+          sb.append(flagstring.charAt(i));
+        }
       }
+      return getAffixFlags(registry(), new String(sb));
     }
-    return getAffixFlags(new String(sb));
+    if ((low & flags.low) == 0 && (high & flags.high) == 0 &&
+        disjoint(rest, flags.rest))
+    {
+      return this;
+    }
+    return registry.intern(low & ~flags.low, high & ~flags.high,
+      difference(rest, flags.rest));
   }
 
   public AffixFlags remove(char flag)
   {
-    int index = flagstring.indexOf(flag);
-    if (index != -1)
-    {
-      return getAffixFlags(flagstring.substring(0, index) +
-        flagstring.substring(index + 1));
-    }
-    else
+    int id = id(flag);
+    if (id < 0 || !has(id))
     {
       return this;
     }
+    return with(id, false);
   }
 
   public AffixFlags add(char flag)
   {
-    int index = flagstring.indexOf(flag);
-    if (index != -1)
+    if (hasFlag(flag))
     {
       return this; // already contains flag
     }
-    else
+    Registry registry = registry();
+    char[] ids = registry.getFlagIds();
+    if (flag >= ids.length || ids[flag] == 0)
+    {
+      ids = registry.addFlagId(flag);
+    }
+    int id = ids[flag] - 1;
+    if (this.registry == null)
+    {
+      return registry.intern(id < 64 ? 1L << id : 0,
+        id >= 64 && id < 128 ? 1L << id : 0,
+        id < 128 ? null : new short[] {(short)id});
+    }
+    return with(id, true);
+  }
+
+  /**
+   * Return the flags of this instance with the flag of id <code>id</code>
+   * added or removed.
+   */
+  protected AffixFlags with(int id, boolean add)
+  {
+    if (id < 64)
     {
-      return getAffixFlags(flagstring + flag);
+      return registry.intern(add ? low | (1L << id) : low & ~(1L << id),
+        high, rest);
     }
+    if (id < 128)
+    {
+      return registry.intern(low,
+        add ? high | (1L << id) : high & ~(1L << id), rest);
+    }
+    short[] ids = {(short)id};
+    return registry.intern(low, high,
+      add ? union(rest, ids) : difference(rest, ids));
   }
 
   public AffixFlags remove(Pattern remove)
   {
     return remove == null ? this :
-      getAffixFlags(remove.matcher(flagstring).replaceAll(""));
+      getAffixFlags(registry(), remove.matcher(flagstring).replaceAll(""));
   }
 
   /**
    * Arrange the flag characters in alphabetical order and return the
-   * resulting <code>Set</code> (using sort of Arrays maybe better).
+   * resulting <code>Set</code>. The set is created on each call.
    * @return the set containing the flag characters in alphabetical order
    */
   public Set order()
   {
-    if (charset == null)
+    Set charset = new TreeSet();
+    for(int i = 0; i < flagstring.length(); i++)
     {
-      charset = order(flagstring);
+      charset.add(new Character(flagstring.charAt(i)));
     }
     return charset;
   }
-  
+
   /**
-   * Arrange the flag characters in alphabetical order and return the
-   * resulting String (using sort of Arrays maybe better).
+   * Return the flag characters in alphabetical order; the flag string is
+   * kept in that order.
    * @return the string containing the flag characters in alphabetical order
    */
   public String intern()
   {
-    if (intern == null)
+    return flagstring;
+  }
+
+  public boolean contains(AffixFlags flags)
+  {
+    if (!compatible(flags))
     {
-      intern = intern(order());
+      String s1 = flags.getFlagString();
+      for(int i = 0; i < s1.length(); i++)
+      {
+        if (flagstring.indexOf(s1.charAt(i)) == -1)
+        {
+          return false;
+        }
+      }
+      return true;
     }
-    return intern;
+    return (flags.low & ~low) == 0 && (flags.high & ~high) == 0 &&
+      difference(flags.rest, rest) == null;
   }
-  
-  public boolean contains(AffixFlags flags)
+
+  /**
+   * Return the sorted union of the sorted ids <code>a</code> and
+   * <code>b</code> or <code>null</code> if both are <code>null</code>.
+   */
+  protected static short[] union(short[] a, short[] b)
   {
-    String s0 = getFlagString(); 
-    String s1 = flags.getFlagString(); 
-    if (s0.length() < s1.length())
+    if (a == null || b == null || a == b)
     {
-      return false;
+      return a == null ? b : a;
     }
-    for(int i = 0; i < s1.length(); i++)
+    short[] u = new short[a.length + b.length];
+    int i = 0, j = 0, k = 0;
+    while (i < a.length || j < b.length)
     {
-      //for(char c : s1.toCharArray())
-      if (s0.indexOf(s1.charAt(i)) == -1)
+      if (j == b.length || (i < a.length && a[i] < b[j]))
+      {
+        u[k++] = a[i++];
+      }
+      else
       {
-        return false;
+        if (i < a.length && a[i] == b[j])
+        {
+          i++;
+        }
+        u[k++] = b[j++];
       }
     }
-    return true;
+    if (k == a.length)
+    {
+      return a;
+    }
+    if (k == b.length)
+    {
+      return b;
+    }
+    short[] s = new short[k];
+    System.arraycopy(u, 0, s, 0, k);
+    return s;
   }
 
   /**
-   * Return the ordered set with no duplicates of characters of <code>s</code>.
-   * @param s
-   * @return the ordered set of characters of <code>s</code>
+   * Return the sorted ids of <code>a</code> missing from <code>b</code> or
+   * <code>null</code> if there is none. Return <code>a</code> if none
+   * is in <code>b</code>.
    */
-  private static Set order(String s)
+  protected static short[] difference(short[] a, short[] b)
   {
-    TreeSet charset = new TreeSet();
-    for(int i= 0; i < s.length(); i++)
+    if (a == null || a == b)
     {
-      charset.add(new Character(s.charAt(i)));
+      return null;
     }
-    return charset;
+    if (b == null)
+    {
+      return a;
+    }
+    int k = 0;
+    for(int i = 0; i < a.length; i++)
+    {
+      if (Arrays.binarySearch(b, a[i]) < 0)
+      {
+        k++;
+      }
+    }
+    if (k == a.length || k == 0)
+    {
+      return k == 0 ? null : a;
+    }
+    short[] d = new short[k];
+    k = 0;
+    for(int i = 0; i < a.length; i++)
+    {
+      if (Arrays.binarySearch(b, a[i]) < 0)
+      {
+        d[k++] = a[i];
+      }
+    }
+    return d;
   }
-  
+
   /**
-   * Return the String of characters of the set <code>s</code>.
-   * @param s
-   * @return the ordered set of characters of <code>s</code>
+   * Return if the sorted ids <code>a</code> and <code>b</code> are
+   * disjoint.
    */
-  private static String intern(Set s)
+  protected static boolean disjoint(short[] a, short[] b)
   {
-    StringBuffer sb = new StringBuffer();
-    Iterator it = s.iterator();
-    while (it.hasNext())
-    {
-      sb.append(((Character)it.next()).charValue());
-    }
-    return new String(sb);
+    return difference(a, b) == a;
+  }
+
+  /**
+   * Replace deserialized instances with the ones interned in the current
+   * registry so that {@link #isEmpty()} and identity checks hold for loaded
+   * models.
+   * @return the interned instance for {@link #flagstring}
+   */
+  private Object readResolve()
+  {
+    return getAffixFlags(flagstring);
   }
-  
+
   public static AffixFlags getAffixFlags(char[] flagCharacters)
   {
     return getAffixFlags(new String(flagCharacters));
   }
 
+  /**
+   * Return the instance interned in the current registry for the flag
+   * characters of <code>flagstring</code>.
+   * @param flagstring the flag characters
+   * @return the interned flags
+   */
   public static AffixFlags getAffixFlags(String flagstring)
   {
-    flagstring = intern(order(flagstring));
-    AffixFlags flag = (AffixFlags)flags.get(flagstring);
-    if (flag == null)
+    return getAffixFlags(Registry.getCurrent(), flagstring);
+  }
+
+  /**
+   * Return the instance interned in <code>registry</code> for the flag
+   * characters of <code>flagstring</code>. Create and intern it if there is
+   * none. The flag characters may come in any order and repeat.
+   * @param registry the registry to intern in
+   * @param flagstring the flag characters
+   * @return the interned flags
+   */
+  public static AffixFlags getAffixFlags(Registry registry, String flagstring)
+  {
+    if (flagstring.length() == 0)
     {
-      flag = new AffixFlags(flagstring);
-      flags.put(flagstring, flag); 
+      return empty;
+    }
+    char[] ids = registry.getFlagIds();
+    long low = 0;
+    long high = 0;
+    short[] rest = null;
+    for(int i = 0; i < flagstring.length(); i++)
+    {
+      char c = flagstring.charAt(i);
+      if (c >= ids.length || ids[c] == 0)
+      {
+        ids = registry.addFlagId(c);
+      }
+      int id = ids[c] - 1;
+      if (id < 64)
+      {
+        low |= 1L << id;
+      }
+      else if (id < 128)
+      {
+        high |= 1L << id;
+      }
+      else
+      {
+        rest = union(rest, new short[] {(short)id});
+      }
     }
-    return flag;
+    return registry.intern(low, high, rest);
   }
-}
\ No newline at end of file
+}
@@ -3,6 +3,13 @@ package net.sf.jhunlang.jmorph;
 import net.sf.jhunlang.jmorph.sword.SwordEntry;
 import net.sf.jhunlang.jmorph.sword.SwordEntryExtension;
 
+/**
+ * CompoundDictEntry instances represent compound words made of two component
+ * entries. They are created by the thousand while compounds are searched,
+ * so the constructor allocates neither the word nor the flags: the flags
+ * come from the cache of {@link Rules#getCompoundFlags} and the word is
+ * concatenated by the first call of {@link #getWord()}.
+ */
 public class CompoundDictEntry extends SwordEntry
 {
   protected DictEntry right;
@@ -39,11 +46,11 @@ public class CompoundDictEntry extends SwordEntry
    * the {@link DictEntry#flags} are<ul>
    *   <li>
    *   the flags of the <i>leftmost</i> component <i>minus</i>
-   *   {@link Rules#suffixPattern}
+   *   {@link Rules#suffixFlags}
    *   </li>
    *   <li>
    *      <i>plus</i> the flags of the <i>rightmost</i> component
-   *      <i>minus</i>  {@link Rules#prefixPattern}
+   *      <i>minus</i>  {@link Rules#prefixFlags}
    *   </li>
    *   </ul>
    * where the <i>leftmost</i> is <code>left</code> if it is not compound; its
@@ -51,7 +58,8 @@ public class CompoundDictEntry extends SwordEntry
    * if it is not compound; its {@link #getRightMost()} otherwise
    * <li>
    * the {@link DictEntry#word} is the concatenation of word of
-   * <code>left</code> and that of <code>right</code> 
+   * <code>left</code> and that of <code>right</code>; it is concatenated
+   * when first asked for
    * </li>
    * <li>
    * the {@link DictEntry#inflexion} is the inflexion of <code>right</code>.
@@ -65,20 +73,16 @@ public class CompoundDictEntry extends SwordEntry
    */
   public CompoundDictEntry(Rules rules, DictEntry left, DictEntry right)
   {
-    super(left.getWord() + right.getWord());
-    
     this.left = left;
     this.right = right;
 
     AffixFlags leftFlags =  left instanceof CompoundDictEntry ?
       ((CompoundDictEntry)left).getLeftMost().getFlags() : left.getFlags();
       
-    flags = leftFlags.remove(rules.getSuffixPattern());
-    
     AffixFlags rightFlags = right instanceof CompoundDictEntry ?
       ((CompoundDictEntry)right).getRightMost().getFlags() : right.getFlags();
 
-    flags = flags.add(rightFlags.remove(rules.getPrefixPattern()));    
+    flags = rules.getCompoundFlags(leftFlags, rightFlags);
     
     inflexion = right.getInflexion();
     
@@ -100,6 +104,46 @@ public class CompoundDictEntry extends SwordEntry
     }
   }
 
+  /**
+   * Return the concatenation of the words of the left and the right
+   * component. The word is concatenated and its capitalization is computed
+   * by the first call.
+   * @return the word of this entry
+   */
+  public String getWord()
+  {
+    if (word == null)
+    {
+      String w = left.getWord() + right.getWord();
+      capitalization = capitalization(w);
+      word = w;
+    }
+    return word;
+  }
+
+  /**
+   * Return the capitalization of the word of this entry.
+   * @return the capitalization
+   * @see #getWord()
+   */
+  public byte getCapitalization()
+  {
+    if (word == null)
+    {
+      getWord();
+    }
+    return capitalization;
+  }
+
+  /**
+   * Concatenate the word before this entry is serialized.
+   */
+  protected Object writeReplace()
+  {
+    getWord();
+    return this;
+  }
+
   /**
    * Return true.
    * @return <code>true</code>
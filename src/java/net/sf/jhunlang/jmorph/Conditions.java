@@ -30,6 +30,16 @@ public class Conditions implements Serializable
    * {@link Conditionsmap#getConditions(Condition[])}
    */
   protected int index = -1;
+  /**
+   * The codes of the characters the table of this instance is indexed by
+   * or <code>null</code> if this instance is not compiled.
+   * @see Conditionsmap
+   */
+  protected char[] codes;
+  /**
+   * The masks of the positions admitting the characters of each code.
+   */
+  protected long[] masks;
 
   /**
    * Return the <code>index</code> of this instance.
@@ -74,6 +84,73 @@ public class Conditions implements Serializable
     return conditions;
   }
 
+  /**
+   * Set the table of this instance compiled by {@link Conditionsmap}.
+   * @param codes the codes of the characters
+   * @param masks the masks of the positions admitting the characters of
+   * each code
+   */
+  protected void compile(char[] codes, long[] masks)
+  {
+    this.codes = codes;
+    this.masks = masks;
+  }
+
+  /**
+   * Return if this instance is compiled into a table of masks.
+   * @return if this instance is compiled
+   */
+  public boolean compiled()
+  {
+    return masks != null;
+  }
+
+  /**
+   * Return the number of masks in the table of this instance or 0 if this
+   * instance is not compiled.
+   * @return the length of the table
+   */
+  public int getTableLength()
+  {
+    return masks == null ? 0 : masks.length;
+  }
+
+  /**
+   * Return if the characters of <code>word</code> from <code>offset</code>
+   * on satisfy the conditions. The word must have a character for each
+   * condition from <code>offset</code> on.
+   * @param word the word to check
+   * @param offset the index of the character to check by the first
+   * condition
+   * @return if the characters satisfy the conditions
+   */
+  public boolean admit(CharSequence word, int offset)
+  {
+    long[] masks = this.masks;
+    if (masks == null)
+    {
+      for(int i = 0; i < conditions.length; i++)
+      {
+        if (!conditions[i].admit(word.charAt(offset + i)))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+    char[] codes = this.codes;
+    int n = conditions.length;
+    for(int i = 0; i < n; i++)
+    {
+      char c = word.charAt(offset + i);
+      if ((masks[c < codes.length ? codes[c] : 0] & (1L << i)) == 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Return the hash code computed by the constructor.
    * @return the hash code of this instance
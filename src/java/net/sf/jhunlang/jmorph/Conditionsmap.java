@@ -2,11 +2,28 @@ package net.sf.jhunlang.jmorph;
 
 import java.io.Serializable;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Conditionsmap interns the {@link Conditions} of the affix entries of a
+ * {@link Rules} hierarchy and compiles each distinct one into a table of
+ * bit masks; {@link Conditions#admit(CharSequence, int)} checks a word by
+ * the table without calling the {@link Condition} instances.<p>
+ * The characters named by the conditions are mapped to dense codes shared
+ * by all the tables; code 0 stands for the characters named by none. The
+ * table of a Conditions is indexed by the codes and has a mask for each
+ * code with the bits of the positions admitting the characters of the
+ * code set.
+ */
 public class Conditionsmap implements Serializable
 {
+  /**
+   * The maximum number of conditions compiled into a table.
+   */
+  public final static int MAX_COMPILED = 64;
+
   /**
    * The {@link Conditions#index} of the <code>Conditions</code> created next. 
    */
@@ -15,12 +32,45 @@ public class Conditionsmap implements Serializable
    * Stores different interned Conditions instances
    */
   protected final Map conds = new HashMap();
+  /**
+   * The codes of the characters indexed by the characters. The array is
+   * replaced and not changed when a character gets a code so that the
+   * Conditions compiled earlier can keep the array they were compiled by.
+   */
+  protected char[] codes = new char[0];
+  /**
+   * The character of each code; that of code 0 is unused.
+   */
+  protected char[] characters = new char[1];
+  /**
+   * The number of codes including code 0.
+   */
+  protected int codeCount = 1;
 
   public int size()
   {
     return conds.size();
   }
 
+  /**
+   * Return the interned <code>Conditions</code> instances.
+   * @return the collection of the Conditions
+   */
+  public Collection getConditions()
+  {
+    return conds.values();
+  }
+
+  /**
+   * Return the number of codes the characters named by the conditions have
+   * been mapped to including code 0.
+   * @return the number of codes
+   */
+  public int getCodeCount()
+  {
+    return codeCount;
+  }
+
   /**
    * Return the <code>Conditions</code> instance wrapping
    * <code>conditions</code>. Look for the instance in {@link #conds}
@@ -37,9 +87,86 @@ public class Conditionsmap implements Serializable
     if (old == null)
     {
       c.setIndex(nextIndex++);
+      compile(c);
       old = c;
       conds.put(old, old);
     }
     return old;
   }
+
+  /**
+   * Compile <code>c</code> into its table of masks unless it has more than
+   * {@link #MAX_COMPILED} conditions or a condition naming characters
+   * not known here. Uncompiled Conditions are checked by the conditions.
+   * @param c the Conditions to compile
+   */
+  protected void compile(Conditions c)
+  {
+    Condition[] conditions = c.getConditions();
+    if (conditions.length > MAX_COMPILED)
+    {
+      return;
+    }
+    for(int i = 0; i < conditions.length; i++)
+    {
+      Condition condition = conditions[i];
+      if (condition instanceof CharacterCondition)
+      {
+        code(((CharacterCondition)condition).getCharacter());
+      }
+      else if (condition instanceof RangeCondition)
+      {
+        char[] range = ((RangeCondition)condition).getRange();
+        for(int k = 0; k < range.length; k++)
+        {
+          code(range[k]);
+        }
+      }
+      else if (!(condition instanceof AnyCharacterCondition))
+      {
+        return;
+      }
+    }
+    // the characters of code 0 are represented by one named by none
+    int other = 0;
+    while (other < codes.length && codes[other] != 0)
+    {
+      other++;
+    }
+    long[] masks = new long[codeCount];
+    for(int k = 0; k < codeCount; k++)
+    {
+      char ch = k == 0 ? (char)other : characters[k];
+      for(int i = 0; i < conditions.length; i++)
+      {
+        if (conditions[i].admit(ch))
+        {
+          masks[k] |= 1L << i;
+        }
+      }
+    }
+    c.compile(codes, masks);
+  }
+
+  /**
+   * Give a code to <code>c</code> unless it has one.
+   */
+  protected void code(char c)
+  {
+    if (c < codes.length && codes[c] != 0)
+    {
+      return;
+    }
+    char[] newCodes = new char[Math.max(codes.length, c + 1)];
+    System.arraycopy(codes, 0, newCodes, 0, codes.length);
+    newCodes[c] = (char)codeCount;
+    if (codeCount == characters.length)
+    {
+      char[] newCharacters = new char[2 * codeCount];
+      System.arraycopy(characters, 0, newCharacters, 0, codeCount);
+      characters = newCharacters;
+    }
+    characters[codeCount++] = c;
+    codes = newCodes;
+  }
 }
@@ -53,6 +53,7 @@ public class Dict extends WordList
    */
   public void add(DictEntry entry)
   {
+    checkFrozen();
     if (entry instanceof ExceptionEntry)
     {
       add((ExceptionEntry)entry);
@@ -73,6 +74,7 @@ public class Dict extends WordList
    */
   public void add(ExceptionEntry entry)
   {
+    checkFrozen();
     addEntry(exceptions, entry);
   }
 
@@ -82,6 +84,7 @@ public class Dict extends WordList
    */
   public void sync()
   {
+    checkFrozen();
     Iterator it = exceptions.values().iterator();
     while (it.hasNext())
     {
@@ -159,13 +162,28 @@ public class Dict extends WordList
     return null;
   }
 
+  /**
+   * Merge the words ending with y and the forbidden words ending with i or
+   * j of <code>part</code>.
+   * @param part the word list a chunk of lines has been parsed into
+   */
+  public void merge(WordList part)
+  {
+    checkFrozen();
+    Dict dict = (Dict)part;
+    ys.addAll(dict.ys);
+    ijs.putAll(dict.ijs);
+  }
+
   public void addY(DictEntry entry)
   {
+    checkFrozen();
     ys.add(entry);
   }
   
   public void putIJ(String word, DictEntry entry)
   {
+    checkFrozen();
     ijs.put(word, entry);
   }
 
@@ -3,6 +3,8 @@ package net.sf.jhunlang.jmorph;
 import java.util.Collection;
 import java.util.LinkedList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -78,6 +80,15 @@ public class DictEntry implements Serializable
     setWord(word);
   }
 
+  /**
+   * Create a DictEntry the {@link #word} of which is set later. Subclasses
+   * materialising the word on demand must override {@link #getWord()} and
+   * {@link #getCapitalization()}; the methods of this class use those.
+   */
+  protected DictEntry()
+  {
+  }
+
   /**
    * Create a DictEntry for the <code>word</code> with <code>root</code>.
    * @param word the word
@@ -301,7 +312,7 @@ public class DictEntry implements Serializable
    */
   public String getRootWord()
   {
-    return word;
+    return getWord();
   }
   
   /**
@@ -330,7 +341,7 @@ public class DictEntry implements Serializable
    */
   public String getAbsoluteRootWord()
   {
-    return root == null ? word : root.getAbsoluteRootWord();
+    return root == null ? getWord() : root.getAbsoluteRootWord();
   }
 
   /**
@@ -350,7 +361,7 @@ public class DictEntry implements Serializable
    */
   public String getRelativeRootWord()
   {
-    return inflexed() ? root.getRelativeRootWord() : word;
+    return inflexed() ? root.getRelativeRootWord() : getWord();
   }
 
   /**
@@ -397,7 +408,7 @@ public class DictEntry implements Serializable
    */
   public String inflex(AffixEntry affix)
   {
-    return affix.inflex(word);
+    return affix.inflex(getWord());
   }
   
   /**
@@ -409,7 +420,7 @@ public class DictEntry implements Serializable
    */
   public String inflex(PrefixEntry prefix, SuffixEntry suffix)
   {
-    return prefix.inflex(suffix.inflex(word));
+    return prefix.inflex(suffix.inflex(getWord()));
   }
   
   /**
@@ -421,14 +432,14 @@ public class DictEntry implements Serializable
    */
   public boolean admitCapitalization(String word)
   {
-    switch (capitalization)
+    switch (getCapitalization())
     {
       case ALL_LOWER:
         return true;
       case CAPITALIZED:
         return Character.isUpperCase(word.charAt(0));
       default:
-        return this.word.equals(word);
+        return getWord().equals(word);
     }
   }
 
@@ -442,7 +453,7 @@ public class DictEntry implements Serializable
    */
   public boolean admitLowerCapitalization(String word)
   {
-    switch (capitalization)
+    switch (getCapitalization())
     {
       case ALL_LOWER:
         return true;
@@ -450,7 +461,7 @@ public class DictEntry implements Serializable
         return true;
         //return Character.isUpperCase(word.charAt(0));
       default:
-        return this.word.equals(word);
+        return getWord().equals(word);
     }
   }
 
@@ -512,6 +523,17 @@ public class DictEntry implements Serializable
     return false;
   }
 
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    // the deserialized empty collection must not be shared as NO_HOMONYM is
+    if (homonyms.isEmpty())
+    {
+      homonyms = NO_HOMONYM;
+    }
+  }
+
   private void setWord(String word)
   {
     if (word == null)
@@ -596,7 +618,7 @@ public class DictEntry implements Serializable
    */
   public String longContentString()
   {
-    return word + "/" + flags.intern() + "<" + morphString() + ">";
+    return getWord() + "/" + flags.intern() + "<" + morphString() + ">";
   }
 
   /**
@@ -607,7 +629,7 @@ public class DictEntry implements Serializable
    */
   public String contentString()
   {
-    return word;
+    return getWord();
   }
 
   public String toLongString()
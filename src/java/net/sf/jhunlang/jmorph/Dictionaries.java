@@ -4,11 +4,54 @@ import java.util.Iterator;
 import java.util.Collection;
 import java.util.LinkedList;
 
+import net.sf.jhunlang.jmorph.util.BloomFilter;
+
+/**
+ * Dictionaries is the list of the word lists of a model. The list and its
+ * word lists are mutable while they are loaded; {@link #freeze()} makes
+ * them immutable so that they can be shared by analysers running in
+ * different threads.
+ */
 public class Dictionaries extends LinkedList
 {
   public final static String GENERATE_NUMBERS = "dict.number";
+  /**
+   * System property switching the filter of the dictionary keys off. If it
+   * is <code>false</code> then {@link #buildFilter()} builds no filter.
+   */
+  public final static String FILTER = "dict.filter";
+  /**
+   * System property switching the automaton of the starts of compound
+   * components off. If it is <code>false</code> then
+   * {@link #buildAutomaton(Rules, int)} builds no automaton.
+   */
+  public final static String AUTOMATON = "dict.automaton";
+  /**
+   * System property switching the automaton of the stems on. Unless it is
+   * <code>true</code> {@link #buildStemAutomaton(Rules)} builds no
+   * automaton; switch it on where {@link StemAutomaton} is shown to pay for
+   * its build time.
+   */
+  public final static String STEMS = "dict.stems";
   
   protected boolean generateNumber = Boolean.getBoolean(GENERATE_NUMBERS);
+  /**
+   * Bloom filter of the keys of the word lists or <code>null</code>. Words
+   * rejected by the filter are known to be missing from all the word lists.
+   */
+  protected transient BloomFilter filter;
+  /**
+   * Automaton of the starts of compound components or <code>null</code>.
+   */
+  protected transient SplitAutomaton automaton;
+  /**
+   * Automaton of the stems the suffix phase may find or <code>null</code>.
+   */
+  protected transient StemAutomaton stems;
+  /**
+   * Tells if this instance is frozen.
+   */
+  protected transient volatile boolean frozen;
   
   /**
    * Create a new Dictionaries.
@@ -32,6 +75,7 @@ public class Dictionaries extends LinkedList
    */
   public boolean add(Object o)
   {
+    checkFrozen();
     if (o instanceof WordList)
     {
       WordList wl = (WordList)o;
@@ -42,6 +86,10 @@ public class Dictionaries extends LinkedList
       if (super.add(wl))
       {
         wl.setDictionaries(this);
+        // the keys of wl are not in the filter and the automaton
+        filter = null;
+        automaton = null;
+        stems = null;
         return true;
       }
     }
@@ -69,6 +117,227 @@ public class Dictionaries extends LinkedList
     return c;
   }
 
+  /**
+   * Build the Bloom filter of the keys of the word lists added so far.
+   * Called when loading is done; {@link #rawGet(String)} rejects the words
+   * missing from the filter without looking them up in the word lists.
+   * Keys added to the word lists later are added to the filter by
+   * {@link #added(String)}; adding a word list drops the filter.
+   */
+  public void buildFilter()
+  {
+    checkFrozen();
+    if (!Boolean.valueOf(System.getProperty(FILTER, "true")).booleanValue())
+    {
+      filter = null;
+      return;
+    }
+    int keys = 0;
+    Iterator it = iterator();
+    while (it.hasNext())
+    {
+      keys += ((WordList)it.next()).size();
+    }
+    BloomFilter bloom = new BloomFilter(keys);
+    it = iterator();
+    while (it.hasNext())
+    {
+      Iterator kit = ((WordList)it.next()).getWords().keySet().iterator();
+      while (kit.hasNext())
+      {
+        bloom.add((String)kit.next());
+      }
+    }
+    filter = bloom;
+  }
+
+  /**
+   * Called by a word list of this Dictionaries when <code>key</code> has
+   * been added to it.
+   * @param key the lowercase key added
+   */
+  public void added(String key)
+  {
+    checkFrozen();
+    BloomFilter bloom = filter;
+    if (bloom != null)
+    {
+      bloom.add(key);
+    }
+    // the automata cannot be extended
+    automaton = null;
+    stems = null;
+  }
+
+  /**
+   * Return the Bloom filter of the keys of the word lists if built.
+   * @return the filter or <code>null</code>
+   */
+  public BloomFilter getFilter()
+  {
+    return filter;
+  }
+
+  /**
+   * Build the {@link SplitAutomaton} of the starts of the components of at
+   * least <code>minWord</code> characters the compound analyser may find in
+   * the word lists added so far by the affixes of <code>rules</code>.
+   * Adding a key or a word list drops the automaton.
+   * @param rules the affix rules
+   * @param minWord the minimum length of components
+   */
+  public void buildAutomaton(Rules rules, int minWord)
+  {
+    checkFrozen();
+    if (!Boolean.valueOf(System.getProperty(AUTOMATON, "true")).booleanValue())
+    {
+      automaton = null;
+      return;
+    }
+    automaton = new SplitAutomaton(rules, this, minWord);
+  }
+
+  /**
+   * Return the automaton of the starts of compound components if built.
+   * @return the automaton or <code>null</code>
+   */
+  public SplitAutomaton getAutomaton()
+  {
+    return automaton;
+  }
+
+  /**
+   * Build the {@link StemAutomaton} of the stems the word lists added so
+   * far and the sub rules of <code>rules</code> may analyse. Adding a key
+   * or a word list drops the automaton.
+   * @param rules the affix rules
+   */
+  public void buildStemAutomaton(Rules rules)
+  {
+    checkFrozen();
+    if (!Boolean.valueOf(System.getProperty(STEMS, "false")).booleanValue())
+    {
+      stems = null;
+      return;
+    }
+    stems = new StemAutomaton(rules, this);
+  }
+
+  /**
+   * Return the automaton of the stems if built.
+   * @return the automaton or <code>null</code>
+   */
+  public StemAutomaton getStemAutomaton()
+  {
+    return stems;
+  }
+
+  /**
+   * Make this instance and its word lists immutable. Adding or removing
+   * word lists or words and building the filter or the automaton throws
+   * <code>IllegalStateException</code> after this call; build them before.
+   * Removing by the iterators of the list is not checked.
+   */
+  public void freeze()
+  {
+    if (frozen)
+    {
+      return;
+    }
+    frozen = true;
+    Iterator it = iterator();
+    while (it.hasNext())
+    {
+      ((WordList)it.next()).freeze();
+    }
+  }
+
+  /**
+   * Return if this instance is frozen.
+   * @return if this instance is frozen
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Throw <code>IllegalStateException</code> if this instance is frozen.
+   */
+  protected void checkFrozen()
+  {
+    if (frozen)
+    {
+      throw new IllegalStateException("frozen: " + this);
+    }
+  }
+
+  public void add(int index, Object o)
+  {
+    checkFrozen();
+    super.add(index, o);
+  }
+
+  public void addFirst(Object o)
+  {
+    checkFrozen();
+    super.addFirst(o);
+  }
+
+  public void addLast(Object o)
+  {
+    checkFrozen();
+    super.addLast(o);
+  }
+
+  public boolean addAll(Collection c)
+  {
+    checkFrozen();
+    return super.addAll(c);
+  }
+
+  public boolean addAll(int index, Collection c)
+  {
+    checkFrozen();
+    return super.addAll(index, c);
+  }
+
+  public Object set(int index, Object o)
+  {
+    checkFrozen();
+    return super.set(index, o);
+  }
+
+  public boolean remove(Object o)
+  {
+    checkFrozen();
+    return super.remove(o);
+  }
+
+  public Object remove(int index)
+  {
+    checkFrozen();
+    return super.remove(index);
+  }
+
+  public Object removeFirst()
+  {
+    checkFrozen();
+    return super.removeFirst();
+  }
+
+  public Object removeLast()
+  {
+    checkFrozen();
+    return super.removeLast();
+  }
+
+  public void clear()
+  {
+    checkFrozen();
+    super.clear();
+  }
+
   public Object rawGet(String lower)
   {
     if (generateNumber &&
@@ -85,6 +354,11 @@ public class Dictionaries extends LinkedList
       }
     }
     
+    BloomFilter bloom = filter;
+    if (bloom != null && !bloom.mightContain(lower))
+    {
+      return null;
+    }
     Object o;
     Iterator it = iterator();
     while (it.hasNext())
@@ -10,6 +10,18 @@ public class Hypothetiser extends Dictionaries
     return false;
   }
 
+  /**
+   * Build no automaton; any word may be a component.
+   */
+  public void buildAutomaton(Rules rules, int minWord)
+  {}
+
+  /**
+   * Build no automaton; any word may be a stem.
+   */
+  public void buildStemAutomaton(Rules rules)
+  {}
+
   public DictEntry get(String word)
   {
     return new DummyEntry(word);
@@ -0,0 +1,46 @@
+package net.sf.jhunlang.jmorph;
+
+/**
+ * ImageConstants holds the kinds of the records of the model image format
+ * written by {@link ImageWriter} and read by {@link ImageReader}.
+ */
+public interface ImageConstants
+{
+  /**
+   * Tells a missing reference in place of a table index.
+   */
+  public final static int NONE = -1;
+
+  // the kinds of affixes
+  public final static byte PREFIX = 0;
+  public final static byte SUFFIX = 1;
+
+  // the kinds of conditions
+  public final static byte ANY_CONDITION = 0;
+  public final static byte CHARACTER_CONDITION = 1;
+  public final static byte RANGE_CONDITION = 2;
+
+  // the kinds of extensions
+  public final static byte SWORD_ENTRY_EXTENSION = 0;
+  public final static byte SWORD_AFFIX_EXTENSION = 1;
+  public final static byte FAKE_EXTENSION = 2;
+
+  // the kinds of compound controllers
+  public final static byte FLAG_CONTROLLER = 0;
+  public final static byte POS_CONTROLLER = 1;
+  public final static byte ANY_CONTROLLER = 2;
+
+  // the kinds of dictionary entries
+  public final static byte DICT_ENTRY = 0;
+  public final static byte SWORD_ENTRY = 1;
+  public final static byte XWORD_ENTRY = 2;
+  public final static byte EXCEPTION_ENTRY = 3;
+
+  // the kinds of dictionaries and word lists
+  public final static byte DICTIONARIES = 0;
+  public final static byte HYPOTHETISER = 1;
+  public final static byte WORD_LIST = 0;
+  public final static byte DICT = 1;
+  public final static byte SWORD_DICT = 2;
+  public final static byte MAPPED_WORD_LIST = 3;
+}
@@ -0,0 +1,692 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import java.io.DataInput;
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.jhunlang.jmorph.analysis.CompoundAnyController;
+import net.sf.jhunlang.jmorph.analysis.CompoundController;
+import net.sf.jhunlang.jmorph.analysis.CompoundFlagController;
+import net.sf.jhunlang.jmorph.analysis.CompoundPOSController;
+import net.sf.jhunlang.jmorph.parser.FakeExtension;
+import net.sf.jhunlang.jmorph.sword.Case;
+import net.sf.jhunlang.jmorph.sword.Derivative;
+import net.sf.jhunlang.jmorph.sword.POSName;
+import net.sf.jhunlang.jmorph.sword.SimpleDerivative;
+import net.sf.jhunlang.jmorph.sword.SwordAffixExtension;
+import net.sf.jhunlang.jmorph.sword.SwordDict;
+import net.sf.jhunlang.jmorph.sword.SwordEntry;
+import net.sf.jhunlang.jmorph.sword.SwordEntryExtension;
+import net.sf.jhunlang.jmorph.sword.SwordExtension;
+
+/**
+ * ImageReader reads the {@link Rules} and the {@link Dictionaries} of a
+ * model written by {@link ImageWriter}. The instances are created by their
+ * constructors and linked by the indices of the records; the
+ * {@link AffixFlags}, {@link Case}, {@link POSName} and
+ * {@link SimpleDerivative} instances are interned in the {@link Registry}
+ * current when the reader is created, the flag characters getting the ids
+ * they had in the registry of the written model.<p>
+ * The automata of the dictionaries are taken from the image unless they
+ * are switched off or built for another depth by the system properties;
+ * {@link net.sf.jhunlang.jmorph.factory.Model#prepare(Rules, Dictionaries)}
+ * builds the missing ones.
+ */
+public class ImageReader implements ImageConstants
+{
+  /**
+   * The input read from.
+   */
+  protected DataInput in;
+  /**
+   * The registry the instances are interned in.
+   */
+  protected Registry registry;
+
+  protected AffixFlags[] flags;
+  protected Case[] cases;
+  protected POSName[] posNames;
+  protected SimpleDerivative[] simples;
+  protected Derivative[] derivatives;
+  protected DictEntryExtension[] extensions;
+  protected Condition[] conditions;
+  protected Affix[] affixes;
+  protected AffixEntry[] affixEntries;
+  protected CompoundController[] controllers;
+  protected DictEntry[] entries;
+
+  /**
+   * The levels of the rules read.
+   */
+  protected Rules[] levels;
+  /**
+   * The dictionaries read.
+   */
+  protected Dictionaries dictionaries;
+
+  /**
+   * Create an ImageReader reading from <code>in</code>.
+   * @param in the input to read from
+   */
+  public ImageReader(DataInput in)
+  {
+    this.in = in;
+    registry = Registry.getCurrent();
+  }
+
+  /**
+   * Read the rules and the dictionaries.
+   * @throws IOException if reading fails or the records are invalid
+   */
+  public void read()
+    throws IOException
+  {
+    readFlags();
+    readSword();
+    readExtensions();
+    readRules();
+    readDictionaries();
+  }
+
+  /**
+   * Return the rules read.
+   * @return the rules
+   */
+  public Rules getRules()
+  {
+    return levels[0];
+  }
+
+  /**
+   * Return the dictionaries read.
+   * @return the dictionaries
+   */
+  public Dictionaries getDictionaries()
+  {
+    return dictionaries;
+  }
+
+  protected IOException invalid(String what, int kind)
+  {
+    return new IOException("Invalid image: unknown " + what + " " + kind);
+  }
+
+  protected String readString()
+    throws IOException
+  {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  protected char[] readChars()
+    throws IOException
+  {
+    char[] c = new char[in.readInt()];
+    for(int i = 0; i < c.length; i++)
+    {
+      c[i] = in.readChar();
+    }
+    return c;
+  }
+
+  protected Object ref(Object[] table, int index)
+  {
+    return index == NONE ? null : table[index];
+  }
+
+  protected void readFlags()
+    throws IOException
+  {
+    for(int i = in.readInt(); i > 0; i--)
+    {
+      registry.addFlagId(in.readChar());
+    }
+    flags = new AffixFlags[in.readInt()];
+    for(int i = 0; i < flags.length; i++)
+    {
+      flags[i] = AffixFlags.getAffixFlags(registry, in.readUTF());
+    }
+  }
+
+  protected void readSword()
+    throws IOException
+  {
+    cases = new Case[in.readInt()];
+    for(int i = 0; i < cases.length; i++)
+    {
+      String affix = in.readUTF();
+      cases[i] = Case.getCase(registry, affix, in.readUTF());
+    }
+    posNames = new POSName[in.readInt()];
+    for(int i = 0; i < posNames.length; i++)
+    {
+      posNames[i] = POSName.getPOSName(registry, in.readUTF());
+    }
+    simples = new SimpleDerivative[in.readInt()];
+    for(int i = 0; i < simples.length; i++)
+    {
+      String affix = in.readUTF();
+      String type = in.readUTF();
+      simples[i] = SimpleDerivative.getSimpleDerivative(
+        registry, affix, type, in.readUTF());
+    }
+    derivatives = new Derivative[in.readInt()];
+    for(int i = 0; i < derivatives.length; i++)
+    {
+      Derivative d = new Derivative(simples[in.readInt()]);
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        d.addPreCase(cases[in.readInt()]);
+      }
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        d.addPostCase(cases[in.readInt()]);
+      }
+      derivatives[i] = d;
+    }
+  }
+
+  protected void readExtensions()
+    throws IOException
+  {
+    extensions = new DictEntryExtension[in.readInt()];
+    for(int i = 0; i < extensions.length; i++)
+    {
+      byte kind = in.readByte();
+      if (kind == FAKE_EXTENSION)
+      {
+        extensions[i] = new FakeExtension(readString());
+        continue;
+      }
+      SwordExtension ext;
+      if (kind == SWORD_ENTRY_EXTENSION)
+      {
+        ext = new SwordEntryExtension();
+      }
+      else if (kind == SWORD_AFFIX_EXTENSION)
+      {
+        ext = new SwordAffixExtension();
+      }
+      else
+      {
+        throw invalid("extension", kind);
+      }
+      ext.setAdd(in.readBoolean());
+      List l = ext.getDerivatives();
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        l.add(derivatives[in.readInt()]);
+      }
+      l = ext.getCases();
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        l.add(cases[in.readInt()]);
+      }
+      if (kind == SWORD_ENTRY_EXTENSION)
+      {
+        ((SwordEntryExtension)ext).setPOSName(posNames[in.readInt()]);
+      }
+      extensions[i] = ext;
+    }
+  }
+
+  protected void readRules()
+    throws IOException
+  {
+    levels = new Rules[in.readInt()];
+    levels[levels.length - 1] = new Rules();
+    for(int i = levels.length - 2; i >= 0; i--)
+    {
+      levels[i] = new Rules(levels[i + 1], Rules.ADD);
+    }
+
+    conditions = new Condition[in.readInt()];
+    for(int i = 0; i < conditions.length; i++)
+    {
+      byte kind = in.readByte();
+      boolean not = in.readBoolean();
+      switch (kind)
+      {
+        case CHARACTER_CONDITION:
+          conditions[i] = new CharacterCondition(in.readChar(), not);
+          break;
+        case RANGE_CONDITION:
+          conditions[i] = new RangeCondition(readChars(), not);
+          break;
+        case ANY_CONDITION:
+          conditions[i] = new AnyCharacterCondition(not);
+          break;
+        default:
+          throw invalid("condition", kind);
+      }
+    }
+    Conditionsmap map = levels[0].getConditionsMap();
+    Conditions[] conds = new Conditions[in.readInt()];
+    for(int i = 0; i < conds.length; i++)
+    {
+      conds[i] = map.getConditions(readConditions());
+    }
+
+    affixes = new Affix[in.readInt()];
+    for(int i = 0; i < affixes.length; i++)
+    {
+      byte kind = in.readByte();
+      char name = in.readChar();
+      boolean crossable = in.readBoolean();
+      int size = in.readInt();
+      if (kind == PREFIX)
+      {
+        affixes[i] = new Prefix(name, crossable, size);
+      }
+      else if (kind == SUFFIX)
+      {
+        affixes[i] = new Suffix(name, crossable, size);
+      }
+      else
+      {
+        throw invalid("affix", kind);
+      }
+    }
+    affixEntries = new AffixEntry[in.readInt()];
+    for(int i = 0; i < affixEntries.length; i++)
+    {
+      Affix parent = affixes[in.readInt()];
+      AffixEntry entry =
+        parent instanceof Prefix ? (AffixEntry)new PrefixEntry() :
+          new SuffixEntry();
+      entry.parent = parent;
+      entry.index = in.readInt();
+      entry.flag = in.readInt();
+      entry.strip = in.readUTF().intern();
+      entry.lowerCaseStrip = entry.strip.toLowerCase().intern();
+      entry.sl = entry.strip.length();
+      entry.append = in.readUTF().intern();
+      entry.al = entry.append.length();
+      entry.morph = readString();
+      entry.crossable = in.readBoolean();
+      entry.ignoreCase = in.readBoolean();
+      entry.conds = conds[in.readInt()];
+      entry.condsIndex = entry.conds.getIndex();
+      entry.conditions = entry.conds.getConditions();
+      entry.cl = entry.conditions.length;
+      entry.stripConditions = readConditions();
+      entry.flags = (AffixFlags)ref(flags, in.readInt());
+      entry.extension = (AffixEntryExtension)ref(extensions, in.readInt());
+      affixEntries[i] = entry;
+    }
+    for(int i = 0; i < affixes.length; i++)
+    {
+      AffixEntry[] e = new AffixEntry[in.readInt()];
+      for(int k = 0; k < e.length; k++)
+      {
+        e[k] = (AffixEntry)ref(affixEntries, in.readInt());
+      }
+      affixes[i].entries = e;
+    }
+
+    controllers = new CompoundController[in.readInt()];
+    for(int i = 0; i < controllers.length; i++)
+    {
+      byte kind = in.readByte();
+      if (kind == ANY_CONTROLLER)
+      {
+        controllers[i] = new CompoundAnyController();
+        continue;
+      }
+      char compoundFirst = in.readChar();
+      char compound = in.readChar();
+      char compoundLast = in.readChar();
+      if (kind == FLAG_CONTROLLER)
+      {
+        controllers[i] =
+          new CompoundFlagController(compoundFirst, compound, compoundLast);
+      }
+      else if (kind == POS_CONTROLLER)
+      {
+        CompoundPOSController controller = new CompoundPOSController();
+        controller.setFlags(compoundFirst, compound, compoundLast);
+        for(int n = in.readInt(); n > 0; n--)
+        {
+          String left = in.readUTF();
+          String right = in.readUTF();
+          AffixFlags add = flags[in.readInt()];
+          controller.addCompound(left, right, add, flags[in.readInt()]);
+        }
+        controllers[i] = controller;
+      }
+      else
+      {
+        throw invalid("compound controller", kind);
+      }
+    }
+
+    for(int i = 0; i < levels.length; i++)
+    {
+      Rules r = levels[i];
+      r.compoundFirst = in.readChar();
+      r.compoundLast = in.readChar();
+      r.compoundForbidden = in.readChar();
+      r.compound = in.readChar();
+      r.compoundWord = in.readChar();
+      r.minWord = in.readInt();
+      r.recursion = in.readInt();
+      r.prefixCount = in.readInt();
+      r.suffixCount = in.readInt();
+      r.prefixFlags = flags[in.readInt()];
+      r.suffixFlags = flags[in.readInt()];
+      r.compoundController =
+        (CompoundController)ref(controllers, in.readInt());
+      readAffixes(r.prefixes);
+      readAffixes(r.suffixes);
+      readTrie(r.prefixEntries);
+      readTrie(r.suffixEntries);
+    }
+  }
+
+  protected Condition[] readConditions()
+    throws IOException
+  {
+    Condition[] c = new Condition[in.readInt()];
+    for(int i = 0; i < c.length; i++)
+    {
+      c[i] = conditions[in.readInt()];
+    }
+    return c;
+  }
+
+  protected void readAffixes(Map affixMap)
+    throws IOException
+  {
+    for(int n = in.readInt(); n > 0; n--)
+    {
+      Affix affix = affixes[in.readInt()];
+      affixMap.put(Character.valueOf(affix.getName()), affix);
+    }
+  }
+
+  /**
+   * Read the node <code>node</code> and its children written by
+   * {@link ImageWriter#writeTrie(AffixEntries)}.
+   */
+  protected void readTrie(AffixEntries node)
+    throws IOException
+  {
+    int size = in.readInt();
+    if (size > 0)
+    {
+      node.keys = new char[size];
+      node.affixes = new AffixEntries[size];
+      for(int i = 0; i < size; i++)
+      {
+        node.keys[i] = in.readChar();
+        node.affixes[i] = new AffixEntries();
+      }
+      node.size = size;
+      node.index();
+    }
+    int strips = in.readInt();
+    if (strips != NONE)
+    {
+      node.byStrip = new TreeMap();
+      for(int i = 0; i < strips; i++)
+      {
+        String strip = in.readUTF();
+        int n = in.readInt();
+        if (n == 1)
+        {
+          node.byStrip.put(strip, affixEntries[in.readInt()]);
+          continue;
+        }
+        Collection stripColl = new LinkedList();
+        for(int j = 0; j < n; j++)
+        {
+          stripColl.add(affixEntries[in.readInt()]);
+        }
+        node.byStrip.put(strip, stripColl);
+      }
+    }
+    for(int i = 0; i < size; i++)
+    {
+      readTrie(node.affixes[i]);
+    }
+  }
+
+  protected void readDictionaries()
+    throws IOException
+  {
+    entries = new DictEntry[in.readInt()];
+    for(int i = 0; i < entries.length; i++)
+    {
+      byte kind = in.readByte();
+      String word = in.readUTF();
+      AffixFlags entryFlags = flags[in.readInt()];
+      DictEntryExtension ext = (DictEntryExtension)ref(extensions, in.readInt());
+      DictEntry entry;
+      switch (kind)
+      {
+        case DICT_ENTRY:
+          entry = new DictEntry(word, entryFlags);
+          break;
+        case SWORD_ENTRY:
+          entry = new SwordEntry(word, entryFlags, (SwordEntryExtension)ext);
+          break;
+        case XWORD_ENTRY:
+          entry = new XWordEntry(word, new char[0]);
+          entry.setFlags(entryFlags);
+          break;
+        case EXCEPTION_ENTRY:
+          entry = new ExceptionEntry(word, "");
+          break;
+        default:
+          throw invalid("entry", kind);
+      }
+      entry.inflexion = ext;
+      entry.morph = readString();
+      if (kind == XWORD_ENTRY)
+      {
+        ((XWordEntry)entry).chunk = in.readByte();
+        ((XWordEntry)entry).stem = readString();
+      }
+      else if (kind == EXCEPTION_ENTRY)
+      {
+        ((ExceptionEntry)entry).stem = readString();
+        entry.setFlags(entryFlags);
+      }
+      entries[i] = entry;
+    }
+    for(int i = 0; i < entries.length; i++)
+    {
+      DictEntry entry = entries[i];
+      entry.root = (DictEntry)ref(entries, in.readInt());
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        entry.addHomonym(entries[in.readInt()]);
+      }
+      if (entry instanceof ExceptionEntry)
+      {
+        ((ExceptionEntry)entry).flagEntry =
+          (DictEntry)ref(entries, in.readInt());
+      }
+    }
+
+    byte kind = in.readByte();
+    if (kind == DICTIONARIES)
+    {
+      dictionaries = new Dictionaries();
+    }
+    else if (kind == HYPOTHETISER)
+    {
+      dictionaries = new Hypothetiser();
+    }
+    else
+    {
+      throw invalid("dictionaries", kind);
+    }
+    dictionaries.generateNumber = in.readBoolean();
+    for(int n = in.readInt(); n > 0; n--)
+    {
+      dictionaries.add(readWordList());
+    }
+    readAutomaton();
+    readStemAutomaton();
+  }
+
+  protected WordList readWordList()
+    throws IOException
+  {
+    byte kind = in.readByte();
+    WordList wl;
+    switch (kind)
+    {
+      case MAPPED_WORD_LIST:
+        return new MappedWordList(new File(in.readUTF()));
+      case WORD_LIST:
+        wl = new WordList();
+        break;
+      case DICT:
+        wl = new Dict();
+        break;
+      case SWORD_DICT:
+        wl = new SwordDict();
+        break;
+      default:
+        throw invalid("word list", kind);
+    }
+    wl.homos = in.readInt();
+    readMap(wl.words);
+    for(int n = in.readInt(); n > 0; n--)
+    {
+      DictEntry root = (DictEntry)ref(entries, in.readInt());
+      int count = in.readInt();
+      Collection c = new ArrayList(count);
+      for(int i = 0; i < count; i++)
+      {
+        c.add(entries[in.readInt()]);
+      }
+      wl.reverseRoots.put(root, c);
+    }
+    if (kind == DICT)
+    {
+      Dict dict = (Dict)wl;
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        dict.ys.add(entries[in.readInt()]);
+      }
+      for(int n = in.readInt(); n > 0; n--)
+      {
+        String word = in.readUTF();
+        dict.ijs.put(word, entries[in.readInt()]);
+      }
+      dict.exceptionals = in.readInt();
+      readMap(dict.exceptions);
+    }
+    return wl;
+  }
+
+  /**
+   * Read the map of the lowercase words to entries or to maps of entries
+   * by their words written by {@link ImageWriter#writeMap(Map)}.
+   */
+  protected void readMap(Map words)
+    throws IOException
+  {
+    for(int n = in.readInt(); n > 0; n--)
+    {
+      String key = in.readUTF();
+      if (in.readBoolean())
+      {
+        Map variants = new HashMap();
+        for(int i = in.readInt(); i > 0; i--)
+        {
+          String word = in.readUTF();
+          variants.put(word, entries[in.readInt()]);
+        }
+        words.put(key, variants);
+      }
+      else
+      {
+        words.put(key, entries[in.readInt()]);
+      }
+    }
+  }
+
+  protected void readAutomaton()
+    throws IOException
+  {
+    if (!in.readBoolean())
+    {
+      return;
+    }
+    SplitAutomaton automaton = new SplitAutomaton();
+    automaton.depth = in.readInt();
+    automaton.minWord = in.readInt();
+    automaton.numbers = in.readBoolean();
+    int size = in.readInt();
+    automaton.labels = new char[size];
+    automaton.first = new int[size];
+    automaton.last = new int[size];
+    automaton.accept = new boolean[size];
+    readNodes(automaton.labels, automaton.first, automaton.last,
+      automaton.accept);
+    if (Boolean.valueOf(System.getProperty(Dictionaries.AUTOMATON, "true"))
+          .booleanValue() &&
+        automaton.depth == Math.max(1, Integer.getInteger(
+          SplitAutomaton.DEPTH, SplitAutomaton.DEFAULT_DEPTH).intValue()))
+    {
+      dictionaries.automaton = automaton;
+    }
+  }
+
+  protected void readStemAutomaton()
+    throws IOException
+  {
+    if (!in.readBoolean())
+    {
+      return;
+    }
+    StemAutomaton stems = new StemAutomaton();
+    stems.depth = in.readInt();
+    stems.numbers = in.readBoolean();
+    stems.ends = readTrie();
+    stems.prefixes = readTrie();
+    if (Boolean.getBoolean(Dictionaries.STEMS) &&
+        stems.depth == Math.max(1, Integer.getInteger(
+          StemAutomaton.DEPTH, StemAutomaton.DEFAULT_DEPTH).intValue()))
+    {
+      dictionaries.stems = stems;
+    }
+  }
+
+  protected StemAutomaton.Trie readTrie()
+    throws IOException
+  {
+    StemAutomaton.Trie trie = new StemAutomaton.Trie();
+    int size = in.readInt();
+    trie.labels = new char[size];
+    trie.first = new int[size];
+    trie.last = new int[size];
+    trie.accept = new boolean[size];
+    readNodes(trie.labels, trie.first, trie.last, trie.accept);
+    return trie;
+  }
+
+  protected void readNodes(char[] labels, int[] first, int[] last,
+    boolean[] accept)
+    throws IOException
+  {
+    for(int i = 0; i < labels.length; i++)
+    {
+      labels[i] = in.readChar();
+      first[i] = in.readInt();
+      last[i] = in.readInt();
+      accept[i] = in.readBoolean();
+    }
+  }
+}
@@ -0,0 +1,879 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import net.sf.jhunlang.jmorph.analysis.CompoundAnyController;
+import net.sf.jhunlang.jmorph.analysis.CompoundController;
+import net.sf.jhunlang.jmorph.analysis.CompoundFlagController;
+import net.sf.jhunlang.jmorph.analysis.CompoundPOSController;
+import net.sf.jhunlang.jmorph.parser.FakeExtension;
+import net.sf.jhunlang.jmorph.sword.Case;
+import net.sf.jhunlang.jmorph.sword.Derivative;
+import net.sf.jhunlang.jmorph.sword.POSName;
+import net.sf.jhunlang.jmorph.sword.SimpleDerivative;
+import net.sf.jhunlang.jmorph.sword.SwordAffixExtension;
+import net.sf.jhunlang.jmorph.sword.SwordDict;
+import net.sf.jhunlang.jmorph.sword.SwordEntry;
+import net.sf.jhunlang.jmorph.sword.SwordEntryExtension;
+import net.sf.jhunlang.jmorph.sword.SwordExtension;
+import net.sf.jhunlang.jmorph.util.Pair;
+
+/**
+ * ImageWriter writes the {@link Rules} and the {@link Dictionaries} of a
+ * model in the image format read by {@link ImageReader}. The instances
+ * shared by the model are collected into tables first and written once as
+ * flat records in this order:
+ * <ul>
+ * <li>the flag characters in the order of their ids and the flag strings
+ * of the {@link AffixFlags}</li>
+ * <li>the {@link Case}, {@link POSName}, {@link SimpleDerivative} and
+ * {@link Derivative} instances and the extensions of the entries</li>
+ * <li>the conditions, the {@link Conditions} of the conditions map in the
+ * order of their indices, the affixes and the affix entries</li>
+ * <li>the levels of the rules with their affixes, compound controllers
+ * and {@link AffixEntries} tries in preorder</li>
+ * <li>the dictionary entries, their root and homonym links, the word
+ * lists and the arrays of the dictionary automata</li>
+ * </ul>
+ * Records refer to each other by their indices in the tables, so the
+ * reader restores the sharing of the instances without reflection. Only
+ * the classes of this package, the sword package and the parsers are
+ * supported; the dictionaries may hold {@link DictEntry}, dictionary
+ * {@link SwordEntry}, {@link XWordEntry} and {@link ExceptionEntry}
+ * instances. The entries {@link SwordDict} links to their roots while
+ * loading are not written.
+ */
+public class ImageWriter implements ImageConstants
+{
+  /**
+   * The output written to.
+   */
+  protected DataOutput out;
+
+  protected List levels = new ArrayList();
+  protected Map flagIds = new IdentityHashMap();
+  protected List flags = new ArrayList();
+  protected Map caseIds = new IdentityHashMap();
+  protected List cases = new ArrayList();
+  protected Map posIds = new IdentityHashMap();
+  protected List posNames = new ArrayList();
+  protected Map simpleIds = new IdentityHashMap();
+  protected List simples = new ArrayList();
+  protected Map derivativeIds = new IdentityHashMap();
+  protected List derivatives = new ArrayList();
+  protected Map extensionIds = new IdentityHashMap();
+  protected List extensions = new ArrayList();
+  protected Map conditionIds = new IdentityHashMap();
+  protected List conditions = new ArrayList();
+  protected Conditions[] conditionsList;
+  protected Map affixIds = new IdentityHashMap();
+  protected List affixes = new ArrayList();
+  protected Map affixEntryIds = new IdentityHashMap();
+  protected List affixEntries = new ArrayList();
+  protected Map controllerIds = new IdentityHashMap();
+  protected List controllers = new ArrayList();
+  protected Map entryIds = new IdentityHashMap();
+  protected List entries = new ArrayList();
+
+  /**
+   * Create an ImageWriter writing to <code>out</code>.
+   * @param out the output to write to
+   */
+  public ImageWriter(DataOutput out)
+  {
+    this.out = out;
+  }
+
+  /**
+   * Write <code>rules</code> and <code>dictionaries</code>.
+   * @param rules the rules
+   * @param dictionaries the dictionaries
+   * @throws IOException if writing fails
+   * @throws IllegalArgumentException if the model holds instances of
+   * classes the image format does not support
+   */
+  public void write(Rules rules, Dictionaries dictionaries)
+    throws IOException
+  {
+    collect(rules);
+    collect(dictionaries);
+
+    writeFlags(rules.getRegistry());
+    writeSword();
+    writeExtensions();
+    writeRules();
+    writeDictionaries(dictionaries);
+  }
+
+  protected void collect(Rules rules)
+  {
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      if (r.getConditionsMap() != rules.getConditionsMap())
+      {
+        throw new IllegalArgumentException("Cannot write " + r +
+          " with a conditions map of its own");
+      }
+      levels.add(r);
+    }
+
+    Conditionsmap map = rules.getConditionsMap();
+    conditionsList = new Conditions[map.size()];
+    Iterator it = map.getConditions().iterator();
+    while (it.hasNext())
+    {
+      Conditions c = (Conditions)it.next();
+      conditionsList[c.getIndex()] = c;
+      collect(c.getConditions());
+    }
+
+    for(int i = 0; i < levels.size(); i++)
+    {
+      Rules r = (Rules)levels.get(i);
+      id(affixIds, affixes, r.prefixes.values());
+      id(affixIds, affixes, r.suffixes.values());
+      collect(r.prefixEntries);
+      collect(r.suffixEntries);
+      id(flagIds, flags, r.prefixFlags);
+      id(flagIds, flags, r.suffixFlags);
+      if (r.compoundController != null)
+      {
+        collect(r.compoundController);
+      }
+    }
+    // the affixes of the entries and the entries of the affixes
+    for(int i = 0, j = 0; i < affixes.size() || j < affixEntries.size();)
+    {
+      for(; i < affixes.size(); i++)
+      {
+        AffixEntry[] e = ((Affix)affixes.get(i)).getEntries();
+        for(int k = 0; k < e.length; k++)
+        {
+          if (e[k] != null)
+          {
+            id(affixEntryIds, affixEntries, e[k]);
+          }
+        }
+      }
+      for(; j < affixEntries.size(); j++)
+      {
+        collect((AffixEntry)affixEntries.get(j));
+      }
+    }
+  }
+
+  protected void collect(AffixEntries node)
+  {
+    for(int i = 0; i < node.size(); i++)
+    {
+      collect(node.getMap(i));
+    }
+    if (node.getByStrip() != null)
+    {
+      Iterator it = node.getByStrip().values().iterator();
+      while (it.hasNext())
+      {
+        Object o = it.next();
+        if (o instanceof Collection)
+        {
+          id(affixEntryIds, affixEntries, (Collection)o);
+        }
+        else
+        {
+          id(affixEntryIds, affixEntries, o);
+        }
+      }
+    }
+  }
+
+  protected void collect(AffixEntry entry)
+  {
+    Affix parent = entry.getParent();
+    if (!(entry.getClass() == PrefixEntry.class && parent instanceof Prefix ||
+          entry.getClass() == SuffixEntry.class && parent instanceof Suffix))
+    {
+      throw new IllegalArgumentException("Cannot write " + entry);
+    }
+    id(affixIds, affixes, parent);
+    if (conditionsList[entry.condsIndex] != entry.conds)
+    {
+      throw new IllegalArgumentException(
+        "Cannot write " + entry + " with conditions not in the map");
+    }
+    collect(entry.stripConditions);
+    if (entry.getFlags() != null)
+    {
+      id(flagIds, flags, entry.getFlags());
+    }
+    if (entry.getExtension() != null)
+    {
+      collect(entry.getExtension());
+    }
+  }
+
+  protected void collect(Condition[] c)
+  {
+    for(int i = 0; i < c.length; i++)
+    {
+      Class clz = c[i].getClass();
+      if (clz != CharacterCondition.class && clz != RangeCondition.class &&
+          clz != AnyCharacterCondition.class)
+      {
+        throw new IllegalArgumentException("Cannot write " + c[i]);
+      }
+      id(conditionIds, conditions, c[i]);
+    }
+  }
+
+  protected void collect(CompoundController controller)
+  {
+    Class clz = controller.getClass();
+    if (clz == CompoundPOSController.class)
+    {
+      Iterator it =
+        ((CompoundPOSController)controller).getCompounds().values().iterator();
+      while (it.hasNext())
+      {
+        Pair p = (Pair)it.next();
+        id(flagIds, flags, p.getA());
+        id(flagIds, flags, p.getB());
+      }
+    }
+    else if (clz != CompoundFlagController.class &&
+             clz != CompoundAnyController.class)
+    {
+      throw new IllegalArgumentException("Cannot write " + controller);
+    }
+    id(controllerIds, controllers, controller);
+  }
+
+  protected void collect(DictEntryExtension ext)
+  {
+    if (extensionIds.containsKey(ext))
+    {
+      return;
+    }
+    Class clz = ext.getClass();
+    if (clz == SwordEntryExtension.class || clz == SwordAffixExtension.class)
+    {
+      SwordExtension swext = (SwordExtension)ext;
+      Iterator it = swext.getDerivatives().iterator();
+      while (it.hasNext())
+      {
+        Derivative d = (Derivative)it.next();
+        if (!derivativeIds.containsKey(d))
+        {
+          id(simpleIds, simples, d.getDerivative());
+          id(caseIds, cases, d.getPreCases());
+          id(caseIds, cases, d.getPostCases());
+          id(derivativeIds, derivatives, d);
+        }
+      }
+      id(caseIds, cases, swext.getCases());
+      if (clz == SwordEntryExtension.class)
+      {
+        id(posIds, posNames, swext.getPOSName());
+      }
+    }
+    else if (clz != FakeExtension.class)
+    {
+      throw new IllegalArgumentException("Cannot write " + ext);
+    }
+    id(extensionIds, extensions, ext);
+  }
+
+  protected void collect(Dictionaries dictionaries)
+  {
+    Class clz = dictionaries.getClass();
+    if (clz != Dictionaries.class && clz != Hypothetiser.class)
+    {
+      throw new IllegalArgumentException("Cannot write " + dictionaries);
+    }
+    Iterator it = dictionaries.iterator();
+    while (it.hasNext())
+    {
+      WordList wl = (WordList)it.next();
+      Class wclz = wl.getClass();
+      if (wclz == MappedWordList.class)
+      {
+        continue;
+      }
+      if (wclz != WordList.class && wclz != Dict.class &&
+          wclz != SwordDict.class)
+      {
+        throw new IllegalArgumentException("Cannot write " + wl);
+      }
+      collectMap(wl.words);
+      Iterator rit = wl.reverseRoots.entrySet().iterator();
+      while (rit.hasNext())
+      {
+        Map.Entry e = (Map.Entry)rit.next();
+        // the entries whose roots are not found are linked to null
+        if (e.getKey() != null)
+        {
+          id(entryIds, entries, e.getKey());
+        }
+        id(entryIds, entries, (Collection)e.getValue());
+      }
+      if (wclz == Dict.class)
+      {
+        Dict dict = (Dict)wl;
+        collectMap(dict.exceptions);
+        id(entryIds, entries, dict.ys);
+        id(entryIds, entries, dict.ijs.values());
+      }
+    }
+    // the roots, homonyms and flag entries of the entries
+    for(int i = 0; i < entries.size(); i++)
+    {
+      DictEntry entry = (DictEntry)entries.get(i);
+      Class eclz = entry.getClass();
+      if (eclz == ExceptionEntry.class)
+      {
+        DictEntry flagEntry = ((ExceptionEntry)entry).flagEntry;
+        if (flagEntry != null)
+        {
+          id(entryIds, entries, flagEntry);
+        }
+      }
+      else if (eclz == SwordEntry.class)
+      {
+        if (!entry.dictionaryWord() || entry.getInflexion() != null &&
+            entry.getInflexion().getClass() != SwordEntryExtension.class)
+        {
+          throw new IllegalArgumentException("Cannot write " + entry);
+        }
+      }
+      else if (eclz != DictEntry.class && eclz != XWordEntry.class)
+      {
+        throw new IllegalArgumentException("Cannot write " + entry);
+      }
+      if (entry.getRootEntry() != null)
+      {
+        id(entryIds, entries, entry.getRootEntry());
+      }
+      id(entryIds, entries, entry.getHomonyms());
+      id(flagIds, flags, entry.getFlags());
+      if (entry.getInflexion() != null)
+      {
+        collect(entry.getInflexion());
+      }
+    }
+  }
+
+  /**
+   * Collect the entries of <code>words</code> mapping lowercase words to
+   * entries or to maps of entries by their words.
+   */
+  protected void collectMap(Map words)
+  {
+    Iterator it = words.values().iterator();
+    while (it.hasNext())
+    {
+      Object o = it.next();
+      if (o instanceof Map)
+      {
+        id(entryIds, entries, ((Map)o).values());
+      }
+      else
+      {
+        id(entryIds, entries, o);
+      }
+    }
+  }
+
+  /**
+   * Return the index of <code>o</code> in <code>list</code>; add it to the
+   * end of <code>list</code> first if <code>ids</code> does not map it to
+   * its index yet.
+   */
+  protected static int id(Map ids, List list, Object o)
+  {
+    Integer id = (Integer)ids.get(o);
+    if (id == null)
+    {
+      id = Integer.valueOf(list.size());
+      ids.put(o, id);
+      list.add(o);
+    }
+    return id.intValue();
+  }
+
+  /**
+   * Add the elements of <code>c</code> to <code>list</code> unless they
+   * are in it.
+   */
+  protected static void id(Map ids, List list, Collection c)
+  {
+    Iterator it = c.iterator();
+    while (it.hasNext())
+    {
+      id(ids, list, it.next());
+    }
+  }
+
+  /**
+   * Return the index of <code>o</code> or {@link #NONE} for
+   * <code>null</code>.
+   */
+  protected static int ref(Map ids, Object o)
+  {
+    return o == null ? NONE : ((Integer)ids.get(o)).intValue();
+  }
+
+  protected void writeString(String s)
+    throws IOException
+  {
+    out.writeBoolean(s != null);
+    if (s != null)
+    {
+      out.writeUTF(s);
+    }
+  }
+
+  protected void writeRefs(Map ids, Collection c)
+    throws IOException
+  {
+    out.writeInt(c.size());
+    Iterator it = c.iterator();
+    while (it.hasNext())
+    {
+      out.writeInt(ref(ids, it.next()));
+    }
+  }
+
+  protected void writeFlags(Registry registry)
+    throws IOException
+  {
+    out.writeInt(registry.flagCount);
+    for(int i = 0; i < registry.flagCount; i++)
+    {
+      out.writeChar(registry.flagCharacters[i]);
+    }
+    out.writeInt(flags.size());
+    for(int i = 0; i < flags.size(); i++)
+    {
+      out.writeUTF(((AffixFlags)flags.get(i)).getFlagString());
+    }
+  }
+
+  protected void writeSword()
+    throws IOException
+  {
+    out.writeInt(cases.size());
+    for(int i = 0; i < cases.size(); i++)
+    {
+      Case c = (Case)cases.get(i);
+      out.writeUTF(c.getAffix());
+      out.writeUTF(c.getName());
+    }
+    out.writeInt(posNames.size());
+    for(int i = 0; i < posNames.size(); i++)
+    {
+      out.writeUTF(((POSName)posNames.get(i)).getName());
+    }
+    out.writeInt(simples.size());
+    for(int i = 0; i < simples.size(); i++)
+    {
+      SimpleDerivative s = (SimpleDerivative)simples.get(i);
+      out.writeUTF(s.getAffix());
+      out.writeUTF(s.getType());
+      out.writeUTF(s.getPOSName().getName());
+    }
+    out.writeInt(derivatives.size());
+    for(int i = 0; i < derivatives.size(); i++)
+    {
+      Derivative d = (Derivative)derivatives.get(i);
+      out.writeInt(ref(simpleIds, d.getDerivative()));
+      writeRefs(caseIds, d.getPreCases());
+      writeRefs(caseIds, d.getPostCases());
+    }
+  }
+
+  protected void writeExtensions()
+    throws IOException
+  {
+    out.writeInt(extensions.size());
+    for(int i = 0; i < extensions.size(); i++)
+    {
+      Object ext = extensions.get(i);
+      if (ext instanceof FakeExtension)
+      {
+        out.writeByte(FAKE_EXTENSION);
+        writeString(((FakeExtension)ext).morphString());
+        continue;
+      }
+      SwordExtension swext = (SwordExtension)ext;
+      boolean entryExtension = ext instanceof SwordEntryExtension;
+      out.writeByte(
+        entryExtension ? SWORD_ENTRY_EXTENSION : SWORD_AFFIX_EXTENSION);
+      out.writeBoolean(swext.isAdd());
+      writeRefs(derivativeIds, swext.getDerivatives());
+      writeRefs(caseIds, swext.getCases());
+      if (entryExtension)
+      {
+        out.writeInt(ref(posIds, swext.getPOSName()));
+      }
+    }
+  }
+
+  protected void writeRules()
+    throws IOException
+  {
+    out.writeInt(levels.size());
+
+    out.writeInt(conditions.size());
+    for(int i = 0; i < conditions.size(); i++)
+    {
+      Condition c = (Condition)conditions.get(i);
+      if (c instanceof CharacterCondition)
+      {
+        out.writeByte(CHARACTER_CONDITION);
+        out.writeBoolean(c.not());
+        out.writeChar(((CharacterCondition)c).getCharacter());
+      }
+      else if (c instanceof RangeCondition)
+      {
+        out.writeByte(RANGE_CONDITION);
+        out.writeBoolean(c.not());
+        writeChars(((RangeCondition)c).getRange());
+      }
+      else
+      {
+        out.writeByte(ANY_CONDITION);
+        out.writeBoolean(c.not());
+      }
+    }
+    out.writeInt(conditionsList.length);
+    for(int i = 0; i < conditionsList.length; i++)
+    {
+      writeConditions(conditionsList[i].getConditions());
+    }
+
+    out.writeInt(affixes.size());
+    for(int i = 0; i < affixes.size(); i++)
+    {
+      Affix affix = (Affix)affixes.get(i);
+      out.writeByte(affix instanceof Prefix ? PREFIX : SUFFIX);
+      out.writeChar(affix.getName());
+      out.writeBoolean(affix.crossable());
+      out.writeInt(affix.specifiedSize());
+    }
+    out.writeInt(affixEntries.size());
+    for(int i = 0; i < affixEntries.size(); i++)
+    {
+      AffixEntry entry = (AffixEntry)affixEntries.get(i);
+      out.writeInt(ref(affixIds, entry.parent));
+      out.writeInt(entry.index);
+      out.writeInt(entry.flag);
+      out.writeUTF(entry.strip);
+      out.writeUTF(entry.append);
+      writeString(entry.morph);
+      out.writeBoolean(entry.crossable);
+      out.writeBoolean(entry.ignoreCase);
+      out.writeInt(entry.condsIndex);
+      writeConditions(entry.stripConditions);
+      out.writeInt(ref(flagIds, entry.flags));
+      out.writeInt(ref(extensionIds, entry.extension));
+    }
+    for(int i = 0; i < affixes.size(); i++)
+    {
+      AffixEntry[] e = ((Affix)affixes.get(i)).getEntries();
+      out.writeInt(e.length);
+      for(int k = 0; k < e.length; k++)
+      {
+        out.writeInt(ref(affixEntryIds, e[k]));
+      }
+    }
+
+    out.writeInt(controllers.size());
+    for(int i = 0; i < controllers.size(); i++)
+    {
+      CompoundController controller = (CompoundController)controllers.get(i);
+      if (controller instanceof CompoundAnyController)
+      {
+        out.writeByte(ANY_CONTROLLER);
+        continue;
+      }
+      CompoundFlagController flagController =
+        (CompoundFlagController)controller;
+      boolean pos = controller instanceof CompoundPOSController;
+      out.writeByte(pos ? POS_CONTROLLER : FLAG_CONTROLLER);
+      out.writeChar(flagController.getCompoundFirst());
+      out.writeChar(flagController.getCompound());
+      out.writeChar(flagController.getCompoundLast());
+      if (pos)
+      {
+        Map compounds = ((CompoundPOSController)controller).getCompounds();
+        out.writeInt(compounds.size());
+        Iterator it = compounds.entrySet().iterator();
+        while (it.hasNext())
+        {
+          Map.Entry e = (Map.Entry)it.next();
+          Pair key = (Pair)e.getKey();
+          Pair value = (Pair)e.getValue();
+          out.writeUTF((String)key.getA());
+          out.writeUTF((String)key.getB());
+          out.writeInt(ref(flagIds, value.getA()));
+          out.writeInt(ref(flagIds, value.getB()));
+        }
+      }
+    }
+
+    for(int i = 0; i < levels.size(); i++)
+    {
+      Rules r = (Rules)levels.get(i);
+      out.writeChar(r.compoundFirst);
+      out.writeChar(r.compoundLast);
+      out.writeChar(r.compoundForbidden);
+      out.writeChar(r.compound);
+      out.writeChar(r.compoundWord);
+      out.writeInt(r.minWord);
+      out.writeInt(r.recursion);
+      out.writeInt(r.prefixCount);
+      out.writeInt(r.suffixCount);
+      out.writeInt(ref(flagIds, r.prefixFlags));
+      out.writeInt(ref(flagIds, r.suffixFlags));
+      out.writeInt(ref(controllerIds, r.compoundController));
+      writeRefs(affixIds, r.prefixes.values());
+      writeRefs(affixIds, r.suffixes.values());
+      writeTrie(r.prefixEntries);
+      writeTrie(r.suffixEntries);
+    }
+  }
+
+  protected void writeChars(char[] c)
+    throws IOException
+  {
+    out.writeInt(c.length);
+    for(int i = 0; i < c.length; i++)
+    {
+      out.writeChar(c[i]);
+    }
+  }
+
+  protected void writeConditions(Condition[] c)
+    throws IOException
+  {
+    out.writeInt(c.length);
+    for(int i = 0; i < c.length; i++)
+    {
+      out.writeInt(ref(conditionIds, c[i]));
+    }
+  }
+
+  /**
+   * Write the node <code>node</code> and its children in preorder: the keys
+   * of the children, the entries by their strips and the children.
+   */
+  protected void writeTrie(AffixEntries node)
+    throws IOException
+  {
+    out.writeInt(node.size());
+    for(int i = 0; i < node.size(); i++)
+    {
+      out.writeChar(node.getKey(i));
+    }
+    Map byStrip = node.getByStrip();
+    out.writeInt(byStrip == null ? NONE : byStrip.size());
+    if (byStrip != null)
+    {
+      Iterator it = byStrip.entrySet().iterator();
+      while (it.hasNext())
+      {
+        Map.Entry e = (Map.Entry)it.next();
+        out.writeUTF((String)e.getKey());
+        Object o = e.getValue();
+        if (o instanceof Collection)
+        {
+          writeRefs(affixEntryIds, (Collection)o);
+        }
+        else
+        {
+          out.writeInt(1);
+          out.writeInt(ref(affixEntryIds, o));
+        }
+      }
+    }
+    for(int i = 0; i < node.size(); i++)
+    {
+      writeTrie(node.getMap(i));
+    }
+  }
+
+  protected void writeDictionaries(Dictionaries dictionaries)
+    throws IOException
+  {
+    out.writeInt(entries.size());
+    for(int i = 0; i < entries.size(); i++)
+    {
+      DictEntry entry = (DictEntry)entries.get(i);
+      Class clz = entry.getClass();
+      out.writeByte(clz == SwordEntry.class ? SWORD_ENTRY :
+        clz == XWordEntry.class ? XWORD_ENTRY :
+        clz == ExceptionEntry.class ? EXCEPTION_ENTRY : DICT_ENTRY);
+      out.writeUTF(entry.word);
+      out.writeInt(ref(flagIds, entry.flags));
+      out.writeInt(ref(extensionIds, entry.inflexion));
+      writeString(entry.morph);
+      if (clz == XWordEntry.class)
+      {
+        out.writeByte(((XWordEntry)entry).chunk);
+        writeString(((XWordEntry)entry).stem);
+      }
+      else if (clz == ExceptionEntry.class)
+      {
+        writeString(((ExceptionEntry)entry).stem);
+      }
+    }
+    for(int i = 0; i < entries.size(); i++)
+    {
+      DictEntry entry = (DictEntry)entries.get(i);
+      out.writeInt(ref(entryIds, entry.root));
+      writeRefs(entryIds, entry.homonyms);
+      if (entry instanceof ExceptionEntry)
+      {
+        out.writeInt(ref(entryIds, ((ExceptionEntry)entry).flagEntry));
+      }
+    }
+
+    out.writeByte(dictionaries instanceof Hypothetiser ?
+      HYPOTHETISER : DICTIONARIES);
+    out.writeBoolean(dictionaries.generateNumber);
+    out.writeInt(dictionaries.size());
+    Iterator it = dictionaries.iterator();
+    while (it.hasNext())
+    {
+      writeWordList((WordList)it.next());
+    }
+    writeAutomaton(dictionaries.automaton);
+    writeStemAutomaton(dictionaries.stems);
+  }
+
+  protected void writeWordList(WordList wl)
+    throws IOException
+  {
+    Class clz = wl.getClass();
+    if (clz == MappedWordList.class)
+    {
+      out.writeByte(MAPPED_WORD_LIST);
+      out.writeUTF(((MappedWordList)wl).getFile().getPath());
+      return;
+    }
+    out.writeByte(clz == Dict.class ? DICT :
+      clz == SwordDict.class ? SWORD_DICT : WORD_LIST);
+    out.writeInt(wl.homos);
+    writeMap(wl.words);
+    out.writeInt(wl.reverseRoots.size());
+    Iterator it = wl.reverseRoots.entrySet().iterator();
+    while (it.hasNext())
+    {
+      Map.Entry e = (Map.Entry)it.next();
+      out.writeInt(ref(entryIds, e.getKey()));
+      writeRefs(entryIds, (Collection)e.getValue());
+    }
+    if (clz == Dict.class)
+    {
+      Dict dict = (Dict)wl;
+      writeRefs(entryIds, dict.ys);
+      out.writeInt(dict.ijs.size());
+      it = dict.ijs.entrySet().iterator();
+      while (it.hasNext())
+      {
+        Map.Entry e = (Map.Entry)it.next();
+        out.writeUTF((String)e.getKey());
+        out.writeInt(ref(entryIds, e.getValue()));
+      }
+      out.writeInt(dict.exceptionals);
+      writeMap(dict.exceptions);
+    }
+  }
+
+  /**
+   * Write <code>words</code> mapping lowercase words to entries or to maps
+   * of entries by their words in its iteration order.
+   */
+  protected void writeMap(Map words)
+    throws IOException
+  {
+    out.writeInt(words.size());
+    Iterator it = words.entrySet().iterator();
+    while (it.hasNext())
+    {
+      Map.Entry e = (Map.Entry)it.next();
+      out.writeUTF((String)e.getKey());
+      Object o = e.getValue();
+      out.writeBoolean(o instanceof Map);
+      if (o instanceof Map)
+      {
+        Map variants = (Map)o;
+        out.writeInt(variants.size());
+        Iterator vit = variants.entrySet().iterator();
+        while (vit.hasNext())
+        {
+          Map.Entry v = (Map.Entry)vit.next();
+          out.writeUTF((String)v.getKey());
+          out.writeInt(ref(entryIds, v.getValue()));
+        }
+      }
+      else
+      {
+        out.writeInt(ref(entryIds, o));
+      }
+    }
+  }
+
+  protected void writeAutomaton(SplitAutomaton automaton)
+    throws IOException
+  {
+    out.writeBoolean(automaton != null);
+    if (automaton != null)
+    {
+      out.writeInt(automaton.depth);
+      out.writeInt(automaton.minWord);
+      out.writeBoolean(automaton.numbers);
+      writeNodes(automaton.labels, automaton.first, automaton.last,
+        automaton.accept);
+    }
+  }
+
+  protected void writeStemAutomaton(StemAutomaton stems)
+    throws IOException
+  {
+    out.writeBoolean(stems != null);
+    if (stems != null)
+    {
+      out.writeInt(stems.depth);
+      out.writeBoolean(stems.numbers);
+      writeNodes(stems.ends.labels, stems.ends.first, stems.ends.last,
+        stems.ends.accept);
+      writeNodes(stems.prefixes.labels, stems.prefixes.first,
+        stems.prefixes.last, stems.prefixes.accept);
+    }
+  }
+
+  /**
+   * Write the nodes of an automaton trie kept level by level in arrays.
+   */
+  protected void writeNodes(char[] labels, int[] first, int[] last,
+    boolean[] accept)
+    throws IOException
+  {
+    out.writeInt(labels.length);
+    for(int i = 0; i < labels.length; i++)
+    {
+      out.writeChar(labels[i]);
+      out.writeInt(first[i]);
+      out.writeInt(last[i]);
+      out.writeBoolean(accept[i]);
+    }
+  }
+}
@@ -0,0 +1,987 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import java.lang.ref.WeakReference;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sf.jhunlang.jmorph.factory.Loader;
+import net.sf.jhunlang.jmorph.sword.SwordEntry;
+import net.sf.jhunlang.jmorph.sword.SwordEntryExtension;
+
+/**
+ * MappedWordList is a read-only {@link WordList} backed by a memory-mapped
+ * file. The words, the ids of their flags, extensions (part-of-speech and
+ * cases) and morph strings, their root, homonym and reverse root links are
+ * kept in flat arrays of the file so processes analysing with the same
+ * dictionary on a host share the pages of the file instead of each holding
+ * its own entries on the heap. Only the small tables of distinct flags,
+ * extensions and morph strings live on the heap.<p>
+ * {@link DictEntry} instances are built on demand when a word is found,
+ * together with their homonyms and roots, so {@link #rawGet(String)} and
+ * {@link #get(String)} return the same structures as {@link WordList} does.
+ * The entries built are kept by weak references per record, so an entry is
+ * the same instance for all the lookups as long as it is referenced, while
+ * the heap holds no more entries than the analyses do.<p>
+ * The file is written by {@link #write(WordList, File)}; the
+ * {@link net.sf.jhunlang.jmorph.parser.MappedReader} opens it from a
+ * definition file. Usage of the compile step:
+ * <pre>
+ *   java net.sf.jhunlang.jmorph.MappedWordList [definition] file
+ * </pre>
+ */
+public class MappedWordList extends WordList
+{
+  private final static long serialVersionUID = 1L;
+
+  /**
+   * The magic number identifying mapped word list files.
+   */
+  public final static int MAGIC = 0x4a4d574c; // JMWL
+  /**
+   * The version of the file format.
+   */
+  public final static int VERSION = 1;
+
+  /**
+   * Record kind of plain {@link DictEntry} instances.
+   */
+  protected final static int DICT = 0;
+  /**
+   * Record kind of {@link SwordEntry} instances.
+   */
+  protected final static int SWORD = 1;
+
+  // the fields of a record
+  protected final static int WORD = 0;
+  protected final static int LENGTH = 1;
+  protected final static int KIND = 2;
+  protected final static int FLAGS = 3;
+  protected final static int EXTENSION = 4;
+  protected final static int MORPH = 5;
+  protected final static int ROOT = 6;
+  protected final static int VARIANT = 7;
+  protected final static int HOMONYMS = 8;
+  protected final static int HOMONYM_COUNT = 9;
+  protected final static int REVERSE = 10;
+  protected final static int REVERSE_COUNT = 11;
+  /**
+   * The number of ints in a record.
+   */
+  protected final static int RECORD = 12;
+
+  /**
+   * The number of ints in the header.
+   */
+  protected final static int HEADER = 9;
+
+  /**
+   * The classes the tables of flags, extensions and morph strings may hold;
+   * others are rejected while reading them.
+   */
+  protected final static ObjectInputFilter TABLES_FILTER =
+    ObjectInputFilter.Config.createFilter(
+      "net.sf.jhunlang.jmorph.**;java.util.*;java.lang.String;!*");
+
+  /**
+   * The mapped file.
+   */
+  protected File file;
+  /**
+   * The number of different lowercase words.
+   */
+  protected transient int keys;
+  /**
+   * The open addressing hash table of key indices; its size is a power of 2.
+   */
+  protected transient IntBuffer slots;
+  /**
+   * The hash codes of the keys.
+   */
+  protected transient IntBuffer keyHash;
+  /**
+   * The start of the keys in {@link #chars}; the key count + 1 long.
+   */
+  protected transient IntBuffer keyStart;
+  /**
+   * The first record of each key.
+   */
+  protected transient IntBuffer keyFirst;
+  /**
+   * The records of entries, {@link #RECORD} ints each.
+   */
+  protected transient IntBuffer records;
+  /**
+   * The record indices of homonyms and reverse roots.
+   */
+  protected transient IntBuffer links;
+  /**
+   * The characters of the keys and the words.
+   */
+  protected transient CharBuffer chars;
+  /**
+   * The distinct flags.
+   */
+  protected transient AffixFlags[] flags;
+  /**
+   * The distinct extensions.
+   */
+  protected transient DictEntryExtension[] extensions;
+  /**
+   * The distinct morph strings.
+   */
+  protected transient String[] morphs;
+  /**
+   * The weak references of the entries built by their record indices. The
+   * entries are built under the lock of this instance and published here
+   * complete, with their roots and homonyms; they are read without locking.
+   */
+  protected transient AtomicReferenceArray built;
+
+  /**
+   * Create a MappedWordList for the file <code>file</code> written by
+   * {@link #write(WordList, File)}.
+   * @param file the file to map
+   * @throws IOException if mapping the file fails or the file is not
+   * a mapped word list of the current {@link #VERSION}
+   */
+  public MappedWordList(File file)
+    throws IOException
+  {
+    this.file = file;
+    map();
+  }
+
+  /**
+   * Map {@link #file} and read the tables.
+   */
+  protected void map()
+    throws IOException
+  {
+    FileInputStream in = new FileInputStream(file);
+    ByteBuffer buffer;
+    try
+    {
+      FileChannel channel = in.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally
+    {
+      in.close();
+    }
+
+    IntBuffer header = buffer.asIntBuffer();
+    if (header.get(0) != MAGIC)
+    {
+      throw new IOException("Not a mapped word list: " + file);
+    }
+    if (header.get(1) != VERSION)
+    {
+      throw new IOException("Mapped word list version " + header.get(1) +
+        " instead of " + VERSION + ": " + file);
+    }
+    keys = header.get(2);
+    int recordCount = header.get(3);
+    int slotCount = header.get(4);
+    int linkCount = header.get(5);
+    int charCount = header.get(6);
+    homos = header.get(7);
+    int tablesLength = header.get(8);
+    built = new AtomicReferenceArray(recordCount);
+
+    int offset = HEADER * 4;
+    slots = ints(buffer, offset, slotCount);
+    offset += slotCount * 4;
+    keyHash = ints(buffer, offset, keys);
+    offset += keys * 4;
+    keyStart = ints(buffer, offset, keys + 1);
+    offset += (keys + 1) * 4;
+    keyFirst = ints(buffer, offset, keys);
+    offset += keys * 4;
+    records = ints(buffer, offset, recordCount * RECORD);
+    offset += recordCount * RECORD * 4;
+    links = ints(buffer, offset, linkCount);
+    offset += linkCount * 4;
+    buffer.position(offset);
+    buffer.limit(offset + charCount * 2);
+    chars = buffer.slice().asCharBuffer();
+    offset += charCount * 2;
+
+    byte[] tables = new byte[tablesLength];
+    buffer.limit(buffer.capacity());
+    buffer.position(offset);
+    buffer.get(tables);
+    readTables(tables);
+  }
+
+  private static IntBuffer ints(ByteBuffer buffer, int offset, int length)
+  {
+    buffer.limit(offset + length * 4);
+    buffer.position(offset);
+    IntBuffer ib = buffer.slice().asIntBuffer();
+    buffer.limit(buffer.capacity());
+    return ib;
+  }
+
+  private void readTables(byte[] tables)
+    throws IOException
+  {
+    ObjectInputStream in =
+      new ObjectInputStream(new ByteArrayInputStream(tables));
+    in.setObjectInputFilter(TABLES_FILTER);
+    try
+    {
+      String[] flagstrings = (String[])in.readObject();
+      flags = new AffixFlags[flagstrings.length];
+      for(int i = 0; i < flags.length; i++)
+      {
+        flags[i] = AffixFlags.getAffixFlags(flagstrings[i]);
+      }
+      extensions = (DictEntryExtension[])in.readObject();
+      morphs = (String[])in.readObject();
+    }
+    catch (ClassNotFoundException cnfx)
+    {
+      IOException iox = new IOException("Invalid tables in " + file);
+      iox.initCause(cnfx);
+      throw iox;
+    }
+  }
+
+  /**
+   * Return the mapped file.
+   * @return the mapped file
+   */
+  public File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Throw <code>UnsupportedOperationException</code> as this word list
+   * is read-only.
+   */
+  public void add(DictEntry entry)
+  {
+    throw new UnsupportedOperationException("read-only: " + this);
+  }
+
+  /**
+   * Throw <code>UnsupportedOperationException</code> as this word list
+   * is read-only.
+   */
+  public DictEntry remove(String word)
+  {
+    throw new UnsupportedOperationException("read-only: " + this);
+  }
+
+  /**
+   * Return the number of different lowercase words.
+   * @return the number of different lowercase words
+   */
+  public int size()
+  {
+    return keys;
+  }
+
+  /**
+   * Return the object associated with <code>lowerCaseWord</code>: the
+   * {@link DictEntry} of the word or the map of the entries of words
+   * with different capitalization by their words.
+   * @param lowerCaseWord the word in all lowercase
+   * @return the object associated with <code>lowercaseWord</code>
+   */
+  public Object rawGet(String lowerCaseWord)
+  {
+    int key = find(lowerCaseWord);
+    return key == -1 ? null : value(key);
+  }
+
+  /**
+   * Return a read-only view of the words of this list by their lowercase
+   * forms. The values are built when accessed.
+   * @return the map of words
+   */
+  public Map getWords()
+  {
+    return new AbstractMap()
+    {
+      public int size()
+      {
+        return keys;
+      }
+
+      public Object get(Object key)
+      {
+        return key instanceof String ? rawGet((String)key) : null;
+      }
+
+      public boolean containsKey(Object key)
+      {
+        return key instanceof String && find((String)key) != -1;
+      }
+
+      public Set entrySet()
+      {
+        return new AbstractSet()
+        {
+          public int size()
+          {
+            return keys;
+          }
+
+          public Iterator iterator()
+          {
+            return new Iterator()
+            {
+              int key;
+
+              public boolean hasNext()
+              {
+                return key < keys;
+              }
+
+              public Object next()
+              {
+                if (key >= keys)
+                {
+                  throw new NoSuchElementException();
+                }
+                final int k = key++;
+                return new Map.Entry()
+                {
+                  public Object getKey()
+                  {
+                    return key(k);
+                  }
+
+                  public Object getValue()
+                  {
+                    return value(k);
+                  }
+
+                  public Object setValue(Object value)
+                  {
+                    throw new UnsupportedOperationException();
+                  }
+                };
+              }
+
+              public void remove()
+              {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Return the entries having <code>entry</code> as their root or
+   * <code>null</code>. The returned entries have <code>entry</code>
+   * itself as their root if it has been returned by this list.
+   * @param entry the root entry
+   * @return the entries with <code>entry</code> as root
+   */
+  public Collection getReverseRoots(DictEntry entry)
+  {
+    int index = index(entry);
+    if (index == -1)
+    {
+      return null;
+    }
+    int r = index * RECORD;
+    int count = records.get(r + REVERSE_COUNT);
+    if (count == -1)
+    {
+      return null;
+    }
+    int start = records.get(r + REVERSE);
+    Collection c = new ArrayList(count);
+    for(int i = 0; i < count; i++)
+    {
+      c.add(entry(links.get(start + i)));
+    }
+    return c;
+  }
+
+  /**
+   * Return the index of the key <code>lowerCaseWord</code> or -1.
+   */
+  protected int find(String lowerCaseWord)
+  {
+    int hash = lowerCaseWord.hashCode();
+    int mask = slots.capacity() - 1;
+    for(int i = hash & mask; ; i = (i + 1) & mask)
+    {
+      int key = slots.get(i);
+      if (key == -1)
+      {
+        return -1;
+      }
+      if (keyHash.get(key) == hash &&
+          equals(keyStart.get(key), keyStart.get(key + 1), lowerCaseWord))
+      {
+        return key;
+      }
+    }
+  }
+
+  /**
+   * Return the index of the record <code>entry</code> has been built
+   * from as a root by {@link #get(String)} or -1.
+   */
+  protected int index(DictEntry entry)
+  {
+    String word = entry.getWord();
+    int key = find(word.toLowerCase());
+    if (key == -1)
+    {
+      return -1;
+    }
+    for(int index = keyFirst.get(key); index != -1;
+      index = records.get(index * RECORD + VARIANT))
+    {
+      int r = index * RECORD;
+      if (equals(records.get(r + WORD),
+            records.get(r + WORD) + records.get(r + LENGTH), word) &&
+          entry.getFlags() == flags[records.get(r + FLAGS)] &&
+          entry.getInflexion() == extension(records.get(r + EXTENSION)))
+      {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private boolean equals(int start, int end, String s)
+  {
+    if (end - start != s.length())
+    {
+      return false;
+    }
+    for(int i = start; i < end; i++)
+    {
+      if (chars.get(i) != s.charAt(i - start))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String string(int start, int length)
+  {
+    char[] c = new char[length];
+    for(int i = 0; i < length; i++)
+    {
+      c[i] = chars.get(start + i);
+    }
+    return new String(c);
+  }
+
+  /**
+   * Return the lowercase word of <code>key</code>.
+   */
+  protected String key(int key)
+  {
+    int start = keyStart.get(key);
+    return string(start, keyStart.get(key + 1) - start);
+  }
+
+  /**
+   * Return the entry of <code>key</code> or the map of its variants.
+   */
+  protected Object value(int key)
+  {
+    int first = keyFirst.get(key);
+    if (records.get(first * RECORD + VARIANT) == -1)
+    {
+      return entry(first);
+    }
+    Map variants = new HashMap();
+    for(int index = first; index != -1;
+      index = records.get(index * RECORD + VARIANT))
+    {
+      DictEntry entry = entry(index);
+      variants.put(entry.getWord(), entry);
+    }
+    return variants;
+  }
+
+  private DictEntryExtension extension(int index)
+  {
+    return index == -1 ? null : extensions[index];
+  }
+
+  /**
+   * Return the entry of the record <code>index</code> with its root and its
+   * homonyms. Return the entry built before if it is still referenced;
+   * build it and publish the entries built with it otherwise.
+   */
+  protected DictEntry entry(int index)
+  {
+    DictEntry entry = built(index);
+    if (entry != null)
+    {
+      return entry;
+    }
+    synchronized (this)
+    {
+      entry = built(index);
+      if (entry == null)
+      {
+        Map made = new HashMap();
+        entry = entry(index, made);
+        Iterator it = made.entrySet().iterator();
+        while (it.hasNext())
+        {
+          Map.Entry e = (Map.Entry)it.next();
+          int k = ((Integer)e.getKey()).intValue();
+          if (built(k) != e.getValue())
+          {
+            built.set(k, new WeakReference(e.getValue()));
+          }
+        }
+      }
+      return entry;
+    }
+  }
+
+  /**
+   * Return the entry of the record <code>index</code> built before if it
+   * is still referenced or <code>null</code>.
+   */
+  private DictEntry built(int index)
+  {
+    WeakReference ref = (WeakReference)built.get(index);
+    return ref == null ? null : (DictEntry)ref.get();
+  }
+
+  /**
+   * Build and return the entry of the record <code>index</code> with its
+   * root and its homonyms. <code>made</code> maps the record indices to the
+   * entries of the same lookup built so far or found in {@link #built}.
+   */
+  protected DictEntry entry(int index, Map made)
+  {
+    Integer i = Integer.valueOf(index);
+    DictEntry entry = (DictEntry)made.get(i);
+    if (entry == null)
+    {
+      entry = built(index);
+    }
+    if (entry != null)
+    {
+      made.put(i, entry);
+      return entry;
+    }
+
+    int r = index * RECORD;
+    String word = string(records.get(r + WORD), records.get(r + LENGTH));
+    AffixFlags entryFlags = flags[records.get(r + FLAGS)];
+    DictEntryExtension ext = extension(records.get(r + EXTENSION));
+
+    if (records.get(r + KIND) == SWORD)
+    {
+      entry = new SwordEntry(word, entryFlags, (SwordEntryExtension)ext);
+    }
+    else
+    {
+      entry = new DictEntry(word, entryFlags);
+      entry.inflexion = ext;
+    }
+    int morph = records.get(r + MORPH);
+    if (morph != -1)
+    {
+      entry.morph = morphs[morph];
+    }
+
+    made.put(i, entry);
+    int root = records.get(r + ROOT);
+    int homonymCount = records.get(r + HOMONYM_COUNT);
+
+    if (root != -1)
+    {
+      entry.root = entry(root, made);
+    }
+    int start = records.get(r + HOMONYMS);
+    for(int h = 0; h < homonymCount; h++)
+    {
+      entry.addHomonym(entry(links.get(start + h), made));
+    }
+    return entry;
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    map();
+  }
+
+  public String contentString()
+  {
+    return keys + " words, " + records.capacity() / RECORD + " entries, " +
+      file;
+  }
+
+  /**
+   * Write the entries of <code>wl</code> to <code>file</code> in the format
+   * mapped by MappedWordList.
+   * @param wl the word list to write
+   * @param file the file to write to
+   * @throws IOException if writing fails
+   * @throws IllegalArgumentException if <code>wl</code> contains entries
+   * other than {@link DictEntry} and dictionary {@link SwordEntry} instances
+   */
+  public static void write(WordList wl, File file)
+    throws IOException
+  {
+    // keys in the iteration order of the map; records of each key first
+    // the variants, then the homonyms
+    List keyList = new ArrayList();
+    List entries = new ArrayList();
+    Map indices = new IdentityHashMap();
+    List firsts = new ArrayList();
+
+    Iterator it = wl.getWords().entrySet().iterator();
+    while (it.hasNext())
+    {
+      Map.Entry e = (Map.Entry)it.next();
+      keyList.add(e.getKey());
+      Object value = e.getValue();
+      Collection variants = value instanceof DictEntry ?
+        Arrays.asList(new Object[] { value }) : ((Map)value).values();
+      firsts.add(Integer.valueOf(entries.size()));
+      Iterator vit = variants.iterator();
+      while (vit.hasNext())
+      {
+        add(entries, indices, (DictEntry)vit.next());
+      }
+    }
+    int variantsEnd = entries.size();
+    // homonyms and roots not listed by the keys
+    for(int i = 0; i < entries.size(); i++)
+    {
+      DictEntry entry = (DictEntry)entries.get(i);
+      Iterator hit = entry.getHomonyms().iterator();
+      while (hit.hasNext())
+      {
+        add(entries, indices, (DictEntry)hit.next());
+      }
+      if (entry.getRootEntry() != null)
+      {
+        add(entries, indices, entry.getRootEntry());
+      }
+    }
+
+    StringBuffer chars = new StringBuffer();
+    int[] keyStart = new int[keyList.size() + 1];
+    int[] keyHash = new int[keyList.size()];
+    for(int k = 0; k < keyList.size(); k++)
+    {
+      String key = (String)keyList.get(k);
+      keyStart[k] = chars.length();
+      keyHash[k] = key.hashCode();
+      chars.append(key);
+    }
+    keyStart[keyList.size()] = chars.length();
+
+    int slotCount = 2;
+    while (slotCount < 2 * keyList.size())
+    {
+      slotCount <<= 1;
+    }
+    int[] slots = new int[slotCount];
+    Arrays.fill(slots, -1);
+    for(int k = 0; k < keyList.size(); k++)
+    {
+      int i = keyHash[k] & (slotCount - 1);
+      while (slots[i] != -1)
+      {
+        i = (i + 1) & (slotCount - 1);
+      }
+      slots[i] = k;
+    }
+
+    Map flagIds = new HashMap();
+    List flagList = new ArrayList();
+    Map extIds = new HashMap();
+    Map extByIdentity = new IdentityHashMap();
+    List extList = new ArrayList();
+    Map morphIds = new HashMap();
+    List morphList = new ArrayList();
+
+    int[] records = new int[entries.size() * RECORD];
+    IntList links = new IntList();
+    int homos = 0;
+
+    for(int index = 0; index < entries.size(); index++)
+    {
+      DictEntry entry = (DictEntry)entries.get(index);
+      int r = index * RECORD;
+      String word = entry.getWord();
+      String key = word.toLowerCase();
+      int k = indexOf(keyList, key, keyHash, slots);
+      if (k != -1 && key.equals(word))
+      {
+        records[r + WORD] = keyStart[k];
+      }
+      else
+      {
+        records[r + WORD] = chars.length();
+        chars.append(word);
+      }
+      records[r + LENGTH] = word.length();
+      records[r + KIND] = entry.getClass() == SwordEntry.class ? SWORD : DICT;
+      records[r + FLAGS] =
+        id(flagIds, flagList, entry.getFlags().getFlagString());
+      records[r + EXTENSION] = entry.getInflexion() == null ? -1 :
+        extensionId(extIds, extByIdentity, extList, entry.getInflexion());
+      records[r + MORPH] =
+        entry.morph == null ? -1 : id(morphIds, morphList, entry.morph);
+      records[r + ROOT] = entry.getRootEntry() == null ? -1 :
+        ((Integer)indices.get(entry.getRootEntry())).intValue();
+      records[r + VARIANT] = -1;
+
+      Collection homonyms = entry.getHomonyms();
+      records[r + HOMONYMS] = links.size();
+      records[r + HOMONYM_COUNT] = homonyms.size();
+      homos += homonyms.size();
+      Iterator hit = homonyms.iterator();
+      while (hit.hasNext())
+      {
+        links.add(((Integer)indices.get(hit.next())).intValue());
+      }
+
+      Collection reverseRoots = wl.getReverseRoots(entry);
+      records[r + REVERSE] = links.size();
+      records[r + REVERSE_COUNT] =
+        reverseRoots == null ? -1 : reverseRoots.size();
+      if (reverseRoots != null)
+      {
+        Iterator rit = reverseRoots.iterator();
+        while (rit.hasNext())
+        {
+          links.add(((Integer)indices.get(rit.next())).intValue());
+        }
+      }
+    }
+
+    // chain the variants of each key
+    int[] keyFirst = new int[keyList.size()];
+    for(int k = 0; k < keyList.size(); k++)
+    {
+      int first = ((Integer)firsts.get(k)).intValue();
+      keyFirst[k] = first;
+      int end = k + 1 < keyList.size() ?
+        ((Integer)firsts.get(k + 1)).intValue() : variantsEnd;
+      for(int index = first; index + 1 < end; index++)
+      {
+        records[index * RECORD + VARIANT] = index + 1;
+      }
+    }
+
+    ByteArrayOutputStream tables = new ByteArrayOutputStream();
+    ObjectOutputStream oout = new ObjectOutputStream(tables);
+    oout.writeObject(flagList.toArray(new String[flagList.size()]));
+    oout.writeObject(
+      extList.toArray(new DictEntryExtension[extList.size()]));
+    oout.writeObject(morphList.toArray(new String[morphList.size()]));
+    oout.close();
+
+    DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    try
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(keyList.size());
+      out.writeInt(entries.size());
+      out.writeInt(slotCount);
+      out.writeInt(links.size());
+      out.writeInt(chars.length());
+      out.writeInt(homos);
+      out.writeInt(tables.size());
+      writeInts(out, slots, slots.length);
+      writeInts(out, keyHash, keyHash.length);
+      writeInts(out, keyStart, keyStart.length);
+      writeInts(out, keyFirst, keyFirst.length);
+      writeInts(out, records, records.length);
+      writeInts(out, links.ints, links.size());
+      out.writeChars(chars.toString());
+      tables.writeTo(out);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  private static void add(List entries, Map indices, DictEntry entry)
+  {
+    if (!indices.containsKey(entry))
+    {
+      if (entry.getClass() != DictEntry.class &&
+          (entry.getClass() != SwordEntry.class || !entry.dictionaryWord()))
+      {
+        throw new IllegalArgumentException("Cannot map " + entry);
+      }
+      indices.put(entry, Integer.valueOf(entries.size()));
+      entries.add(entry);
+    }
+  }
+
+  private static int indexOf(List keyList, String key, int[] keyHash,
+    int[] slots)
+  {
+    int hash = key.hashCode();
+    int mask = slots.length - 1;
+    for(int i = hash & mask; slots[i] != -1; i = (i + 1) & mask)
+    {
+      if (keyHash[slots[i]] == hash && keyList.get(slots[i]).equals(key))
+      {
+        return slots[i];
+      }
+    }
+    return -1;
+  }
+
+  private static int id(Map ids, List list, Object o)
+  {
+    Integer id = (Integer)ids.get(o);
+    if (id == null)
+    {
+      id = Integer.valueOf(list.size());
+      ids.put(o, id);
+      list.add(o);
+    }
+    return id.intValue();
+  }
+
+  /**
+   * Return the id of <code>ext</code>; extensions with the same serialized
+   * form share their id.
+   */
+  private static int extensionId(Map ids, Map byIdentity, List list,
+    DictEntryExtension ext)
+    throws IOException
+  {
+    Integer id = (Integer)byIdentity.get(ext);
+    if (id == null)
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream oout = new ObjectOutputStream(bytes);
+      oout.writeObject(ext);
+      oout.close();
+      String form = bytes.toString("ISO-8859-1");
+      id = (Integer)ids.get(form);
+      if (id == null)
+      {
+        id = Integer.valueOf(list.size());
+        ids.put(form, id);
+        list.add(ext);
+      }
+      byIdentity.put(ext, id);
+    }
+    return id.intValue();
+  }
+
+  private static void writeInts(DataOutputStream out, int[] ints, int length)
+    throws IOException
+  {
+    for(int i = 0; i < length; i++)
+    {
+      out.writeInt(ints[i]);
+    }
+  }
+
+  /**
+   * Growable array of ints.
+   */
+  private static class IntList
+  {
+    int[] ints = new int[1024];
+    int size;
+
+    void add(int i)
+    {
+      if (size == ints.length)
+      {
+        int[] n = new int[size * 2];
+        System.arraycopy(ints, 0, n, 0, size);
+        ints = n;
+      }
+      ints[size++] = i;
+    }
+
+    int size()
+    {
+      return size;
+    }
+  }
+
+  /**
+   * Write the dictionaries of the definition file given on the command line
+   * (the bundled {@link Loader#DEF_URL} if omitted) as mapped word lists.
+   * The first dictionary is written to the file given as the last parameter,
+   * the others to the file name suffixed with their index.
+   * @param args the command line parameters
+   */
+  public static void main(String[] args)
+    throws Exception
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: MappedWordList [definition] file");
+      System.exit(2);
+    }
+    String[] defArgs = new String[args.length - 1];
+    System.arraycopy(args, 0, defArgs, 0, defArgs.length);
+
+    Loader loader = new Loader();
+    loader.load(defArgs);
+
+    Iterator it = loader.getDic().iterator();
+    for(int i = 0; it.hasNext(); i++)
+    {
+      WordList wl = (WordList)it.next();
+      File file = new File(args[args.length - 1] + (i == 0 ? "" : "." + i));
+      write(wl, file);
+      System.out.println(wl + " written to " + file + ", " +
+        file.length() + " bytes");
+    }
+  }
+}
@@ -7,6 +7,12 @@ import net.sf.jhunlang.jmorph.util.Pair;
  */
 public class PrefixEntry extends AffixEntry
 {
+  /**
+   * Create an entry to be filled in by {@link ImageReader}.
+   */
+  protected PrefixEntry()
+  {}
+
   /**
    * Create a new PrefixEntry instance with the given parameters.
    * @param rules the rules this affix belongs to
@@ -109,26 +115,14 @@ public class PrefixEntry extends AffixEntry
   }
 
   /**
-   * Return if <code>word</code> satisfies {@link AffixEntry#conditions}.
+   * Return if <code>word</code> satisfies {@link AffixEntry#conditions}
+   * as checked by the table {@link AffixEntry#conds} is compiled into.
    * @param word the word to check
    * @return if <code>word</code> satisfies <code>conditions</code>
    */
   public boolean checkStem(CharSequence word)
   {
-    int wl = word.length();
-    if (wl < cl)
-    {
-      return false;
-    }
-
-    for(int i = 0; i < cl; i++)
-    {
-      if (!conditions[i].admit(word.charAt(i)))
-      {
-        return false;
-      }
-    }
-    return true;
+    return word.length() >= cl && conds.admit(word, 0);
   }
 
   /**
@@ -0,0 +1,381 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registry holds the interned instances of a model: the {@link AffixFlags},
+ * the {@link net.sf.jhunlang.jmorph.sword.Case},
+ * {@link net.sf.jhunlang.jmorph.sword.POSName} and
+ * {@link net.sf.jhunlang.jmorph.sword.SimpleDerivative} instances, the
+ * derivative morphemes read by the sword affix reader, the ids of the flag
+ * characters and the flag capacity.
+ * Each thread has a current registry; the getters of those classes intern
+ * into it. Threads not bound to a registry use the {@link #getDefault()
+ * default} one, so single-model applications work as before. Loading a
+ * model with a registry of its own bound (see
+ * {@link net.sf.jhunlang.jmorph.factory.JMorphFactory#buildModel}) keeps
+ * its instances apart from those of other models. The rules keep the
+ * registry they are loaded with, see {@link Rules#getRegistry()}, and
+ * {@link net.sf.jhunlang.jmorph.analysis.AnalyserImpl} binds it while
+ * analysing, so a model can be analysed from any thread.<p>
+ * The AffixFlags are hashed by their bitmaps in a table read without
+ * locking so that analysis may intern new flags for derived and compound
+ * entries while other threads read them; the maps of the other instances
+ * are concurrent for the same reason. The maps of the sword categories are
+ * sorted as the static maps they replace were.
+ */
+public class Registry
+{
+  /**
+   * The registry of threads not bound to any.
+   */
+  protected final static Registry DEFAULT = new Registry();
+  /**
+   * The registry bound to the current thread.
+   */
+  protected final static ThreadLocal current = new ThreadLocal();
+
+  /**
+   * The open addressing hash table of the AffixFlags instances by their
+   * flags. It is read without locking; the instances are added to it and
+   * it is replaced when it grows under the lock of this registry.
+   */
+  protected volatile AffixFlags[] flags = new AffixFlags[256];
+  /**
+   * The number of AffixFlags instances in {@link #flags}.
+   */
+  protected int flagsCount;
+  /**
+   * The ids plus one of the flag characters indexed by the characters; 0
+   * for characters without id. The array is replaced and not changed when
+   * a character gets an id so that AffixFlags can keep the array of their
+   * creation.
+   */
+  protected volatile char[] flagIds = new char[0];
+  /**
+   * The flag character of each id. The array is replaced and not changed
+   * when a character gets an id, as {@link #flagIds} is.
+   */
+  protected volatile char[] flagCharacters = new char[64];
+  /**
+   * The number of flag characters with id.
+   */
+  protected int flagCount;
+  /**
+   * The Case instances by their affixes and names.
+   */
+  protected final ConcurrentMap cases = new ConcurrentSkipListMap();
+  /**
+   * The POSName instances by their names.
+   */
+  protected final ConcurrentMap posNames = new ConcurrentSkipListMap();
+  /**
+   * The SimpleDerivative instances by their affixes, types and pos names.
+   */
+  protected final ConcurrentMap simpleDerivatives =
+    new ConcurrentSkipListMap();
+  /**
+   * The derivative morphemes.
+   */
+  protected volatile Set derivatives = Collections.EMPTY_SET;
+  /**
+   * The number of flag characters the flag bitmaps were meant to hold; kept
+   * for model images.
+   */
+  protected volatile int flagCapacity = 1024;
+
+  /**
+   * Return the registry of threads not bound to any.
+   * @return the default registry
+   */
+  public static Registry getDefault()
+  {
+    return DEFAULT;
+  }
+
+  /**
+   * Return the registry bound to the current thread or the default one.
+   * @return the current registry
+   */
+  public static Registry getCurrent()
+  {
+    Registry registry = (Registry)current.get();
+    return registry == null ? DEFAULT : registry;
+  }
+
+  /**
+   * Bind <code>registry</code> to the current thread and return the
+   * registry bound before. Binding <code>null</code> binds the default
+   * registry.
+   * @param registry the registry to bind
+   * @return the registry bound to the current thread before
+   */
+  public static Registry setCurrent(Registry registry)
+  {
+    Registry old = getCurrent();
+    if (registry == null || registry == DEFAULT)
+    {
+      current.remove();
+    }
+    else
+    {
+      current.set(registry);
+    }
+    return old;
+  }
+
+  /**
+   * Return the ids plus one of the flag characters indexed by the
+   * characters; 0 for characters without id.
+   * @return the ids of the flag characters
+   */
+  public char[] getFlagIds()
+  {
+    return flagIds;
+  }
+
+  /**
+   * Give the next id to the flag character <code>c</code> unless it has
+   * one and return the ids of the flag characters.
+   * @param c the flag character
+   * @return the ids of the flag characters including <code>c</code>
+   */
+  public synchronized char[] addFlagId(char c)
+  {
+    char[] ids = flagIds;
+    if (c < ids.length && ids[c] != 0)
+    {
+      return ids;
+    }
+    if (flagCount == Character.MAX_VALUE - 1)
+    {
+      throw new IllegalStateException("too many flag characters: " + this);
+    }
+    char[] newIds = new char[Math.max(ids.length, c + 1)];
+    System.arraycopy(ids, 0, newIds, 0, ids.length);
+    char[] characters = flagCharacters;
+    char[] newCharacters = new char[flagCount == characters.length ?
+      2 * flagCount : characters.length];
+    System.arraycopy(characters, 0, newCharacters, 0, flagCount);
+    newCharacters[flagCount] = c;
+    newIds[c] = (char)++flagCount;
+    flagCharacters = newCharacters;
+    flagIds = newIds;
+    return newIds;
+  }
+
+  /**
+   * Return the number of flag characters with id.
+   * @return the number of flag characters
+   */
+  public int getFlagCount()
+  {
+    return flagCount;
+  }
+
+  /**
+   * Return the AffixFlags interned for the flags of ids set in
+   * <code>low</code>, <code>high</code> and <code>rest</code>. Create and
+   * intern it if there is none. Return {@link AffixFlags#empty} for no
+   * flags.
+   * @param low the bitmap of the ids 0 to 63
+   * @param high the bitmap of the ids 64 to 127
+   * @param rest the sorted ids from 128 on or <code>null</code>
+   * @return the interned flags
+   */
+  public AffixFlags intern(long low, long high, short[] rest)
+  {
+    if (low == 0 && high == 0 && rest == null)
+    {
+      return AffixFlags.empty;
+    }
+    int hash = AffixFlags.hash(low, high, rest);
+    AffixFlags flag = lookup(flags, hash, low, high, rest);
+    return flag != null ? flag : add(hash, low, high, rest);
+  }
+
+  /**
+   * Return the AffixFlags of <code>table</code> for the flags or
+   * <code>null</code>.
+   */
+  protected static AffixFlags lookup(AffixFlags[] table, int hash,
+    long low, long high, short[] rest)
+  {
+    int mask = table.length - 1;
+    for(int i = hash & mask; ; i = (i + 1) & mask)
+    {
+      AffixFlags flag = table[i];
+      if (flag == null || (flag.hash == hash && flag.same(low, high, rest)))
+      {
+        return flag;
+      }
+    }
+  }
+
+  /**
+   * Create and intern the AffixFlags of the flags unless another thread
+   * has done it.<p>
+   * Unless the table grows the new instance is stored into the table
+   * {@link #lookup(AffixFlags[], int, long, long, short[])} may be reading
+   * without locking, and a reader may find it in its slot before the
+   * volatile write of {@link #flags} below. This is safe because all the
+   * fields <code>lookup</code> and the analysis read - the hash, the
+   * bitmaps, the <code>rest</code> ids, the flag string and the ids - are
+   * final and set in the constructor, and the arrays they refer to are not
+   * changed after it; the final field semantics make them visible to any
+   * thread seeing the reference. The only other field,
+   * <code>filteredFlagstring</code>, is a cache of an immutable String that
+   * a thread recomputes if it does not see it. Fields added to AffixFlags
+   * must keep this invariant or be published otherwise.
+   */
+  protected synchronized AffixFlags add(int hash, long low, long high,
+    short[] rest)
+  {
+    AffixFlags[] table = flags;
+    AffixFlags flag = lookup(table, hash, low, high, rest);
+    if (flag != null)
+    {
+      return flag;
+    }
+    flag = new AffixFlags(this, flagIds, flagCharacters, low, high, rest);
+    if (2 * (flagsCount + 1) > table.length)
+    {
+      AffixFlags[] newTable = new AffixFlags[2 * table.length];
+      for(int i = 0; i < table.length; i++)
+      {
+        if (table[i] != null)
+        {
+          put(newTable, table[i]);
+        }
+      }
+      table = newTable;
+    }
+    put(table, flag);
+    flagsCount++;
+    flags = table;
+    return flag;
+  }
+
+  /**
+   * Put <code>flag</code> into the first free slot of <code>table</code>.
+   */
+  protected static void put(AffixFlags[] table, AffixFlags flag)
+  {
+    int mask = table.length - 1;
+    int i = flag.hash & mask;
+    while (table[i] != null)
+    {
+      i = (i + 1) & mask;
+    }
+    table[i] = flag;
+  }
+
+  /**
+   * Return the AffixFlags interned in this registry.
+   * @return the list of the interned flags
+   */
+  public List getAffixFlags()
+  {
+    AffixFlags[] table = flags;
+    List list = new ArrayList();
+    for(int i = 0; i < table.length; i++)
+    {
+      if (table[i] != null)
+      {
+        list.add(table[i]);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Return the number of the AffixFlags interned in this registry.
+   * @return the number of the interned flags
+   */
+  public int getAffixFlagsCount()
+  {
+    return flagsCount;
+  }
+
+  /**
+   * Return the length of the hash table of the interned AffixFlags.
+   * @return the length of the table
+   */
+  public int getAffixFlagsTableLength()
+  {
+    return flags.length;
+  }
+
+  public ConcurrentMap getCases()
+  {
+    return cases;
+  }
+
+  public ConcurrentMap getPOSNames()
+  {
+    return posNames;
+  }
+
+  public ConcurrentMap getSimpleDerivatives()
+  {
+    return simpleDerivatives;
+  }
+
+  /**
+   * Return the number of flag characters the flag bitmaps were meant to
+   * hold.
+   * @return the flag capacity
+   */
+  public int getFlagCapacity()
+  {
+    return flagCapacity;
+  }
+
+  public void setFlagCapacity(int flagCapacity)
+  {
+    this.flagCapacity = flagCapacity;
+  }
+
+  /**
+   * Set the derivative morphemes.
+   * @param derivatives the derivative morphemes
+   */
+  public void setDerivatives(Collection derivatives)
+  {
+    this.derivatives = Collections.unmodifiableSet(new HashSet(derivatives));
+  }
+
+  /**
+   * Return the derivative morphemes.
+   * @return the unmodifiable set of the derivative morphemes
+   */
+  public Collection getDerivatives()
+  {
+    return derivatives;
+  }
+
+  /**
+   * Return if <code>morph</code> is a derivative morpheme.
+   * @param morph the morpheme
+   * @return if <code>morph</code> is a derivative morpheme
+   */
+  public boolean isDerivative(String morph)
+  {
+    return derivatives.contains(morph);
+  }
+
+  public String toString()
+  {
+    return "Registry[" + flagsCount + " flags, " + cases.size() +
+      " cases, " + posNames.size() + " pos names, " +
+      simpleDerivatives.size() + " derivatives]";
+  }
+}
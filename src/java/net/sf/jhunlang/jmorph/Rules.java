@@ -2,14 +2,15 @@ package net.sf.jhunlang.jmorph;
 
 import java.util.Iterator;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.TreeMap;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
-import java.util.regex.Pattern;
-
 import net.sf.jhunlang.jmorph.analysis.CompoundController;
 import net.sf.jhunlang.jmorph.analysis.CompoundFlagController;
 
@@ -62,10 +63,18 @@ import net.sf.jhunlang.jmorph.analysis.CompoundFlagController;
  *    }
  *  }
  * </pre>
- * 
+ *
+ * Rules instances are mutable while they are built; {@link #freeze()} makes
+ * an instance and its sub rules immutable so that it can be shared by
+ * analysers running in different threads.
  */
 public class Rules implements Serializable
 {
+  /**
+   * The number of slots of the {@link #compoundFlags} cache; a power of 2.
+   */
+  public final static int COMPOUND_FLAGS = 1024;
+
   public static interface Controller extends Serializable
   {
     boolean add2sub(Rules rules, AffixEntry entry);
@@ -73,9 +82,9 @@ public class Rules implements Serializable
   }
 
   /**
-   * The controller of where to add affix entries
+   * The default controller adding each affix entry to this Rules instance
    */
-  protected Controller controller = new Controller()
+  protected final static Controller ADD = new Controller()
   {
     public boolean add2sub(Rules rules, AffixEntry entry)
     {
@@ -87,6 +96,13 @@ public class Rules implements Serializable
     }
   };
 
+  /**
+   * The controller of where to add affix entries. It is only needed while
+   * building the rules so it is not serialized; deserialized instances
+   * fall back to {@link #ADD}.
+   */
+  protected transient Controller controller = ADD;
+
   /**
    * Collection of Prefix instances
    */
@@ -155,17 +171,44 @@ public class Rules implements Serializable
    */ 
   protected Rules parentRules;
   /**
-   * Pattern for prefix flags to remove from flags of a new compound word
+   * The number of consecutive recursion levels this instance stands for.
+   * Derivator levels repeat the same entries, so one instance with
+   * recursion <i>n</i> replaces <i>n</i> nested instances of the same
+   * content; analysers count the levels down instead of following
+   * {@link #subRules}.
+   */
+  protected int recursion = 1;
+  /**
+   * The prefix flags to remove from the flags of the right component of a
+   * new compound word
    * @see CompoundDictEntry#CompoundDictEntry(Rules, DictEntry, DictEntry)
    */
-  protected Pattern prefixPattern;
+  protected AffixFlags prefixFlags = AffixFlags.empty;
   /**
-   * Pattern for suffix flags to remove from flags of a new compound word
+   * The suffix flags to remove from the flags of the left component of a
+   * new compound word
    * @see CompoundDictEntry#CompoundDictEntry(Rules, DictEntry, DictEntry)
    */
-  protected Pattern suffixPattern;
+  protected AffixFlags suffixFlags = AffixFlags.empty;
+  /**
+   * The flags of new compound words by the flags of their leftmost and
+   * rightmost components; a direct mapped table read and written without
+   * locking as each slot holds an immutable {@link CompoundFlags}.
+   * @see #getCompoundFlags(AffixFlags, AffixFlags)
+   */
+  protected transient CompoundFlags[] compoundFlags =
+    new CompoundFlags[COMPOUND_FLAGS];
   
   protected Conditionsmap conditionsMap;  
+  /**
+   * The registry the flags and categories of the affix entries are interned
+   * in: the current one when this instance is created or deserialized.
+   */
+  protected transient Registry registry = Registry.getCurrent();
+  /**
+   * Tells if this instance is frozen.
+   */
+  protected transient volatile boolean frozen;
 
   /**
    * Create a new Rules instance
@@ -191,6 +234,65 @@ public class Rules implements Serializable
     conditionsMap = subRules.getConditionsMap();
   }
   
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    controller = ADD;
+    registry = Registry.getCurrent();
+    compoundFlags = new CompoundFlags[COMPOUND_FLAGS];
+  }
+
+  /**
+   * Return the registry the flags and categories of the affix entries are
+   * interned in.
+   * @return the registry of this instance
+   */
+  public Registry getRegistry()
+  {
+    return registry;
+  }
+
+  /**
+   * Make this instance, its sub rules and its affix entries immutable.
+   * Modifying a frozen instance throws <code>IllegalStateException</code>.
+   */
+  public void freeze()
+  {
+    if (frozen)
+    {
+      return;
+    }
+    frozen = true;
+    prefixEntries.freeze();
+    suffixEntries.freeze();
+    if (subRules != null)
+    {
+      subRules.freeze();
+    }
+  }
+
+  /**
+   * Return if this instance is frozen.
+   * @return if this instance is frozen
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Throw <code>IllegalStateException</code> if this instance is frozen.
+   */
+  protected void checkFrozen()
+  {
+    if (frozen)
+    {
+      throw new IllegalStateException("frozen: " + this);
+    }
+  }
+
+
   public boolean isCompoundFlag(char c)
   {
     return c == compound || c == compoundFirst ||
@@ -208,6 +310,7 @@ public class Rules implements Serializable
    */
   public void setCompoundController(CompoundController compoundController)
   {
+    checkFrozen();
     this.compoundController = compoundController;
   }
 
@@ -217,6 +320,7 @@ public class Rules implements Serializable
    */
   public void setCompound(char flag)
   {
+    checkFrozen();
     compound = flag;
   }
 
@@ -226,6 +330,7 @@ public class Rules implements Serializable
    */
   public void setCompoundFirst(char flag)
   {
+    checkFrozen();
     compoundFirst = flag;
   }
 
@@ -235,6 +340,7 @@ public class Rules implements Serializable
    */
   public void setCompoundLast(char flag)
   {
+    checkFrozen();
     compoundLast = flag;
   }
 
@@ -244,6 +350,7 @@ public class Rules implements Serializable
    */
   public void setCompoundForbidden(char flag)
   {
+    checkFrozen();
     compoundForbidden = flag;
   }
 
@@ -288,6 +395,7 @@ public class Rules implements Serializable
    */
   public void setCompoundWord(int minWord, char flag)
   {
+    checkFrozen();
     compoundWord = flag;
     this.minWord = minWord;
   }
@@ -310,6 +418,33 @@ public class Rules implements Serializable
     return subRules;
   }
 
+  /**
+   * Return the number of consecutive recursion levels this instance
+   * stands for.
+   * @return the {@link #recursion} of this instance
+   */
+  public int getRecursion()
+  {
+    return recursion;
+  }
+
+  /**
+   * Set the number of consecutive recursion levels this instance
+   * stands for.
+   * @param recursion the recursion of this instance
+   * @exception IllegalArgumentException if <code>recursion</code> is
+   * not positive
+   */
+  public void setRecursion(int recursion)
+  {
+    if (recursion <= 0)
+    {
+      throw new IllegalArgumentException("" + recursion);
+    }
+    checkFrozen();
+    this.recursion = recursion;
+  }
+
   /**
    * Return if {@link #parentRules} is not <code>null</code>.
    * @return if {@link #parentRules} is not <code>null</code>
@@ -415,7 +550,8 @@ public class Rules implements Serializable
    */
   public Collection getSuffixes()
   {
-    return suffixes.values();
+    return frozen ? Collections.unmodifiableCollection(suffixes.values()) :
+      suffixes.values();
   }
 
   /**
@@ -424,7 +560,8 @@ public class Rules implements Serializable
    */
   public Collection getPrefixes()
   {
-    return prefixes.values();
+    return frozen ? Collections.unmodifiableCollection(prefixes.values()) :
+      prefixes.values();
   }
 
   /**
@@ -459,6 +596,7 @@ public class Rules implements Serializable
    */
   public void add(Affix affix)
   {
+    checkFrozen();
     if (affix instanceof Suffix)
     {
       addSuffix((Suffix)affix);
@@ -489,6 +627,7 @@ public class Rules implements Serializable
 
   protected void add(Affix affix, AffixEntry entry)
   {
+    checkFrozen();
     if (affix instanceof Prefix)
     {
       prefixCount += add(prefixes, prefixEntries, affix, entry);
@@ -566,30 +705,28 @@ public class Rules implements Serializable
     Iterator it = flags.iterator();
     while (it.hasNext())
     {
-      String s = Integer.toHexString(((Character)it.next()).charValue());
-      while (s.length() < 4)
-      {
-        s = "0" + s;
-      }
-      sb.append("\\u" + s);
+      sb.append(((Character)it.next()).charValue());
     }
     return sb.toString();
   }
 
   public void done()
   {
-    HashSet prefixFlags = new HashSet();
-    HashSet suffixFlags = new HashSet();
+    checkFrozen();
+    HashSet prefixSet = new HashSet();
+    HashSet suffixSet = new HashSet();
 
-    collectPrefixFlags(prefixFlags);
-    collectSuffixFlags(suffixFlags);
+    collectPrefixFlags(prefixSet);
+    collectSuffixFlags(suffixSet);
 
     // cannot inherit compound from right
-    String prefix = toString(prefixFlags) + compound;
-    String suffix = toString(suffixFlags);
-
-    prefixPattern = Pattern.compile("[" + prefix + "]");
-    suffixPattern = Pattern.compile("[" + suffix + "]");
+    if (compound != 0)
+    {
+      prefixSet.add(Character.valueOf(compound));
+    }
+    prefixFlags = AffixFlags.getAffixFlags(registry, toString(prefixSet));
+    suffixFlags = AffixFlags.getAffixFlags(registry, toString(suffixSet));
+    compoundFlags = new CompoundFlags[COMPOUND_FLAGS];
 
     if (compoundController == null)
     {
@@ -605,6 +742,10 @@ public class Rules implements Serializable
       sb.append("[");
     }
 
+    if (recursion > 1)
+    {
+      sb.append(recursion + " x ");
+    }
     sb.append("prefixes: " + prefixCount + " in " + prefixes.size());
     sb.append(", suffixes: " + suffixCount + " in " + suffixes.size());
 
@@ -617,18 +758,62 @@ public class Rules implements Serializable
   }
   
   /**
-   * @return return the suffixPattern.
+   * @return return the suffixFlags.
    */
-  public Pattern getSuffixPattern()
+  public AffixFlags getSuffixFlags()
   {
-    return suffixPattern;
+    return suffixFlags;
   }
   
   /**
-   * @return return the prefixPattern.
+   * @return return the prefixFlags.
+   */
+  public AffixFlags getPrefixFlags()
+  {
+    return prefixFlags;
+  }
+
+  /**
+   * Return the flags of a new compound word: the flags <code>left</code> of
+   * its leftmost component minus {@link #suffixFlags} plus the flags
+   * <code>right</code> of its rightmost component minus
+   * {@link #prefixFlags}. The flags are interned, so they are cached by the
+   * identity of <code>left</code> and <code>right</code>; a hit allocates
+   * nothing.
+   * @param left the flags of the leftmost component
+   * @param right the flags of the rightmost component
+   * @return the flags of the compound word
    */
-  public Pattern getPrefixPattern()
+  public AffixFlags getCompoundFlags(AffixFlags left, AffixFlags right)
   {
-    return prefixPattern;
+    CompoundFlags[] table = compoundFlags;
+    int i = (31 * left.hash + right.hash) & (table.length - 1);
+    CompoundFlags cached = table[i];
+    if (cached != null && cached.left == left && cached.right == right)
+    {
+      return cached.flags;
+    }
+    AffixFlags flags = left.remove(suffixFlags).add(right.remove(prefixFlags));
+    table[i] = new CompoundFlags(left, right, flags);
+    return flags;
+  }
+
+  /**
+   * CompoundFlags holds the flags of compound words for the flags of the
+   * leftmost and the rightmost components.
+   */
+  protected static class CompoundFlags
+  {
+    protected final AffixFlags left;
+    protected final AffixFlags right;
+    protected final AffixFlags flags;
+
+    protected CompoundFlags(AffixFlags left, AffixFlags right,
+      AffixFlags flags)
+    {
+      this.left = left;
+      this.right = right;
+      this.flags = flags;
+    }
   }
 }
\ No newline at end of file
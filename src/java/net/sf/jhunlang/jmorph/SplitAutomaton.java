@@ -0,0 +1,539 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SplitAutomaton tells the positions of a word a compound component may
+ * start at. A component is a word the analyser finds in the dictionaries,
+ * possibly affixed, of at least {@link #minWord} characters; so it starts
+ * either with the append of a prefix or with the part of a dictionary word
+ * its suffixes do not strip off. If that part is shorter than
+ * {@link #depth} then it is followed by the end of the word, by a dash, by
+ * the first character of the append of a suffix the dictionary word admits
+ * or, if the dictionary word is a component in itself, by anything.<p>
+ * The automaton is a trie of these starts cut at {@link #depth}
+ * characters; a position is feasible if walking the trie from it reaches
+ * the end of such a start or the end of the word. Positions the trie
+ * rejects cannot start a component, so the compound analyser skips them
+ * without stemming the rest of the word. Strips of derivations of
+ * derivations cutting into the dictionary word are not accounted for.<p>
+ * The nodes of the trie are kept level by level in arrays; the children of
+ * a node are adjacent and sorted by their characters.
+ */
+public class SplitAutomaton
+{
+  /**
+   * System property for the depth of the automaton.
+   */
+  public final static String DEPTH = "compound.split.depth";
+  /**
+   * The default depth of the automaton.
+   */
+  public final static int DEFAULT_DEPTH = 4;
+  /**
+   * The maximum number of positions {@link #starts(CharSequence)} tells.
+   */
+  public final static int MAX_POSITIONS = 64;
+  /**
+   * Tells that anything may follow a part of a dictionary word.
+   */
+  protected final static Object ANY = new Object();
+
+  /**
+   * The maximum length of the starts in the trie.
+   */
+  protected int depth;
+  /**
+   * The minimum length of the components the automaton is built for.
+   */
+  protected int minWord;
+  /**
+   * The character of each node; that of the root is unused.
+   */
+  protected char[] labels;
+  /**
+   * The index of the first child of each node.
+   */
+  protected int[] first;
+  /**
+   * The index after the last child of each node.
+   */
+  protected int[] last;
+  /**
+   * Tells for each node if a start ends there.
+   */
+  protected boolean[] accept;
+  /**
+   * Tells if words starting with a decimal digit may be components.
+   */
+  protected boolean numbers;
+  /**
+   * The length of the longest strip of the suffixes while building.
+   */
+  protected int maxStrip;
+  /**
+   * The strips of the suffixes by the flags admitting them while building.
+   */
+  protected Map flagStrips = new HashMap();
+  /**
+   * The strips of the suffixes by their flag characters while building.
+   */
+  protected Map suffixStrips = new HashMap();
+
+  /**
+   * Create an automaton to be filled in by {@link ImageReader}.
+   */
+  protected SplitAutomaton()
+  {
+    flagStrips = null;
+    suffixStrips = null;
+  }
+
+  /**
+   * Create the automaton of the starts of the components of at least
+   * <code>minWord</code> characters found in <code>dicts</code> by the
+   * affixes of <code>rules</code>.
+   * @param rules the affix rules
+   * @param dicts the dictionaries
+   * @param minWord the minimum length of components
+   */
+  public SplitAutomaton(Rules rules, Dictionaries dicts, int minWord)
+  {
+    this(rules, dicts, minWord,
+      Integer.getInteger(DEPTH, DEFAULT_DEPTH).intValue());
+  }
+
+  /**
+   * Create the automaton of the starts of at most <code>depth</code>
+   * characters of the components of at least <code>minWord</code>
+   * characters found in <code>dicts</code> by the affixes of
+   * <code>rules</code>.
+   * @param rules the affix rules
+   * @param dicts the dictionaries
+   * @param minWord the minimum length of components
+   * @param depth the maximum length of the starts
+   */
+  public SplitAutomaton(Rules rules, Dictionaries dicts, int minWord,
+    int depth)
+  {
+    this.minWord = minWord;
+    this.depth = Math.max(1, depth);
+    numbers = dicts.generateNumber;
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      Iterator sit = r.getSuffixes().iterator();
+      while (sit.hasNext())
+      {
+        AffixEntry[] entries = ((Affix)sit.next()).getEntries();
+        for(int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] != null)
+          {
+            maxStrip = Math.max(maxStrip, entries[i].getStripLength());
+          }
+        }
+      }
+    }
+
+    Set starts = new HashSet();
+    Iterator it = dicts.iterator();
+    while (it.hasNext())
+    {
+      Iterator eit = ((WordList)it.next()).getWords().entrySet().iterator();
+      while (eit.hasNext())
+      {
+        Map.Entry e = (Map.Entry)eit.next();
+        String key = (String)e.getKey();
+        // no strip leaves a part shorter than the depth
+        if (key.length() - maxStrip >= this.depth)
+        {
+          addStart(starts, key, this.depth);
+          continue;
+        }
+        Iterator fit = follows(rules, key, e.getValue()).entrySet().iterator();
+        while (fit.hasNext())
+        {
+          Map.Entry f = (Map.Entry)fit.next();
+          int strip = ((Integer)f.getKey()).intValue();
+          Set follow = (Set)f.getValue();
+          String part = key.substring(0, key.length() - strip);
+          if (part.length() >= this.depth || follow.contains(ANY))
+          {
+            addStart(starts, part, part.length());
+          }
+          else
+          {
+            Iterator cit = follow.iterator();
+            while (cit.hasNext())
+            {
+              String start = part + cit.next();
+              addStart(starts, start, start.length());
+            }
+          }
+        }
+      }
+    }
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      Iterator pit = r.getPrefixes().iterator();
+      while (pit.hasNext())
+      {
+        AffixEntry[] entries = ((Affix)pit.next()).getEntries();
+        for(int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] != null)
+          {
+            String append = entries[i].getAppend().toLowerCase();
+            // a prefix stripping the start of stems without appending
+            // anything leaves no start to tell
+            addStart(starts, append,
+              append.length() > 0 || entries[i].getStripLength() == 0 ?
+                append.length() : 0);
+          }
+        }
+      }
+    }
+    build(starts);
+    flagStrips = null;
+    suffixStrips = null;
+  }
+
+  /**
+   * Add the first <code>length</code> characters of <code>s</code> cut at
+   * {@link #depth} to <code>starts</code>. A start of no characters makes
+   * every position feasible.
+   */
+  protected void addStart(Set starts, String s, int length)
+  {
+    if (length > 0 || s.length() > 0)
+    {
+      starts.add(s.substring(0, Math.max(0, Math.min(length, depth))));
+    }
+  }
+
+  /**
+   * Return what may follow the part of <code>key</code> left by the strips
+   * of the suffixes admitted by the entries of <code>value</code>. The
+   * lengths of the strips <code>key</code> ends with are mapped to the sets
+   * of the first characters of the appends of those suffixes. A set holds
+   * {@link #ANY} if anything may follow: a suffix appending nothing may be
+   * followed by another one, and <code>key</code> itself if it is long
+   * enough to be a component.
+   * @param rules the affix rules
+   * @param key the lowercase key of the entries
+   * @param value the entry or the map of the entries of <code>key</code>
+   * @return the map of the lengths of the strips to their followers
+   */
+  protected Map follows(Rules rules, String key, Object value)
+  {
+    List entries = new ArrayList();
+    if (value instanceof DictEntry)
+    {
+      entries.add(value);
+    }
+    else if (value instanceof Map)
+    {
+      entries.addAll(((Map)value).values());
+    }
+    Map follows = new HashMap();
+    Set follow = new HashSet();
+    if (key.length() >= minWord)
+    {
+      follow.add(ANY);
+    }
+    follows.put(Integer.valueOf(0), follow);
+    for(int i = 0; i < entries.size(); i++)
+    {
+      DictEntry entry = (DictEntry)entries.get(i);
+      follows(rules, key, entry, follows);
+      Collection homonyms = entry.getHomonyms();
+      if (homonyms != null)
+      {
+        Iterator it = homonyms.iterator();
+        while (it.hasNext())
+        {
+          follows(rules, key, (DictEntry)it.next(), follows);
+        }
+      }
+    }
+    return follows;
+  }
+
+  protected void follows(Rules rules, String key, DictEntry entry,
+    Map follows)
+  {
+    Map strips = strips(rules, entry.getFlags());
+    int n = Math.min(maxStrip, key.length());
+    for(int l = 0; l <= n; l++)
+    {
+      Set follow = (Set)strips.get(key.substring(key.length() - l));
+      if (follow == null)
+      {
+        continue;
+      }
+      Integer strip = Integer.valueOf(l);
+      Set all = (Set)follows.get(strip);
+      if (all == null)
+      {
+        follows.put(strip, all = new HashSet());
+      }
+      all.addAll(follow);
+    }
+  }
+
+  /**
+   * Return the map of the lowercase strips of the suffix entries of
+   * <code>flags</code> on all levels to the sets of the first characters of
+   * their appends, {@link #ANY} for an empty append.
+   * @param rules the affix rules
+   * @param flags the flags of the suffixes
+   * @return the map of the strips to their followers
+   */
+  protected Map strips(Rules rules, AffixFlags flags)
+  {
+    Map strips = (Map)flagStrips.get(flags);
+    if (strips != null)
+    {
+      return strips;
+    }
+    strips = new HashMap();
+    String flagString = flags.getFlagString();
+    for(int i = 0; i < flagString.length(); i++)
+    {
+      Iterator it =
+        strips(rules, flagString.charAt(i)).entrySet().iterator();
+      while (it.hasNext())
+      {
+        Map.Entry e = (Map.Entry)it.next();
+        Set follow = (Set)strips.get(e.getKey());
+        if (follow == null)
+        {
+          strips.put(e.getKey(), follow = new HashSet());
+        }
+        follow.addAll((Set)e.getValue());
+      }
+    }
+    flagStrips.put(flags, strips);
+    return strips;
+  }
+
+  /**
+   * Return the map of the lowercase strips of the suffix entries of
+   * <code>flag</code> on all levels to the sets of the first characters of
+   * their appends.
+   */
+  protected Map strips(Rules rules, char flag)
+  {
+    Character c = Character.valueOf(flag);
+    Map strips = (Map)suffixStrips.get(c);
+    if (strips != null)
+    {
+      return strips;
+    }
+    strips = new HashMap();
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      Suffix suffix = r.getSuffix(c);
+      if (suffix == null)
+      {
+        continue;
+      }
+      AffixEntry[] entries = suffix.getEntries();
+      for(int j = 0; j < entries.length; j++)
+      {
+        AffixEntry affix = entries[j];
+        if (affix == null)
+        {
+          continue;
+        }
+        String strip = affix.getStrip().toLowerCase();
+        Set follow = (Set)strips.get(strip);
+        if (follow == null)
+        {
+          strips.put(strip, follow = new HashSet());
+        }
+        String append = affix.getAppend();
+        follow.add(append.length() == 0 ? ANY :
+          Character.valueOf(Character.toLowerCase(append.charAt(0))));
+      }
+    }
+    suffixStrips.put(c, strips);
+    return strips;
+  }
+
+  /**
+   * Build the arrays of the trie of <code>starts</code> level by level.
+   */
+  protected void build(Set starts)
+  {
+    // the nodes of each level are the distinct prefixes of that length
+    Set[] levels = new Set[depth + 1];
+    for(int d = 0; d <= depth; d++)
+    {
+      levels[d] = new HashSet();
+    }
+    Iterator it = starts.iterator();
+    while (it.hasNext())
+    {
+      String s = (String)it.next();
+      for(int d = 0; d <= s.length(); d++)
+      {
+        levels[d].add(s.substring(0, d));
+      }
+    }
+    String[][] sorted = new String[depth + 1][];
+    int[] offsets = new int[depth + 2];
+    for(int d = 0; d <= depth; d++)
+    {
+      sorted[d] = (String[])levels[d].toArray(new String[levels[d].size()]);
+      Arrays.sort(sorted[d]);
+      offsets[d + 1] = offsets[d] + sorted[d].length;
+    }
+
+    int size = offsets[depth + 1];
+    labels = new char[size];
+    first = new int[size];
+    last = new int[size];
+    accept = new boolean[size];
+
+    for(int d = 0; d <= depth; d++)
+    {
+      // children of the same parent are adjacent on the sorted next level
+      int child = 0;
+      String[] next = d < depth ? sorted[d + 1] : new String[0];
+      for(int i = 0; i < sorted[d].length; i++)
+      {
+        String s = sorted[d][i];
+        int node = offsets[d] + i;
+        if (d > 0)
+        {
+          labels[node] = s.charAt(d - 1);
+        }
+        accept[node] = starts.contains(s);
+        first[node] = offsets[d + 1] + child;
+        while (child < next.length && next[child].startsWith(s))
+        {
+          child++;
+        }
+        last[node] = offsets[d + 1] + child;
+      }
+    }
+  }
+
+  /**
+   * Return the positions of <code>lowerCaseWord</code> a component may
+   * start at as bits of a long; bit <code>i</code> is set if a component
+   * may start at <code>i</code>. Positions from {@link #MAX_POSITIONS} on
+   * are not told.
+   * @param lowerCaseWord the all lowercase word to split
+   * @return the feasible positions
+   */
+  public long starts(CharSequence lowerCaseWord)
+  {
+    long starts = 0;
+    int n = Math.min(lowerCaseWord.length(), MAX_POSITIONS);
+    for(int i = 0; i < n; i++)
+    {
+      if (startsAt(lowerCaseWord, i))
+      {
+        starts |= 1L << i;
+      }
+    }
+    return starts;
+  }
+
+  /**
+   * Return if a component may start at <code>at</code> in
+   * <code>lowerCaseWord</code>.
+   * @param lowerCaseWord the all lowercase word to split
+   * @param at the position to check
+   * @return if a component may start at <code>at</code>
+   */
+  public boolean startsAt(CharSequence lowerCaseWord, int at)
+  {
+    int length = lowerCaseWord.length();
+    if (numbers && at < length &&
+        Character.getType(lowerCaseWord.charAt(at)) ==
+          Character.DECIMAL_DIGIT_NUMBER)
+    {
+      return true;
+    }
+    int node = 0;
+    for(int i = at; ; i++)
+    {
+      if (accept[node] || i == length)
+      {
+        return true;
+      }
+      char c = lowerCaseWord.charAt(i);
+      // an affix may follow a dash
+      if (Character.getType(c) == Character.DASH_PUNCTUATION)
+      {
+        return true;
+      }
+      int lo = first[node];
+      int hi = last[node] - 1;
+      node = -1;
+      while (lo <= hi)
+      {
+        int mid = (lo + hi) >>> 1;
+        char label = labels[mid];
+        if (label < c)
+        {
+          lo = mid + 1;
+        }
+        else if (label > c)
+        {
+          hi = mid - 1;
+        }
+        else
+        {
+          node = mid;
+          break;
+        }
+      }
+      if (node < 0)
+      {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Return the number of nodes of the trie.
+   * @return the number of nodes
+   */
+  public int getSize()
+  {
+    return labels.length;
+  }
+
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  /**
+   * Return the minimum length of the components the automaton has been
+   * built for. It tells nothing about shorter components.
+   * @return the minimum length of components
+   */
+  public int getMinWord()
+  {
+    return minWord;
+  }
+
+  public String toString()
+  {
+    return "SplitAutomaton[" + getSize() + " nodes, depth " + depth +
+      ", min " + minWord + "]";
+  }
+}
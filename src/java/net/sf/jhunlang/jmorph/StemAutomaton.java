@@ -0,0 +1,400 @@
+package net.sf.jhunlang.jmorph;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * StemAutomaton tells if a stem candidate left by stripping a suffix may
+ * be analysed by a context whose compound analysis is off: if the
+ * dictionaries may hold it or the rules of the sub contexts may derive it
+ * from a word they hold. The suffix phase of the analyser asks it for the
+ * stem of each split and strip before it checks the conditions of the
+ * rules and builds the stem, and skips the rules of the stems it rejects.
+ * <p>
+ * The automaton is a trie of the reversed ends of the stems cut at
+ * {@link #depth} characters walked from the last character of a stem
+ * candidate backwards. The ends are
+ * <ul>
+ *   <li>those of the keys of the word lists,</li>
+ *   <li>the appends of the suffixes of the sub rules; any character may
+ *       precede an append as the derived word ends with it,</li>
+ * </ul>
+ * and a candidate is kept if the walk reaches the end of an append or of a
+ * key cut at the depth or the start of the candidate. A candidate the walk
+ * rejects may still start with the append of a prefix of the sub rules
+ * deriving it from a word whose end the walk has matched; the appends of
+ * these prefixes are kept in a forward trie. Candidates starting with a
+ * decimal digit are kept if the dictionaries generate numbers; candidates
+ * with a dash are kept as the rules may apply at the dash.<p>
+ * The sub rules are those the sub contexts follow: the sub rules of the
+ * rules on all levels and the rules themselves if they stand for more than
+ * one recursion level. The nodes of both tries are kept level by level in
+ * arrays as in {@link SplitAutomaton}.
+ */
+public class StemAutomaton
+{
+  /**
+   * System property for the depth of the automaton.
+   */
+  public final static String DEPTH = "dict.stems.depth";
+  /**
+   * The default depth of the automaton.
+   */
+  public final static int DEFAULT_DEPTH = 5;
+
+  /**
+   * The maximum length of the reversed ends in the trie.
+   */
+  protected int depth;
+  /**
+   * The trie of the reversed ends of the stems.
+   */
+  protected Trie ends;
+  /**
+   * The trie of the appends of the prefixes of the sub rules.
+   */
+  protected Trie prefixes;
+  /**
+   * Tells if words starting with a decimal digit are in the dictionaries.
+   */
+  protected boolean numbers;
+
+  /**
+   * Create an automaton to be filled in by {@link ImageReader}.
+   */
+  protected StemAutomaton()
+  {}
+
+  /**
+   * Create the automaton of the stems of <code>dicts</code> and of the sub
+   * rules of <code>rules</code>.
+   * @param rules the affix rules
+   * @param dicts the dictionaries
+   */
+  public StemAutomaton(Rules rules, Dictionaries dicts)
+  {
+    this(rules, dicts, Integer.getInteger(DEPTH, DEFAULT_DEPTH).intValue());
+  }
+
+  /**
+   * Create the automaton of the stems of <code>dicts</code> and of the sub
+   * rules of <code>rules</code> cutting the ends at <code>depth</code>
+   * characters.
+   * @param rules the affix rules
+   * @param dicts the dictionaries
+   * @param depth the maximum length of the ends
+   */
+  public StemAutomaton(Rules rules, Dictionaries dicts, int depth)
+  {
+    this.depth = Math.max(1, depth);
+    numbers = dicts.generateNumber;
+
+    Set keys = new HashSet();
+    Set appends = new HashSet();
+    Set prefixAppends = new HashSet();
+
+    Iterator it = dicts.iterator();
+    while (it.hasNext())
+    {
+      Iterator kit = ((WordList)it.next()).getWords().keySet().iterator();
+      while (kit.hasNext())
+      {
+        keys.add(reverse((String)kit.next(), this.depth));
+      }
+    }
+    Rules r = rules.getRecursion() > 1 ? rules : rules.getSubRules();
+    for(; r != null; r = r.getSubRules())
+    {
+      Iterator sit = r.getSuffixes().iterator();
+      while (sit.hasNext())
+      {
+        AffixEntry[] entries = ((Affix)sit.next()).getEntries();
+        for(int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] != null)
+          {
+            appends.add(reverse(entries[i].getAppend().toLowerCase(),
+              this.depth));
+          }
+        }
+      }
+      Iterator pit = r.getPrefixes().iterator();
+      while (pit.hasNext())
+      {
+        AffixEntry[] entries = ((Affix)pit.next()).getEntries();
+        for(int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] != null)
+          {
+            prefixAppends.add(entries[i].getAppend().toLowerCase());
+          }
+        }
+      }
+    }
+    // the ends of the keys as long as the depth are accepted as appends are
+    Iterator kit = keys.iterator();
+    while (kit.hasNext())
+    {
+      String key = (String)kit.next();
+      if (key.length() == this.depth)
+      {
+        appends.add(key);
+      }
+    }
+    keys.addAll(appends);
+    ends = new Trie(keys, appends);
+    prefixes = new Trie(prefixAppends, prefixAppends);
+  }
+
+  /**
+   * Return the first <code>depth</code> characters of <code>s</code>
+   * reversed.
+   */
+  protected static String reverse(String s, int depth)
+  {
+    int n = Math.min(s.length(), depth);
+    char[] chars = new char[n];
+    for(int i = 0; i < n; i++)
+    {
+      chars[i] = s.charAt(s.length() - 1 - i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Return if the stem made of the first <code>length</code> characters of
+   * <code>lowerCaseChars</code> followed by <code>strip</code> may be
+   * analysed. The stem is not built.
+   * @param lowerCaseChars the characters of the all lowercase word
+   * @param length the length of the remainder of the word
+   * @param strip the strip of the suffix
+   * @return if the stem may be analysed
+   */
+  public boolean accepts(char[] lowerCaseChars, int length, String strip)
+  {
+    int n = length + strip.length();
+    if (n == 0)
+    {
+      return true;
+    }
+    if (numbers && Character.getType(charAt(lowerCaseChars, length, strip, 0))
+        == Character.DECIMAL_DIGIT_NUMBER)
+    {
+      return true;
+    }
+    int node = 0;
+    for(int j = n - 1; j >= 0; j--)
+    {
+      if (ends.accept[node])
+      {
+        return true;
+      }
+      char c = charAt(lowerCaseChars, length, strip, j);
+      if ((node = ends.child(node, c)) < 0)
+      {
+        return Character.getType(c) == Character.DASH_PUNCTUATION ||
+          dashed(lowerCaseChars, length, strip, j) ||
+          prefixed(lowerCaseChars, length, strip, j + 1);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return the lowercase <code>i</code>th character of the stem.
+   */
+  protected static char charAt(char[] lowerCaseChars, int length,
+    String strip, int i)
+  {
+    return i < length ?
+      lowerCaseChars[i] : Character.toLowerCase(strip.charAt(i - length));
+  }
+
+  /**
+   * Return if the stem has a dash after its first <code>end</code>
+   * characters the walk has passed.
+   */
+  protected static boolean dashed(char[] lowerCaseChars, int length,
+    String strip, int end)
+  {
+    int n = length + strip.length();
+    for(int j = end + 1; j < n; j++)
+    {
+      if (Character.getType(charAt(lowerCaseChars, length, strip, j)) ==
+          Character.DASH_PUNCTUATION)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return if the stem starts with the append of a prefix at least
+   * <code>unmatched</code> characters long.
+   */
+  protected boolean prefixed(char[] lowerCaseChars, int length, String strip,
+    int unmatched)
+  {
+    int n = length + strip.length();
+    int node = 0;
+    for(int i = 0; i < n; i++)
+    {
+      if (i >= unmatched && prefixes.accept[node])
+      {
+        return true;
+      }
+      char c = charAt(lowerCaseChars, length, strip, i);
+      if ((node = prefixes.child(node, c)) < 0)
+      {
+        return false;
+      }
+    }
+    return prefixes.accept[node];
+  }
+
+  /**
+   * Return the number of nodes of the tries.
+   * @return the number of nodes
+   */
+  public int getSize()
+  {
+    return ends.labels.length + prefixes.labels.length;
+  }
+
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  public String toString()
+  {
+    return "StemAutomaton[" + getSize() + " nodes, depth " + depth + "]";
+  }
+
+  /**
+   * A trie of strings kept level by level in arrays; the children of a
+   * node are adjacent and sorted by their characters.
+   */
+  protected static class Trie
+  {
+    /**
+     * The character of each node; that of the root is unused.
+     */
+    protected char[] labels;
+    /**
+     * The index of the first child of each node.
+     */
+    protected int[] first;
+    /**
+     * The index after the last child of each node.
+     */
+    protected int[] last;
+    /**
+     * Tells for each node if an accepted string ends there.
+     */
+    protected boolean[] accept;
+
+    /**
+     * Create a trie to be filled in by {@link ImageReader}.
+     */
+    protected Trie()
+    {}
+
+    /**
+     * Build the trie of <code>strings</code> accepting those of
+     * <code>accepted</code>.
+     */
+    protected Trie(Set strings, Set accepted)
+    {
+      int max = 0;
+      Iterator it = strings.iterator();
+      while (it.hasNext())
+      {
+        max = Math.max(max, ((String)it.next()).length());
+      }
+      // the nodes of each level are the distinct prefixes of that length
+      Set[] levels = new Set[max + 1];
+      for(int d = 0; d <= max; d++)
+      {
+        levels[d] = new HashSet();
+      }
+      levels[0].add("");
+      it = strings.iterator();
+      while (it.hasNext())
+      {
+        String s = (String)it.next();
+        for(int d = 0; d <= s.length(); d++)
+        {
+          levels[d].add(s.substring(0, d));
+        }
+      }
+      String[][] sorted = new String[max + 1][];
+      int[] offsets = new int[max + 2];
+      for(int d = 0; d <= max; d++)
+      {
+        sorted[d] = (String[])levels[d].toArray(new String[levels[d].size()]);
+        Arrays.sort(sorted[d]);
+        offsets[d + 1] = offsets[d] + sorted[d].length;
+      }
+
+      int size = offsets[max + 1];
+      labels = new char[size];
+      first = new int[size];
+      last = new int[size];
+      accept = new boolean[size];
+
+      for(int d = 0; d <= max; d++)
+      {
+        // children of the same parent are adjacent on the sorted next level
+        int child = 0;
+        String[] next = d < max ? sorted[d + 1] : new String[0];
+        for(int i = 0; i < sorted[d].length; i++)
+        {
+          String s = sorted[d][i];
+          int node = offsets[d] + i;
+          if (d > 0)
+          {
+            labels[node] = s.charAt(d - 1);
+          }
+          accept[node] = accepted.contains(s);
+          first[node] = offsets[d + 1] + child;
+          while (child < next.length && next[child].startsWith(s))
+          {
+            child++;
+          }
+          last[node] = offsets[d + 1] + child;
+        }
+      }
+    }
+
+    /**
+     * Return the child of <code>node</code> labelled <code>c</code> or -1.
+     */
+    protected int child(int node, char c)
+    {
+      int lo = first[node];
+      int hi = last[node] - 1;
+      while (lo <= hi)
+      {
+        int mid = (lo + hi) >>> 1;
+        char label = labels[mid];
+        if (label < c)
+        {
+          lo = mid + 1;
+        }
+        else if (label > c)
+        {
+          hi = mid - 1;
+        }
+        else
+        {
+          return mid;
+        }
+      }
+      return -1;
+    }
+  }
+}
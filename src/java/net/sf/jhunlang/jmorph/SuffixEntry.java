@@ -7,6 +7,12 @@ import net.sf.jhunlang.jmorph.util.Pair;
  */
 public class SuffixEntry extends AffixEntry
 {
+  /**
+   * Create an entry to be filled in by {@link ImageReader}.
+   */
+  protected SuffixEntry()
+  {}
+
   /**
    * Create a new SuffixEntry instance with the given parameters.
    * @param rules the rules this affix belongs to
@@ -114,28 +120,15 @@ public class SuffixEntry extends AffixEntry
   }
 
   /**
-   * Return if <code>word</code> satisfies {@link AffixEntry#conditions}.
+   * Return if <code>word</code> satisfies {@link AffixEntry#conditions}
+   * as checked by the table {@link AffixEntry#conds} is compiled into.
    * @param word the word to check
    * @return if <code>word</code> satisfies <code>conditions</code>
    */
   public boolean checkStem(CharSequence word)
   {
-    int wl = word.length();
-    int j = wl - cl;
-
-    if (j < 0)
-    {
-      return false;
-    }
-
-    for(int i = 0; i < cl; i++, j++)
-    {
-      if (!conditions[i].admit(word.charAt(j)))
-      {
-        return false;
-      }
-    }
-    return true;
+    int j = word.length() - cl;
+    return j >= 0 && conds.admit(word, j);
   }
 
   /**
@@ -2,6 +2,7 @@ package net.sf.jhunlang.jmorph;
 
 import java.util.Iterator;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -25,6 +26,11 @@ public class WordList implements Serializable
    * Map of <root entry, collection of entries with entry as root> pairs.
    */
   protected Map reverseRoots = new HashMap();
+  /**
+   * Tells if this instance is frozen.
+   * @see #freeze()
+   */
+  protected transient volatile boolean frozen;
 
   /**
    * Create a new WordList instance.
@@ -39,6 +45,7 @@ public class WordList implements Serializable
   
   public void setDictionaries(Dictionaries dicts)
   {
+    checkFrozen();
     this.dicts = dicts;
   }
 
@@ -53,6 +60,7 @@ public class WordList implements Serializable
    */
   public void add(DictEntry entry)
   {
+    checkFrozen();
     addEntry(words, entry);
   }
 
@@ -63,6 +71,7 @@ public class WordList implements Serializable
    */
   public DictEntry remove(String word)
   {
+    checkFrozen();
     String loword = word.toLowerCase();
     Object value = words.get(loword);
     if (value != null)
@@ -113,7 +122,7 @@ public class WordList implements Serializable
 
   public DictEntry get(String word, String lowerCaseWord)
   {
-    Object value = words.get(lowerCaseWord);
+    Object value = rawGet(lowerCaseWord);
     if (value != null)
     {
       if (value instanceof DictEntry)
@@ -164,14 +173,45 @@ public class WordList implements Serializable
   }
 
   /**
-   * Return the map of words stored in this instance. 
+   * Return the map of words stored in this instance. The map is read-only
+   * if this instance is frozen.
    * @return the map of words 
    */  
   public Map getWords()
   {
-    return words;
+    return frozen ? Collections.unmodifiableMap(words) : words;
+  }
+
+  /**
+   * Make this instance immutable. Adding and removing words throws
+   * <code>IllegalStateException</code> after this call.
+   */
+  public void freeze()
+  {
+    frozen = true;
+  }
+
+  /**
+   * Return if this instance is frozen.
+   * @return if this instance is frozen
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
   }
 
+  /**
+   * Throw <code>IllegalStateException</code> if this instance is frozen.
+   */
+  protected void checkFrozen()
+  {
+    if (frozen)
+    {
+      throw new IllegalStateException("frozen: " + this);
+    }
+  }
+
+
   /**
    * Add the given {@link DictEntry} instance to the given map.
    * @param map the map entry is to be put into
@@ -219,6 +259,10 @@ public class WordList implements Serializable
     else
     {
       map.put(key, entry);
+      if (map == words && dicts != null)
+      {
+        dicts.added(key);
+      }
     }
   }
 
@@ -234,6 +278,27 @@ public class WordList implements Serializable
   public void sync()
   {}
 
+  /**
+   * Called by readers after all entries has been added to this list; the
+   * work may be shared by <code>threads</code> threads. This
+   * implementation calls {@link #sync()}.
+   * @param threads the number of threads
+   */
+  public void sync(int threads)
+  {
+    sync();
+  }
+
+  /**
+   * Merge what a reader parsing lines in parallel has recorded in
+   * <code>part</code> besides the entries into this list. Readers call it
+   * for the chunks of lines in their order after adding the entries of the
+   * chunk. This implementation does nothing.
+   * @param part the word list a chunk of lines has been parsed into
+   */
+  public void merge(WordList part)
+  {}
+
   public static String shorten(String s)
   {
     return s.substring(s.lastIndexOf('.') + 1);
@@ -3,8 +3,14 @@ package net.sf.jhunlang.jmorph.analysis;
 import java.util.List;
 import java.util.ArrayList;
 
+import net.sf.jhunlang.jmorph.AffixEntries;
+import net.sf.jhunlang.jmorph.util.CharSlice;
+
 /**
  * AffixCache provides cache for splits and checked affixes of words.
+ * The lists of satisfied rules of a split are created when the split is
+ * first cleared, so a cache holds lists for the longest word analysed on
+ * it only.
  */
 public class AffixCache
 {
@@ -29,17 +35,28 @@ public class AffixCache
    */
   protected final List[] PCL;
   /**
-   * The splits of the word currently stemmed for suffix and prefix
-   * check respecively
+   * The characters of the word currently stemmed. The splits of the word
+   * for suffix and prefix check are given by offsets into this array.
+   */
+  protected final char[] chars;
+  /**
+   * The characters of the lowercase word currently stemmed.
+   */
+  protected final char[] lowerCaseChars;
+  /**
+   * The length of the word currently stemmed.
+   */
+  protected int length;
+  /**
+   * View of the lowercase remainder of the current split.
    */
-  protected String[][] splits;
+  protected final CharSlice lowerCaseRemainder = new CharSlice();
   /**
-   * The splits of the lowercase word currently stemmed
-   * for suffix and prefix check respecively
+   * The affix entry maps along the current split, see {@link #getNodes}.
    */
-  protected String[][] lowerCaseSplits;
+  protected final AffixEntries[] nodes;
   /**
-   * The current word. Splits above store splits of this word.
+   * The current word. Splits above are splits of this word.
    */
   protected String word;
   /**
@@ -64,13 +81,9 @@ public class AffixCache
     PL = new ArrayList[maxWordLength];
     PCL = new ArrayList[maxWordLength];
 
-    for(int i = 0; i < maxWordLength; i++)
-    {
-      SL[i] = new ArrayList(10);
-      SCL[i] = new ArrayList(10);
-      PL[i] = new ArrayList(10);
-      PCL[i] = new ArrayList(10);
-    }
+    chars = new char[maxWordLength];
+    lowerCaseChars = new char[maxWordLength];
+    nodes = new AffixEntries[maxWordLength];
   }
 
   /**
@@ -150,59 +163,92 @@ public class AffixCache
   }
 
   /**
-   * Return the prefix or suffix splits
-   * @return the prefix or suffix splits depending on {@link #suffix}
+   * Return the length of the word currently stemmed. The splits of the word
+   * are indexed from 0 to length - 1: split <code>i</code> cuts the word
+   * before its <code>i</code>th character.
+   * @return the length of the current word
    */
-  public String[] getSplit()
+  public int getLength()
   {
-    return suffix ? splits[0] : splits[1];
+    return length;
   }
 
   /**
-   * Return the lower case prefix or suffix splits
-   * @return the lower case prefix or suffix splits depending on {@link #suffix}
+   * Return the characters of the current word. Only the first
+   * {@link #getLength()} characters belong to the word.
+   * @return the characters of the current word
    */
-  public String[] getLowerCaseSplit()
+  public char[] getChars()
   {
-    return suffix ? lowerCaseSplits[0] : lowerCaseSplits[1];
+    return chars;
   }
 
-  public String[] getLowerCaseSuffixSplit()
+  /**
+   * Return the characters of the current word in lowercase. Only the first
+   * {@link #getLength()} characters belong to the word.
+   * @return the lowercase characters of the current word
+   */
+  public char[] getLowerCaseChars()
   {
-    return lowerCaseSplits[0];
+    return lowerCaseChars;
   }
 
-  public String[] getLowerCasePrefixSplit()
+  /**
+   * Return the array the analyser stores the affix entry maps in while
+   * walking the affix entries along the current word.
+   * @return the affix entry map array
+   */
+  public AffixEntries[] getNodes()
   {
-    return lowerCaseSplits[1];
+    return nodes;
   }
 
-  public String getWord()
+  /**
+   * Return the remainder of split <code>i</code>: the start of the word
+   * before <code>i</code> for suffix and the end of the word from
+   * <code>i</code> for prefix check depending on {@link #suffix}.
+   * @param i the index of the split
+   * @return the remainder
+   */
+  public String getRemainder(int i)
   {
-    return word;
+    return suffix ? word.substring(0, i) : word.substring(i);
   }
 
-  public String getLowerCaseWord()
+  /**
+   * Return the lowercase remainder of split <code>i</code>.
+   * @param i the index of the split
+   * @return the lowercase remainder
+   * @see #getRemainder(int)
+   */
+  public String getLowerCaseRemainder(int i)
   {
-    return lowerCaseWord;
+    return suffix ? lowerCaseWord.substring(0, i) : lowerCaseWord.substring(i);
   }
 
   /**
-   * Return the suffix splits
-   * @return the suffix splits
+   * Return the lowercase remainder of split <code>i</code> as a view into
+   * {@link #lowerCaseChars}. The view is shared, it is valid until the next
+   * call of this method.
+   * @param i the index of the split
+   * @return the view of the lowercase remainder
+   * @see #getRemainder(int)
    */
-  public String[] getSuffixSplit()
+  public CharSequence getLowerCaseRemainderView(int i)
   {
-    return splits[0];
+    return suffix ?
+      lowerCaseRemainder.set(lowerCaseChars, 0, i) :
+      lowerCaseRemainder.set(lowerCaseChars, i, length - i);
   }
 
-  /**
-   * Return the prefix splits
-   * @return the prefix splits
-   */
-  public String[] getPrefixSplit()
+  public String getWord()
   {
-    return splits[1];
+    return word;
+  }
+
+  public String getLowerCaseWord()
+  {
+    return lowerCaseWord;
   }
 
   /**
@@ -211,10 +257,7 @@ public class AffixCache
    */
   public void clearSuffixCache(int num)
   {
-    for(int i = 0; i < num; i++)
-    {
-      SL[i].clear();
-    }
+    clear(SL, num);
   }
 
   /**
@@ -224,11 +267,8 @@ public class AffixCache
    */
   public void clearSuffixCaches(int num)
   {
-    for(int i = 0; i < num; i++)
-    {
-      SL[i].clear();
-      SCL[i].clear();
-    }
+    clear(SL, num);
+    clear(SCL, num);
   }
 
   /**
@@ -238,83 +278,45 @@ public class AffixCache
    */
   public void clearPrefixCaches(int num)
   {
-    for(int i = 0; i < num; i++)
-    {
-      PL[i].clear();
-      PCL[i].clear();
-    }
+    clear(PL, num);
+    clear(PCL, num);
   }
 
   /**
-   * Return splits of the given word as it is appropriate for checking
-   * suffix and prefix rules. The first element of the returned 2-element
-   * array is the list of splits for suffixes while the second is the one
-   * for prefixes. If the word contains hyphens and <code>hyphenize</code>
-   * is true then throw HyphenizedException.
-   * @param word the word to split
-   * @param lowerCaseWord the all lowercase form of word
-   * @return the 2-element array of lists of splits
+   * Clear the first <code>num</code> lists of <code>cache</code>; create
+   * those not created yet.
    */
-  public String[][] split(String word, String lowerCaseWord)
+  protected static void clear(List[] cache, int num)
   {
-    this.word = word;
-    this.lowerCaseWord = lowerCaseWord;
-
-    int length = word.length();
-    int size = length + length;
-
-    String[] l0 = new String[size];
-    String[] l1 = new String[size];
-
-    String[] l2 = new String[size];
-    String[] l3 = new String[size];
-
-    for(int i = 0; i < length; i++)
+    for(int i = 0; i < num; i++)
     {
-      String append = word.substring(i);
-      String remainder = word.substring(0, i);
-
-      String lowerCaseAppend = lowerCaseWord.substring(i);
-      String lowerCaseRemainder = lowerCaseWord.substring(0, i);
-
-      int j = i + i;
-
-      l0[j] = append;
-      l1[j] = remainder;
-
-      l2[j] = lowerCaseAppend;
-      l3[j] = lowerCaseRemainder;
-
-      j++;
-      l0[j] = remainder;
-      l1[j] = append;
-
-      l2[j] = lowerCaseRemainder;
-      l3[j] = lowerCaseAppend;
+      if (cache[i] == null)
+      {
+        cache[i] = new ArrayList(10);
+      }
+      else
+      {
+        cache[i].clear();
+      }
     }
-
-    splits = new String[][] { l0, l1 };
-    lowerCaseSplits = new String[][] { l2, l3 };
-    return splits;
   }
 
   /**
-   * Return splits of the given word as it is appropriate for checking
-   * suffix rules.
+   * Make <code>word</code> the current word. Copy its characters and those
+   * of <code>lowerCaseWord</code> to {@link #chars} and
+   * {@link #lowerCaseChars}; the splits of the word for suffix and prefix
+   * check are then given by their indices, no string is created.
    * @param word the word to split
-   * @return the list of splits
+   * @param lowerCaseWord the all lowercase form of word
    */
-  public String[] suffixSplit(String word)
+  public void split(String word, String lowerCaseWord)
   {
-    int length = word.length();
-    String[] l = new String[length + length];
+    this.word = word;
+    this.lowerCaseWord = lowerCaseWord;
 
-    for(int i = 0; i < length; i++)
-    {
-      int j = i + i;
-      l[j] = word.substring(i);
-      l[++j] = word.substring(0, i);
-    }
-    return l;
+    length = word.length();
+    word.getChars(0, length, chars, 0);
+    lowerCaseWord.getChars(0, Math.min(length, lowerCaseWord.length()),
+      lowerCaseChars, 0);
   }
-}
\ No newline at end of file
+}
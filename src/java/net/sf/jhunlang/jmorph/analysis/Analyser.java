@@ -1,5 +1,6 @@
 package net.sf.jhunlang.jmorph.analysis;
 
+import java.util.Collection;
 import java.util.List;
 
 import net.sf.jhunlang.jmorph.Dictionaries;
@@ -27,6 +28,25 @@ public interface Analyser
    * the analyses of the word
    */
   List analyse(String word, AnalyserContext context);
+  /**
+   * Return the analyses of a batch of tokens found by <code>context</code>.
+   * Each distinct type of the tokens is analysed once.
+   * @param words the tokens to analyse
+   * @param context the context configuring the analyser algorithm
+   * @return the analyses of the tokens
+   */
+  BatchAnalysis analyseAll(Collection words, AnalyserContext context);
+  /**
+   * Return the analyses of a batch of tokens found by <code>context</code>.
+   * Each distinct type of the tokens is analysed once, by
+   * <code>parallelism</code> threads at most.
+   * @param words the tokens to analyse
+   * @param context the context configuring the analyser algorithm
+   * @param parallelism the number of threads analysing the types
+   * @return the analyses of the tokens
+   */
+  BatchAnalysis analyseAll(Collection words, AnalyserContext context,
+    int parallelism);
   /**
    * Return ispell-like stemming output found by the default context.
    * @param word the word to stem
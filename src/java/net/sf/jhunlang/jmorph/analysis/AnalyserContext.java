@@ -16,7 +16,13 @@ import net.sf.jhunlang.jmorph.util.BooleanResults;
  * The {@link #base} is the toplevel context where the analysis starts.
  * The {@link #root} is the toplevel inflexion context,
  * {@link #leftContext} and {@link #rightContext} are toplevel contexts.
- * All the three share the same base context.
+ * All the three share the same base context.<p>
+ * The left and right contexts and the sub contexts are created on demand:
+ * the left and right contexts when the compound analyser first descends
+ * to them, the sub contexts when a derivation is first analysed on them.
+ * Once created they are kept for the later analyses, so a context analysing
+ * simple words does not pay for the contexts of compound decomposition and
+ * of deep derivation.
  */
 public class AnalyserContext
 {
@@ -24,6 +30,11 @@ public class AnalyserContext
    * Convenience constant for the maximum allowed word length.
    */
   public final static int MAX_WORD_LENGTH = 64;
+  /**
+   * The number of units of work between two looks at the clock when the
+   * control of the analysis limits its time.
+   */
+  public final static int CLOCK_INTERVAL = 64;
 
   protected boolean compoundEnabled;
   /**
@@ -55,9 +66,18 @@ public class AnalyserContext
    */
   protected int recursionLevel;
   /**
-   * The sub context.
+   * The sub context or <code>null</code> if not created yet.
    */
   protected AnalyserContext subContext;
+  /**
+   * The rules of the sub context or <code>null</code> if this context has
+   * no sub context.
+   */
+  protected Rules subRules;
+  /**
+   * The number of recursion levels the sub context stands for.
+   */
+  protected int subRepeat;
   /**
    * If prefix is sought for in the current analysis.
    */
@@ -72,13 +92,17 @@ public class AnalyserContext
    */
   protected AnalyserContext base;
   /**
-   * The context for compound right.
+   * The context for compound right or <code>null</code> if not created yet.
    */
   protected AnalyserContext rightContext;
   /**
-   * The context for compound left.
+   * The context for compound left or <code>null</code> if not created yet.
    */
   protected AnalyserContext leftContext;
+  /**
+   * The number of levels of left and right contexts below this context.
+   */
+  protected int compound;
   /**
    * The compound analyser.
    */
@@ -96,6 +120,27 @@ public class AnalyserContext
    * compound decomoposition.
    */
   protected boolean affixFirst;
+  /**
+   * The metrics recording the analysis by this context if switched on.
+   * Only the base context holds it; the other contexts share it.
+   */
+  protected AnalyserMetrics metrics;
+  /**
+   * The units of work left for the current analysis;
+   * <code>Long.MAX_VALUE</code> if the work is not limited. Only the base
+   * context holds it.
+   */
+  protected long work;
+  /**
+   * The <code>System.nanoTime()</code> the current analysis must stop at
+   * or 0 if its time is not limited. Only the base context holds it.
+   */
+  protected long deadline;
+  /**
+   * Tells if the current analysis has run out of its work or time. Only
+   * the base context holds it.
+   */
+  protected boolean truncated;
 
   /**
    * Create a new AnalyserContext with a new {@link AnalyserControl} specifying
@@ -119,12 +164,7 @@ public class AnalyserContext
   {
     this.control = control;
     this.base = base == null ? this : base;
-
-    if (--compound > 0)
-    {
-      leftContext = new AnalyserContext(control, compound, this.base);
-      rightContext = new AnalyserContext(control, compound, this.base);
-    }
+    this.compound = compound - 1;
   }
 
   public CompoundAnalyser getCompoundAnalyser()
@@ -148,9 +188,11 @@ public class AnalyserContext
     {
       root.follow(rules, analyser);
     }
-    else if (follow(rules, this, 0))
+    else if (follow(rules, this, 0, rules.getRecursion()))
     {
-      compoundAnalyser = new CompoundAnalyserImpl(analyser);
+      compoundAnalyser = Boolean.getBoolean(CompoundAnalyser.CHART) ?
+        new ChartCompoundAnalyser(analyser) :
+        new CompoundAnalyserImpl(analyser);
       if (leftContext != null)
       {
         leftContext.follow(rules);
@@ -161,7 +203,7 @@ public class AnalyserContext
 
   protected void follow(Rules rules)
   {
-    if (follow(rules, this, 0))
+    if (follow(rules, this, 0, rules.getRecursion()))
     {
       if (leftContext != null)
       {
@@ -171,8 +213,14 @@ public class AnalyserContext
     }
   }
 
+  /**
+   * Follow <code>rules</code> at recursion level <code>rl</code>.
+   * <code>rules</code> stands for <code>repeat</code> more levels including
+   * this one; the subcontext follows the same rules while
+   * <code>repeat</code> is greater than 1 and the sub rules otherwise.
+   */
   protected synchronized boolean follow(
-    Rules rules, AnalyserContext root, int rl)
+    Rules rules, AnalyserContext root, int rl, int repeat)
   {
     if (rules != this.rules)
     {
@@ -186,15 +234,21 @@ public class AnalyserContext
       consumerManager = this == root ?
         new InflexionConsumerManager(control) : new ConsumerManager(control);
 
-      if (rules.hasSubRules())
+      // the sub context is created by getSubContext
+      subContext = null;
+      if (repeat > 1)
       {
-        AnalyserControl subControl = new AnalyserControl(
-          getControl().getCompoundControl(), AnalyserControl.ALL_COMPOUNDS);
-
-        // pass 0 as compound for not creating left, right on subContext
-        subContext = new AnalyserContext(subControl, 0, base);
-        subContext.follow(rules.getSubRules(), root, recursionLevel + 1);
-        consumerManager.setSubManager(subContext.getConsumerManager());
+        subRules = rules;
+        subRepeat = repeat - 1;
+      }
+      else if (rules.hasSubRules())
+      {
+        subRules = rules.getSubRules();
+        subRepeat = subRules.getRecursion();
+      }
+      else
+      {
+        subRules = null;
       }
       return true;
     }
@@ -247,32 +301,68 @@ public class AnalyserContext
   }
 
   /**
-   * Return the subcontext if any.
+   * Return the subcontext if any. Create it following the sub rules of
+   * this context when first asked for.
    * @return the subcontext
    */
   public AnalyserContext getSubContext()
   {
+    if (subContext == null && subRules != null)
+    {
+      AnalyserControl subControl = new AnalyserControl(
+        getControl().getCompoundControl(), AnalyserControl.ALL_COMPOUNDS);
+
+      // pass 0 as compound for not creating left, right on subContext
+      subContext = new AnalyserContext(subControl, 0, base);
+      subContext.follow(subRules, root, recursionLevel + 1, subRepeat);
+      consumerManager.setSubManager(subContext.getConsumerManager());
+    }
     return subContext;
   }
 
   /**
-   * Return the right context for compound stemming if any.
+   * Return the right context for compound stemming if any. Create the
+   * left and right contexts when first asked for.
    * @return the right context
    */
   public AnalyserContext getRightContext()
   {
+    if (rightContext == null && compound > 0)
+    {
+      createCompoundContexts();
+    }
     return rightContext;
   }
 
   /**
-   * Return the left context for compound stemming if any.
+   * Return the left context for compound stemming if any. Create the
+   * left and right contexts when first asked for.
    * @return the right context
    */
   public AnalyserContext getLeftContext()
   {
+    if (leftContext == null && compound > 0)
+    {
+      createCompoundContexts();
+    }
     return leftContext;
   }
 
+  /**
+   * Create the left and right contexts and make them follow the rules of
+   * this context if it follows any.
+   */
+  protected void createCompoundContexts()
+  {
+    leftContext = new AnalyserContext(control, compound, base);
+    rightContext = new AnalyserContext(control, compound, base);
+    if (rules != null)
+    {
+      leftContext.follow(rules);
+      rightContext.follow(rules);
+    }
+  }
+
   /**
    * Return the current stemming level.
    * @return the current stemming level
@@ -351,6 +441,72 @@ public class AnalyserContext
     return control;
   }
 
+  /**
+   * Return the metrics of the base context or <code>null</code> if
+   * metrics are switched off.
+   * @return the metrics or <code>null</code>
+   */
+  public AnalyserMetrics getMetrics()
+  {
+    return base.metrics;
+  }
+
+  /**
+   * Set the metrics of the base context.
+   * @param metrics the metrics or <code>null</code> to switch off
+   */
+  public void setMetrics(AnalyserMetrics metrics)
+  {
+    base.metrics = metrics;
+  }
+
+  /**
+   * Start the work budget and the time limit of an analysis as the control
+   * of the base context tells.
+   */
+  public void startBudget()
+  {
+    AnalyserControl control = base.control;
+    int budget = control.getBudget();
+    long timeout = control.getTimeout();
+    base.work = budget == 0 ? Long.MAX_VALUE : budget;
+    base.deadline = timeout == 0 ? 0 : System.nanoTime() + timeout * 1000;
+    base.truncated = false;
+  }
+
+  /**
+   * Spend a unit of work of the current analysis - a dictionary probe,
+   * an affix rule application or a compound split point. Return
+   * <code>false</code> if the analysis has run out of its work or time
+   * and must stop; it is truncated from then on.
+   * @return if the analysis may go on
+   */
+  public boolean spend()
+  {
+    AnalyserContext base = this.base;
+    if (base.truncated)
+    {
+      return false;
+    }
+    if (base.work-- <= 0 || (base.deadline != 0 &&
+        (base.work % CLOCK_INTERVAL) == 0 &&
+        System.nanoTime() - base.deadline > 0))
+    {
+      base.truncated = true;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return if the current analysis has run out of its work or time.
+   * @return if the current analysis is truncated
+   */
+  public boolean truncated()
+  {
+    return base.truncated;
+  }
+
   public String toString()
   {
     return "AnalyserContext[" + control + "]";
@@ -0,0 +1,119 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.LinkedList;
+
+/**
+ * AnalyserContextPool keeps fully initialised {@link AnalyserContext}
+ * instances for concurrent analysis. An {@link AnalyserContext} carries the
+ * mutable state of a single analysis (consumers, affix caches, condition
+ * results and the compound analyser) so it must not be shared by threads
+ * running at the same time. The rules and the dictionaries are only read
+ * while analysing, so threads borrowing their own contexts from the pool
+ * do not have to wait for each other.<p>
+ * The pool is bounded: it creates a new context whenever it has no idle one
+ * but it keeps at most {@link #capacity} idle contexts for reuse; contexts
+ * returned above the capacity are dropped.
+ */
+public class AnalyserContextPool
+{
+  /**
+   * The analyser the contexts of this pool follow.
+   */
+  protected AnalyserImpl analyser;
+  /**
+   * The maximum number of idle contexts kept for reuse.
+   */
+  protected int capacity;
+  /**
+   * The idle contexts.
+   */
+  protected LinkedList idle = new LinkedList();
+  /**
+   * The number of contexts created by this pool.
+   */
+  protected int created;
+
+  /**
+   * Create a new pool for <code>analyser</code> keeping at most
+   * <code>capacity</code> idle contexts.
+   * @param analyser the analyser the contexts are created for
+   * @param capacity the maximum number of idle contexts
+   * @exception IllegalArgumentException if <code>capacity</code> is
+   * not positive
+   */
+  public AnalyserContextPool(AnalyserImpl analyser, int capacity)
+  {
+    if (capacity <= 0)
+    {
+      throw new IllegalArgumentException("" + capacity);
+    }
+    this.analyser = analyser;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Return an idle context or create a new one if there is none.
+   * The returned context follows the rules of {@link #analyser} and must be
+   * given back by {@link #release(AnalyserContext)}.
+   * @return the borrowed context
+   */
+  public AnalyserContext borrow()
+  {
+    synchronized (idle)
+    {
+      if (idle.size() > 0)
+      {
+        return (AnalyserContext)idle.removeLast();
+      }
+      created++;
+    }
+    AnalyserContext context = analyser.createContext();
+    context.follow(analyser.getRules(), analyser);
+    return context;
+  }
+
+  /**
+   * Give back <code>context</code> borrowed by {@link #borrow()}.
+   * @param context the context to give back
+   */
+  public void release(AnalyserContext context)
+  {
+    synchronized (idle)
+    {
+      if (idle.size() < capacity)
+      {
+        idle.add(context);
+      }
+    }
+  }
+
+  /**
+   * Return the maximum number of idle contexts.
+   * @return the capacity of this pool
+   */
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Return the number of contexts created so far.
+   * @return the number of contexts created by this pool
+   */
+  public int getCreated()
+  {
+    synchronized (idle)
+    {
+      return created;
+    }
+  }
+
+  public String toString()
+  {
+    synchronized (idle)
+    {
+      return "AnalyserContextPool[" + idle.size() + "/" + capacity +
+        ", " + created + "]";
+    }
+  }
+}
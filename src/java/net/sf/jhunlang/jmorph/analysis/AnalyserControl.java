@@ -5,7 +5,12 @@ import net.sf.jhunlang.jmorph.analysis.consumer.X;
 
 /**
  * AnalyserControl stands for controlling stemming algorithm and caching
- * words already stemmed.
+ * words already stemmed. Its depth, work budget and time limit are fixed
+ * when it is created; {@link #withBudget(int)} and {@link #withTimeout(long)}
+ * return changed copies. The {@link CompoundControl} it holds is mutable,
+ * so a control may be shared by contexts analysing in different threads
+ * only if its compound control is set up before the control is created and
+ * not changed afterwards.
  */
 public class AnalyserControl
 {
@@ -108,6 +113,25 @@ public class AnalyserControl
   {
     flag, flagndcase
   };
+  /**
+   * System property for the default work budget of an analysis.
+   */
+  public final static String BUDGET = "analyser.budget";
+  /**
+   * System property for the default time limit of an analysis in
+   * microseconds.
+   */
+  public final static String TIMEOUT = "analyser.timeout";
+  /**
+   * The default work budget; 0 stands for no limit.
+   */
+  public final static int DEFAULT_BUDGET =
+    Integer.getInteger(BUDGET, 0).intValue();
+  /**
+   * The default time limit in microseconds; 0 stands for no limit.
+   */
+  public final static long DEFAULT_TIMEOUT =
+    Long.getLong(TIMEOUT, 0).longValue();
   
   /**
    * The depth of analysis.
@@ -120,6 +144,15 @@ public class AnalyserControl
   protected final CompoundControl compoundControl;
   
   protected X x;
+  /**
+   * The maximum number of dictionary probes, affix rule applications and
+   * compound split points of an analysis or 0 for no limit.
+   */
+  protected final int budget;
+  /**
+   * The maximum time of an analysis in microseconds or 0 for no limit.
+   */
+  protected final long timeout;
 
   /**
    * Create a AnalyserControl with a default CompoundControl and with the
@@ -211,14 +244,47 @@ public class AnalyserControl
    * not one of the legal values
    */
   public AnalyserControl(CompoundControl compoundControl, int depth, X x)
+  {
+    this(compoundControl, depth, x, DEFAULT_BUDGET, DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Create a AnalyserControl with <code>compoundControl</code>,
+   * <code>depth</code>, <code>budget</code> and <code>timeout</code>.
+   * An analysis stops early and returns the analyses found until then as
+   * {@link TruncatedAnalyses} when it has spent <code>budget</code>
+   * dictionary probes, affix rule applications and compound split points
+   * or when it runs longer than <code>timeout</code> microseconds. The
+   * time is checked every {@link AnalyserContext#CLOCK_INTERVAL} units of
+   * work.
+   * @param compoundControl the compound control
+   * @param depth the depth of stemming
+   * @param x the {@link X} of the analysis
+   * @param budget the work budget or 0 for no limit
+   * @param timeout the time limit in microseconds or 0 for no limit
+   * @exception IllegalArgumentException if depth is not one of the legal
+   * values or <code>budget</code> or <code>timeout</code> is negative
+   */
+  public AnalyserControl(CompoundControl compoundControl, int depth, X x,
+    int budget, long timeout)
   {
     if (depth < 0 || depth > ALL_COMPOUNDS)
     {
       throw new IllegalArgumentException("" + depth);
     }
+    if (budget < 0)
+    {
+      throw new IllegalArgumentException("" + budget);
+    }
+    if (timeout < 0)
+    {
+      throw new IllegalArgumentException("" + timeout);
+    }
     this.depth = depth;
     this.x = x;
     this.compoundControl = compoundControl;
+    this.budget = budget;
+    this.timeout = timeout;
   }
   
   public X getX()
@@ -244,8 +310,52 @@ public class AnalyserControl
     return compoundControl;
   }
 
+  /**
+   * Return a copy of this control with the work budget
+   * <code>budget</code>.
+   * @param budget the work budget or 0 for no limit
+   * @return the new control
+   * @exception IllegalArgumentException if <code>budget</code> is negative
+   */
+  public AnalyserControl withBudget(int budget)
+  {
+    return new AnalyserControl(compoundControl, depth, x, budget, timeout);
+  }
+
+  /**
+   * Return the work budget of an analysis.
+   * @return the work budget or 0 for no limit
+   */
+  public int getBudget()
+  {
+    return budget;
+  }
+
+  /**
+   * Return a copy of this control with the time limit
+   * <code>timeout</code>.
+   * @param timeout the time limit in microseconds or 0 for no limit
+   * @return the new control
+   * @exception IllegalArgumentException if <code>timeout</code> is negative
+   */
+  public AnalyserControl withTimeout(long timeout)
+  {
+    return new AnalyserControl(compoundControl, depth, x, budget, timeout);
+  }
+
+  /**
+   * Return the time limit of an analysis in microseconds.
+   * @return the time limit or 0 for no limit
+   */
+  public long getTimeout()
+  {
+    return timeout;
+  }
+
   public String toString()
   {
-    return "AnalyserControl[" + DEPTHS[depth] + ", " + compoundControl + "]";
+    return "AnalyserControl[" + DEPTHS[depth] + ", " + compoundControl +
+      (budget == 0 ? "" : ", budget " + budget) +
+      (timeout == 0 ? "" : ", timeout " + timeout + "us") + "]";
   }
 }
\ No newline at end of file
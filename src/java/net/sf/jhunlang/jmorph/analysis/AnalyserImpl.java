@@ -1,20 +1,25 @@
 package net.sf.jhunlang.jmorph.analysis;
 
-import java.util.ListIterator;
-import java.util.LinkedList;
-
 import java.util.Iterator;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
 
 import net.sf.jhunlang.jmorph.AffixEntries;
 import net.sf.jhunlang.jmorph.AffixEntry;
 import net.sf.jhunlang.jmorph.Dictionaries;
 import net.sf.jhunlang.jmorph.PrefixEntry;
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.StemAutomaton;
 import net.sf.jhunlang.jmorph.SuffixEntry;
 import net.sf.jhunlang.jmorph.analysis.consumer.AffixConsumer;
 import net.sf.jhunlang.jmorph.analysis.consumer.ConsumerManager;
@@ -22,6 +27,7 @@ import net.sf.jhunlang.jmorph.analysis.consumer.CrossInflexionConsumer;
 import net.sf.jhunlang.jmorph.analysis.consumer.DerivationConsumer;
 import net.sf.jhunlang.jmorph.analysis.consumer.AnalysisConsumer;
 import net.sf.jhunlang.jmorph.util.BooleanResults;
+import net.sf.jhunlang.jmorph.util.StripedBoundedCache;
 
 /**
  * AnalyserImpl implements <code>stem</code> of {@link Analyser} as follows:
@@ -43,6 +49,38 @@ public class AnalyserImpl extends Homonyms implements Analyser
    * Convenience constant for where to start cross suffix
    */
   public final static int CROSS_SUFFIX_START = 1;
+  /**
+   * System property for the capacity of the context pool. If it is set to
+   * a positive number then {@link #analyse(String)} and
+   * {@link #istem(String)} borrow their contexts from an
+   * {@link AnalyserContextPool} of that capacity instead of sharing
+   * the default context.
+   */
+  public final static String CONCURRENT = "analyser.concurrent";
+  /**
+   * System property for the capacity of the analysis cache. If it is set
+   * to a positive number then {@link #analyse(String, AnalyserContext)}
+   * answers repeated words from an {@link AnalysisCache} of that capacity.
+   */
+  public final static String CACHE = "analyser.cache";
+  /**
+   * System property for the capacity of the negative cache. If it is set
+   * to a positive number then {@link #analyse(String, AnalyserContext)}
+   * remembers that many words having no analysis and answers them without
+   * analysing them again.
+   */
+  public final static String NEGATIVE = "analyser.negative";
+  /**
+   * System property switching metrics on. If it is <code>true</code> then
+   * the analyser records {@link AnalyserMetrics} of its analyses in an
+   * {@link AnalyserMonitor} registered to the platform MBean server until
+   * {@link #close()}.
+   */
+  public final static String METRICS = "analyser.metrics";
+  /**
+   * The number of monitors registered, naming each of them uniquely.
+   */
+  protected final static AtomicInteger MONITORS = new AtomicInteger();
 
   /**
    * Convenience constant for the default analysis control
@@ -52,13 +90,45 @@ public class AnalyserImpl extends Homonyms implements Analyser
    * Convenience constant for the ispell-like analysis control
    */
   protected AnalyserContext istemContext;
+  /**
+   * Pool of contexts for concurrent analysis or <code>null</code>
+   */
+  protected volatile AnalyserContextPool contextPool;
+  /**
+   * Cache of whole-word analyses or <code>null</code>
+   */
+  protected volatile AnalysisCache analysisCache;
+  /**
+   * Cache of the keys of words having no analysis or <code>null</code>
+   */
+  protected volatile StripedBoundedCache negativeCache;
+  /**
+   * Monitor collecting the metrics of analyses or <code>null</code>
+   */
+  protected volatile AnalyserMonitor monitor;
+  /**
+   * The number of analyses truncated as they ran out of work or time
+   */
+  protected long truncations;
+  /**
+   * Full-form lexicon answering the words it holds or <code>null</code>
+   */
+  protected volatile Lexicon lexicon;
   /**
    * Affix and prefix rules
    */
   protected Rules rules;
+  /**
+   * The registry of {@link #rules}, bound to the analysing thread by
+   * {@link #analyse(String, AnalyserContext)}.
+   */
+  protected final Registry registry;
 
   /**
    * Create a AnalyserImpl instance using the given rules and dictionaries.
+   * The dictionaries are not modified; their filter and automata are built
+   * by the loaders, see {@link net.sf.jhunlang.jmorph.factory.Model#prepare(
+   * Rules, Dictionaries)}.
    * @param rules the affix and prefix rules
    * @param dictionary the dictionary
    */
@@ -66,6 +136,193 @@ public class AnalyserImpl extends Homonyms implements Analyser
   {
     this.rules = rules;
     this.dictionary = dictionary;
+    registry = rules.getRegistry();
+    setConcurrent(Integer.getInteger(CONCURRENT, 0).intValue());
+    setCache(Integer.getInteger(CACHE, 0).intValue());
+    setNegativeCache(Integer.getInteger(NEGATIVE, 0).intValue());
+    if (Boolean.getBoolean(METRICS))
+    {
+      setMetrics(true);
+      try
+      {
+        monitor.register("analyser-" + MONITORS.incrementAndGet());
+      }
+      catch (JMException jmx)
+      {
+        throw new IllegalStateException(METRICS + ": " + jmx);
+      }
+    }
+  }
+
+  /**
+   * Switch concurrent analysis on or off. If <code>capacity</code> is
+   * positive then {@link #analyse(String)} and {@link #istem(String)}
+   * borrow a context of their own from a pool keeping at most
+   * <code>capacity</code> idle contexts, so that any number of threads
+   * can analyse at the same time. Otherwise they share the default
+   * context and run one after the other.
+   * @param capacity the capacity of the context pool or 0
+   */
+  public synchronized void setConcurrent(int capacity)
+  {
+    contextPool = capacity > 0 ? new AnalyserContextPool(this, capacity) : null;
+  }
+
+  /**
+   * Return the pool of contexts for concurrent analysis if any.
+   * @return the context pool or <code>null</code>
+   */
+  public AnalyserContextPool getContextPool()
+  {
+    return contextPool;
+  }
+
+  /**
+   * Switch the analysis cache on or off. If <code>capacity</code> is
+   * positive then {@link #analyse(String, AnalyserContext)} caches the
+   * analyses of at most <code>capacity</code> words in a new
+   * {@link AnalysisCache}. Otherwise it analyses each word anew.
+   * @param capacity the capacity of the cache or 0
+   */
+  public synchronized void setCache(int capacity)
+  {
+    analysisCache = capacity > 0 ? new AnalysisCache(capacity) : null;
+  }
+
+  /**
+   * Return the analysis cache if any.
+   * @return the analysis cache or <code>null</code>
+   */
+  public AnalysisCache getCache()
+  {
+    return analysisCache;
+  }
+
+  /**
+   * Switch the negative cache on or off. If <code>capacity</code> is
+   * positive then {@link #analyse(String, AnalyserContext)} remembers at
+   * most <code>capacity</code> words found to have no analysis under the
+   * control they were analysed by, and returns no analysis for them at
+   * once. Non-words run through all the phases of the analysis, all the
+   * compound split points included, so they are the most expensive words
+   * to analyse.
+   * @param capacity the capacity of the negative cache or 0
+   */
+  public synchronized void setNegativeCache(int capacity)
+  {
+    negativeCache = capacity > 0 ? new StripedBoundedCache(capacity,
+      capacity / 10, Runtime.getRuntime().availableProcessors()) : null;
+  }
+
+  /**
+   * Return the negative cache if any.
+   * @return the negative cache or <code>null</code>
+   */
+  public StripedBoundedCache getNegativeCache()
+  {
+    return negativeCache;
+  }
+
+  /**
+   * Switch metrics on or off. If <code>b</code> is <code>true</code> then
+   * the contexts analysing words by this analyser record
+   * {@link AnalyserMetrics} and add them to the {@link AnalyserMonitor}
+   * returned by {@link #getMonitor()} after each word. When metrics are
+   * off the analysis pays a null check per phase only. Switching metrics
+   * off unregisters the monitor if it is registered.
+   * @param b if metrics are switched on
+   * @exception IllegalStateException if unregistering the monitor fails
+   */
+  public synchronized void setMetrics(boolean b)
+  {
+    AnalyserMonitor old = monitor;
+    monitor = b ? (old == null ? new AnalyserMonitor() : old) : null;
+    if (!b)
+    {
+      unregister(old);
+    }
+  }
+
+  /**
+   * Unregister the monitor of this analyser from the platform MBean server
+   * if it is registered. Analysers created with {@link #METRICS} on must be
+   * closed when they are no longer used, or their monitors stay in the
+   * server for the lifetime of the process. The analyser can still be used
+   * after closing; its metrics are no longer visible through JMX.
+   * @exception IllegalStateException if unregistering the monitor fails
+   */
+  public synchronized void close()
+  {
+    unregister(monitor);
+  }
+
+  protected static void unregister(AnalyserMonitor monitor)
+  {
+    if (monitor != null)
+    {
+      try
+      {
+        monitor.unregister();
+      }
+      catch (JMException jmx)
+      {
+        throw new IllegalStateException(METRICS + ": " + jmx);
+      }
+    }
+  }
+
+  /**
+   * Return the monitor collecting metrics if metrics are switched on.
+   * @return the monitor or <code>null</code>
+   */
+  public AnalyserMonitor getMonitor()
+  {
+    return monitor;
+  }
+
+  /**
+   * Set the full-form lexicon. If <code>lexicon</code> is not
+   * <code>null</code> then the words it holds are answered from it when
+   * it answers the control of the analysis; the others are analysed by
+   * the rules. <code>lexicon</code> must be of the rules and the
+   * dictionaries of this analyser.
+   * @param lexicon the lexicon or <code>null</code>
+   * @exception IllegalArgumentException if <code>lexicon</code> is of other
+   * rules or dictionaries
+   */
+  public synchronized void setLexicon(Lexicon lexicon)
+  {
+    if (lexicon != null && (lexicon.getRules() != rules ||
+        lexicon.getDictionaries() != dictionary))
+    {
+      throw new IllegalArgumentException("Lexicon of other model " + lexicon);
+    }
+    this.lexicon = lexicon;
+  }
+
+  /**
+   * Return the full-form lexicon if any.
+   * @return the lexicon or <code>null</code>
+   */
+  public Lexicon getLexicon()
+  {
+    return lexicon;
+  }
+
+  /**
+   * Return the number of analyses by this analyser that ran out of the
+   * work budget or the time limit of their control and returned
+   * {@link TruncatedAnalyses}.
+   * @return the number of truncated analyses
+   */
+  public synchronized long getTruncations()
+  {
+    return truncations;
+  }
+
+  protected synchronized void truncated()
+  {
+    truncations++;
   }
 
   /**
@@ -87,26 +344,48 @@ public class AnalyserImpl extends Homonyms implements Analyser
   }
 
   /**
-   * Call {@link #istem(java.lang.String, AnalyserContext)} with
-   * the default context.
+   * Return the registry of the rules used by this instance
+   * @return the registry of this analyser
+   */
+  public Registry getRegistry()
+  {
+    return registry;
+  }
+
+  /**
+   * Call {@link #istem(java.lang.String, int)} with <code>offset</code> 0.
    * @param word the word to analyse
    * @return the istem-like result
    */
   public IStem istem(String word)
   {
-    return istem(word, ensureIstemContext());
+    return istem(word, 0);
   }
 
   /**
    * Call {@link #istem(java.lang.String, int, AnalyserContext)}
-   * with the default context {@link #istemContext}.
+   * with a pooled context if concurrent analysis is switched on and with
+   * the default context {@link #istemContext} otherwise.
    * @param word the word to analyse
    * @param offset the offset of the word in its line
    * @return the istem-like result
    */
   public IStem istem(String word, int offset)
   {
-    return istem(word, offset, ensureIstemContext());
+    AnalyserContextPool pool = contextPool;
+    if (pool == null)
+    {
+      return istem(word, offset, ensureIstemContext());
+    }
+    AnalyserContext context = pool.borrow();
+    try
+    {
+      return istem(word, offset, context);
+    }
+    finally
+    {
+      pool.release(context);
+    }
   }
 
   /**
@@ -148,6 +427,8 @@ public class AnalyserImpl extends Homonyms implements Analyser
   /**
    * Return the list of analyses of <code>word</code>.
    * The returned collection contains {@link AnalysisEntry} instances.
+   * Use a pooled context if concurrent analysis is switched on by
+   * {@link #setConcurrent(int)}; use the default context otherwise.
    * @param word the to stem
    * @return the collection of analyses found
    * @exception IllegalArgumentException if the word is longer than 
@@ -156,70 +437,260 @@ public class AnalyserImpl extends Homonyms implements Analyser
    */
   public List analyse(String word)
   {
-    return analyse(word, ensureDefaultContext());
+    AnalyserContextPool pool = contextPool;
+    if (pool == null)
+    {
+      return analyse(word, ensureDefaultContext());
+    }
+    AnalyserContext context = pool.borrow();
+    try
+    {
+      return analyse(word, context);
+    }
+    finally
+    {
+      pool.release(context);
+    }
   }
 
   /**
    * Return the list of analyses of the given word. The returned list
    * contains {@link AnalysisEntry} instances. If <code>word</code>
    * is longer than {@link AnalyserContext#MAX_WORD_LENGTH} then
-   * return no analysis.
+   * return no analysis. If the analysis cache is switched on by
+   * {@link #setCache(int)} then look up the cache first and cache
+   * the analyses found. If the negative cache is switched on by
+   * {@link #setNegativeCache(int)} then words known to have no analysis
+   * are answered by it and the words found to have none are put in it
+   * instead of the analysis cache. {@link TruncatedAnalyses} are put in
+   * neither cache. The {@link #registry} of this analyser is bound to the
+   * current thread while analysing, so flags interned by the analysis go
+   * to the registry of the model whatever the thread is bound to.
    * @param word the to analyse
    * @param context the context of stemming
    * @return the list of analyses
    */
   public List analyse(String word, AnalyserContext context)
   {
-    synchronized (context)
+    Registry old = Registry.getCurrent();
+    if (old == registry)
+    {
+      return analyseCached(word, context);
+    }
+    Registry.setCurrent(registry);
+    try
     {
-      context.follow(rules, this);
+      return analyseCached(word, context);
+    }
+    finally
+    {
+      Registry.setCurrent(old);
+    }
+  }
 
-      boolean compound = context.getControl().getCompoundControl().enabled();
+  /**
+   * Return the list of analyses of the given word looking up the caches
+   * as {@link #analyse(String, AnalyserContext)} tells.
+   * @param word the to analyse
+   * @param context the context of stemming
+   * @return the list of analyses
+   */
+  protected List analyseCached(String word, AnalyserContext context)
+  {
+    AnalysisCache cache = analysisCache;
+    StripedBoundedCache negative = negativeCache;
+    if (cache == null && negative == null)
+    {
+      return analyseWord(word, context);
+    }
+    Object key = AnalysisCache.key(word, context.getControl());
+    if (negative != null && negative.containsKey(key))
+    {
+      return new ArrayList(1);
+    }
+    List analyses = cache == null ? null : cache.get(key);
+    if (analyses == null)
+    {
+      analyses = analyseWord(word, context);
+      if (TruncatedAnalyses.truncated(analyses))
+      {
+        return analyses;
+      }
+      if (negative != null && analyses.size() == 0)
+      {
+        negative.put(key, Boolean.TRUE);
+      }
+      else if (cache != null)
+      {
+        cache.put(key, analyses);
+      }
+    }
+    return analyses;
+  }
 
-      // collect not compound stems first
-      context.compoundEnabled = false;
+  /**
+   * Call {@link #analyseAll(Collection, AnalyserContext, int)} with
+   * <code>parallelism</code> 1.
+   * @param words the tokens to analyse
+   * @param context the context of analysis
+   * @return the analyses of the tokens
+   */
+  public BatchAnalysis analyseAll(Collection words, AnalyserContext context)
+  {
+    return analyseAll(words, context, 1);
+  }
 
-      AnalysisConsumer consumer =
-        context.getRoot().getConsumerManager().getDictConsumer();
-      consumer.thawLevel();
-      
-      consumer.setStems(new ArrayList(1));
-      context.setHomonyms(true);
+  /**
+   * Analyse a batch of tokens. The tokens are collapsed into their distinct
+   * types and each type is analysed once by {@link #analyse(String,
+   * AnalyserContext)}. If <code>parallelism</code> is greater than 1 then
+   * the types are shared out among that many fork/join workers, each
+   * analysing by contexts of its own following the control of
+   * <code>context</code>; otherwise they are analysed by
+   * <code>context</code> one after the other.
+   * @param words the tokens to analyse
+   * @param context the context of analysis
+   * @param parallelism the number of worker threads
+   * @return the analyses of the tokens
+   */
+  public BatchAnalysis analyseAll(Collection words, AnalyserContext context,
+    int parallelism)
+  {
+    BatchAnalysis batch = new BatchAnalysis(words);
+    int types = batch.getTypeCount();
+    if (parallelism <= 1 || types < 2 * BatchTask.THRESHOLD)
+    {
+      for(int i = 0; i < types; i++)
+      {
+        batch.setResult(i, analyse(batch.getType(i), context));
+      }
+      return batch;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try
+    {
+      pool.invoke(new BatchTask(batch, 0, types,
+        new BatchContexts(context.getControl())));
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+    return batch;
+  }
 
-      doAnalysis(word, context, true, consumer);
-      // done without compound, check if we are done at this level
-      context.setLevel(AnalyserControl.ALL_CROSSES);
-      
-      // collect compound stems
-      if (!consumer.done() && compound)
+  /**
+   * Return the list of analyses of the given word found by
+   * <code>context</code> without looking up the analysis cache. If the
+   * full-form lexicon set by {@link #setLexicon(Lexicon)} answers the word
+   * under the control of <code>context</code> then return its analyses.
+   * If the analysis runs out of the work budget or the time limit of the
+   * control of <code>context</code> then it stops early and the analyses
+   * found until then are returned as {@link TruncatedAnalyses}.
+   * @param word the to analyse
+   * @param context the context of stemming
+   * @return the list of analyses
+   */
+  protected List analyseWord(String word, AnalyserContext context)
+  {
+    Lexicon lexicon = this.lexicon;
+    if (lexicon != null && word.length() < AnalyserContext.MAX_WORD_LENGTH)
+    {
+      List analyses = lexicon.analyse(word, context.getControl());
+      if (analyses != null)
       {
-        CompoundAnalyser compoundStemmer =
-          context.getBase().getCompoundAnalyser();
-        context.compoundEnabled = true;
-        // no homonyms on base context
-        context.setHomonyms(false);
-        consumer.freezeLevel(AnalyserControl.FIRST_COMPOUND);
-        // run compound on max level if all compounds
-        if (context.getControl().getDepth() == AnalyserControl.ALL_COMPOUNDS)
+        return analyses;
+      }
+    }
+    synchronized (context)
+    {
+      AnalyserMonitor monitor = this.monitor;
+      AnalyserMetrics metrics = context.getMetrics();
+      if (monitor == null)
+      {
+        if (metrics != null)
+        {
+          context.setMetrics(null);
+        }
+      }
+      else
+      {
+        if (metrics == null)
         {
-          compoundStemmer.setLevel(CompoundAnalyser.COMPOUND_LEVEL_ALL);
-          doAnalysis(word, context, true, consumer);
+          metrics = new AnalyserMetrics();
+          context.setMetrics(metrics);
         }
-        else
+        metrics.begin();
+      }
+      try
+      {
+        context.follow(rules, this);
+        context.startBudget();
+
+        boolean compound = context.getControl().getCompoundControl().enabled();
+
+        // collect not compound stems first
+        context.compoundEnabled = false;
+
+        AnalysisConsumer consumer =
+          context.getRoot().getConsumerManager().getDictConsumer();
+        consumer.thawLevel();
+      
+        consumer.setStems(new ArrayList(1));
+        context.setHomonyms(true);
+
+        doAnalysis(word, context, true, consumer);
+        // done without compound, check if we are done at this level
+        context.setLevel(AnalyserControl.ALL_CROSSES);
+      
+        // collect compound stems
+        if (!stop(context, consumer) && compound)
         {
-          // run compound until a compound stem found
-          for(int i = 0; i <= CompoundAnalyser.COMPOUND_LEVEL_ALL; i++)
+          CompoundAnalyser compoundStemmer =
+            context.getBase().getCompoundAnalyser();
+          context.compoundEnabled = true;
+          // no homonyms on base context
+          context.setHomonyms(false);
+          consumer.freezeLevel(AnalyserControl.FIRST_COMPOUND);
+          // run compound on max level if all compounds
+          if (context.getControl().getDepth() == AnalyserControl.ALL_COMPOUNDS)
           {
-            compoundStemmer.setLevel(i);
+            compoundStemmer.setLevel(CompoundAnalyser.COMPOUND_LEVEL_ALL);
             doAnalysis(word, context, true, consumer);
-            if (consumer.done())
+          }
+          else
+          {
+            // run compound until a compound stem found
+            for(int i = 0; i <= CompoundAnalyser.COMPOUND_LEVEL_ALL; i++)
             {
-              break;
+              compoundStemmer.setLevel(i);
+              doAnalysis(word, context, true, consumer);
+              if (stop(context, consumer))
+              {
+                break;
+              }
             }
           }
         }
+        if (context.truncated())
+        {
+          truncated();
+          if (metrics != null)
+          {
+            metrics.truncated();
+          }
+          return new TruncatedAnalyses(consumer.getStems());
+        }
+        return (List)consumer.getStems();
+      }
+      finally
+      {
+        if (monitor != null)
+        {
+          metrics.end();
+          monitor.add(metrics);
+        }
       }
-      return (List)consumer.getStems();
     }
   }
 
@@ -251,8 +722,13 @@ public class AnalyserImpl extends Homonyms implements Analyser
     {
       return false;
     }
+    if (context.truncated())
+    {
+      return true;
+    }
 
     AffixCache affixCache = context.getConsumerManager().getAffixCache();
+    AnalyserMetrics metrics = context.getMetrics();
 
     if (lowerCaseWord == null)
     {
@@ -279,7 +755,7 @@ public class AnalyserImpl extends Homonyms implements Analyser
       {
         homonyms(word, lowerCaseWord, context, consumer);
       }
-      if (consumer.done())
+      if (stop(context, consumer))
       {
         return true;
       }
@@ -287,26 +763,42 @@ public class AnalyserImpl extends Homonyms implements Analyser
 
     affixCache.split(word, lowerCaseWord);
 
-    if (consumer.done())
+    if (stop(context, consumer))
     {
       return true;
     }
 
     context.setLevel(AnalyserControl.FIRST_SUFFIX);
     context.setSuffix(true);
-    affixCache.clearSuffixCaches(affixCache.getSplit().length/2);  
+    affixCache.clearSuffixCaches(affixCache.getLength());
+    if (metrics != null)
+    {
+      metrics.enter(AnalyserMetrics.SUFFIX);
+    }
     affixStem(word, consumer.getStems(), context);
-    if (consumer.done())
+    if (metrics != null)
+    {
+      metrics.exit();
+    }
+    if (stop(context, consumer))
     {
       return true;
     }
 
     context.setLevel(AnalyserControl.FIRST_PREFIX);
     context.setSuffix(false);
-    affixCache.clearPrefixCaches(affixCache.getSplit().length/2);
+    affixCache.clearPrefixCaches(affixCache.getLength());
+    if (metrics != null)
+    {
+      metrics.enter(AnalyserMetrics.PREFIX);
+    }
     affixStem(word, consumer.getStems(), context);
+    if (metrics != null)
+    {
+      metrics.exit();
+    }
 
-    if (consumer.done())
+    if (stop(context, consumer))
     {
       return true;
     }
@@ -319,8 +811,16 @@ public class AnalyserImpl extends Homonyms implements Analyser
     if (context.top())
     {
       context.setLevel(AnalyserControl.FIRST_CROSS);
+      if (metrics != null)
+      {
+        metrics.enter(AnalyserMetrics.CROSS);
+      }
       crossStem(consumer.getStems(), context);
-      if (consumer.done())
+      if (metrics != null)
+      {
+        metrics.exit();
+      }
+      if (stop(context, consumer))
       {
         return true;
       }
@@ -332,28 +832,55 @@ public class AnalyserImpl extends Homonyms implements Analyser
       {
         consumer = context.getConsumerManager().getDictConsumer();
         context.setLevel(AnalyserControl.FIRST_STEM);
+        if (metrics != null)
+        {
+          metrics.enter(AnalyserMetrics.SUB);
+        }
         doAnalysis(word, lowerCaseWord, subContext, false, consumer);
+        if (metrics != null)
+        {
+          metrics.exit();
+        }
       }
 
-      if (consumer.done())
+      if (stop(context, consumer))
       {
         return true;
       }
       // if homonyms was called with compoundEnabled false, call compound here
       if (context.compoundEnabled && context.affixFirst())
       {
+        if (metrics != null)
+        {
+          metrics.enter(AnalyserMetrics.COMPOUND);
+        }
         context.getBase().getCompoundAnalyser().
           compound(word, lowerCaseWord, context, consumer);
+        if (metrics != null)
+        {
+          metrics.exit();
+        }
       }
     }
-    return consumer.done();
+    return stop(context, consumer);
+  }
+
+  /**
+   * Return if the analysis by <code>context</code> should stop as
+   * <code>consumer</code> tells it is done or as the analysis has run out
+   * of its work or time.
+   */
+  protected boolean stop(AnalyserContext context, AnalysisConsumer consumer)
+  {
+    return consumer.done() || context.truncated();
   }
 
   /** 
    * Find analyses of the given word. Use the rules and splits of 
-   * <code>context</code>. The even elements of splits are the stem
-   * candidates while the odd ones are the append candidates.
-   * A stem-candidate is a stem of the word if <ul>
+   * <code>context</code>. Each split cuts the word into an append candidate
+   * and a stem candidate; splits are given by indices into the characters
+   * of the word and the stem candidate is made a string only when it is
+   * looked up. A stem-candidate is a stem of the word if <ul>
    *   <li>there is a rule in <code>rulemap</code> defining
    *       the append/prepend candidate as its append and</li>
    *   <li>the stem-candidate satisfies the rule and</li>
@@ -362,7 +889,15 @@ public class AnalyserImpl extends Homonyms implements Analyser
    * Analyses found this way are added to <code>analyses</code>.
    * The statisfied rules are added to cache of <code>context</code>,
    * the crossable ones are added to its crossCache.
-   * Stop analysing when affixConsumer of <code>context</code> tells to.
+   * Stop analysing when affixConsumer of <code>context</code> tells to
+   * or when the analysis runs out of its work or time; each rule applied
+   * spends a unit of work.<p>
+   * Suffix rules whose stem the {@link StemAutomaton} of the dictionaries
+   * rejects are skipped without checking their conditions or building the
+   * stem unless the stem may be a compound; their crossable rules are
+   * still checked and cached for the cross phase and, if the analysis is
+   * done already, a rule admitting the stem stops it as applying the rule
+   * would.
    * @param word the word to analyse
    * @param analyses the collection of analyses
    * @param context the analyser context
@@ -373,14 +908,14 @@ public class AnalyserImpl extends Homonyms implements Analyser
     ConsumerManager cm = context.getConsumerManager();
 
     AffixCache affixCache = cm.getAffixCache();
-    String[] splits = affixCache.getSplit();
+    int length = affixCache.getLength();
 
     int start, until, inc;
     boolean suffix = context.suffix();
 
     if (suffix)
     {
-      start = (splits.length - 1) / 2;
+      start = length - 1;
       until = 0;
       inc = -1;
       if (start < until)
@@ -391,7 +926,7 @@ public class AnalyserImpl extends Homonyms implements Analyser
     else
     {
       start = 1;
-      until = (splits.length - 1) / 2;
+      until = length - 1;
       inc = 1;
 
       if (start > until)
@@ -400,12 +935,13 @@ public class AnalyserImpl extends Homonyms implements Analyser
       }
     }
 
-    String[] lowerCaseSplits = affixCache.getLowerCaseSplit();
+    char[] lowerCaseChars = affixCache.getLowerCaseChars();
 
     List[] cache = affixCache.getCache();
     List[] crossCache = affixCache.getCrossableCache();
 
     BooleanResults conditionResults = context.getConditionResults();
+    AnalyserMetrics metrics = context.getMetrics();
 
     AffixConsumer consumer = cm.getAffixConsumer();
     consumer.setStems(analyses);
@@ -413,80 +949,90 @@ public class AnalyserImpl extends Homonyms implements Analyser
     AffixEntries rulemap = context.getAffixEntries();
     AffixEntries previous = null;
     
-    // list of applicable affix maps
-    List rulesMap = new LinkedList();
-
-    int ll = 0;
+    // applicable affix maps; the kth is the map at split start + k * inc
+    AffixEntries[] nodes = affixCache.getNodes();
+    int n = 0;
     int i;
 
     boolean shortestFirst = context.shortestAffixFirst();
+    // the automaton knows nothing of compounds
+    StemAutomaton stems = suffix && !context.getRoot().compoundEnabled ?
+      dictionary.getStemAutomaton() : null;
     // index of dash; on dash affix do not check affix 
     int dash = -1;
     
     for(i = start; i != until; i += inc)
     {
-      char c = lowerCaseSplits[i + i].charAt(suffix ? 0 : ll++);
+      char c = lowerCaseChars[suffix ? i : i - 1];
       if ((rulemap = rulemap.getMap(c)) == null)
       {
         if (previous != null &&
             Character.getType(c) == Character.DASH_PUNCTUATION)
         {
           dash = i;
-          if (shortestFirst)
-          {
-            rulesMap.add(0, previous);
-          }
-          else
-          {
-            rulesMap.add(previous);
-          }
-          i += inc;
+          nodes[n++] = previous;
         }
         break;
       }
       previous = rulemap;  
-      if (shortestFirst)
-      {
-        rulesMap.add(0, rulemap);
-      }
-      else
-      {
-        rulesMap.add(rulemap);
-      }
+      nodes[n++] = rulemap;
     }
 
+    int k, last, step;
     if (shortestFirst)
     {
-      i = start;
-      inc = -inc;
+      k = 0;
+      last = n;
+      step = 1;
     }
     else
     {
-      i -= inc;
+      k = n - 1;
+      last = -1;
+      step = -1;
     }
-    
-    ListIterator rit = rulesMap.listIterator(rulesMap.size());
 
-    outer: for(; rit.hasPrevious(); i -= inc)
+    outer: for(; k != last; k += step)
     {
-      Map rules = ((AffixEntries)rit.previous()).getByStrip();
+      Map rules = nodes[k].getByStrip();
       if (rules == null)
       {
         continue;
       }
+      i = start + k * inc;
       
       // check if remainder satisfies any of rules;
-      // remainder is the word after append/prepend has been cut off
-      int j = i + i + 1;
-      String remainder = splits[j];
-      String lower = lowerCaseSplits[j];
+      // remainder is the word after append/prepend has been cut off.
+      // Conditions are checked on a view, the strings are created for
+      // the first lookup only
+      CharSequence view = affixCache.getLowerCaseRemainderView(i);
+      String remainder = null;
+      String lower = null;
       
       // tell conditionResults this is a new check round
       conditionResults.nextRound();
-      Iterator it = rules.values().iterator();
+      Iterator it = rules.entrySet().iterator();
       while (it.hasNext())
       {
-        Object o = it.next();
+        Map.Entry e = (Map.Entry)it.next();
+        Object o = e.getValue();
+        if (stems != null && dash != i &&
+            !stems.accepts(lowerCaseChars, i, (String)e.getKey()))
+        {
+          if (metrics != null)
+          {
+            metrics.prunedStem();
+          }
+          // a rule admitting the stem ends an analysis done already as
+          // the sub context tells to stop even if it finds nothing
+          if (context.top() && crossable(o, view,
+                context.getSubContext() != null && consumer.done(),
+                conditionResults, metrics, cache[i], crossCache[i]))
+          {
+            return;
+          }
+          continue;
+        }
         if (o instanceof Collection) // multiple rules with the same strip
         {
           boolean sub = false;
@@ -503,8 +1049,12 @@ public class AnalyserImpl extends Homonyms implements Analyser
               continue;
             }
 
-            if (dash == i || affix.admitStem(lower, conditionResults))
+            if (dash == i || admitStem(affix, view, conditionResults, metrics))
             {
+              if (!context.spend())
+              {
+                return;
+              }
               consumer.setAffix(affix, true);
               // as we're running on affixes with the same strip,
               // stem and entries don't change after strip added to
@@ -522,6 +1072,10 @@ public class AnalyserImpl extends Homonyms implements Analyser
                 }
                 else if (dash != i && affix.getStripLength() != 0)
                 {
+                  if (remainder == null)
+                  {
+                    remainder = affixCache.getRemainder(i);
+                  }
                   String stem = affix.addStrip(remainder);
                   if (affixStem(
                        stem, stem.toLowerCase(), context, consumer))
@@ -529,9 +1083,17 @@ public class AnalyserImpl extends Homonyms implements Analyser
                     return;
                   }
                 }
-                else if (affixStem(remainder, lower, context, consumer))
+                else
                 {
-                   return;
+                  if (lower == null)
+                  {
+                    remainder = affixCache.getRemainder(i);
+                    lower = affixCache.getLowerCaseRemainder(i);
+                  }
+                  if (affixStem(remainder, lower, context, consumer))
+                  {
+                    return;
+                  }
                 }
               }
               // affix has changed on consumer!
@@ -551,8 +1113,12 @@ public class AnalyserImpl extends Homonyms implements Analyser
         else  // single affix rule
         {
           AffixEntry affix = (AffixEntry)o;
-          if (dash == i || affix.admitStem(lower, conditionResults))
+          if (dash == i || admitStem(affix, view, conditionResults, metrics))
           {
+            if (!context.spend())
+            {
+              return;
+            }
             consumer.setAffix(affix, false);
             if (affix.same())
             {
@@ -565,15 +1131,27 @@ public class AnalyserImpl extends Homonyms implements Analyser
             else if (dash != i && affix.getStripLength() != 0)
             {
               // add strip to remainder to get stem
+              if (remainder == null)
+              {
+                remainder = affixCache.getRemainder(i);
+              }
               String stem = affix.addStrip(remainder);
               if (affixStem(stem, stem.toLowerCase(), context, consumer))
               {
                 return;
               }
             }
-            else if (affixStem(remainder, lower, context, consumer))
+            else
             {
-              return;
+              if (lower == null)
+              {
+                remainder = affixCache.getRemainder(i);
+                lower = affixCache.getLowerCaseRemainder(i);
+              }
+              if (affixStem(remainder, lower, context, consumer))
+              {
+                return;
+              }
             }
 
             cache[i].add(affix);
@@ -588,6 +1166,60 @@ public class AnalyserImpl extends Homonyms implements Analyser
     }               // end of iterator on splits
   }
 
+  /**
+   * Add the crossable rules of <code>o</code>, a rule or a collection of
+   * rules with the same strip, admitting <code>view</code> to
+   * <code>cache</code> and <code>crossCache</code>. If <code>done</code>,
+   * return <code>true</code> at the first rule admitting <code>view</code>
+   * instead.
+   */
+  protected boolean crossable(Object o, CharSequence view, boolean done,
+    BooleanResults results, AnalyserMetrics metrics, List cache,
+    List crossCache)
+  {
+    if (o instanceof Collection)
+    {
+      Iterator it = ((Collection)o).iterator();
+      while (it.hasNext())
+      {
+        if (crossable(it.next(), view, done, results, metrics, cache,
+              crossCache))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+    AffixEntry affix = (AffixEntry)o;
+    if ((done || affix.crossable()) &&
+        admitStem(affix, view, results, metrics))
+    {
+      if (done)
+      {
+        return true;
+      }
+      cache.add(affix);
+      crossCache.add(affix);
+    }
+    return false;
+  }
+
+  /**
+   * Return if <code>stem</code> satisfies the conditions of
+   * <code>affix</code> as {@link AffixEntry#admitStem(CharSequence,
+   * BooleanResults)} does and record the check in <code>metrics</code>
+   * if not <code>null</code>.
+   */
+  protected boolean admitStem(AffixEntry affix, CharSequence stem,
+    BooleanResults results, AnalyserMetrics metrics)
+  {
+    if (metrics != null)
+    {
+      metrics.conditionCheck(results.valid(affix.getConditions().getIndex()));
+    }
+    return affix.admitStem(stem, results);
+  }
+
   // if the word and its inflexed/derived form by affix are the same
   protected boolean affixSame(String word, String low,
     AnalyserContext context, AffixConsumer affixConsumer)
@@ -631,8 +1263,8 @@ public class AnalyserImpl extends Homonyms implements Analyser
     ConsumerManager cm = context.getConsumerManager();
     AffixCache affixCache = cm.getAffixCache();
 
-    String[] pSplits = affixCache.getPrefixSplit();
-    String[] sSplits = affixCache.getSuffixSplit();
+    String word = affixCache.getWord();
+    int length = affixCache.getLength();
 
     List[] pfxCache = affixCache.getCrossablePrefixCache();
     List[] sfxCache = affixCache.getCrossableSuffixCache();
@@ -640,23 +1272,23 @@ public class AnalyserImpl extends Homonyms implements Analyser
     CrossInflexionConsumer consumer = cm.getCrossConsumer();
     consumer.setStems(analyses);
 
-    // run sSplits only from where we are in pSplits:
+    // run suffix splits only from where we are in prefix splits:
     //  if [0, i] is the prefix then try suffixes [j, end] only for j >= i
-    for(int i = CROSS_PREFIX_START; i + i < pSplits.length; i++)
+    for(int i = CROSS_PREFIX_START; i < length; i++)
     {
       List prefixes = pfxCache[i];
 
       if (prefixes != null) // satisfied crossable prefixes 
       {
         // code for finding longest suffix first would be
-        //   for(int j = i + CROSS_SUFFIX_START; 2 * j < sSplits.length; j++)
+        //   for(int j = i + CROSS_SUFFIX_START; j < length; j++)
         // now find shortest suffix first
-        for(int j = (sSplits.length - 1) / 2; j >= i + CROSS_SUFFIX_START; j--)
+        for(int j = length - 1; j >= i + CROSS_SUFFIX_START; j--)
         {
           List suffixes = sfxCache[j];
           if (suffixes != null) // statisfied crossable suffixentry
           {
-            String sremainder = sSplits[j + j + 1].substring(i);
+            String sremainder = word.substring(i, j);
             String pstem = null;
             Iterator pit = prefixes.iterator();
             while (pit.hasNext())
@@ -679,18 +1311,28 @@ public class AnalyserImpl extends Homonyms implements Analyser
               }   // end of iterator on suffixes
             }     // end of iterator on prefixes
           }       // end if (suffixes != null)
-        }         // end of iterator on sSplits
+        }         // end of iterator on suffix splits
       }           // end of if prefixes not null
-    }             // end of iterator on pSplits
+    }             // end of iterator on prefix splits
   }
 
   public boolean subanalyse(String word, String lowerCaseWord,
     AnalyserContext context, AnalysisConsumer consumer)
   {
     AnalyserContext subContext = context.getSubContext();
-    return subContext == null ?
-      homonyms(word, lowerCaseWord, context, consumer) :
-      doAnalysis(word, lowerCaseWord, subContext, true, consumer);
+    if (subContext == null)
+    {
+      return homonyms(word, lowerCaseWord, context, consumer);
+    }
+    AnalyserMetrics metrics = context.getMetrics();
+    if (metrics == null)
+    {
+      return doAnalysis(word, lowerCaseWord, subContext, true, consumer);
+    }
+    metrics.enter(AnalyserMetrics.SUB);
+    boolean b = doAnalysis(word, lowerCaseWord, subContext, true, consumer);
+    metrics.exit();
+    return b;
   }
 
   protected synchronized AnalyserContext ensureIstemContext()
@@ -711,10 +1353,15 @@ public class AnalyserImpl extends Homonyms implements Analyser
     return defaultContext;
   }
 
+  /**
+   * Create a context of the default control with compounding set up by
+   * the rules. The compound control is set up before the control is
+   * created, so no control is changed once a context holds it.
+   * @return the created context
+   */
   protected AnalyserContext createContext()
   {
-    AnalyserContext context = new AnalyserContext();
-    CompoundControl cc = context.getControl().getCompoundControl();
+    CompoundControl cc = new CompoundControl();
 
     if (rules.getCompound() != (char)0)
     {
@@ -725,6 +1372,88 @@ public class AnalyserImpl extends Homonyms implements Analyser
     {
       cc.setEnabled(false);
     }
-    return context;
+    return new AnalyserContext(new AnalyserControl(cc));
+  }
+
+  /**
+   * The contexts of the workers of a parallel batch analysis. A task
+   * borrows a context for its range of types and gives it back when done,
+   * so no more contexts are created than there are workers running.
+   */
+  protected static class BatchContexts
+  {
+    protected AnalyserControl control;
+    protected LinkedList idle = new LinkedList();
+
+    protected BatchContexts(AnalyserControl control)
+    {
+      this.control = control;
+    }
+
+    protected synchronized AnalyserContext borrow()
+    {
+      if (idle.size() > 0)
+      {
+        return (AnalyserContext)idle.removeLast();
+      }
+      return new AnalyserContext(control);
+    }
+
+    protected synchronized void release(AnalyserContext context)
+    {
+      idle.add(context);
+    }
+  }
+
+  /**
+   * Fork/join task analysing the types of a batch from <code>from</code>
+   * until <code>until</code>. Ranges longer than {@link #THRESHOLD} are
+   * split in halves.
+   */
+  protected class BatchTask extends RecursiveAction
+  {
+    private final static long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of types analysed by a task without splitting.
+     */
+    protected final static int THRESHOLD = 16;
+
+    protected BatchAnalysis batch;
+    protected int from;
+    protected int until;
+    protected BatchContexts contexts;
+
+    protected BatchTask(BatchAnalysis batch, int from, int until,
+      BatchContexts contexts)
+    {
+      this.batch = batch;
+      this.from = from;
+      this.until = until;
+      this.contexts = contexts;
+    }
+
+    protected void compute()
+    {
+      if (until - from > THRESHOLD)
+      {
+        int middle = (from + until) >>> 1;
+        invokeAll(new BatchTask(batch, from, middle, contexts),
+          new BatchTask(batch, middle, until, contexts));
+        return;
+      }
+      AnalyserContext context = contexts.borrow();
+      try
+      {
+        for(int i = from; i < until; i++)
+        {
+          batch.setResult(i, analyse(batch.getType(i), context));
+        }
+      }
+      finally
+      {
+        contexts.release(context);
+      }
+    }
   }
 }
\ No newline at end of file
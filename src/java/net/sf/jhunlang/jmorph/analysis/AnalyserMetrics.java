@@ -0,0 +1,289 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+/**
+ * AnalyserMetrics records where the analysis of words goes: the number of
+ * times each phase of {@link AnalyserImpl} has been entered and the
+ * nanoseconds spent in it, the number of dictionary probes, of condition
+ * checks answered by the condition result cache and of those evaluated,
+ * the number of compound split points tried and of those skipped as
+ * no component starts there, and the number of analyses truncated as they
+ * ran out of their work or time.<p>
+ * Phases nest: the suffix phase of the top level context runs the phases
+ * of the sub levels for instance. The time of a phase is its own time,
+ * the time of the phases nested in it is not included, so the times of all
+ * the phases add up to the time of the analysis. {@link #ANALYSE} stands
+ * for the time of the analysis outside the other phases.<p>
+ * An AnalyserMetrics instance records the analysis of a single
+ * {@link AnalyserContext}, so it is not thread safe; the analyser adds
+ * it to its {@link AnalyserMonitor} after each word.
+ */
+public class AnalyserMetrics
+{
+  public final static int ANALYSE = 0;
+  public final static int HOMONYMS = 1;
+  public final static int SUFFIX = 2;
+  public final static int PREFIX = 3;
+  public final static int CROSS = 4;
+  public final static int SUB = 5;
+  public final static int COMPOUND = 6;
+  /**
+   * The names of the phases.
+   */
+  public final static String[] PHASES =
+  {
+    "analyse", "homonyms", "suffix", "prefix", "cross", "sub", "compound"
+  };
+  /**
+   * The maximum depth of phase nesting recorded.
+   */
+  public final static int MAX_NESTING = 256;
+
+  protected long words;
+  protected long[] counts = new long[PHASES.length];
+  protected long[] nanos = new long[PHASES.length];
+  protected long dictionaryProbes;
+  protected long conditionHits;
+  protected long conditionEvaluations;
+  protected long splitPoints;
+  protected long skippedSplitPoints;
+  protected long prunedStems;
+  protected long truncated;
+
+  /**
+   * The stack of the phases entered.
+   */
+  protected int[] stack = new int[MAX_NESTING];
+  /**
+   * The number of phases on {@link #stack}.
+   */
+  protected int depth;
+  /**
+   * The time the top of {@link #stack} was entered or resumed.
+   */
+  protected long last;
+
+  /**
+   * Start recording the analysis of a word.
+   */
+  public void begin()
+  {
+    words++;
+    depth = 0;
+    enter(ANALYSE);
+  }
+
+  /**
+   * Stop recording the analysis of a word.
+   */
+  public void end()
+  {
+    while (depth > 0)
+    {
+      exit();
+    }
+  }
+
+  /**
+   * Enter <code>phase</code>. The phase entered last is paused.
+   * @param phase the phase to enter
+   */
+  public void enter(int phase)
+  {
+    long now = System.nanoTime();
+    if (depth > 0)
+    {
+      nanos[stack[depth - 1]] += now - last;
+    }
+    if (depth < stack.length)
+    {
+      stack[depth] = phase;
+    }
+    depth++;
+    counts[phase]++;
+    last = now;
+  }
+
+  /**
+   * Exit the phase entered last. The phase entered before it is resumed.
+   */
+  public void exit()
+  {
+    long now = System.nanoTime();
+    if (--depth < stack.length)
+    {
+      nanos[stack[depth]] += now - last;
+    }
+    last = now;
+  }
+
+  public void dictionaryProbe()
+  {
+    dictionaryProbes++;
+  }
+
+  /**
+   * Record a condition check.
+   * @param cached if the result was found in the condition result cache
+   */
+  public void conditionCheck(boolean cached)
+  {
+    if (cached)
+    {
+      conditionHits++;
+    }
+    else
+    {
+      conditionEvaluations++;
+    }
+  }
+
+  public void splitPoint()
+  {
+    splitPoints++;
+  }
+
+  /**
+   * Record a split point skipped without stemming its right component.
+   */
+  public void skippedSplitPoint()
+  {
+    skippedSplitPoints++;
+  }
+
+  /**
+   * Record a stem candidate the stem automaton rejected before checking
+   * the conditions of its rules.
+   */
+  public void prunedStem()
+  {
+    prunedStems++;
+  }
+
+  /**
+   * Record an analysis stopped early as it ran out of its work or time.
+   */
+  public void truncated()
+  {
+    truncated++;
+  }
+
+  /**
+   * Add the counts of <code>metrics</code> to those of this instance.
+   * @param metrics the metrics to add
+   */
+  public void add(AnalyserMetrics metrics)
+  {
+    words += metrics.words;
+    for(int i = 0; i < counts.length; i++)
+    {
+      counts[i] += metrics.counts[i];
+      nanos[i] += metrics.nanos[i];
+    }
+    dictionaryProbes += metrics.dictionaryProbes;
+    conditionHits += metrics.conditionHits;
+    conditionEvaluations += metrics.conditionEvaluations;
+    splitPoints += metrics.splitPoints;
+    skippedSplitPoints += metrics.skippedSplitPoints;
+    prunedStems += metrics.prunedStems;
+    truncated += metrics.truncated;
+  }
+
+  /**
+   * Set all the counts to 0.
+   */
+  public void reset()
+  {
+    words = 0;
+    for(int i = 0; i < counts.length; i++)
+    {
+      counts[i] = 0;
+      nanos[i] = 0;
+    }
+    dictionaryProbes = 0;
+    conditionHits = 0;
+    conditionEvaluations = 0;
+    splitPoints = 0;
+    skippedSplitPoints = 0;
+    prunedStems = 0;
+    truncated = 0;
+  }
+
+  public long getWords()
+  {
+    return words;
+  }
+
+  /**
+   * Return the number of times <code>phase</code> has been entered.
+   * @param phase the phase
+   * @return the count of the phase
+   */
+  public long getCount(int phase)
+  {
+    return counts[phase];
+  }
+
+  /**
+   * Return the nanoseconds spent in <code>phase</code> itself.
+   * @param phase the phase
+   * @return the time of the phase
+   */
+  public long getNanos(int phase)
+  {
+    return nanos[phase];
+  }
+
+  public long getDictionaryProbes()
+  {
+    return dictionaryProbes;
+  }
+
+  public long getConditionHits()
+  {
+    return conditionHits;
+  }
+
+  public long getConditionEvaluations()
+  {
+    return conditionEvaluations;
+  }
+
+  public long getSplitPoints()
+  {
+    return splitPoints;
+  }
+
+  public long getSkippedSplitPoints()
+  {
+    return skippedSplitPoints;
+  }
+
+  public long getPrunedStems()
+  {
+    return prunedStems;
+  }
+
+  public long getTruncated()
+  {
+    return truncated;
+  }
+
+  public String toString()
+  {
+    StringBuffer sb = new StringBuffer("AnalyserMetrics[");
+    sb.append(words).append(" words");
+    for(int i = 0; i < PHASES.length; i++)
+    {
+      sb.append(", ").append(PHASES[i]).append(' ').append(counts[i]).
+        append('/').append(nanos[i] / 1000).append("us");
+    }
+    sb.append(", probes ").append(dictionaryProbes);
+    sb.append(", conditions ").append(conditionHits).append('/').
+      append(conditionEvaluations);
+    sb.append(", splits ").append(splitPoints).append('/').
+      append(skippedSplitPoints).append(" skipped");
+    sb.append(", pruned stems ").append(prunedStems);
+    sb.append(", truncated ").append(truncated);
+    return sb.append(']').toString();
+  }
+}
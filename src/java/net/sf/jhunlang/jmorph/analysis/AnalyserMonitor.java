@@ -0,0 +1,174 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * AnalyserMonitor collects the {@link AnalyserMetrics} of all the
+ * contexts an analyser analyses words by. The analyser adds the metrics
+ * of a context after each word so the totals are those of the words
+ * analysed completely. The totals can be read by {@link #getTotal()} or
+ * through JMX between {@link #register(String)} and {@link #unregister()}.
+ */
+public class AnalyserMonitor implements AnalyserMonitorMBean
+{
+  /**
+   * The default JMX domain of monitors.
+   */
+  public final static String DOMAIN = "net.sf.jhunlang.jmorph";
+
+  /**
+   * The totals.
+   */
+  protected AnalyserMetrics total = new AnalyserMetrics();
+  /**
+   * The name this monitor is registered by or <code>null</code>.
+   */
+  protected ObjectName objectName;
+
+  /**
+   * Add <code>metrics</code> to the totals and reset it.
+   * @param metrics the metrics of a context
+   */
+  public synchronized void add(AnalyserMetrics metrics)
+  {
+    total.add(metrics);
+    metrics.reset();
+  }
+
+  /**
+   * Return a copy of the totals.
+   * @return the totals
+   */
+  public synchronized AnalyserMetrics getTotal()
+  {
+    AnalyserMetrics copy = new AnalyserMetrics();
+    copy.add(total);
+    return copy;
+  }
+
+  public synchronized void reset()
+  {
+    total.reset();
+  }
+
+  public synchronized long getWords()
+  {
+    return total.getWords();
+  }
+
+  public String[] getPhaseNames()
+  {
+    return AnalyserMetrics.PHASES.clone();
+  }
+
+  public synchronized long[] getPhaseCounts()
+  {
+    long[] counts = new long[AnalyserMetrics.PHASES.length];
+    for(int i = 0; i < counts.length; i++)
+    {
+      counts[i] = total.getCount(i);
+    }
+    return counts;
+  }
+
+  public synchronized long[] getPhaseNanos()
+  {
+    long[] nanos = new long[AnalyserMetrics.PHASES.length];
+    for(int i = 0; i < nanos.length; i++)
+    {
+      nanos[i] = total.getNanos(i);
+    }
+    return nanos;
+  }
+
+  public synchronized long getDictionaryProbes()
+  {
+    return total.getDictionaryProbes();
+  }
+
+  public synchronized long getConditionHits()
+  {
+    return total.getConditionHits();
+  }
+
+  public synchronized long getConditionEvaluations()
+  {
+    return total.getConditionEvaluations();
+  }
+
+  public synchronized long getSplitPoints()
+  {
+    return total.getSplitPoints();
+  }
+
+  public synchronized long getSkippedSplitPoints()
+  {
+    return total.getSkippedSplitPoints();
+  }
+
+  public synchronized long getPrunedStems()
+  {
+    return total.getPrunedStems();
+  }
+
+  public synchronized long getTruncated()
+  {
+    return total.getTruncated();
+  }
+
+  /**
+   * Register this monitor to the platform MBean server as
+   * <code>net.sf.jhunlang.jmorph:type=AnalyserMonitor,name=</code><i>name</i>.
+   * @param name the name of the monitor
+   * A monitor is registered by one name at a time.
+   * @return the object name registered
+   * @throws JMException if registration fails
+   * @exception IllegalStateException if this monitor is registered
+   */
+  public synchronized ObjectName register(String name)
+    throws JMException
+  {
+    if (objectName != null)
+    {
+      throw new IllegalStateException("Registered as " + objectName);
+    }
+    ObjectName on = new ObjectName(
+      DOMAIN + ":type=AnalyserMonitor,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+    objectName = on;
+    return on;
+  }
+
+  /**
+   * Unregister this monitor from the platform MBean server if it is
+   * registered.
+   * @throws JMException if unregistration fails
+   */
+  public synchronized void unregister()
+    throws JMException
+  {
+    if (objectName != null)
+    {
+      ObjectName on = objectName;
+      objectName = null;
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(on);
+    }
+  }
+
+  /**
+   * Return the name this monitor is registered by.
+   * @return the object name or <code>null</code>
+   */
+  public synchronized ObjectName getObjectName()
+  {
+    return objectName;
+  }
+
+  public String toString()
+  {
+    return getTotal().toString();
+  }
+}
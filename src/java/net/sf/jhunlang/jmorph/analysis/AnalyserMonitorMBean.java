@@ -0,0 +1,20 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+/**
+ * The JMX management interface of {@link AnalyserMonitor}.
+ */
+public interface AnalyserMonitorMBean
+{
+  long getWords();
+  String[] getPhaseNames();
+  long[] getPhaseCounts();
+  long[] getPhaseNanos();
+  long getDictionaryProbes();
+  long getConditionHits();
+  long getConditionEvaluations();
+  long getSplitPoints();
+  long getSkippedSplitPoints();
+  long getPrunedStems();
+  long getTruncated();
+  void reset();
+}
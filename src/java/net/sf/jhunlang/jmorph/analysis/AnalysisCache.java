@@ -0,0 +1,446 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.sf.jhunlang.jmorph.analysis.consumer.X;
+
+/**
+ * AnalysisCache is a bounded, thread-safe cache of whole-word analyses.
+ * The key of a cached analysis list is the word together with the
+ * effective parameters of the {@link AnalyserControl} it was analysed by
+ * (depth, {@link X}, compound enabled, min, max and hint) so that the same
+ * cache serves contexts of different controls.<p>
+ * The cache is split to {@link #segments} by the hash of the key; each
+ * segment has a lock, a least recently used order and a frequency sketch
+ * of its own so that threads looking up different words seldom wait for
+ * each other. A full segment admits a new analysis only if its word has
+ * been asked for more often recently than the least recently used word of
+ * the segment, which it then evicts. So words seen once do not push out
+ * the frequent words of Zipfian text. The frequencies are estimated by a
+ * count-min sketch of 4-bit counters which are halved periodically to
+ * forget old history.
+ */
+public class AnalysisCache
+{
+  /**
+   * The number of rows of the frequency sketches.
+   */
+  public final static int SKETCH_DEPTH = 4;
+  /**
+   * The maximum value of a frequency counter.
+   */
+  public final static int MAX_FREQUENCY = 15;
+  /**
+   * Halve the frequency counters of a segment after this many times its
+   * capacity of recorded lookups.
+   */
+  public final static int AGING = 10;
+
+  /**
+   * The segments of this cache.
+   */
+  protected final Segment[] segments;
+  /**
+   * The maximum number of analyses cached.
+   */
+  protected final int capacity;
+
+  /**
+   * Create a new cache of <code>capacity</code> analyses with as many
+   * segments as processors available.
+   * @param capacity the maximum number of cached analyses
+   * @exception IllegalArgumentException if <code>capacity</code> is
+   * not positive
+   */
+  public AnalysisCache(int capacity)
+  {
+    this(capacity, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a new cache of <code>capacity</code> analyses with
+   * <code>concurrency</code> segments rounded up to a power of 2.
+   * @param capacity the maximum number of cached analyses
+   * @param concurrency the number of segments
+   * @exception IllegalArgumentException if <code>capacity</code> is
+   * not positive
+   */
+  public AnalysisCache(int capacity, int concurrency)
+  {
+    if (capacity <= 0)
+    {
+      throw new IllegalArgumentException("" + capacity);
+    }
+    int n = 1;
+    while (n < concurrency && n < capacity)
+    {
+      n <<= 1;
+    }
+    this.capacity = capacity;
+    segments = new Segment[n];
+    for(int i = 0; i < n; i++)
+    {
+      segments[i] = new Segment((capacity + n - 1 - i) / n);
+    }
+  }
+
+  /**
+   * Return the key of <code>word</code> analysed by <code>control</code>.
+   * @param word the word
+   * @param control the control of the analysis
+   * @return the key
+   */
+  public static Object key(String word, AnalyserControl control)
+  {
+    return new Key(word, control);
+  }
+
+  /**
+   * Return a copy of the analyses cached for <code>key</code> or
+   * <code>null</code> if there is none. Record the lookup of
+   * <code>key</code> for the admission of its analyses.
+   * @param key the key returned by {@link #key(String, AnalyserControl)}
+   * @return the list of analyses or <code>null</code>
+   */
+  public List get(Object key)
+  {
+    int hash = hash(key);
+    List analyses = segments[hash & (segments.length - 1)].get(key, hash);
+    return analyses == null ? null : new ArrayList(analyses);
+  }
+
+  /**
+   * Cache a copy of <code>analyses</code> for <code>key</code> if there
+   * is room for it or if it is asked for more often than the least
+   * recently used analyses which it replaces.
+   * @param key the key returned by {@link #key(String, AnalyserControl)}
+   * @param analyses the list of analyses
+   * @return if the analyses have been cached
+   */
+  public boolean put(Object key, List analyses)
+  {
+    int hash = hash(key);
+    return segments[hash & (segments.length - 1)].
+      put(key, hash, new ArrayList(analyses));
+  }
+
+  /**
+   * Remove all cached analyses. Do not reset the counters.
+   */
+  public void clear()
+  {
+    for(int i = 0; i < segments.length; i++)
+    {
+      segments[i].clear();
+    }
+  }
+
+  /**
+   * Return the maximum number of cached analyses.
+   * @return the capacity of this cache
+   */
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Return the number of cached analyses.
+   * @return the size of this cache
+   */
+  public int size()
+  {
+    int size = 0;
+    for(int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        size += segments[i].map.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Return the number of lookups answered from this cache.
+   * @return the number of hits
+   */
+  public long getHits()
+  {
+    long n = 0;
+    for(int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        n += segments[i].hits;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Return the number of lookups not answered from this cache.
+   * @return the number of misses
+   */
+  public long getMisses()
+  {
+    long n = 0;
+    for(int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        n += segments[i].misses;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Return the number of analyses evicted to admit new ones.
+   * @return the number of evictions
+   */
+  public long getEvictions()
+  {
+    long n = 0;
+    for(int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        n += segments[i].evictions;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Return the number of analyses not admitted to a full segment.
+   * @return the number of rejections
+   */
+  public long getRejections()
+  {
+    long n = 0;
+    for(int i = 0; i < segments.length; i++)
+    {
+      synchronized (segments[i])
+      {
+        n += segments[i].rejections;
+      }
+    }
+    return n;
+  }
+
+  public String toString()
+  {
+    long hits = getHits();
+    long misses = getMisses();
+    return "AnalysisCache[" + size() + "/" + capacity +
+      ", hits " + hits + ", misses " + misses +
+      ", evictions " + getEvictions() + ", rejections " + getRejections() +
+      ", hit ratio " +
+      (hits + misses == 0 ? 0 : (100 * hits / (hits + misses))) + "%]";
+  }
+
+  /**
+   * Return the spread hash of <code>key</code>.
+   */
+  protected static int hash(Object key)
+  {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    h *= 0x45d9f3b;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Segment is a least recently used ordered map of analyses guarded by
+   * its own lock with a frequency sketch for admission.
+   */
+  protected static class Segment
+  {
+    /**
+     * The cached analyses in least recently used order.
+     */
+    protected final LinkedHashMap map;
+    /**
+     * The maximum number of analyses in this segment.
+     */
+    protected final int capacity;
+    /**
+     * The counters of the frequency sketch, SKETCH_DEPTH rows of
+     * <code>width</code> counters.
+     */
+    protected final byte[] sketch;
+    /**
+     * The width of the rows of the sketch, a power of 2.
+     */
+    protected final int width;
+    /**
+     * The number of lookups recorded since the last aging.
+     */
+    protected int recorded;
+
+    protected long hits;
+    protected long misses;
+    protected long evictions;
+    protected long rejections;
+
+    Segment(int capacity)
+    {
+      this.capacity = capacity;
+      map = new LinkedHashMap(capacity * 4 / 3 + 1, 0.75f, true);
+      int w = 16;
+      while (w < capacity)
+      {
+        w <<= 1;
+      }
+      width = w;
+      sketch = new byte[SKETCH_DEPTH * width];
+    }
+
+    synchronized List get(Object key, int hash)
+    {
+      record(hash);
+      List analyses = (List)map.get(key);
+      if (analyses == null)
+      {
+        misses++;
+      }
+      else
+      {
+        hits++;
+      }
+      return analyses;
+    }
+
+    synchronized boolean put(Object key, int hash, List analyses)
+    {
+      if (map.containsKey(key) || map.size() < capacity)
+      {
+        map.put(key, analyses);
+        return true;
+      }
+      Iterator it = map.keySet().iterator();
+      Object victim = it.next();
+      if (frequency(hash) <= frequency(AnalysisCache.hash(victim)))
+      {
+        rejections++;
+        return false;
+      }
+      it.remove();
+      evictions++;
+      map.put(key, analyses);
+      return true;
+    }
+
+    synchronized void clear()
+    {
+      map.clear();
+    }
+
+    /**
+     * Return the index of the counter of <code>hash</code> in
+     * <code>row</code>.
+     */
+    int index(int hash, int row)
+    {
+      int h = hash * (0x9e3779b1 + (row << 1));
+      return row * width + ((h ^ (h >>> 15)) & (width - 1));
+    }
+
+    /**
+     * Increment the counters of <code>hash</code> and age the sketch if
+     * it is time to.
+     */
+    void record(int hash)
+    {
+      for(int row = 0; row < SKETCH_DEPTH; row++)
+      {
+        int i = index(hash, row);
+        if (sketch[i] < MAX_FREQUENCY)
+        {
+          sketch[i]++;
+        }
+      }
+      if (++recorded >= AGING * Math.max(capacity, width))
+      {
+        for(int i = 0; i < sketch.length; i++)
+        {
+          sketch[i] >>= 1;
+        }
+        recorded = 0;
+      }
+    }
+
+    /**
+     * Return the estimated frequency of <code>hash</code>.
+     */
+    int frequency(int hash)
+    {
+      int min = MAX_FREQUENCY;
+      for(int row = 0; row < SKETCH_DEPTH; row++)
+      {
+        min = Math.min(min, sketch[index(hash, row)]);
+      }
+      return min;
+    }
+  }
+
+  /**
+   * Key of an analysis: the word and the parameters of the control.
+   */
+  protected static class Key
+  {
+    protected final String word;
+    protected final int depth;
+    protected final X x;
+    protected final boolean compound;
+    protected final int min;
+    protected final int max;
+    protected final int hint;
+    protected final int hashCode;
+
+    Key(String word, AnalyserControl control)
+    {
+      CompoundControl cc = control.getCompoundControl();
+      this.word = word;
+      depth = control.getDepth();
+      x = control.getX();
+      compound = cc.enabled();
+      min = cc.getMin();
+      max = cc.getMax();
+      hint = cc.getHint();
+      int h = word.hashCode();
+      h = 31 * h + depth;
+      h = 31 * h + (x == null ? 0 : x.hashCode());
+      h = 31 * h + (compound ? 1 : 0);
+      h = 31 * h + min;
+      h = 31 * h + max;
+      hashCode = 31 * h + hint;
+    }
+
+    public int hashCode()
+    {
+      return hashCode;
+    }
+
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Key))
+      {
+        return false;
+      }
+      Key k = (Key)o;
+      return hashCode == k.hashCode && word.equals(k.word) &&
+        depth == k.depth && x == k.x && compound == k.compound &&
+        min == k.min && max == k.max && hint == k.hint;
+    }
+
+    public String toString()
+    {
+      return word + "/" + AnalyserControl.DEPTHS[depth] + "/" + x;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchAnalysis holds the results of a batch of tokens analysed by
+ * {@link Analyser#analyseAll(Collection, AnalyserContext, int)}. The tokens
+ * are collapsed into their distinct types in the order of their first
+ * occurrence; each type is analysed once and the tokens of the same type
+ * share its result list.<p>
+ * The result of a type is the list of its {@link AnalysisEntry} instances
+ * unless the owner of the batch replaces it by
+ * {@link #setResult(int, List)} - the lemmatizer stores the lemmas of the
+ * types for instance.
+ */
+public class BatchAnalysis
+{
+  /**
+   * The distinct types in the order of their first occurrence.
+   */
+  protected String[] types;
+  /**
+   * The index in {@link #types} of the type of each token.
+   */
+  protected int[] tokenTypes;
+  /**
+   * The result of each type.
+   */
+  protected List[] results;
+
+  /**
+   * Create a batch of <code>tokens</code> collapsed into their types.
+   * @param tokens the tokens of the batch
+   */
+  public BatchAnalysis(Collection tokens)
+  {
+    Map index = new HashMap();
+    String[] distinct = new String[tokens.size()];
+    tokenTypes = new int[tokens.size()];
+    int n = 0;
+    int i = 0;
+    Iterator it = tokens.iterator();
+    while (it.hasNext())
+    {
+      String token = (String)it.next();
+      Integer type = (Integer)index.get(token);
+      if (type == null)
+      {
+        type = Integer.valueOf(n);
+        index.put(token, type);
+        distinct[n++] = token;
+      }
+      tokenTypes[i++] = type.intValue();
+    }
+    types = new String[n];
+    System.arraycopy(distinct, 0, types, 0, n);
+    results = new List[n];
+  }
+
+  /**
+   * Return the number of tokens in this batch.
+   * @return the number of tokens
+   */
+  public int getTokenCount()
+  {
+    return tokenTypes.length;
+  }
+
+  /**
+   * Return the number of distinct types in this batch.
+   * @return the number of types
+   */
+  public int getTypeCount()
+  {
+    return types.length;
+  }
+
+  /**
+   * Return the type of index <code>type</code>.
+   * @param type the index of the type
+   * @return the type
+   */
+  public String getType(int type)
+  {
+    return types[type];
+  }
+
+  /**
+   * Return the result of the type of index <code>type</code>.
+   * @param type the index of the type
+   * @return the result of the type
+   */
+  public List getResult(int type)
+  {
+    return results[type];
+  }
+
+  /**
+   * Set the result of the type of index <code>type</code>.
+   * @param type the index of the type
+   * @param result the result of the type
+   */
+  public void setResult(int type, List result)
+  {
+    results[type] = result;
+  }
+
+  /**
+   * Return the token of index <code>token</code>.
+   * @param token the index of the token
+   * @return the token
+   */
+  public String getToken(int token)
+  {
+    return types[tokenTypes[token]];
+  }
+
+  /**
+   * Return the result of the token of index <code>token</code>. Tokens of
+   * the same type share the same list.
+   * @param token the index of the token
+   * @return the result of the token
+   */
+  public List get(int token)
+  {
+    return results[tokenTypes[token]];
+  }
+
+  public String toString()
+  {
+    return "BatchAnalysis[" + tokenTypes.length + " tokens, " +
+      types.length + " types]";
+  }
+}
@@ -0,0 +1,277 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.Collection;
+
+import net.sf.jhunlang.jmorph.analysis.consumer.AnalysisConsumer;
+
+/**
+ * ChartCompoundAnalyser decomposes compound words by dynamic programming
+ * over a chart of the substrings of the word. The components tried by
+ * {@link CompoundAnalyserImpl} are all substrings <code>[i,j)</code> of the
+ * word passed to the outermost {@link #compound(String, String,
+ * AnalyserContext, AnalysisConsumer)} call: the left and right components
+ * at each split point, the components of those and so on. The stems and
+ * the decompositions found for a substring are kept in the cell
+ * <code>[i,j)</code> of the chart of the current compound level and number
+ * of components, so each cell is analysed once per word however many
+ * split points lead to it.<p>
+ * {@link CompoundAnalyserImpl} keeps them in small two-generation
+ * {@link Cache} instances hashed by substrings created for each lookup;
+ * long compounds have more substrings than those caches hold, so their
+ * components are analysed again and again.<p>
+ * The chart stands in front of those caches: the cells are filled in the
+ * order {@link CompoundAnalyserImpl} analyses the components, and a cell
+ * missing from the chart is looked up in the caches, so both return the
+ * same analyses. Only complete collections enter the chart; those of a
+ * consumer told to stop early go to the caches only, as they did before.
+ * Words decomposed in the recursion that are not substrings of the
+ * outermost word, such as most stems of affixed components, use the caches
+ * alone. The chart is kept until a different word is decomposed.<p>
+ * Set the system property {@link CompoundAnalyser#CHART} to
+ * <code>true</code> for decomposing by ChartCompoundAnalyser.
+ */
+public class ChartCompoundAnalyser extends CompoundAnalyserImpl
+{
+  /**
+   * The number of cells of a chart.
+   */
+  protected final static int CELLS = (AnalyserContext.MAX_WORD_LENGTH + 1) *
+    (AnalyserContext.MAX_WORD_LENGTH + 1);
+
+  /**
+   * The charts of the stems of the components by compound level and number
+   * of components.
+   */
+  protected Chart[][] stemChart;
+  /**
+   * The charts of the decompositions by compound level and number of
+   * components.
+   */
+  protected Chart[][] compoundChart;
+  /**
+   * The word of the charts.
+   */
+  protected String top;
+  /**
+   * The generation of the charts; cells of other generations are empty.
+   */
+  protected int generation;
+  /**
+   * The index in {@link #top} of the component analysed last or -1.
+   */
+  protected int partOffset = -1;
+
+  /**
+   * Create a new <code>ChartCompoundAnalyser</code> instance using
+   * <code>stemmer</code>.
+   * @param stemmer
+   */
+  public ChartCompoundAnalyser(Analyser stemmer)
+  {
+    super(stemmer);
+  }
+
+  /**
+   * Start a new chart if the outermost call decomposes a word different
+   * from the word of the chart.
+   * @see CompoundAnalyser#compound(String, String, AnalyserContext, AnalysisConsumer)
+   */
+  public boolean compound(String word, String lowerCaseWord,
+    AnalyserContext context, AnalysisConsumer consumer)
+  {
+    if (compoundDepth == 0)
+    {
+      if (!word.equals(top))
+      {
+        top = word.length() <= AnalyserContext.MAX_WORD_LENGTH ? word : null;
+        generation++;
+      }
+      partOffset = top == null ? -1 : 0;
+    }
+    return super.compound(word, lowerCaseWord, context, consumer);
+  }
+
+  protected boolean doCompound(String word, String lowerCaseWord,
+    AnalyserContext context, AnalysisConsumer consumer)
+  {
+    int oldPartOffset = partOffset;
+    try
+    {
+      return super.doCompound(word, lowerCaseWord, context, consumer);
+    }
+    finally
+    {
+      partOffset = oldPartOffset;
+    }
+  }
+
+  /**
+   * Return the index of <code>word</code> in {@link #top} or -1 if it is
+   * not a substring of it. <code>word</code> is the component analysed last
+   * unless it is the stem of an affixed component; the cells of any
+   * substring of the same characters are as good as the caches.
+   * @param word the word to decompose
+   * @return the index of the word in the chart or -1
+   */
+  protected int locate(String word)
+  {
+    if (top == null)
+    {
+      return -1;
+    }
+    if (partOffset >= 0 &&
+        top.regionMatches(partOffset, word, 0, word.length()))
+    {
+      return partOffset;
+    }
+    return top.indexOf(word);
+  }
+
+  protected Collection getCompounds(String word)
+  {
+    int offset = locate(word);
+    if (offset >= 0)
+    {
+      Collection c = chart(compoundChart).get(offset, offset + word.length());
+      if (c != null)
+      {
+        return c;
+      }
+    }
+    return super.getCompounds(word);
+  }
+
+  protected RightConsumer newRightConsumer(String word, String lowerCaseWord,
+    AnalyserContext context, AnalysisConsumer consumer)
+  {
+    return new ChartConsumer(
+      word, lowerCaseWord, context, consumer, locate(word));
+  }
+
+  protected void putCompounds(RightConsumer consumer)
+  {
+    super.putCompounds(consumer);
+    int offset = ((ChartConsumer)consumer).getOffset();
+    if (offset >= 0 && !consumer.rightDone)
+    {
+      chart(compoundChart).put(
+        offset, offset + consumer.word.length(), consumer.collector);
+    }
+  }
+
+  protected Collection getComponentStems(
+    RightConsumer consumer, String w, int start)
+  {
+    int offset = ((ChartConsumer)consumer).getOffset();
+    partOffset = offset < 0 ? -1 : offset + start;
+    if (offset >= 0)
+    {
+      Collection c = chart(stemChart).get(partOffset, partOffset + w.length());
+      if (c != null)
+      {
+        return c;
+      }
+    }
+    return super.getComponentStems(consumer, w, start);
+  }
+
+  protected void putComponentStems(
+    RightConsumer consumer, String w, int start, Collection c)
+  {
+    super.putComponentStems(consumer, w, start, c);
+    int offset = ((ChartConsumer)consumer).getOffset();
+    // the right stems are complete unless the consumer is done, the left
+    // stems unless the left consumer is done
+    boolean complete = c == consumer.rightCollector ?
+      !consumer.rightDone : !consumer.leftConsumer.leftDone;
+    if (offset >= 0 && complete)
+    {
+      chart(stemChart).put(offset + start, offset + start + w.length(), c);
+    }
+  }
+
+  /**
+   * Return the chart of <code>charts</code> for the current compound level
+   * and number of components. Create it if it does not exist.
+   */
+  protected Chart chart(Chart[][] charts)
+  {
+    Chart chart = charts[compoundLevel][wordNum];
+    if (chart == null)
+    {
+      chart = charts[compoundLevel][wordNum] = new Chart();
+    }
+    return chart;
+  }
+
+  protected void init(AnalyserContext context)
+  {
+    if (stemCache == null)
+    {
+      super.init(context);
+      stemChart = new Chart[COMPOUND_LEVEL_ALL + 1][maxWord + 1];
+      compoundChart = new Chart[COMPOUND_LEVEL_ALL + 1][maxWord + 1];
+    }
+  }
+
+  /**
+   * ChartConsumer is the consumer decomposing the word at {@link #offset}
+   * in {@link #top}. Consumers of the components of the word run while the
+   * word is decomposed, so the offset is kept by the consumer.
+   */
+  protected class ChartConsumer extends RightConsumer
+  {
+    /**
+     * The index of the word in {@link #top} or -1 if it is not a
+     * substring of it.
+     */
+    protected int offset;
+    /**
+     * The generation of the charts the offset refers to.
+     */
+    protected int chartGeneration = generation;
+
+    public ChartConsumer(String word, String lowerCaseWord,
+      AnalyserContext context, AnalysisConsumer consumer, int offset)
+    {
+      super(word, lowerCaseWord, context, consumer);
+      this.offset = offset;
+    }
+
+    /**
+     * Return the index of the word in {@link #top} or -1 if it is not a
+     * substring of it or the charts have been started anew for another
+     * word since this consumer was created. The latter happens when the
+     * consumers of cached decompositions decompose other words.
+     * @return the index of the word in the charts or -1
+     */
+    protected int getOffset()
+    {
+      return chartGeneration == generation ? offset : -1;
+    }
+  }
+
+  /**
+   * Chart holds a collection for each substring <code>[i,j)</code> of the
+   * word of the charts. A cell is empty unless it has been filled in the
+   * current {@link #generation}, so charts are not cleared between words.
+   */
+  protected class Chart
+  {
+    protected Collection[] cells = new Collection[CELLS];
+    protected int[] generations = new int[CELLS];
+
+    protected Collection get(int i, int j)
+    {
+      int cell = i * (AnalyserContext.MAX_WORD_LENGTH + 1) + j;
+      return generations[cell] == generation ? cells[cell] : null;
+    }
+
+    protected void put(int i, int j, Collection c)
+    {
+      int cell = i * (AnalyserContext.MAX_WORD_LENGTH + 1) + j;
+      cells[cell] = c;
+      generations[cell] = generation;
+    }
+  }
+}
@@ -11,6 +11,11 @@ public interface CompoundAnalyser
    * System property telling if check legality of decompositions.
    */
   public final static String DONT_CHECK = "compound.check.not";
+  /**
+   * System property telling if decompose by {@link ChartCompoundAnalyser}
+   * instead of {@link CompoundAnalyserImpl}.
+   */
+  public final static String CHART = "compound.chart";
   /**
    * Constant for no compound on substem
    */
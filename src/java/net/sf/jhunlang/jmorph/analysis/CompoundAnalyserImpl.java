@@ -7,10 +7,18 @@ import java.util.ArrayList;
 
 import net.sf.jhunlang.jmorph.DictEntry;
 import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.SplitAutomaton;
 import net.sf.jhunlang.jmorph.analysis.consumer.BasicConsumer;
 import net.sf.jhunlang.jmorph.analysis.consumer.AnalysisConsumer;
 
 /**
+ * Split points no component can start at as told by the
+ * {@link SplitAutomaton} of the dictionaries are skipped without stemming
+ * the right component.<p>
+ * Each split point tried spends a unit of the work of the analysis. When
+ * the analysis runs out of its work or time the decomposition stops and
+ * the collections of decompositions and stems being collected are not
+ * cached, as they may be incomplete.<p>
  * TODO do not split numbers (i.e. if charAt(at) and charAt and charAt(at + 1)
  * are both numbers than continue)
  */
@@ -72,6 +80,10 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
    * </ul>
    */
   protected int compoundLevel;
+  /**
+   * The automaton of the starts of components or <code>null</code>
+   */
+  protected SplitAutomaton automaton;
 
   /**
    * Create a new <code>CompoundAnalyserImpl</code> instance using
@@ -113,6 +125,12 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
     {
       init(context);
       wordNum = maxWord;
+      automaton = stemmer.getDictionaries().getAutomaton();
+      // the automaton tells nothing about components shorter than its own
+      if (automaton != null && minWord < automaton.getMinWord())
+      {
+        automaton = null;
+      }
     }
     return doCompound(word, lowerCaseWord, context, consumer);
   }
@@ -133,7 +151,7 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
 
     compoundDepth++;
 
-    Collection c = compoundCache[compoundLevel][wordNum].getCollection(word);
+    Collection c = getCompounds(word);
     if (c != null)
     {
       compoundDepth--;
@@ -152,17 +170,81 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
     int oldWordNum = wordNum;
 
     RightConsumer rightConsumer =
-      new RightConsumer(word, lowerCaseWord, context, consumer);
+      newRightConsumer(word, lowerCaseWord, context, consumer);
 
     boolean b = compound(rightConsumer, l);
     // restore depth and wordNum, cache decompoisitons
     compoundDepth--;
     wordNum = oldWordNum;
-    compoundCache[compoundLevel][wordNum].
-      putCollection(word, rightConsumer.collector);
+    if (!context.truncated())
+    {
+      putCompounds(rightConsumer);
+    }
     return b;
   }
 
+  /**
+   * Create the consumer decomposing <code>word</code>.
+   */
+  protected RightConsumer newRightConsumer(String word, String lowerCaseWord,
+    AnalyserContext context, AnalysisConsumer consumer)
+  {
+    return new RightConsumer(word, lowerCaseWord, context, consumer);
+  }
+
+  /**
+   * Return the decompositions of <code>word</code> cached for the current
+   * {@link #compoundLevel} and {@link #wordNum} or <code>null</code>.
+   * @param word the word to decompose
+   * @return the cached decompositions or <code>null</code>
+   */
+  protected Collection getCompounds(String word)
+  {
+    return compoundCache[compoundLevel][wordNum].getCollection(word);
+  }
+
+  /**
+   * Cache the decompositions collected by <code>consumer</code> for the
+   * current {@link #compoundLevel} and {@link #wordNum}.
+   * @param consumer the consumer that decomposed its word
+   */
+  protected void putCompounds(RightConsumer consumer)
+  {
+    compoundCache[compoundLevel][wordNum].
+      putCollection(consumer.word, consumer.collector);
+  }
+
+  /**
+   * Return the stems of the component <code>w</code> cached for the current
+   * {@link #compoundLevel} and {@link #wordNum} or <code>null</code>.
+   * <code>w</code> starts at <code>start</code> in the word decomposed by
+   * <code>consumer</code>; it is analysed right after this call if no
+   * stems are cached.
+   * @param consumer the consumer decomposing the word
+   * @param w the component
+   * @param start the index of the component in the word decomposed
+   * @return the cached stems or <code>null</code>
+   */
+  protected Collection getComponentStems(
+    RightConsumer consumer, String w, int start)
+  {
+    return stemCache[compoundLevel][wordNum].getCollection(w);
+  }
+
+  /**
+   * Cache the stems of the component <code>w</code> for the current
+   * {@link #compoundLevel} and {@link #wordNum}.
+   * @param consumer the consumer decomposing the word
+   * @param w the component
+   * @param start the index of the component in the word decomposed
+   * @param c the stems of the component
+   */
+  protected void putComponentStems(
+    RightConsumer consumer, String w, int start, Collection c)
+  {
+    stemCache[compoundLevel][wordNum].putCollection(w, c);
+  }
+
   // try to decompose word to 2 components at every inner position
   protected boolean compound(RightConsumer rightConsumer, int l)
   {
@@ -222,10 +304,14 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
     protected int rightIndex;
     // tells if this consumer found enough decompositions
     protected boolean rightDone;
+    // metrics of the analysis or null
+    protected AnalyserMetrics metrics;
     // collect <left, right> compound decompositions
     protected Collection collector = new ArrayList(1);
     // collect decompositions found for right word
     protected Collection rightCollector;
+    // bit i tells if a component may start at i
+    protected long starts;
 
     // set this as parent consumer of rightcontext
     public RightConsumer(String word, String lowerCaseWord,
@@ -252,11 +338,21 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
       }
 
       last = compoundDepth == 1;
+      metrics = context.getMetrics();
+      starts = automaton == null ? -1L : automaton.starts(lowerCaseWord);
     }
 
     // use stemCache for right word
     protected boolean compound(int at)
     {
+      if (!rightContext.spend())
+      {
+        return true;
+      }
+      if (metrics != null)
+      {
+        metrics.splitPoint();
+      }
       if (Character.getType(word.charAt(at)) == Character.DASH_PUNCTUATION)
       {
         rightIndex = at + 1;
@@ -272,9 +368,20 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
         return false;
       }
       
+      // no component starts at rightIndex
+      if (rightIndex < SplitAutomaton.MAX_POSITIONS &&
+          (starts & (1L << rightIndex)) == 0)
+      {
+        if (metrics != null)
+        {
+          metrics.skippedSplitPoint();
+        }
+        return done();
+      }
+
       leftIndex = at;
       
-      Collection c = stemCache[compoundLevel][wordNum].getCollection(w);
+      Collection c = getComponentStems(this, w, rightIndex);
 
       if (c != null)
       {
@@ -307,9 +414,9 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
         
         boolean b = stemmer.subanalyse(w, lw, rightContext, this) && !all;
 
-        if (rightCollector != null)
+        if (rightCollector != null && !rightContext.truncated())
         {
-          stemCache[compoundLevel][wordNum].putCollection(w, rightCollector);
+          putComponentStems(this, w, rightIndex, rightCollector);
         }
 
         if (b)
@@ -339,7 +446,7 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
         leftConsumer.right = right;
         leftConsumer.leftDone = false;
 
-        Collection c = stemCache[compoundLevel][wordNum].getCollection(w);
+        Collection c = getComponentStems(this, w, 0);
 
         if (c != null)
         {
@@ -370,8 +477,10 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
           boolean b =
             stemmer.subanalyse(w, lw, leftContext, leftConsumer) && !all;
 
-          stemCache[compoundLevel][wordNum].
-            putCollection(w, leftConsumer.leftCollector);
+          if (!leftContext.truncated())
+          {
+            putComponentStems(this, w, 0, leftConsumer.leftCollector);
+          }
 
           if (b)
           {
@@ -429,7 +538,7 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
    * contain caches for each possible "number of component words".
    * @param num the max. number of component words + 1
    */
-  private Cache[][] newCache(int num)
+  protected Cache[][] newCache(int num)
   {
     Cache[][] acache = new Cache[COMPOUND_LEVEL_ALL + 1][num];
     for(int i = 0; i <= COMPOUND_LEVEL_ALL; i++)
@@ -446,7 +555,7 @@ public class CompoundAnalyserImpl implements CompoundAnalyser
    * Initialize this compound stemmer with <code>context</code>
    * @param context the stemming context to initialize with
    */
-  private void init(AnalyserContext context)
+  protected void init(AnalyserContext context)
   {
     if (stemCache == null)
     {
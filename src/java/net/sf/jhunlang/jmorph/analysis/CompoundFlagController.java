@@ -30,11 +30,50 @@ public class CompoundFlagController implements CompoundController
     setFlags(rules);
   }
 
+  /**
+   * Create a controller for the given compound flags.
+   * @param compoundFirst the compound first flag
+   * @param compound the compound flag
+   * @param compoundLast the compound last flag
+   */
+  public CompoundFlagController(
+    char compoundFirst, char compound, char compoundLast)
+  {
+    setFlags(compoundFirst, compound, compoundLast);
+  }
+
   public void setFlags(Rules rules)
   {
-    this.compoundFirst = rules.getCompoundFirst();
-    this.compound = rules.getCompound();
-    this.compoundLast = rules.getCompoundLast();
+    setFlags(
+      rules.getCompoundFirst(), rules.getCompound(), rules.getCompoundLast());
+  }
+
+  /**
+   * Set the compound flags.
+   * @param compoundFirst the compound first flag
+   * @param compound the compound flag
+   * @param compoundLast the compound last flag
+   */
+  public void setFlags(char compoundFirst, char compound, char compoundLast)
+  {
+    this.compoundFirst = compoundFirst;
+    this.compound = compound;
+    this.compoundLast = compoundLast;
+  }
+
+  public char getCompoundFirst()
+  {
+    return compoundFirst;
+  }
+
+  public char getCompound()
+  {
+    return compound;
+  }
+
+  public char getCompoundLast()
+  {
+    return compoundLast;
   }
 
   /**
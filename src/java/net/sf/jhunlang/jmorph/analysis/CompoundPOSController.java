@@ -1,5 +1,6 @@
 package net.sf.jhunlang.jmorph.analysis;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -36,6 +37,16 @@ public class CompoundPOSController extends CompoundFlagController
     lastSet.add(right);
   }
 
+  /**
+   * Return the compound rules: the pairs of affix flags to add and to remove
+   * by the pairs of the parts-of-speech of the left and the right words.
+   * @return the unmodifiable map of the compound rules
+   */
+  public Map getCompounds()
+  {
+    return Collections.unmodifiableMap(compoundMap);
+  }
+
   /**
    * Return if <code>inner</code> can be an inner component of a compound
    * word.
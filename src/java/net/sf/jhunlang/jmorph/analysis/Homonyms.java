@@ -30,34 +30,78 @@ public abstract class Homonyms
   public boolean homonyms(String word, String lowerCaseWord,
       AnalyserContext context, AnalysisConsumer consumer, boolean homonyms)
   {
+    AnalyserMetrics metrics = context.getMetrics();
     if (context.getRoot().homonyms())
     {
-      Object o = dictionary.rawGet(lowerCaseWord);
-      if (o != null)
+      // a dictionary probe spends a unit of work of the analysis
+      if (!context.spend())
       {
-        if (o instanceof DictEntry)
+        return true;
+      }
+      boolean b;
+      if (metrics == null)
+      {
+        b = dictHomonyms(word, lowerCaseWord, consumer, homonyms);
+      }
+      else
+      {
+        metrics.enter(AnalyserMetrics.HOMONYMS);
+        metrics.dictionaryProbe();
+        b = dictHomonyms(word, lowerCaseWord, consumer, homonyms);
+        metrics.exit();
+      }
+      if (b)
+      {
+        return true;
+      }
+    }
+    if (!context.getRoot().compoundEnabled)
+    {
+      return false;
+    }
+    if (metrics == null)
+    {
+      return context.getBase().getCompoundAnalyser().
+        compound(word, lowerCaseWord, context, consumer);
+    }
+    metrics.enter(AnalyserMetrics.COMPOUND);
+    boolean b = context.getBase().getCompoundAnalyser().
+      compound(word, lowerCaseWord, context, consumer);
+    metrics.exit();
+    return b;
+  }
+
+  /**
+   * Look up <code>lowerCaseWord</code> in the dictionaries and pass the
+   * entries admitting <code>word</code> to <code>consumer</code>.
+   * Return <code>true</code> if the consumer tells to stop.
+   */
+  protected boolean dictHomonyms(String word, String lowerCaseWord,
+      AnalysisConsumer consumer, boolean homonyms)
+  {
+    Object o = dictionary.rawGet(lowerCaseWord);
+    if (o != null)
+    {
+      if (o instanceof DictEntry)
+      {
+        if (dictEntry(word, (DictEntry)o, consumer, homonyms))
         {
-          if (dictEntry(word, (DictEntry)o, consumer, homonyms))
-          {
-            return true;
-          }
+          return true;
         }
-        else // o is map of entries
+      }
+      else // o is map of entries
+      {
+        Iterator it = ((Map)o).values().iterator();
+        while (it.hasNext())
         {
-          Iterator it = ((Map)o).values().iterator();
-          while (it.hasNext())
+          if (dictEntry(word, (DictEntry)it.next(), consumer, homonyms))
           {
-            if (dictEntry(word, (DictEntry)it.next(), consumer, homonyms))
-            {
-              return true;
-            }
+            return true;
           }
         }
       }
     }
-    return context.getRoot().compoundEnabled ?
-      context.getBase().getCompoundAnalyser().
-        compound(word, lowerCaseWord, context, consumer) : false;
+    return false;
   }
 
   protected boolean dictEntry(
@@ -0,0 +1,646 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import net.sf.jhunlang.jmorph.AffixEntry;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.Suffix;
+import net.sf.jhunlang.jmorph.SuffixEntry;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.parser.ParseException;
+
+/**
+ * Lexicon is a full-form lexicon: a minimal acyclic finite-state transducer
+ * mapping the inflected forms of the dictionary words to their analyses.
+ * Looking up a form costs a binary search among the transitions of one
+ * state per character; the analyses are built from the codes the final
+ * state leads to without running any rule.<p>
+ * A code of an analysis tells the suffix entry applied, if any, and which
+ * of the dictionary entries of the stem is inflected. The stem is not
+ * stored; it is got back by {@link SuffixEntry#reverse(String)} from the
+ * form. The codes of a form are thus relative to the form so the lemmas
+ * inflected by the same rules share the sets of codes and the final states
+ * of the transducer. The code of an uninflected dictionary entry tells the
+ * entry only. Suffix entries are numbered in the order of the suffixes of
+ * the rules and of their sub rules; the number and the checksum of the
+ * suffix entries in the file must match those of the rules the lexicon is
+ * read for. The entries of a stem are numbered in the order of the word
+ * lists, each entry followed by its homonyms.<p>
+ * A lexicon built by {@link net.sf.jhunlang.jmorph.synth.LexiconBuilder}
+ * with verification holds only forms whose analyses have been found the
+ * same by {@link AnalyserImpl} for each depth up to {@link #getDepth()}
+ * and each of {@link AnalyserControl#XES}; their codes are kept in the
+ * order of the analyser. An unverified lexicon holds all generated forms
+ * and answers controls of any {@link net.sf.jhunlang.jmorph.analysis.consumer.X}
+ * up to {@link AnalyserControl#FIRST_SUFFIX}.<p>
+ * A lexicon is immutable and can be shared by analysers in any threads.
+ */
+public class Lexicon
+{
+  /**
+   * The magic number identifying lexicon files.
+   */
+  public final static int MAGIC = 0x4a4d4c58; // JMLX
+  /**
+   * The version of the file format.
+   */
+  public final static int VERSION = 1;
+  /**
+   * The number of bits of the selector of the dictionary entry in a code.
+   */
+  public final static int SELECTOR_BITS = 8;
+  /**
+   * The largest selector of a dictionary entry.
+   */
+  public final static int MAX_SELECTOR = (1 << SELECTOR_BITS) - 1;
+
+  /**
+   * The rules the lexicon is bound to.
+   */
+  protected final Rules rules;
+  /**
+   * The dictionaries the lexicon is bound to.
+   */
+  protected final Dictionaries dictionaries;
+  /**
+   * The suffix entries by their numbers.
+   */
+  protected final SuffixEntry[] affixes;
+  /**
+   * Tells if the analyses of the forms have been verified.
+   */
+  protected final boolean verified;
+  /**
+   * The depth of analysis the forms have been verified for.
+   */
+  protected final int depth;
+  /**
+   * The number of forms.
+   */
+  protected final int forms;
+  /**
+   * The distinct sets of codes.
+   */
+  protected final int[][] codes;
+  /**
+   * The index of the first transition of each state; the transitions of
+   * state <code>s</code> run up to <code>first[s + 1]</code>.
+   */
+  protected final int[] first;
+  /**
+   * The labels of the transitions, ascending within each state.
+   */
+  protected final char[] labels;
+  /**
+   * The target states of the transitions.
+   */
+  protected final int[] targets;
+  /**
+   * The index of the codes of each final state, -1 for the other states.
+   */
+  protected final int[] values;
+
+  /**
+   * Create a Lexicon bound to <code>rules</code> and
+   * <code>dictionaries</code> of the given transducer. The start state is
+   * state 0.
+   * @param rules the rules
+   * @param dictionaries the dictionaries
+   * @param verified if the analyses have been verified
+   * @param depth the depth of analysis the lexicon answers up to
+   * @param forms the number of forms
+   * @param codes the distinct sets of codes
+   * @param first the index of the first transition of each state and the
+   * number of transitions
+   * @param labels the labels of the transitions
+   * @param targets the targets of the transitions
+   * @param values the index of the codes of each state or -1
+   */
+  public Lexicon(Rules rules, Dictionaries dictionaries, boolean verified,
+    int depth, int forms, int[][] codes, int[] first, char[] labels,
+    int[] targets, int[] values)
+  {
+    this.rules = rules;
+    this.dictionaries = dictionaries;
+    this.verified = verified;
+    this.depth = depth;
+    this.forms = forms;
+    this.codes = codes;
+    this.first = first;
+    this.labels = labels;
+    this.targets = targets;
+    this.values = values;
+    affixes = affixes(rules);
+  }
+
+  /**
+   * Return the suffix entries of <code>rules</code> and of their sub rules
+   * in the order of their numbers.
+   * @param rules the rules
+   * @return the suffix entries
+   */
+  public static SuffixEntry[] affixes(Rules rules)
+  {
+    Map ids = new IdentityHashMap();
+    List affixes = new ArrayList();
+    for(Rules r = rules; r != null; r = r.getSubRules())
+    {
+      Iterator it = r.getSuffixes().iterator();
+      while (it.hasNext())
+      {
+        AffixEntry[] entries = ((Suffix)it.next()).getEntries();
+        for(int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] != null && !ids.containsKey(entries[i]))
+          {
+            ids.put(entries[i], entries[i]);
+            affixes.add(entries[i]);
+          }
+        }
+      }
+    }
+    return (SuffixEntry[])affixes.toArray(new SuffixEntry[affixes.size()]);
+  }
+
+  /**
+   * Return the checksum of <code>affixes</code>.
+   * @param affixes the suffix entries
+   * @return the checksum
+   */
+  public static long checksum(SuffixEntry[] affixes)
+  {
+    long sum = 0;
+    for(int i = 0; i < affixes.length; i++)
+    {
+      sum = 31 * sum + affixes[i].toLongString().hashCode();
+    }
+    return sum;
+  }
+
+  /**
+   * Return the number of words of <code>dictionaries</code>.
+   */
+  protected static int size(Dictionaries dictionaries)
+  {
+    int size = 0;
+    Iterator it = dictionaries.iterator();
+    while (it.hasNext())
+    {
+      size += ((WordList)it.next()).size();
+    }
+    return size;
+  }
+
+  /**
+   * Return the code of the inflexion by the suffix entry numbered
+   * <code>affix</code> of the entry <code>selector</code> of its stem.
+   * @param affix the number of the suffix entry or -1 if uninflected
+   * @param selector the index of the entry among those of its stem
+   * @return the code
+   */
+  public static int code(int affix, int selector)
+  {
+    return ((affix + 1) << SELECTOR_BITS) | selector;
+  }
+
+  /**
+   * Return the number of the suffix entry of <code>code</code> or -1.
+   */
+  public static int affix(int code)
+  {
+    return (code >>> SELECTOR_BITS) - 1;
+  }
+
+  /**
+   * Return the index of the dictionary entry of <code>code</code> among
+   * those of its stem.
+   */
+  public static int selector(int code)
+  {
+    return code & MAX_SELECTOR;
+  }
+
+  /**
+   * Return the dictionary entries of <code>word</code> in the order of
+   * their selectors: the entries of the word lists of
+   * <code>dictionaries</code> whose word is <code>word</code> each followed
+   * by its homonyms.
+   * @param dictionaries the dictionaries
+   * @param word the word
+   * @return the list of entries, empty if <code>word</code> has none
+   */
+  public static List entries(Dictionaries dictionaries, String word)
+  {
+    List entries = new ArrayList(2);
+    String lower = word.toLowerCase();
+    Iterator it = dictionaries.iterator();
+    while (it.hasNext())
+    {
+      Object o = ((WordList)it.next()).rawGet(lower);
+      if (o instanceof Map)
+      {
+        o = ((Map)o).get(word);
+      }
+      if (o != null)
+      {
+        DictEntry entry = (DictEntry)o;
+        if (entry.getWord().equals(word))
+        {
+          entries.add(entry);
+          entries.addAll(entry.getHomonyms());
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Return the rules of this lexicon.
+   */
+  public Rules getRules()
+  {
+    return rules;
+  }
+
+  /**
+   * Return the dictionaries of this lexicon.
+   */
+  public Dictionaries getDictionaries()
+  {
+    return dictionaries;
+  }
+
+  /**
+   * Return if the analyses of the forms have been verified.
+   */
+  public boolean isVerified()
+  {
+    return verified;
+  }
+
+  /**
+   * Return the depth of analysis this lexicon answers up to.
+   */
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  /**
+   * Return the number of forms.
+   */
+  public int getFormCount()
+  {
+    return forms;
+  }
+
+  /**
+   * Return the number of states of the transducer.
+   */
+  public int getStateCount()
+  {
+    return values.length;
+  }
+
+  /**
+   * Return the number of transitions of the transducer.
+   */
+  public int getTransitionCount()
+  {
+    return labels.length;
+  }
+
+  /**
+   * Return the number of distinct sets of codes.
+   */
+  public int getCodeSetCount()
+  {
+    return codes.length;
+  }
+
+  /**
+   * Return if <code>control</code> can be answered by this lexicon.
+   * @param control the control of analysis
+   * @return if the depth and the X of <code>control</code> are covered
+   */
+  public boolean answers(AnalyserControl control)
+  {
+    if (control.getDepth() > depth)
+    {
+      return false;
+    }
+    if (!verified)
+    {
+      return true;
+    }
+    for(int i = 0; i < AnalyserControl.XES.length; i++)
+    {
+      if (control.getX() == AnalyserControl.XES[i])
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return the codes of <code>word</code> or <code>null</code> if it is not
+   * a form of this lexicon.
+   * @param word the form
+   * @return the codes of the form or <code>null</code>
+   */
+  public int[] lookup(CharSequence word)
+  {
+    int s = 0;
+    int length = word.length();
+    for(int i = 0; i < length; i++)
+    {
+      char c = word.charAt(i);
+      int low = first[s];
+      int high = first[s + 1] - 1;
+      s = -1;
+      while (low <= high)
+      {
+        int mid = (low + high) >>> 1;
+        char label = labels[mid];
+        if (label < c)
+        {
+          low = mid + 1;
+        }
+        else if (label > c)
+        {
+          high = mid - 1;
+        }
+        else
+        {
+          s = targets[mid];
+          break;
+        }
+      }
+      if (s < 0)
+      {
+        return null;
+      }
+    }
+    int value = values[s];
+    return value < 0 ? null : codes[value];
+  }
+
+  /**
+   * Return the analyses of <code>word</code> under <code>control</code> or
+   * <code>null</code> if this lexicon does not answer them. The lexicon
+   * does not answer controls deeper than {@link #getDepth()}, words it does
+   * not hold and words whose dictionary entries cannot be found. At
+   * {@link AnalyserControl#FIRST_STEM} the dictionary entries of
+   * <code>word</code> are returned if there are any as the analyser does.
+   * @param word the word to analyse
+   * @param control the control of analysis
+   * @return the list of {@link AnalysisEntry} instances or <code>null</code>
+   */
+  public List analyse(String word, AnalyserControl control)
+  {
+    if (!answers(control))
+    {
+      return null;
+    }
+    int[] codes = lookup(word);
+    if (codes == null)
+    {
+      return null;
+    }
+    boolean stems = false;
+    if (control.getDepth() == AnalyserControl.FIRST_STEM)
+    {
+      for(int i = 0; i < codes.length && !stems; i++)
+      {
+        stems = affix(codes[i]) < 0;
+      }
+    }
+    List analyses = new ArrayList(codes.length);
+    for(int i = 0; i < codes.length; i++)
+    {
+      int affix = affix(codes[i]);
+      if (stems && affix >= 0)
+      {
+        continue;
+      }
+      SuffixEntry suffix = affix < 0 ? null : affixes[affix];
+      DictEntry entry = entry(suffix == null ? word : suffix.reverse(word),
+        selector(codes[i]));
+      if (entry == null)
+      {
+        return null;
+      }
+      analyses.add(suffix == null ?
+        new AnalysisEntry(entry) : new AnalysisEntry(entry, suffix));
+    }
+    return analyses;
+  }
+
+  /**
+   * Return the entry <code>selector</code> of the entries of
+   * <code>word</code> or <code>null</code>.
+   */
+  protected DictEntry entry(String word, int selector)
+  {
+    List entries = entries(dictionaries, word);
+    return selector < entries.size() ? (DictEntry)entries.get(selector) : null;
+  }
+
+  /**
+   * Write this lexicon to <code>out</code>. Do not close <code>out</code>.
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void write(OutputStream out)
+    throws IOException
+  {
+    DataOutputStream dout =
+      new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    dout.writeInt(MAGIC);
+    dout.writeInt(VERSION);
+    dout.writeInt(affixes.length);
+    dout.writeLong(checksum(affixes));
+    dout.writeInt(size(dictionaries));
+    dout.writeBoolean(verified);
+    dout.writeInt(depth);
+    dout.writeInt(forms);
+
+    dout.writeInt(codes.length);
+    for(int i = 0; i < codes.length; i++)
+    {
+      dout.writeInt(codes[i].length);
+      for(int j = 0; j < codes[i].length; j++)
+      {
+        dout.writeInt(codes[i][j]);
+      }
+    }
+    dout.writeInt(values.length);
+    dout.writeInt(labels.length);
+    for(int i = 0; i < values.length; i++)
+    {
+      dout.writeInt(first[i]);
+      dout.writeInt(values[i]);
+    }
+    for(int i = 0; i < labels.length; i++)
+    {
+      dout.writeChar(labels[i]);
+      dout.writeInt(targets[i]);
+    }
+    dout.flush();
+  }
+
+  /**
+   * Write this lexicon to the file <code>file</code>.
+   * @param file the file to write to
+   * @throws IOException if writing fails
+   */
+  public void write(File file)
+    throws IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      write(out);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Read a lexicon for <code>rules</code> and <code>dictionaries</code>
+   * from <code>in</code>.
+   * @param in the stream to read from
+   * @param rules the rules
+   * @param dictionaries the dictionaries
+   * @return the lexicon read
+   * @throws IOException if reading fails
+   * @throws ParseException if the stream is not a lexicon, it has been
+   * written by a different version or for other rules or dictionaries
+   */
+  public static Lexicon read(InputStream in, Rules rules,
+    Dictionaries dictionaries)
+    throws IOException, ParseException
+  {
+    DataInputStream din =
+      new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    if (din.readInt() != MAGIC)
+    {
+      throw new ParseException("Not a lexicon");
+    }
+    int version = din.readInt();
+    if (version != VERSION)
+    {
+      throw new ParseException(
+        "Lexicon version " + version + " instead of " + VERSION);
+    }
+    SuffixEntry[] affixes = affixes(rules);
+    if (din.readInt() != affixes.length || din.readLong() != checksum(affixes))
+    {
+      throw new ParseException("Lexicon of other rules");
+    }
+    if (din.readInt() != size(dictionaries))
+    {
+      throw new ParseException("Lexicon of other dictionaries");
+    }
+    boolean verified = din.readBoolean();
+    int depth = din.readInt();
+    int forms = din.readInt();
+
+    int[][] codes = new int[din.readInt()][];
+    for(int i = 0; i < codes.length; i++)
+    {
+      codes[i] = new int[din.readInt()];
+      for(int j = 0; j < codes[i].length; j++)
+      {
+        codes[i][j] = din.readInt();
+      }
+    }
+    int states = din.readInt();
+    int transitions = din.readInt();
+    int[] first = new int[states + 1];
+    int[] values = new int[states];
+    for(int i = 0; i < states; i++)
+    {
+      first[i] = din.readInt();
+      values[i] = din.readInt();
+    }
+    first[states] = transitions;
+    char[] labels = new char[transitions];
+    int[] targets = new int[transitions];
+    for(int i = 0; i < transitions; i++)
+    {
+      labels[i] = din.readChar();
+      targets[i] = din.readInt();
+    }
+    return new Lexicon(rules, dictionaries, verified, depth, forms, codes,
+      first, labels, targets, values);
+  }
+
+  /**
+   * Read a lexicon for <code>rules</code> and <code>dictionaries</code>
+   * from <code>url</code>.
+   * @see #read(InputStream, Rules, Dictionaries)
+   */
+  public static Lexicon read(URL url, Rules rules, Dictionaries dictionaries)
+    throws IOException, ParseException
+  {
+    InputStream in = url.openStream();
+    try
+    {
+      return read(in, rules, dictionaries);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Read a lexicon for <code>rules</code> and <code>dictionaries</code>
+   * from <code>file</code>.
+   * @see #read(InputStream, Rules, Dictionaries)
+   */
+  public static Lexicon read(File file, Rules rules, Dictionaries dictionaries)
+    throws IOException, ParseException
+  {
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      return read(in, rules, dictionaries);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  public String toString()
+  {
+    return "Lexicon[" + forms + " forms, " + values.length + " states, " +
+      labels.length + " transitions, " + codes.length + " code sets, " +
+      (verified ? "verified to " : "to ") +
+      AnalyserControl.DEPTHS[depth] + "]";
+  }
+}
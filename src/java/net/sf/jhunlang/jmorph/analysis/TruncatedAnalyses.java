@@ -0,0 +1,38 @@
+package net.sf.jhunlang.jmorph.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * TruncatedAnalyses is the list of analyses returned by
+ * {@link AnalyserImpl#analyse(String, AnalyserContext)} when the analysis
+ * has run out of the work budget or the time limit of its
+ * {@link AnalyserControl}. It holds the {@link AnalysisEntry} instances
+ * found until the analysis stopped; the word may have more analyses.
+ * Truncated analyses are cached neither by the analysis cache nor by the
+ * negative cache.
+ */
+public class TruncatedAnalyses extends ArrayList
+{
+  private final static long serialVersionUID = 1L;
+
+  /**
+   * Create a list of the analyses found by a truncated analysis.
+   * @param analyses the analyses found
+   */
+  public TruncatedAnalyses(Collection analyses)
+  {
+    super(analyses);
+  }
+
+  /**
+   * Return if <code>analyses</code> have been found by a truncated
+   * analysis.
+   * @param analyses the list returned by an analyser
+   * @return if the analysis has been truncated
+   */
+  public static boolean truncated(Collection analyses)
+  {
+    return analyses instanceof TruncatedAnalyses;
+  }
+}
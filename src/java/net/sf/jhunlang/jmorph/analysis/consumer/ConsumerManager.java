@@ -13,6 +13,11 @@ public class ConsumerManager
   protected CrossInflexionConsumer crossConsumer;
 
   protected ConsumerManager subManager;
+  /**
+   * The consumer handed out last; the parent of the consumers of the sub
+   * manager.
+   */
+  protected AnalysisConsumer current;
 
   /**
    * The affix cache of this context
@@ -36,9 +41,19 @@ public class ConsumerManager
     affixCache.setSuffix(b);
   }
 
+  /**
+   * Set the manager of the sub context. The sub context may be created
+   * after consumers have been handed out, so the consumer handed out last
+   * is made the parent of the consumers of <code>subManager</code>.
+   * @param subManager the manager of the sub context
+   */
   public void setSubManager(ConsumerManager subManager)
   {
     this.subManager = subManager;
+    if (subManager != null && current != null)
+    {
+      subManager.setParentConsumer(current);
+    }
   }
 
   public void setLevel(int level)
@@ -79,6 +94,7 @@ public class ConsumerManager
 
   protected void setParent(AnalysisConsumer consumer)
   {    
+    current = consumer;
     if (subManager != null)
     {
       subManager.setParentConsumer(consumer);
@@ -28,7 +28,6 @@ import javax.swing.SpinnerNumberModel;
 import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 
-import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
 import net.sf.jhunlang.jmorph.analysis.CompoundControl;
 import net.sf.jhunlang.jmorph.analysis.Analysis;
 import net.sf.jhunlang.jmorph.analysis.IStem;
@@ -39,7 +38,6 @@ import net.sf.jhunlang.jmorph.analysis.consumer.X;
 
 import net.sf.jhunlang.jmorph.factory.Loader;
 
-import net.sf.jhunlang.jmorph.util.BoundedHashtable;
 import net.sf.jhunlang.jmorph.util.app.WordViewer;
 
 /**
@@ -104,8 +102,6 @@ public class Morph extends JFrame implements ActionListener
    */
   protected AnalyserContext context;
   
-  protected BoundedHashtable cache = new BoundedHashtable(3, 2);
-
   protected int pu;
   protected int pminWord;
   protected int pmaxWord;
@@ -230,7 +226,6 @@ public class Morph extends JFrame implements ActionListener
       control =
         new AnalyserControl(new CompoundControl(minWord, maxWord), u, xx);
       context = new AnalyserContext(control);
-      cache.clear();
     }
     stems.stem(w, context);
   }
@@ -291,12 +286,8 @@ public class Morph extends JFrame implements ActionListener
       }
       else
       {
-        List analyses = (List)cache.get(word);
-        if (analyses == null)
-        {
-          analyses = analyser.analyse(word, context);
-          //cache.put(word, analyses);
-        }
+        // repeated words are answered by the analysis cache if switched on
+        List analyses = analyser.analyse(word, context);
         Iterator it = analyses.iterator();
         while (it.hasNext())
         {
@@ -326,7 +317,7 @@ public class Morph extends JFrame implements ActionListener
   {
     Loader loader = new Loader();
     loader.load(args);
-    Analyser analyser = new AnalyserImpl(loader.getRules(), loader.getDic());
+    Analyser analyser = loader.createAnalyser();
     new Morph(analyser).setVisible(true);
   }
 }
\ No newline at end of file
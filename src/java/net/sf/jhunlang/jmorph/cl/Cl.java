@@ -1,6 +1,7 @@
 package net.sf.jhunlang.jmorph.cl;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -30,6 +31,21 @@ public abstract class Cl extends Loader
    * Property name for the output file. 
    */
   public final static String OUTPUT = "output";
+  /**
+   * Property name for the number of worker threads. If it is greater than
+   * 1 then the lines are processed in parallel by a {@link Pipeline}; the
+   * output keeps the order of the lines.
+   */
+  public final static String THREADS = "threads";
+  /**
+   * Property name for the maximum number of lines per batch handed to a
+   * worker thread.
+   */
+  public final static String BATCH = "batch";
+  /**
+   * The default maximum number of lines per batch.
+   */
+  public final static int DEFAULT_BATCH = 256;
   
   /**
    * @return return the {@link #DEFAULT_ENCODING}.
@@ -44,11 +60,22 @@ public abstract class Cl extends Loader
    * input and output respectively.
    */
   protected String encoding = System.getProperty(ENCODING, DEFAULT_ENCODING);
+  /**
+   * The number of worker threads; lines are processed one after the other
+   * by the calling thread unless it is greater than 1.
+   */
+  protected int threads = Integer.getInteger(THREADS, 1).intValue();
+  /**
+   * The maximum number of lines per batch handed to a worker thread.
+   */
+  protected int batch = Integer.getInteger(BATCH, DEFAULT_BATCH).intValue();
   
   protected int count;
   /**
    * Read words from <code>reader</code>, one per line and call process them
-   * by calling {@link #process(String, PrintWriter)}. 
+   * by calling {@link #process(String, PrintWriter)}. If {@link #threads}
+   * is greater than 1 then process them in parallel by a {@link Pipeline}
+   * of that many workers returned by {@link #fork()}.
    * @param reader the reader to read lines from 
    * @param p the print writer to pass to {@link #process(String, PrintWriter)}
    * @throws IOException
@@ -56,6 +83,11 @@ public abstract class Cl extends Loader
   public void run(BufferedReader reader, PrintWriter p)
     throws IOException
   {
+    if (threads > 1)
+    {
+      count += new Pipeline(this, threads, batch).run(reader, p);
+      return;
+    }
     String line;
     while((line = reader.readLine()) != null)
     {
@@ -96,15 +128,17 @@ public abstract class Cl extends Loader
         new InputStreamReader(new FileInputStream(input), encoding));
     }
     
+    // the pipeline flushes whenever it waits for input
+    boolean autoFlush = threads <= 1;
     if (output == null)
     {
-      writer =
-        new PrintWriter(new OutputStreamWriter(System.out, encoding), true); 
+      writer = new PrintWriter(new BufferedWriter(
+        new OutputStreamWriter(System.out, encoding)), autoFlush); 
     }
     else
     {
-      writer = new PrintWriter(
-        new OutputStreamWriter(new FileOutputStream(output), encoding), true);       
+      writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(output), encoding)), autoFlush);       
     }
 long start = System.currentTimeMillis();    
     run(reader, writer);
@@ -116,6 +150,19 @@ long now = System.currentTimeMillis();
     writer.close();
   }
   
+  /**
+   * Return the instance processing lines in a worker thread of the
+   * {@link Pipeline}. Each worker thread calls the instance returned to it
+   * only, so an instance with its own mutable state, such as an
+   * analyser context, need not be thread safe. This implementation returns
+   * this instance; subclasses with mutable state override it.
+   * @return the instance processing lines in a worker thread
+   */
+  protected Cl fork()
+  {
+    return this;
+  }
+
   /**
    * @return return the character encoding.
    */
@@ -26,7 +26,13 @@ public class JSpell extends Cl
     throws IOException, ParseException 
   {
     load(args);  
-    analyser = new AnalyserImpl(rules, dic);
+    AnalyserImpl impl = createAnalyser();
+    // let the worker threads borrow contexts of their own
+    if (threads > 1 && impl.getContextPool() == null)
+    {
+      impl.setConcurrent(threads);
+    }
+    analyser = impl;
     run();
   }
 
@@ -4,7 +4,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Iterator;
 
-import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.Analyser;
 import net.sf.jhunlang.jmorph.lemma.Lemma;
 import net.sf.jhunlang.jmorph.lemma.Lemmatizer;
 import net.sf.jhunlang.jmorph.lemma.LemmatizerImpl;
@@ -18,6 +18,8 @@ import net.sf.jhunlang.jmorph.parser.ParseException;
 public class Lem extends Cl
 {  
     
+    protected Analyser analyser;
+
     protected Lemmatizer lemmatizer;
     
     protected boolean stripDerivates;
@@ -36,7 +38,8 @@ public class Lem extends Cl
             }
         }
         load(args);
-        lemmatizer = new LemmatizerImpl(new AnalyserImpl(rules, dic));
+        analyser = createAnalyser();
+        lemmatizer = new LemmatizerImpl(analyser);
         run();
   }
   
@@ -52,6 +55,18 @@ public class Lem extends Cl
   }
 
 
+  /**
+   * Return a Lem sharing the analyser of this instance with a lemmatizer,
+   * and so an analyser context, of its own.
+   */
+  protected Cl fork() {
+    Lem fork = new Lem();
+    fork.analyser = analyser;
+    fork.lemmatizer = new LemmatizerImpl(analyser);
+    fork.stripDerivates = stripDerivates;
+    return fork;
+  }
+
   protected void process(String word, PrintWriter p) {
     Iterator  lemmas = lemmatizer.lemmatize(word, stripDerivates).iterator ();
     while(lemmas.hasNext()) {
@@ -8,7 +8,6 @@ import java.util.List;
 import net.sf.jhunlang.jmorph.analysis.Analyser;
 import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
 import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
-import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
 import net.sf.jhunlang.jmorph.analysis.AnalysisEntry;
 import net.sf.jhunlang.jmorph.parser.ParseException;
 
@@ -33,16 +32,26 @@ public class Morph extends Cl
   protected int notword;
   
   protected long start;
+  /**
+   * The instance counting the words; forks count by the instance they are
+   * forked from.
+   */
+  protected Morph counter = this;
   
   public void process(String word, PrintWriter p)
+  {
+    List analyses = analyser.analyse(word, context);    
+    counter.count(analyses.size() == 0, p);
+  }
+
+  protected synchronized void count(boolean none, PrintWriter p)
   {
     if (count == 0)
     {
       start = System.currentTimeMillis();
     }
     count++;
-    List analyses = analyser.analyse(word, context);    
-    if (analyses.size() == 0)
+    if (none)
     {
       notword++;
     }    
@@ -99,6 +108,20 @@ public class Morph extends Cl
     }
   }
   
+  /**
+   * Return a Morph sharing the analyser and the counts of this instance
+   * with an analyser context of its own.
+   */
+  protected Cl fork()
+  {
+    Morph fork = new Morph();
+    fork.analyser = analyser;
+    fork.context = new AnalyserContext(context.getControl());
+    fork.analysisType = analysisType;
+    fork.counter = counter;
+    return fork;
+  }
+  
   public void configureAndRun(String[] args)
     throws IOException, ParseException 
   {    
@@ -111,7 +134,7 @@ public class Morph extends Cl
       s == null ? AnalyserControl.DEFAULT_DEPTH : Integer.parseInt(s);
     AnalyserControl control = new AnalyserControl(depth);
     context = new AnalyserContext(control);
-    analyser = new AnalyserImpl(rules, dic);
+    analyser = createAnalyser();
     run();
   }
   
@@ -0,0 +1,366 @@
+package net.sf.jhunlang.jmorph.cl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pipeline processes the lines read by a {@link Cl} tool in parallel while
+ * keeping their order in the output. It runs in three stages:
+ * <ul>
+ *   <li>the calling thread reads the lines and groups them into batches of
+ *   at most {@link #batchSize} lines; a batch is closed early when no more
+ *   input is ready, so interactive use is not held up</li>
+ *   <li>{@link #threads} worker threads process the batches, each by its own
+ *   tool instance returned by {@link Cl#fork()} and each into a buffer of
+ *   its own</li>
+ *   <li>a writer thread writes the buffers in the order of the batches
+ *   and flushes whenever it has to wait for the next batch</li>
+ * </ul>
+ * At most {@link #limit} batches are read but not yet written; the reader
+ * waits when the limit is reached so neither the queue of batches nor the
+ * buffers of the batches done out of order grow without bound.<p>
+ * If processing a line fails then the reader stops and the failure is
+ * thrown by {@link #run(BufferedReader, PrintWriter)} once the batches read
+ * so far have been written.
+ */
+public class Pipeline
+{
+  /**
+   * The tool the workers are forked from.
+   */
+  protected Cl cl;
+  /**
+   * The number of worker threads.
+   */
+  protected int threads;
+  /**
+   * The maximum number of lines per batch.
+   */
+  protected int batchSize;
+  /**
+   * The maximum number of batches read but not yet written.
+   */
+  protected int limit;
+  /**
+   * The batches read but not yet taken by a worker.
+   */
+  protected LinkedList queue = new LinkedList();
+  /**
+   * The batches processed but not yet written by their sequence numbers.
+   */
+  protected Map done = new HashMap();
+  /**
+   * The number of batches read but not yet written.
+   */
+  protected int inFlight;
+  /**
+   * The first failure of a worker or <code>null</code>.
+   */
+  protected volatile Throwable failure;
+
+  /**
+   * Create a pipeline running <code>threads</code> workers forked from
+   * <code>cl</code> on batches of at most <code>batchSize</code> lines.
+   * @param cl the tool processing the lines
+   * @param threads the number of worker threads
+   * @param batchSize the maximum number of lines per batch
+   */
+  public Pipeline(Cl cl, int threads, int batchSize)
+  {
+    this.cl = cl;
+    this.threads = Math.max(1, threads);
+    this.batchSize = Math.max(1, batchSize);
+    limit = 4 * this.threads;
+  }
+
+  /**
+   * Read lines from <code>reader</code>, process the non-empty ones in
+   * parallel and write their results to <code>p</code> in the order of the
+   * lines.
+   * @param reader the reader to read lines from
+   * @param p the writer to write the results to
+   * @return the number of non-empty lines processed
+   * @throws IOException if reading fails or processing a line fails
+   */
+  public int run(BufferedReader reader, final PrintWriter p)
+    throws IOException
+  {
+    Thread[] workers = new Thread[threads];
+    for(int i = 0; i < threads; i++)
+    {
+      final Cl worker = cl.fork();
+      workers[i] = new Thread("pipeline-worker-" + i)
+      {
+        public void run()
+        {
+          work(worker);
+        }
+      };
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+    Thread writer = new Thread("pipeline-writer")
+    {
+      public void run()
+      {
+        write(p);
+      }
+    };
+    writer.setDaemon(true);
+    writer.start();
+
+    int count = 0;
+    int seq = 0;
+    try
+    {
+      Batch batch;
+      while ((batch = read(reader, seq)) != null)
+      {
+        count += batch.lines.size();
+        if (!submit(batch))
+        {
+          break;
+        }
+        seq++;
+      }
+    }
+    finally
+    {
+      // the end of input passes the workers and goes to the writer directly
+      synchronized (this)
+      {
+        for(int i = 0; i < threads; i++)
+        {
+          queue.addLast(new Batch(-1));
+        }
+        done.put(Integer.valueOf(seq), new Batch(seq));
+        notifyAll();
+      }
+      try
+      {
+        writer.join();
+        for(int i = 0; i < threads; i++)
+        {
+          workers[i].join();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    p.flush();
+    if (failure != null)
+    {
+      if (failure instanceof IOException)
+      {
+        throw (IOException)failure;
+      }
+      if (failure instanceof RuntimeException)
+      {
+        throw (RuntimeException)failure;
+      }
+      if (failure instanceof Error)
+      {
+        throw (Error)failure;
+      }
+      IOException ioe = new IOException(failure.toString());
+      ioe.initCause(failure);
+      throw ioe;
+    }
+    return count;
+  }
+
+  /**
+   * Read the next batch of non-empty, trimmed lines. The batch ends when
+   * it is full or when reading more would block.
+   * @param reader the reader to read from
+   * @param seq the sequence number of the batch
+   * @return the batch or <code>null</code> at the end of input
+   */
+  protected Batch read(BufferedReader reader, int seq)
+    throws IOException
+  {
+    Batch batch = new Batch(seq);
+    String line;
+    while (batch.lines.size() < batchSize && (line = reader.readLine()) != null)
+    {
+      line = line.trim();
+      if (line.length() > 0)
+      {
+        batch.lines.add(line);
+      }
+      if (batch.lines.size() > 0 && !reader.ready())
+      {
+        break;
+      }
+    }
+    return batch.lines.size() == 0 ? null : batch;
+  }
+
+  /**
+   * Queue <code>batch</code> for the workers. Wait while {@link #limit}
+   * batches are in flight.
+   * @param batch the batch to queue
+   * @return false if a worker has failed
+   */
+  protected synchronized boolean submit(Batch batch)
+    throws IOException
+  {
+    while (inFlight >= limit && failure == null)
+    {
+      try
+      {
+        wait();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    if (failure != null)
+    {
+      return false;
+    }
+    inFlight++;
+    queue.addLast(batch);
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * Take batches from the queue and process their lines by
+   * <code>worker</code> until the end of input.
+   * @param worker the tool instance of this worker
+   */
+  protected void work(Cl worker)
+  {
+    while (true)
+    {
+      Batch batch;
+      synchronized (this)
+      {
+        while (queue.size() == 0)
+        {
+          try
+          {
+            wait();
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+        }
+        batch = (Batch)queue.removeFirst();
+      }
+      if (batch.seq < 0)
+      {
+        return;
+      }
+      StringWriter buffer = new StringWriter();
+      PrintWriter p = new PrintWriter(buffer);
+      try
+      {
+        if (failure == null)
+        {
+          for(int i = 0; i < batch.lines.size(); i++)
+          {
+            worker.process((String)batch.lines.get(i), p);
+          }
+        }
+      }
+      catch (Throwable t)
+      {
+        synchronized (this)
+        {
+          if (failure == null)
+          {
+            failure = t;
+          }
+        }
+      }
+      p.flush();
+      batch.output = buffer.toString();
+      batch.lines = null;
+      synchronized (this)
+      {
+        done.put(Integer.valueOf(batch.seq), batch);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Write the output of the batches in their order until the end of input.
+   * Flush <code>p</code> whenever the next batch is not done yet.
+   * @param p the writer to write to
+   */
+  protected void write(PrintWriter p)
+  {
+    for(int seq = 0; ; seq++)
+    {
+      Integer key = Integer.valueOf(seq);
+      boolean ready;
+      synchronized (this)
+      {
+        ready = done.containsKey(key);
+      }
+      if (!ready)
+      {
+        // flush without the monitor so the workers are not held up
+        p.flush();
+      }
+      Batch batch;
+      synchronized (this)
+      {
+        while (!done.containsKey(key))
+        {
+          try
+          {
+            wait();
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+        }
+        batch = (Batch)done.remove(key);
+      }
+      if (batch.output == null)
+      {
+        return;
+      }
+      p.write(batch.output);
+      synchronized (this)
+      {
+        inFlight--;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * A numbered batch of lines and their output. A batch without output
+   * marks the end of input.
+   */
+  protected static class Batch
+  {
+    protected int seq;
+    protected List lines = new ArrayList();
+    protected String output;
+
+    protected Batch(int seq)
+    {
+      this.seq = seq;
+    }
+  }
+}
@@ -11,6 +11,7 @@ import java.net.URL;
 
 import net.sf.jhunlang.jmorph.Dictionaries;
 import net.sf.jhunlang.jmorph.Hypothetiser;
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.Rules;
 import net.sf.jhunlang.jmorph.WordList;
 import net.sf.jhunlang.jmorph.analysis.Analyser;
@@ -253,9 +254,37 @@ public class JMorphFactory
   {
     Rules rules = buildRules(adef[0]); 
     Dictionaries dicts = buildDictionaries(adef);
+    Model.prepare(rules, dicts);
     return createAnalyser(rules, dicts);
   }
   
+  /**
+   * Build and return the frozen {@link Model} for <code>adef</adef>.
+   * The rules and the dictionaries are built with a new {@link Registry}
+   * bound to the current thread.
+   * @param adef the definitions of the affix rules and the dictionaries
+   * @return the built model
+   * @throws IOException if reading either the affix file or a dictionary file
+   * fails
+   * @throws ParseException if either the specified affix reader or a
+   * dictionary reader throws it
+   */
+  public Model buildModel(Definition[] adef)
+    throws IOException, ParseException
+  {
+    Registry old = Registry.setCurrent(new Registry());
+    try
+    {
+      Rules rules = buildRules(adef[0]); 
+      Dictionaries dicts = buildDictionaries(adef);
+      return new Model(rules, dicts);
+    }
+    finally
+    {
+      Registry.setCurrent(old);
+    }
+  }
+
   /**
    * Create and return a Lemmatizer for <code>adef</adef>.
    * The first element of <code>adef</adef> specifies the affix rules,
@@ -294,7 +323,74 @@ public class JMorphFactory
       WordList wl = (WordList)adef[i].read();
       dicts.add(wl);
     }
-    return dicts.size() > 0 ? dicts : new Hypothetiser();
+    if (dicts.size() == 0)
+    {
+      return new Hypothetiser();
+    }
+    dicts.buildFilter();
+    return dicts;
+  }
+
+  /**
+   * Build and return an Analyser for the model image read from
+   * <code>imageURL</code>.
+   * @param imageURL the URL of the image written by {@link ModelImage}
+   * @return the created Analyser
+   * @throws IOException if reading the image fails
+   * @throws ParseException if <code>imageURL</code> is not an image of
+   * the current {@link ModelImage#VERSION}
+   */
+  public Analyser buildFromImage(URL imageURL)
+    throws IOException, ParseException
+  {
+    ModelImage image = ModelImage.read(imageURL);
+    Model.prepare(image.getRules(), image.getDictionaries());
+    return createAnalyser(image.getRules(), image.getDictionaries());
+  }
+
+  /**
+   * Read the model image from <code>imageURL</code> with a new
+   * {@link Registry} bound to the current thread and return it as a frozen
+   * {@link Model}.
+   * @param imageURL the URL of the image written by {@link ModelImage}
+   * @return the model read
+   * @throws IOException if reading the image fails
+   * @throws ParseException if <code>imageURL</code> is not an image of
+   * the current {@link ModelImage#VERSION}
+   */
+  public Model buildModelFromImage(URL imageURL)
+    throws IOException, ParseException
+  {
+    Registry old = Registry.setCurrent(new Registry());
+    try
+    {
+      ModelImage image = ModelImage.read(imageURL);
+      return new Model(image.getRules(), image.getDictionaries());
+    }
+    finally
+    {
+      Registry.setCurrent(old);
+    }
+  }
+
+  /**
+   * Build the affix rules and dictionaries specified in <code>adef</code>
+   * with their automata and write them as a model image to
+   * <code>image</code>.
+   * @param adef the definitions of the affix rules and the dictionaries
+   * @param image the file to write the image to
+   * @throws IOException if reading an affix or dictionary file or writing
+   * the image fails
+   * @throws ParseException if the affix reader or a dictionary reader
+   * throws it
+   */
+  public void writeImage(Definition[] adef, File image)
+    throws IOException, ParseException
+  {
+    Rules rules = buildRules(adef[0]); 
+    Dictionaries dicts = buildDictionaries(adef);
+    Model.prepare(rules, dicts);
+    new ModelImage(rules, dicts).write(image);
   }
 
   /**
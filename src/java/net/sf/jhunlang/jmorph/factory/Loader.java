@@ -5,16 +5,35 @@ import java.io.IOException;
 import java.net.URL;
 
 import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.Lexicon;
 import net.sf.jhunlang.jmorph.parser.ParseException;
 
 public class Loader
 {
   public final static String DEF_URL = "hu.def"; //"resource/hu.def";
+  /**
+   * System property for the model image file {@link #load(String[])} loads
+   * instead of the definition.
+   */
+  public final static String IMAGE = "model.image";
+  /**
+   * System property for the file of a {@link Lexicon} of the model. If it
+   * is set then the lexicon is read once the model is loaded and handed to
+   * the analysers created by {@link #createAnalyser()} and by the models
+   * returned by {@link #loadModel(String[])}.
+   */
+  public final static String LEXICON = "model.lexicon";
     
   protected Definition[] adef;
   protected Rules rules;
   protected Dictionaries dic;
+  /**
+   * The lexicon of the loaded model or <code>null</code>
+   */
+  protected Lexicon lexicon;
   
   public Loader()
   {}
@@ -72,12 +91,50 @@ public class Loader
     dic = fac.buildDictionaries(adef);
   }
 
+  /**
+   * Load the model given by the command line parameters. The first
+   * parameter, if any, is the definition file; the bundled {@link #DEF_URL}
+   * is loaded otherwise. If the {@link #IMAGE} system property is set, the
+   * model image written by {@link ModelImage} to the file it names is
+   * loaded instead.
+   * @param args the command line parameters
+   */
   public void load(String[] args)
     throws IOException, ParseException 
   {
+    String image = System.getProperty(IMAGE);
+    if (image != null)
+    {
+      loadImage(new File(image).toURI().toURL());
+      return;
+    }
     JMorphFactory fac = read(args);
     rules = fac.buildRules(adef[0]);
     dic = fac.buildDictionaries(adef);
+    Model.prepare(rules, dic);
+    loadLexicon();
+  }
+
+  /**
+   * Load the model given by the command line parameters as
+   * {@link #load(String[])} does with a new {@link Registry} bound to the
+   * current thread and return it frozen.
+   * @param args the command line parameters
+   * @return the loaded model
+   */
+  public Model loadModel(String[] args)
+    throws IOException, ParseException 
+  {
+    Registry old = Registry.setCurrent(new Registry());
+    try
+    {
+      load(args);
+      return new Model(rules, dic, lexicon);
+    }
+    finally
+    {
+      Registry.setCurrent(old);
+    }
   }
 
   public void load(URL url)
@@ -86,6 +143,47 @@ public class Loader
     JMorphFactory fac = read(url);
     rules = fac.buildRules(adef[0]);
     dic = fac.buildDictionaries(adef);
+    Model.prepare(rules, dic);
+    loadLexicon();
+  }
+
+  /**
+   * Load the rules and the dictionaries from the model image at
+   * <code>url</code>.
+   * @param url the URL of the image
+   */
+  public void loadImage(URL url)
+    throws IOException, ParseException 
+  {
+    ModelImage image = ModelImage.read(url);
+    rules = image.getRules();
+    dic = image.getDictionaries();
+    Model.prepare(rules, dic);
+    loadLexicon();
+  }
+
+  /**
+   * Read the lexicon of the loaded model from the file given by the
+   * {@link #LEXICON} system property if it is set.
+   * @throws ParseException if the file is not a lexicon of the model
+   */
+  protected void loadLexicon()
+    throws IOException, ParseException 
+  {
+    String file = System.getProperty(LEXICON);
+    lexicon = file == null ? null : Lexicon.read(new File(file), rules, dic);
+  }
+
+  /**
+   * Create an analyser of the loaded model answering the forms of the
+   * loaded lexicon if any.
+   * @return the created analyser
+   */
+  public AnalyserImpl createAnalyser()
+  {
+    AnalyserImpl analyser = new AnalyserImpl(rules, dic);
+    analyser.setLexicon(lexicon);
+    return analyser;
   }
 
   /**
@@ -111,4 +209,12 @@ public class Loader
   {
     return rules;
   }
+
+  /**
+   * @return return the lexicon.
+   */
+  public Lexicon getLexicon()
+  {
+    return lexicon;
+  }
 }
@@ -0,0 +1,166 @@
+package net.sf.jhunlang.jmorph.factory;
+
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.Registry;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.analysis.Analyser;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.CompoundControl;
+import net.sf.jhunlang.jmorph.analysis.Lexicon;
+
+/**
+ * Model is a loaded {@link Rules} and {@link Dictionaries} pair built once
+ * and frozen. The filter and the automata of the dictionaries are built
+ * before freezing, so a Model is immutable apart from the flags interned
+ * in its {@link Registry} by analysis, and it can be published to and
+ * shared by analysers running in any threads.<p>
+ * Models loaded by {@link JMorphFactory#buildModel(Definition[])},
+ * {@link JMorphFactory#buildModelFromImage(java.net.URL)} and
+ * {@link Loader#loadModel(String[])} have a registry of their own, so
+ * models may be loaded concurrently and loading does not disturb analysis
+ * with other models. A model may carry a {@link Lexicon} read once for it
+ * and shared by all its analysers.
+ */
+public class Model
+{
+  /**
+   * The frozen rules.
+   */
+  protected final Rules rules;
+  /**
+   * The frozen dictionaries.
+   */
+  protected final Dictionaries dictionaries;
+  /**
+   * The registry of the rules.
+   */
+  protected final Registry registry;
+  /**
+   * The lexicon of the model or <code>null</code>.
+   */
+  protected final Lexicon lexicon;
+
+  /**
+   * Create a Model for <code>rules</code> and <code>dictionaries</code>
+   * without a lexicon.
+   * @param rules the loaded rules
+   * @param dictionaries the loaded dictionaries
+   * @see #Model(Rules, Dictionaries, Lexicon)
+   */
+  public Model(Rules rules, Dictionaries dictionaries)
+  {
+    this(rules, dictionaries, null);
+  }
+
+  /**
+   * Create a Model for <code>rules</code>, <code>dictionaries</code> and
+   * <code>lexicon</code>. Build the filter and the automata of
+   * <code>dictionaries</code> unless they have been built and freeze both.
+   * @param rules the loaded rules
+   * @param dictionaries the loaded dictionaries
+   * @param lexicon the lexicon of the rules and the dictionaries or
+   * <code>null</code>
+   * @exception IllegalArgumentException if <code>lexicon</code> is of other
+   * rules or dictionaries
+   */
+  public Model(Rules rules, Dictionaries dictionaries, Lexicon lexicon)
+  {
+    if (lexicon != null && (lexicon.getRules() != rules ||
+        lexicon.getDictionaries() != dictionaries))
+    {
+      throw new IllegalArgumentException("Lexicon of other model " + lexicon);
+    }
+    prepare(rules, dictionaries);
+    rules.freeze();
+    dictionaries.freeze();
+    this.rules = rules;
+    this.dictionaries = dictionaries;
+    registry = rules.getRegistry();
+    this.lexicon = lexicon;
+  }
+
+  /**
+   * Build the filter and the automata of <code>dictionaries</code> unless
+   * they have been built or <code>dictionaries</code> is frozen. Called by
+   * the loaders once loading is done, before the dictionaries are shared by
+   * analysers. The automaton of the starts of compound components is built
+   * for the minimum component length of <code>rules</code>, or
+   * {@link CompoundControl#DEFAULT_MIN} if the rules set none.
+   * @param rules the loaded rules
+   * @param dictionaries the loaded dictionaries
+   */
+  public static void prepare(Rules rules, Dictionaries dictionaries)
+  {
+    if (dictionaries.isFrozen())
+    {
+      return;
+    }
+    if (dictionaries.getFilter() == null)
+    {
+      dictionaries.buildFilter();
+    }
+    if (dictionaries.getAutomaton() == null)
+    {
+      int min = rules.getMinWord();
+      dictionaries.buildAutomaton(rules,
+        min > 0 ? min : CompoundControl.DEFAULT_MIN);
+    }
+    if (dictionaries.getStemAutomaton() == null)
+    {
+      dictionaries.buildStemAutomaton(rules);
+    }
+  }
+
+  /**
+   * Return the rules of this model.
+   * @return the frozen rules
+   */
+  public Rules getRules()
+  {
+    return rules;
+  }
+
+  /**
+   * Return the dictionaries of this model.
+   * @return the frozen dictionaries
+   */
+  public Dictionaries getDictionaries()
+  {
+    return dictionaries;
+  }
+
+  /**
+   * Return the registry of this model.
+   * @return the registry
+   */
+  public Registry getRegistry()
+  {
+    return registry;
+  }
+
+  /**
+   * Return the lexicon of this model if any.
+   * @return the lexicon or <code>null</code>
+   */
+  public Lexicon getLexicon()
+  {
+    return lexicon;
+  }
+
+  /**
+   * Create and return an Analyser for this model answering the forms of
+   * its lexicon if any.
+   * @return the created analyser
+   */
+  public Analyser createAnalyser()
+  {
+    AnalyserImpl analyser = new AnalyserImpl(rules, dictionaries);
+    analyser.setLexicon(lexicon);
+    return analyser;
+  }
+
+  public String toString()
+  {
+    return "Model[" + rules + ", " + dictionaries + "]";
+  }
+}
@@ -0,0 +1,235 @@
+package net.sf.jhunlang.jmorph.factory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import net.sf.jhunlang.jmorph.AffixFlags;
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.ImageReader;
+import net.sf.jhunlang.jmorph.ImageWriter;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.parser.ParseException;
+
+/**
+ * ModelImage is the precompiled binary form of a model: the fully built
+ * {@link Rules} (with all recursion levels, affix entry maps, conditions and
+ * flags) and the {@link Dictionaries} (with resolved roots and reverse roots
+ * and the automata built for them). Loading an image skips parsing the affix
+ * and dictionary files and building the automata.<p>
+ * An image starts with the {@link #MAGIC} number and the {@link #VERSION} of
+ * the format followed by the flag capacity and the records of the rules and
+ * the dictionaries written by {@link ImageWriter}. Images written by a
+ * different version are rejected. The records are plain data read by
+ * {@link ImageReader}; no classes are resolved by name or instantiated by
+ * reflection while reading. Registry backed instances like
+ * {@link AffixFlags} are interned in the current
+ * {@link net.sf.jhunlang.jmorph.Registry} while reading, so instances loaded
+ * from an image can be compared by identity just like those built from
+ * text. The flag capacity is set on that registry.<p>
+ * Images are loaded explicitly by {@link Loader#loadImage(URL)} and
+ * {@link JMorphFactory#buildModelFromImage(URL)}, or by
+ * {@link Loader#load(String[])} if the {@link Loader#IMAGE} system property
+ * is set.<p>
+ * Usage of the compile step:
+ * <pre>
+ *   java net.sf.jhunlang.jmorph.factory.ModelImage [definition] image
+ * </pre>
+ */
+public class ModelImage
+{
+  /**
+   * The magic number identifying image files.
+   */
+  public final static int MAGIC = 0x4a4d5048; // JMPH
+  /**
+   * The version of the image format. Change it whenever the records
+   * written by {@link ImageWriter} change.
+   */
+  public final static int VERSION = 7;
+
+  /**
+   * The rules of the model.
+   */
+  protected Rules rules;
+  /**
+   * The dictionaries of the model.
+   */
+  protected Dictionaries dictionaries;
+
+  /**
+   * Create a ModelImage for <code>rules</code> and <code>dictionaries</code>.
+   * @param rules the rules
+   * @param dictionaries the dictionaries
+   */
+  public ModelImage(Rules rules, Dictionaries dictionaries)
+  {
+    this.rules = rules;
+    this.dictionaries = dictionaries;
+  }
+
+  /**
+   * Return the rules of this image.
+   * @return the rules
+   */
+  public Rules getRules()
+  {
+    return rules;
+  }
+
+  /**
+   * Return the dictionaries of this image.
+   * @return the dictionaries
+   */
+  public Dictionaries getDictionaries()
+  {
+    return dictionaries;
+  }
+
+  /**
+   * Write this image to <code>out</code>. Do not close <code>out</code>.
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void write(OutputStream out)
+    throws IOException
+  {
+    DataOutputStream dout =
+      new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    dout.writeInt(MAGIC);
+    dout.writeInt(VERSION);
+    dout.writeInt(AffixFlags.getFlagCapacity());
+    new ImageWriter(dout).write(rules, dictionaries);
+    dout.flush();
+  }
+
+  /**
+   * Write this image to the file <code>file</code>.
+   * @param file the file to write to
+   * @throws IOException if writing fails
+   */
+  public void write(File file)
+    throws IOException
+  {
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      write(out);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Read an image from <code>in</code>.
+   * @param in the stream to read from
+   * @return the image read
+   * @throws IOException if reading fails
+   * @throws ParseException if the stream is not an image, it has been
+   * written by a different version or its records are invalid
+   */
+  public static ModelImage read(InputStream in)
+    throws IOException, ParseException
+  {
+    DataInputStream din =
+      new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    readHeader(din);
+    AffixFlags.setFlagCapacity(din.readInt());
+
+    ImageReader reader = new ImageReader(din);
+    try
+    {
+      reader.read();
+    }
+    catch (IndexOutOfBoundsException ioobx)
+    {
+      throw new ParseException("Invalid image", ioobx);
+    }
+    catch (ClassCastException ccx)
+    {
+      throw new ParseException("Invalid image", ccx);
+    }
+    Dictionaries dictionaries = reader.getDictionaries();
+    dictionaries.buildFilter();
+    return new ModelImage(reader.getRules(), dictionaries);
+  }
+
+  /**
+   * Read an image from <code>url</code>.
+   * @param url the URL of the image
+   * @return the image read
+   * @throws IOException if reading fails
+   * @throws ParseException if <code>url</code> is not an image or it has been
+   * written by a different version
+   */
+  public static ModelImage read(URL url)
+    throws IOException, ParseException
+  {
+    InputStream in = url.openStream();
+    try
+    {
+      return read(in);
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  private static void readHeader(DataInputStream in)
+    throws IOException, ParseException
+  {
+    if (in.readInt() != MAGIC)
+    {
+      throw new ParseException("Not an image");
+    }
+    int version = in.readInt();
+    if (version != VERSION)
+    {
+      throw new ParseException(
+        "Image version " + version + " instead of " + VERSION);
+    }
+  }
+
+  /**
+   * Compile the model specified by the definition file to an image.
+   * The command line parameters are the definition file (the bundled
+   * {@link Loader#DEF_URL} if omitted) and the image file to write.
+   * @param args the command line parameters
+   */
+  public static void main(String[] args)
+    throws Exception
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: ModelImage [definition] image");
+      System.exit(2);
+    }
+
+    String[] defArgs = new String[args.length - 1];
+    System.arraycopy(args, 0, defArgs, 0, defArgs.length);
+
+    long start = System.currentTimeMillis();
+    Loader loader = new Loader();
+    loader.load(defArgs);
+    long loaded = System.currentTimeMillis();
+
+    File file = new File(args[args.length - 1]);
+    new ModelImage(loader.getRules(), loader.getDic()).write(file);
+    long written = System.currentTimeMillis();
+
+    System.out.println("Parsed model in " + (loaded - start) + " ms, " +
+      "wrote " + file.length() + " bytes to " + file + " in " +
+      (written - loaded) + " ms");
+  }
+}
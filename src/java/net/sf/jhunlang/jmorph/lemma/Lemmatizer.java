@@ -12,8 +12,11 @@
  */
 
 package net.sf.jhunlang.jmorph.lemma;
+import java.util.Collection;
 import java.util.List;
 
+import net.sf.jhunlang.jmorph.analysis.BatchAnalysis;
+
 /**
  * Simplified jmorph component working as a lemmatiser.
  */
@@ -27,4 +30,13 @@ public interface Lemmatizer
    * @return the List of {@link Lemma}'s for word <code>w</code>
    */
   public List lemmatize(String w, boolean stripDerivates);    
+  /**
+   * Return the lemmas of a batch of tokens; each distinct type of the tokens
+   * is lemmatized once. The results of the returned batch are the Lists of
+   * {@link Lemma}'s of the tokens.
+   * @param words the tokens
+   * @param stripDerivates if derivatives should be stripped off
+   * @return the lemmas of the tokens
+   */
+  public BatchAnalysis lemmatizeAll(Collection words, boolean stripDerivates);
 }
@@ -3,6 +3,7 @@
  */
 package net.sf.jhunlang.jmorph.lemma;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -13,6 +14,7 @@ import net.sf.jhunlang.jmorph.analysis.Analyser;
 import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
 import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
 import net.sf.jhunlang.jmorph.analysis.AnalysisEntry;
+import net.sf.jhunlang.jmorph.analysis.BatchAnalysis;
 import net.sf.jhunlang.jmorph.util.Comparables;
 
 /**
@@ -40,7 +42,43 @@ public class LemmatizerImpl implements Lemmatizer
 
   public List lemmatize(final String word, boolean stripDerivates)
   {
-    List anals = analyser.analyse(word, analyserContext);
+    return lemmas(analyser.analyse(word, analyserContext), stripDerivates);
+  }
+
+  public BatchAnalysis lemmatizeAll(Collection words, boolean stripDerivates)
+  {
+    return lemmatizeAll(words, stripDerivates, 1);
+  }
+
+  /**
+   * Return the lemmas of a batch of tokens. The analyser analyses each
+   * distinct type of the tokens once, by <code>parallelism</code> threads
+   * at most; the results of the returned batch are the lemmas of the types.
+   * @param words the tokens
+   * @param stripDerivates if derivatives should be stripped off
+   * @param parallelism the number of threads analysing the types
+   * @return the lemmas of the tokens
+   */
+  public BatchAnalysis lemmatizeAll(Collection words, boolean stripDerivates,
+    int parallelism)
+  {
+    BatchAnalysis batch =
+      analyser.analyseAll(words, analyserContext, parallelism);
+    for(int i = 0; i < batch.getTypeCount(); i++)
+    {
+      batch.setResult(i, lemmas(batch.getResult(i), stripDerivates));
+    }
+    return batch;
+  }
+
+  /**
+   * Return the list of {@link Lemma}'s of the analyses <code>anals</code>.
+   * @param anals the analyses of a word
+   * @param stripDerivates if derivatives should be stripped off
+   * @return the lemmas of the analyses
+   */
+  protected List lemmas(List anals, boolean stripDerivates)
+  {
 		
 	// return empyt list if no analysis found
 	if(anals.size() == 0)
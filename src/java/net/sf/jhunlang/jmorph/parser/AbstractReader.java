@@ -1,6 +1,7 @@
 package net.sf.jhunlang.jmorph.parser;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,7 +13,10 @@ import net.sf.jhunlang.jmorph.factory.Definition;
 
 /**
  * AbstractReader implements the common part of
- * {@link AffixReader} and {@link DictionaryReader}
+ * {@link AffixReader} and {@link DictionaryReader}.<p>
+ * Readers that can parse a {@link ByteScanner} read files of the encodings
+ * it supports by {@link #read(ByteScanner)} instead of a character stream
+ * unless {@link #SCAN} is set to <code>false</code>.
  */
 public abstract class AbstractReader
 {
@@ -20,11 +24,21 @@ public abstract class AbstractReader
    * The default encoding for the test.
    */
   public final static String DEFAULT_ENCODING = "ISO-8859-2";
+  /**
+   * System property telling whether to read files by a {@link ByteScanner}
+   * where possible. The default is <code>true</code>.
+   */
+  public final static String SCAN = "reader.scan";
 
   /**
    * The definition of this reader.
    */
   protected Definition definition;
+  /**
+   * Tells whether to read files by a {@link ByteScanner} where possible.
+   */
+  protected boolean scan =
+    Boolean.valueOf(System.getProperty(SCAN, "true")).booleanValue();
 
   public void setDefinition(Definition definition)
   {
@@ -36,6 +50,38 @@ public abstract class AbstractReader
     return definition;
   }
 
+  public boolean getScan()
+  {
+    return scan;
+  }
+
+  public void setScan(boolean scan)
+  {
+    this.scan = scan;
+  }
+
+  /**
+   * Return if files of <code>encoding</code> are to be read by a
+   * {@link ByteScanner}.
+   * @param encoding the character encoding of the file
+   * @return if {@link #scan} is set, this reader can parse a
+   * {@link ByteScanner} and the scanner supports <code>encoding</code>
+   */
+  protected boolean scan(String encoding)
+  {
+    return scan && scans() && ByteScanner.supports(encoding);
+  }
+
+  /**
+   * Return if this reader can parse a {@link ByteScanner}. This
+   * implementation returns <code>false</code>.
+   * @return if {@link #read(ByteScanner)} is implemented
+   */
+  protected boolean scans()
+  {
+    return false;
+  }
+
   /**
    * Read from the given inputstream using the given character encoding.
    * @param sourceUrl the source url
@@ -48,6 +94,10 @@ public abstract class AbstractReader
   public Object read(URL sourceUrl, String encoding)
     throws IOException, ParseException
   {
+    if (scan(encoding))
+    {
+      return read(ByteScanner.open(sourceUrl, encoding));
+    }
     InputStream in = sourceUrl.openStream();
     try
     {
@@ -75,6 +125,10 @@ public abstract class AbstractReader
   public Object read(String filename, String encoding)
     throws IOException, ParseException
   {
+    if (scan(encoding))
+    {
+      return read(ByteScanner.open(new File(filename), encoding));
+    }
     FileInputStream in = new FileInputStream(filename);
     try
     {
@@ -116,4 +170,18 @@ public abstract class AbstractReader
    */
   public abstract Object read(BufferedReader reader)
     throws IOException, ParseException;
+
+  /**
+   * Read and parse the lines of <code>scanner</code>. Readers returning
+   * true from {@link #scans()} must override this implementation throwing
+   * ParseException.
+   * @param scanner the scanner of the file
+   * @exception IOException if an IO error occurs while reading
+   * @exception ParseException if a syntax error occurs while parsing
+   */
+  public Object read(ByteScanner scanner)
+    throws IOException, ParseException
+  {
+    throw new ParseException("Cannot scan " + scanner);
+  }
 }
@@ -52,6 +52,39 @@ public class AffixReader extends AbstractReader implements AffixConstants
    */
   public Object read(BufferedReader reader)
     throws IOException, ParseException
+  {
+    return read(reader, null);
+  }
+
+  /**
+   * Read affix definitions from the lines of <code>scanner</code> and build
+   * rules. The lines are decoded by the scanner instead of a character
+   * stream.
+   * @param scanner the scanner of the affix file
+   * @throws IOException if an IO error occurs while reading
+   * @throws ParseException if a syntax error occurs while parsing
+   */
+  public Object read(ByteScanner scanner)
+    throws IOException, ParseException
+  {
+    return read(null, scanner);
+  }
+
+  /**
+   * Return true: the affix file can be read by a {@link ByteScanner}.
+   * @return true
+   */
+  protected boolean scans()
+  {
+    return true;
+  }
+
+  /**
+   * Read affix definitions from the lines of either <code>reader</code>
+   * or <code>scanner</code> and build rules.
+   */
+  protected Object read(BufferedReader reader, ByteScanner scanner)
+    throws IOException, ParseException
   {
     Parser parser = new Parser();
     rules = createRules();
@@ -61,7 +94,7 @@ public class AffixReader extends AbstractReader implements AffixConstants
     skipping = true;
     try
     {
-      while ((line = reader.readLine()) != null)
+      while ((line = readLine(reader, scanner)) != null)
       {
         parser.setLine(line);
         line = comment(parser);
@@ -75,7 +108,7 @@ public class AffixReader extends AbstractReader implements AffixConstants
           int size = affix.getEntries().length;
           for(int i = 0; i < size;)
           {
-            parser.setLine(reader.readLine());
+            parser.setLine(readLine(reader, scanner));
             if ((line = comment(parser)).length() == 0)
             {
               continue;
@@ -106,6 +139,16 @@ public class AffixReader extends AbstractReader implements AffixConstants
     }
   }
 
+  /**
+   * Return the next line of <code>reader</code> if not <code>null</code>
+   * or that of <code>scanner</code>.
+   */
+  private static String readLine(BufferedReader reader, ByteScanner scanner)
+    throws IOException
+  {
+    return reader != null ? reader.readLine() : scanner.readLine();
+  }
+
   public void done()
   {
     rules.done();
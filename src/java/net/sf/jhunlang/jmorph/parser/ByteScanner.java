@@ -0,0 +1,501 @@
+package net.sf.jhunlang.jmorph.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.net.URL;
+import java.net.URLDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * ByteScanner scans the lines of a file of a single-byte character encoding
+ * directly in a {@link ByteBuffer}, memory-mapped for local files. The
+ * scanner does not decode the lines it skips; the words and flags kept by
+ * the readers are decoded from the bytes of the current line by a table of
+ * the 256 characters of the encoding.<p>
+ * Encodings mapping the bytes 0 to 127 to the same characters, like
+ * ISO-8859-2, are supported. Bytes of ASCII separators, whitespace and
+ * markers are compared to the characters themselves. Lines end as in
+ * {@link java.io.BufferedReader#readLine()}; whitespace is what
+ * {@link java.util.StringTokenizer} takes as delimiter by default.<p>
+ * The scanner reads the buffer by absolute gets only, so scanners created
+ * by {@link #duplicate()} may scan the same buffer in several threads.
+ */
+public class ByteScanner
+{
+  /**
+   * The characters of the bytes.
+   */
+  protected final char[] table;
+  /**
+   * The bytes to scan.
+   */
+  protected final ByteBuffer buffer;
+  /**
+   * The number of bytes to scan.
+   */
+  protected final int limit;
+  /**
+   * The index of the first byte of the current line.
+   */
+  protected int start;
+  /**
+   * The index of the byte after the current line without its terminator.
+   */
+  protected int end;
+  /**
+   * The index of the first byte of the next line.
+   */
+  protected int next;
+  /**
+   * The number of the current line, 0 before the first line.
+   */
+  protected int lineNumber;
+  /**
+   * The buffer of the characters decoded into Strings.
+   */
+  protected char[] chars = new char[256];
+
+  /**
+   * Create a ByteScanner for <code>buffer</code> of
+   * <code>encoding</code>.
+   * @param buffer the bytes to scan
+   * @param encoding the character encoding of the bytes
+   * @exception UnsupportedEncodingException if the encoding is not
+   * supported
+   */
+  public ByteScanner(ByteBuffer buffer, String encoding)
+    throws UnsupportedEncodingException
+  {
+    table = table(encoding);
+    if (table == null)
+    {
+      throw new UnsupportedEncodingException(encoding);
+    }
+    this.buffer = buffer;
+    limit = buffer.limit();
+  }
+
+  /**
+   * Create a ByteScanner scanning the buffer of <code>scanner</code> from
+   * its current line.
+   */
+  protected ByteScanner(ByteScanner scanner)
+  {
+    table = scanner.table;
+    buffer = scanner.buffer;
+    limit = scanner.limit;
+    start = scanner.start;
+    end = scanner.end;
+    next = scanner.next;
+    lineNumber = scanner.lineNumber;
+  }
+
+  /**
+   * Return if files of <code>encoding</code> can be scanned.
+   * @param encoding the character encoding
+   * @return if <code>encoding</code> is supported
+   */
+  public static boolean supports(String encoding)
+  {
+    return table(encoding) != null;
+  }
+
+  /**
+   * Return the characters of the 256 bytes of <code>encoding</code> or
+   * <code>null</code> if it is not a single-byte encoding mapping the bytes
+   * 0 to 127 to the same characters.
+   */
+  protected static char[] table(String encoding)
+  {
+    Charset charset;
+    try
+    {
+      charset = Charset.forName(encoding);
+      if (!charset.canEncode() ||
+          charset.newEncoder().maxBytesPerChar() != 1)
+      {
+        return null;
+      }
+    }
+    catch (Exception e)
+    {
+      return null;
+    }
+    byte[] bytes = new byte[256];
+    for(int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = (byte)i;
+    }
+    char[] table = new String(bytes, charset).toCharArray();
+    if (table.length != bytes.length)
+    {
+      return null;
+    }
+    for(int i = 0; i < 128; i++)
+    {
+      if (table[i] != i)
+      {
+        return null;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Return a ByteScanner for the file at <code>url</code>. Local files are
+   * memory-mapped; other sources are read into a buffer.
+   * @param url the url of the file
+   * @param encoding the character encoding of the file
+   * @exception IOException if an IO error occurs while opening or reading
+   * the file
+   */
+  public static ByteScanner open(URL url, String encoding)
+    throws IOException
+  {
+    if ("file".equals(url.getProtocol()))
+    {
+      return open(new File(URLDecoder.decode(url.getPath(), "UTF-8")),
+        encoding);
+    }
+    InputStream in = url.openStream();
+    try
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] bytes = new byte[8192];
+      int n;
+      while ((n = in.read(bytes)) != -1)
+      {
+        out.write(bytes, 0, n);
+      }
+      return new ByteScanner(ByteBuffer.wrap(out.toByteArray()), encoding);
+    }
+    finally
+    {
+      try
+      {
+        in.close();
+      }
+      catch (Throwable t)
+      {}
+    }
+  }
+
+  /**
+   * Return a ByteScanner for the memory-mapped <code>file</code>.
+   * @param file the file
+   * @param encoding the character encoding of the file
+   * @exception IOException if an IO error occurs while opening or mapping
+   * the file
+   */
+  public static ByteScanner open(File file, String encoding)
+    throws IOException
+  {
+    FileInputStream in = new FileInputStream(file);
+    try
+    {
+      FileChannel channel = in.getChannel();
+      return new ByteScanner(
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+        encoding);
+    }
+    finally
+    {
+      try
+      {
+        in.close();
+      }
+      catch (Throwable t)
+      {}
+    }
+  }
+
+  /**
+   * Return a scanner of the same bytes positioned at the current line of
+   * this scanner.
+   * @return the duplicate of this scanner
+   */
+  public ByteScanner duplicate()
+  {
+    return new ByteScanner(this);
+  }
+
+  /**
+   * Advance to the next line. Return false at the end of the bytes.
+   * @return if there is a next line
+   */
+  public boolean nextLine()
+  {
+    if (next >= limit)
+    {
+      start = end = limit;
+      return false;
+    }
+    start = next;
+    int i = start;
+    while (i < limit)
+    {
+      byte b = buffer.get(i);
+      if (b == '\n' || b == '\r')
+      {
+        break;
+      }
+      i++;
+    }
+    end = i;
+    if (i < limit)
+    {
+      // \r\n ends a line as \r and \n do
+      i += buffer.get(i) == '\r' && i + 1 < limit &&
+        buffer.get(i + 1) == '\n' ? 2 : 1;
+    }
+    next = i;
+    lineNumber++;
+    return true;
+  }
+
+  /**
+   * Advance to the next line and return it decoded or return
+   * <code>null</code> at the end of the bytes.
+   * @return the next line or <code>null</code>
+   */
+  public String readLine()
+  {
+    return nextLine() ? line() : null;
+  }
+
+  /**
+   * Set the current line to the bytes from <code>start</code> to
+   * <code>end</code>. Lines read by another scanner of the same bytes can
+   * be scanned again this way.
+   * @param start the index of the first byte of the line
+   * @param end the index of the byte after the line
+   * @param lineNumber the number of the line
+   */
+  public void setLine(int start, int end, int lineNumber)
+  {
+    this.start = start;
+    this.end = end;
+    this.lineNumber = lineNumber;
+  }
+
+  /**
+   * Return the index of the first byte of the current line.
+   */
+  public int getLineStart()
+  {
+    return start;
+  }
+
+  /**
+   * Return the index of the byte after the current line.
+   */
+  public int getLineEnd()
+  {
+    return end;
+  }
+
+  /**
+   * Return the number of the current line.
+   */
+  public int getLineNumber()
+  {
+    return lineNumber;
+  }
+
+  /**
+   * Return if the current line consists of whitespace only i.e. if the
+   * trimmed line is empty.
+   * @return if the current line is blank
+   */
+  public boolean isBlank()
+  {
+    for(int i = start; i < end; i++)
+    {
+      if ((buffer.get(i) & 0xff) > ' ')
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return if the byte at <code>i</code> is a delimiter of tokens.
+   */
+  protected boolean delimiter(int i)
+  {
+    switch (buffer.get(i))
+    {
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\r':
+      case '\f':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Return the index of the first token of the current line at or after
+   * <code>from</code> or the end of the line if there is no more token.
+   * @param from the index to start from
+   * @return the index of the next token
+   */
+  public int skip(int from)
+  {
+    while (from < end && delimiter(from))
+    {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * Return the index of the byte after the token of the current line
+   * starting at <code>from</code>.
+   * @param from the index of the first byte of the token
+   * @return the end of the token
+   */
+  public int token(int from)
+  {
+    while (from < end && !delimiter(from))
+    {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * Return the index of the first <code>c</code> between <code>from</code>
+   * and <code>to</code> or -1 if there is none. <code>c</code> must be an
+   * ASCII character.
+   * @param c the character to look for
+   * @param from the index to start from
+   * @param to the index to stop at
+   * @return the index of <code>c</code> or -1
+   */
+  public int indexOf(char c, int from, int to)
+  {
+    for(int i = from; i < to; i++)
+    {
+      if (buffer.get(i) == c)
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Return the character of the byte at <code>i</code>.
+   * @param i the index of the byte
+   * @return the character of the byte
+   */
+  public char charAt(int i)
+  {
+    return table[buffer.get(i) & 0xff];
+  }
+
+  /**
+   * Return the characters of the bytes from <code>from</code> to
+   * <code>to</code>.
+   * @param from the index of the first byte
+   * @param to the index after the last byte
+   * @return the decoded characters
+   */
+  public char[] decodeChars(int from, int to)
+  {
+    char[] chars = new char[to - from];
+    for(int i = 0; i < chars.length; i++)
+    {
+      chars[i] = table[buffer.get(from + i) & 0xff];
+    }
+    return chars;
+  }
+
+  /**
+   * Return the String of the bytes from <code>from</code> to
+   * <code>to</code>.
+   * @param from the index of the first byte
+   * @param to the index after the last byte
+   * @return the decoded String
+   */
+  public String decode(int from, int to)
+  {
+    int length = to - from;
+    if (length > chars.length)
+    {
+      chars = new char[Math.max(length, 2 * chars.length)];
+    }
+    for(int i = 0; i < length; i++)
+    {
+      chars[i] = table[buffer.get(from + i) & 0xff];
+    }
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Return the tokens of the current line between <code>from</code> and
+   * <code>to</code> separated by single spaces as
+   * {@link Parser#remainder(java.util.StringTokenizer)} does.
+   * @param from the index to start from
+   * @param to the index to stop at
+   * @return the tokens
+   */
+  public String tokens(int from, int to)
+  {
+    while (from < to && delimiter(from))
+    {
+      from++;
+    }
+    while (to > from && delimiter(to - 1))
+    {
+      to--;
+    }
+    if (from == to)
+    {
+      return "";
+    }
+    if (to - from > chars.length)
+    {
+      chars = new char[Math.max(to - from, 2 * chars.length)];
+    }
+    int length = 0;
+    for(int i = from; i < to; i++)
+    {
+      if (!delimiter(i))
+      {
+        chars[length++] = table[buffer.get(i) & 0xff];
+      }
+      else if (!delimiter(i - 1))
+      {
+        chars[length++] = ' ';
+      }
+    }
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Return the current line decoded.
+   * @return the current line
+   */
+  public String line()
+  {
+    return decode(start, end);
+  }
+
+  public String toString()
+  {
+    return "ByteScanner[" + limit + " bytes, line " + lineNumber + "]";
+  }
+}
@@ -20,7 +20,8 @@ import net.sf.jhunlang.jmorph.XWordEntry;
  * building a Dict instance storing words.
  * Ignore COMPOUNDMIN flag.
  */
-public class DictionaryReader extends ListReader implements DictConstants
+public class DictionaryReader extends ListReader
+  implements DictConstants, Cloneable
 {
   /**
    * The separator between the word and the flags in the definition
@@ -48,6 +49,38 @@ public class DictionaryReader extends ListReader implements DictConstants
     {
       throw new ParseException("Unexpected end of file at line 1");
     }
+    return createWordList(line);
+  }
+
+  /**
+   * Create and return a {@link WordList} for words scanned by
+   * <code>scanner</code>.
+   * @param scanner the scanner of the dictionary file
+   * @return a new {@link WordList} instance
+   * @throws ParseException if the dictionary file is empty or its first line
+   * doesnt tell the number of dictionary words
+   */
+  protected WordList createWordList(ByteScanner scanner)
+    throws IOException, ParseException
+  {
+    if (!scanner.nextLine())
+    {
+      throw new ParseException("Unexpected end of file at line 1");
+    }
+    return createWordList(scanner.line());
+  }
+
+  /**
+   * Create and return a {@link WordList} for the dictionary file starting
+   * with <code>line</code>.
+   * @param line the first line of the dictionary file
+   * @return a new {@link WordList} instance
+   * @throws ParseException if <code>line</code> doesnt tell the number of
+   * dictionary words
+   */
+  protected WordList createWordList(String line)
+    throws ParseException
+  {
     line = line.trim();
     try
     {
@@ -69,6 +102,35 @@ public class DictionaryReader extends ListReader implements DictConstants
     return new Dict();
   }
 
+  /**
+   * Return a copy of this reader with a parser of its own. The lines
+   * are parsed independently apart from the entries recorded in the word
+   * list, so they can be parsed in parallel.
+   * @return the copy parsing lines in a worker thread
+   */
+  protected ListReader fork()
+  {
+    try
+    {
+      ListReader fork = (ListReader)clone();
+      fork.parser = new Parser();
+      return fork;
+    }
+    catch (CloneNotSupportedException cnsx)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Return true: the lines are parsed without the line reader.
+   * @return true
+   */
+  protected boolean scans()
+  {
+    return true;
+  }
+
   /**
    * Return {@link DictEntry} built from <code>line</code>.
    * @param wl the WordList the returned will be added to
@@ -78,8 +140,6 @@ public class DictionaryReader extends ListReader implements DictConstants
   protected DictEntry parseLine(WordList wl, LineNumberReader lr, String line)
     throws ParseException
   {
-    Dict dict = (Dict)wl;
-
     int index = line.indexOf(SEPARATOR);
 
     char[] flagCharacters;
@@ -103,7 +163,67 @@ public class DictionaryReader extends ListReader implements DictConstants
       }
       flagCharacters = flags.toCharArray();
     }
-        
+    return createEntry((Dict)wl, word, flagCharacters, Parser.remainder(st));
+  }
+
+  /**
+   * Return {@link DictEntry} built from the current line of
+   * <code>scanner</code> as {@link #parseLine(WordList, LineNumberReader,
+   * String)} builds it from the decoded line. Only the word, the flags and
+   * the remainder, if any, are decoded.
+   * @param wl the WordList the returned will be added to
+   * @param scanner the scanner positioned at the line
+   * @param lineNumber the number of the line
+   */
+  protected DictEntry parseLine(
+    WordList wl, ByteScanner scanner, int lineNumber)
+    throws ParseException
+  {
+    parser.setLineNumber(lineNumber);
+    int start = scanner.getLineStart();
+    int end = scanner.getLineEnd();
+    int index = scanner.indexOf(SEPARATOR, start, end);
+
+    char[] flagCharacters;
+    String word;
+    int rest = start;
+
+    if (index == -1)
+    {
+      word = scanner.decode(start, end);
+      flagCharacters = NO_FLAGS;
+    }
+    else
+    {
+      word = scanner.decode(start, index);
+      int from = scanner.skip(index + 1);
+      if (from == end)
+      {
+        flagCharacters = scanner.decodeChars(index + 1, end);
+        rest = end;
+      }
+      else
+      {
+        rest = scanner.token(from);
+        flagCharacters = scanner.decodeChars(from, rest);
+      }
+    }
+    return createEntry((Dict)wl, word, flagCharacters,
+      scanner.tokens(rest, end));
+  }
+
+  /**
+   * Return {@link DictEntry} for <code>word</code> and
+   * <code>flagCharacters</code> with <code>remainder</code>, the tokens
+   * after the flags, as extension.
+   * @param dict the Dict the returned will be added to
+   * @param word the word
+   * @param flagCharacters the flags
+   * @param remainder the rest of the line
+   */
+  protected DictEntry createEntry(
+    Dict dict, String word, char[] flagCharacters, String remainder)
+  {
     if (word.startsWith(EXCEPTION_START))
     {
       return new ExceptionEntry(
@@ -159,7 +279,6 @@ public class DictionaryReader extends ListReader implements DictConstants
     {
       entry = new DictEntry(word, flagCharacters);      
     }
-    String remainder = Parser.remainder(st);
     if (remainder.length() > 0)
     {
       entry.setInflexion(new FakeExtension(remainder));
@@ -1,23 +1,57 @@
 package net.sf.jhunlang.jmorph.parser;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
 import java.io.IOException;
 import java.io.BufferedReader;
+import java.io.InterruptedIOException;
 import java.io.LineNumberReader;
 
 import net.sf.jhunlang.jmorph.DictEntry;
 import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.WordList;
 
 
 /**
  * DictionaryReader stands for reading the dictionary file and
- * building a Dict instance storing words.
+ * building a Dict instance storing words.<p>
+ * Readers returning a worker instance from {@link #fork()} parse the lines
+ * in {@link #threads} threads: the calling thread reads chunks of
+ * {@link #CHUNK} lines, the workers parse them into buffers of their own and
+ * the calling thread adds the entries of the chunks to the word list in the
+ * order of the lines. The word list is the same as the one read in a single
+ * thread.<p>
+ * Readers returning true from {@link #scans()} read the lines of files by a
+ * {@link ByteScanner}. The chunks parsed by the workers hold the bounds of
+ * their lines in the scanned bytes then.
  */
 public abstract class ListReader extends AbstractReader
 {
+  /**
+   * System property for the number of threads parsing the lines. The
+   * default is the number of processors.
+   */
+  public final static String THREADS = "dict.threads";
+  /**
+   * The number of lines per chunk parsed by a worker thread.
+   */
+  public final static int CHUNK = 2048;
+
   protected Dictionaries dicts;
 
   protected Parser parser;
+  /**
+   * The scanner of the lines parsed by a worker instance.
+   */
+  protected ByteScanner scanner;
+  /**
+   * The number of threads parsing the lines.
+   */
+  protected int threads = Integer.getInteger(
+    THREADS, Runtime.getRuntime().availableProcessors()).intValue();
 
   public void setDictionaries(Dictionaries dicts)
   {
@@ -29,12 +63,38 @@ public abstract class ListReader extends AbstractReader
     return dicts;
   }
 
+  /**
+   * Return the number of threads parsing the lines.
+   * @return the number of threads
+   */
+  public int getThreads()
+  {
+    return threads;
+  }
+
+  /**
+   * Set the number of threads parsing the lines. 1 reads in the calling
+   * thread only.
+   * @param threads the number of threads
+   * @exception IllegalArgumentException if <code>threads</code> is not
+   * positive
+   */
+  public void setThreads(int threads)
+  {
+    if (threads <= 0)
+    {
+      throw new IllegalArgumentException("" + threads);
+    }
+    this.threads = threads;
+  }
+
   /**
    * Read word definitions from the given reader and store them into the
    * dictionary. Call {@link #createWordList(LineNumberReader)} to create the
    * {@link WordList} storing the words read via <code>reader</code>.
    * Call {@link #parseLine(WordList, LineNumberReader, String)} to create
-   * a {@link DictEntry} for each not empty line.
+   * a {@link DictEntry} for each not empty line. Parse the lines in
+   * {@link #threads} threads if {@link #fork()} returns worker instances.
    * @param reader the reader providing the definition stream
    * @exception IOException if an IO error occurs while reading
    * @exception ParseException if a syntax error occurs while parsing
@@ -51,6 +111,86 @@ public abstract class ListReader extends AbstractReader
     }
 
     parser = new Parser();
+    ListReader[] forks = forks();
+    if (forks == null)
+    {
+      read(lineReader, wl);
+    }
+    else
+    {
+      read(lineReader, wl, forks);
+    }
+    done(wl);
+    return wl;
+  }
+
+  /**
+   * Read word definitions from the lines of <code>scanner</code> and store
+   * them into the dictionary as {@link #read(BufferedReader)} does. Call
+   * {@link #createWordList(ByteScanner)} to create the {@link WordList} and
+   * {@link #parseLine(WordList, ByteScanner, int)} to create a
+   * {@link DictEntry} for each not empty line.
+   * @param scanner the scanner of the file
+   * @exception IOException if an IO error occurs while reading
+   * @exception ParseException if a syntax error occurs while parsing
+   */
+  public Object read(ByteScanner scanner)
+    throws IOException, ParseException
+  {
+    WordList wl = createWordList(scanner);
+
+    if (dicts != null)
+    {
+      dicts.add(wl);
+    }
+
+    parser = new Parser();
+    ListReader[] forks = forks();
+    if (forks == null)
+    {
+      read(scanner, wl);
+    }
+    else
+    {
+      read(scanner, wl, forks);
+    }
+    done(wl);
+    return wl;
+  }
+
+  /**
+   * Return {@link #threads} worker instances returned by {@link #fork()} or
+   * <code>null</code> if the lines are to be parsed in the calling thread.
+   * @return the worker instances or <code>null</code>
+   */
+  protected ListReader[] forks()
+  {
+    ListReader[] forks = null;
+    for(int i = 0; i < threads && threads > 1; i++)
+    {
+      ListReader fork = fork();
+      if (fork == null)
+      {
+        return null;
+      }
+      if (forks == null)
+      {
+        forks = new ListReader[threads];
+      }
+      forks[i] = fork;
+    }
+    return forks;
+  }
+
+  /**
+   * Parse the lines of <code>lineReader</code> in the calling thread and
+   * add the entries to <code>wl</code>.
+   * @param lineReader the reader of the lines
+   * @param wl the word list to add the entries to
+   */
+  protected void read(LineNumberReader lineReader, WordList wl)
+    throws IOException, ParseException
+  {
     String line;
     try
     {
@@ -78,26 +218,495 @@ public abstract class ListReader extends AbstractReader
       throw new ParseException(
         "Internal error in line " + lineReader.getLineNumber(), t);
     }
-    done(wl);
-    return wl;
+  }
+
+  /**
+   * Parse the lines of <code>scanner</code> in the calling thread and
+   * add the entries to <code>wl</code>. Blank lines are skipped without
+   * decoding them.
+   * @param scanner the scanner of the lines
+   * @param wl the word list to add the entries to
+   */
+  protected void read(ByteScanner scanner, WordList wl)
+    throws IOException, ParseException
+  {
+    int header = scanner.getLineNumber();
+    try
+    {
+      while (scanner.nextLine())
+      {
+        if (scanner.isBlank())
+        {
+          continue;
+        }
+        DictEntry entry =
+          parseLine(wl, scanner, scanner.getLineNumber() - header);
+        if (entry != null && entry.getWord().trim().length() != 0)
+        {
+          wl.add(entry);
+        }
+      }
+    }
+    catch (ParseException pex)
+    {
+      throw pex;
+    }
+    catch (Throwable t)
+    {
+      throw new ParseException(
+        "Internal error in line " + scanner.getLineNumber(), t);
+    }
+  }
+
+  /**
+   * Parse the lines of <code>lineReader</code> by the worker instances
+   * <code>forks</code>, each in a thread of its own bound to the current
+   * {@link Registry}, and add the entries to <code>wl</code> in the order
+   * of the lines as {@link #merge(WordList, List, int)} tells.
+   * @param lineReader the reader of the lines
+   * @param wl the word list to add the entries to
+   * @param forks the worker instances
+   */
+  protected void read(LineNumberReader lineReader, WordList wl,
+    ListReader[] forks)
+    throws IOException, ParseException
+  {
+    LinkedList queue = start(forks);
+    int header = lineReader.getLineNumber();
+    List chunks = new ArrayList();
+    try
+    {
+      Chunk chunk = new Chunk(1);
+      String line;
+      while ((line = lineReader.readLine()) != null)
+      {
+        chunk.lines.add(line);
+        if (chunk.lines.size() == CHUNK)
+        {
+          submit(queue, chunks, chunk);
+          chunk = new Chunk(chunk.first + CHUNK);
+        }
+      }
+      if (chunk.lines.size() > 0)
+      {
+        submit(queue, chunks, chunk);
+      }
+      merge(wl, chunks, header);
+    }
+    finally
+    {
+      stop(queue, forks.length);
+    }
+  }
+
+  /**
+   * Parse the lines of <code>scanner</code> by the worker instances
+   * <code>forks</code> as {@link #read(LineNumberReader, WordList,
+   * ListReader[])} does. The chunks hold the bounds of their lines; each
+   * worker scans them by a duplicate of <code>scanner</code>.
+   * @param scanner the scanner of the lines
+   * @param wl the word list to add the entries to
+   * @param forks the worker instances
+   */
+  protected void read(ByteScanner scanner, WordList wl, ListReader[] forks)
+    throws IOException, ParseException
+  {
+    for(int i = 0; i < forks.length; i++)
+    {
+      forks[i].scanner = scanner.duplicate();
+    }
+    LinkedList queue = start(forks);
+    int header = scanner.getLineNumber();
+    List chunks = new ArrayList();
+    try
+    {
+      Chunk chunk = new Chunk(1, new int[2 * CHUNK]);
+      while (scanner.nextLine())
+      {
+        chunk.add(scanner.getLineStart(), scanner.getLineEnd());
+        if (chunk.size == CHUNK)
+        {
+          submit(queue, chunks, chunk);
+          chunk = new Chunk(chunk.first + CHUNK, new int[2 * CHUNK]);
+        }
+      }
+      if (chunk.size > 0)
+      {
+        submit(queue, chunks, chunk);
+      }
+      merge(wl, chunks, header);
+    }
+    finally
+    {
+      stop(queue, forks.length);
+    }
+  }
+
+  /**
+   * Start a thread bound to the current {@link Registry} for each of
+   * <code>forks</code> taking chunks from the returned queue.
+   * @param forks the worker instances
+   * @return the queue of the chunks to parse
+   */
+  protected LinkedList start(ListReader[] forks)
+  {
+    final Registry registry = Registry.getCurrent();
+    final LinkedList queue = new LinkedList();
+    for(int i = 0; i < forks.length; i++)
+    {
+      final ListReader fork = forks[i];
+      Thread worker = new Thread("list-reader-" + i)
+      {
+        public void run()
+        {
+          Registry.setCurrent(registry);
+          fork.work(queue);
+        }
+      };
+      worker.setDaemon(true);
+      worker.start();
+    }
+    return queue;
+  }
+
+  /**
+   * Wait for <code>chunks</code> to be parsed and add their entries to
+   * <code>wl</code> in the order of the lines. Each chunk of lines is
+   * parsed into a word list of its own created by {@link #createWordList()};
+   * it is merged into <code>wl</code> by {@link WordList#merge(WordList)}
+   * after the entries of the chunk have been added. If parsing fails then
+   * the entries before the failing line are added and the failure is thrown
+   * as in the calling thread.
+   * @param wl the word list to add the entries to
+   * @param chunks the chunks submitted
+   * @param header the number of lines before the first chunk
+   */
+  protected void merge(WordList wl, List chunks, int header)
+    throws IOException, ParseException
+  {
+    for(int i = 0; i < chunks.size(); i++)
+    {
+      Chunk chunk = (Chunk)chunks.get(i);
+      synchronized (chunk)
+      {
+        while (!chunk.done)
+        {
+          try
+          {
+            chunk.wait();
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+          }
+        }
+      }
+      for(int j = 0; j < chunk.entries.size(); j++)
+      {
+        wl.add((DictEntry)chunk.entries.get(j));
+      }
+      wl.merge(chunk.part);
+      if (chunk.failure instanceof ParseException)
+      {
+        throw (ParseException)chunk.failure;
+      }
+      if (chunk.failure != null)
+      {
+        throw new ParseException("Internal error in line " +
+          (header + chunk.first + chunk.failed), chunk.failure);
+      }
+      chunks.set(i, null);
+    }
+  }
+
+  /**
+   * Stop the <code>workers</code> workers taking chunks from
+   * <code>queue</code>.
+   * @param queue the queue of the chunks
+   * @param workers the number of workers
+   */
+  protected void stop(LinkedList queue, int workers)
+  {
+    // the rest of the chunks is not needed if reading or parsing failed
+    synchronized (queue)
+    {
+      queue.clear();
+      for(int i = 0; i < workers; i++)
+      {
+        queue.addLast(new Chunk(-1));
+      }
+      queue.notifyAll();
+    }
+  }
+
+  /**
+   * Queue <code>chunk</code> for the workers and add it to
+   * <code>chunks</code>.
+   */
+  protected void submit(LinkedList queue, List chunks, Chunk chunk)
+  {
+    chunks.add(chunk);
+    synchronized (queue)
+    {
+      queue.addLast(chunk);
+      queue.notify();
+    }
+  }
+
+  /**
+   * Take chunks from <code>queue</code> and parse them until the end of
+   * input. Called on a worker instance in a thread of its own.
+   * @param queue the chunks to parse
+   */
+  protected void work(LinkedList queue)
+  {
+    while (true)
+    {
+      Chunk chunk;
+      synchronized (queue)
+      {
+        while (queue.size() == 0)
+        {
+          try
+          {
+            queue.wait();
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+        }
+        chunk = (Chunk)queue.removeFirst();
+      }
+      if (chunk.first < 0)
+      {
+        return;
+      }
+      parse(chunk);
+    }
+  }
+
+  /**
+   * Parse the lines of <code>chunk</code> into its entries and its word
+   * list. Parsing stops at the first failure.
+   * @param chunk the chunk to parse
+   */
+  protected void parse(Chunk chunk)
+  {
+    WordList part = createWordList();
+    int size = chunk.lines == null ? chunk.size : chunk.lines.size();
+    List entries = new ArrayList(size);
+    int i = 0;
+    try
+    {
+      for(; i < size; i++)
+      {
+        DictEntry entry;
+        if (chunk.lines == null)
+        {
+          scanner.setLine(
+            chunk.bounds[2 * i], chunk.bounds[2 * i + 1], chunk.first + i);
+          if (scanner.isBlank())
+          {
+            continue;
+          }
+          entry = parseLine(part, scanner, chunk.first + i);
+        }
+        else
+        {
+          String line = (String)chunk.lines.get(i);
+          parser.setLine(line, chunk.first + i);
+          if (line.trim().length() == 0)
+          {
+            continue;
+          }
+          entry = parseLine(part, null, line);
+        }
+        if (entry != null && entry.getWord().trim().length() != 0)
+        {
+          entries.add(entry);
+        }
+      }
+    }
+    catch (Throwable t)
+    {
+      chunk.failure = t;
+      chunk.failed = i;
+    }
+    synchronized (chunk)
+    {
+      chunk.part = part;
+      chunk.entries = entries;
+      chunk.lines = null;
+      chunk.bounds = null;
+      chunk.done = true;
+      chunk.notifyAll();
+    }
+  }
+
+  /**
+   * Return a copy of this reader with a {@link Parser} of its own parsing
+   * lines in a worker thread or <code>null</code> if the lines cannot be
+   * parsed in parallel. {@link #parseLine(WordList, LineNumberReader,
+   * String)} of the copy gets a word list created by
+   * {@link #createWordList()} for each chunk and no line reader. This
+   * implementation returns <code>null</code>.
+   * @return the instance parsing lines in a worker thread or
+   * <code>null</code>
+   */
+  protected ListReader fork()
+  {
+    return null;
   }
 
   protected abstract DictEntry parseLine(
     WordList wl, LineNumberReader reader, String line)
     throws IOException, ParseException;
 
+  /**
+   * Return the {@link DictEntry} of the current line of
+   * <code>scanner</code>. This implementation decodes the line by
+   * {@link #decode(ByteScanner, int)} and calls
+   * {@link #parseLine(WordList, LineNumberReader, String)} without line
+   * reader. Readers may override it to decode only the parts of the line
+   * they keep.
+   * @param wl the WordList the returned will be added to
+   * @param scanner the scanner positioned at the line
+   * @param lineNumber the number of the line counted from the first line
+   * after the header
+   */
+  protected DictEntry parseLine(
+    WordList wl, ByteScanner scanner, int lineNumber)
+    throws IOException, ParseException
+  {
+    return parseLine(wl, null, decode(scanner, lineNumber));
+  }
+
+  /**
+   * Decode the current line of <code>scanner</code>, set it as the current
+   * line of {@link #parser} and return it.
+   * @param scanner the scanner positioned at the line
+   * @param lineNumber the number of the line
+   * @return the decoded line
+   */
+  protected String decode(ByteScanner scanner, int lineNumber)
+    throws ParseException
+  {
+    String line = scanner.line();
+    parser.setLine(line, lineNumber);
+    return line;
+  }
+
+  /**
+   * Return if this reader can parse a {@link ByteScanner}. This
+   * implementation returns <code>false</code> as
+   * {@link #parseLine(WordList, LineNumberReader, String)} of subclasses
+   * may need the line reader. Readers parsing lines without it may return
+   * true.
+   * @return if the lines can be read by a {@link ByteScanner}
+   */
+  protected boolean scans()
+  {
+    return false;
+  }
+
   protected WordList createWordList(LineNumberReader reader)
     throws IOException, ParseException
+  {
+    return createWordList();
+  }
+
+  /**
+   * Create and return a {@link WordList} for the words scanned by
+   * <code>scanner</code>. This implementation calls
+   * {@link #createWordList()}.
+   * @param scanner the scanner of the file
+   * @return a new {@link WordList} instance
+   */
+  protected WordList createWordList(ByteScanner scanner)
+    throws IOException, ParseException
+  {
+    return createWordList();
+  }
+
+  /**
+   * Create and return a {@link WordList}.
+   * @return a new {@link WordList} instance
+   */
+  protected WordList createWordList()
   {
     return new WordList();
   }
 
   /**
-   * Calls {@link WordList#sync} of <code>wl</code>.
+   * Calls {@link WordList#sync(int)} of <code>wl</code> with
+   * {@link #threads}.
    * @param wl the WordList
    */
   protected void done(WordList wl)
   {
-    wl.sync();
+    wl.sync(threads);
+  }
+
+  /**
+   * A chunk of lines or of the bounds of scanned lines and the entries
+   * parsed from them. A chunk without lines marks the end of input.
+   */
+  protected static class Chunk
+  {
+    /**
+     * The number of the first line counted from the first line after the
+     * header or -1.
+     */
+    protected int first;
+    protected List lines;
+    /**
+     * The start and end indexes of the scanned lines.
+     */
+    protected int[] bounds;
+    /**
+     * The number of the scanned lines.
+     */
+    protected int size;
+    /**
+     * The word list the lines have been parsed into.
+     */
+    protected WordList part;
+    /**
+     * The entries of the lines in their order.
+     */
+    protected List entries;
+    /**
+     * The failure of parsing or <code>null</code>.
+     */
+    protected Throwable failure;
+    /**
+     * The index of the line parsing failed at.
+     */
+    protected int failed;
+    protected boolean done;
+
+    protected Chunk(int first)
+    {
+      this.first = first;
+      lines = first < 0 ? null : new ArrayList(CHUNK);
+    }
+
+    protected Chunk(int first, int[] bounds)
+    {
+      this.first = first;
+      this.bounds = bounds;
+    }
+
+    /**
+     * Add the bounds of a scanned line.
+     */
+    protected void add(int start, int end)
+    {
+      bounds[2 * size] = start;
+      bounds[2 * size + 1] = end;
+      size++;
+    }
   }
 }
@@ -0,0 +1,46 @@
+package net.sf.jhunlang.jmorph.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+
+import java.net.URL;
+import java.net.URLDecoder;
+
+import net.sf.jhunlang.jmorph.MappedWordList;
+
+/**
+ * MappedReader opens a {@link MappedWordList} file written by
+ * {@link MappedWordList#write(net.sf.jhunlang.jmorph.WordList, java.io.File)}.
+ * It stands for the dictionary reader in a definition file; the file must be
+ * a local file and its encoding is ignored:
+ * <pre>
+ * hu_HU.map
+ * -
+ * net.sf.jhunlang.jmorph.parser.MappedReader
+ * </pre>
+ */
+public class MappedReader extends AbstractReader
+{
+  public Object read(URL sourceUrl, String encoding)
+    throws IOException, ParseException
+  {
+    if (!"file".equals(sourceUrl.getProtocol()))
+    {
+      throw new ParseException("Cannot map " + sourceUrl);
+    }
+    return read(URLDecoder.decode(sourceUrl.getPath(), "UTF-8"), encoding);
+  }
+
+  public Object read(String filename, String encoding)
+    throws IOException, ParseException
+  {
+    return new MappedWordList(new File(filename));
+  }
+
+  public Object read(BufferedReader reader)
+    throws IOException, ParseException
+  {
+    throw new ParseException("Cannot map a character stream");
+  }
+}
@@ -49,6 +49,18 @@ public class Parser
     tokenizer = new StringTokenizer(line);
   }
 
+  /**
+   * Set the current line number for a line parsed without this parser.
+   * The current line and its tokenizer are cleared.
+   * @param lineNumber the line number
+   */
+  public void setLineNumber(int lineNumber)
+  {
+    line = null;
+    tokenizer = null;
+    this.lineNumber = lineNumber;
+  }
+
   public void setTokenizer(StringTokenizer tokenizer)
   {
     this.tokenizer = tokenizer;
@@ -1,16 +1,18 @@
 package net.sf.jhunlang.jmorph.sword;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentMap;
 
 import java.io.Serializable;
 
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.util.Comparables;
 
 /**
  * Case instances represent prefix and affix categories.
- * They are mapped by their {@link #name}s.
+ * They are mapped by their {@link #name}s in the cases of the current
+ * {@link Registry}. The {@link #empty} Case is shared by all registries.
  */ 
 public class Case implements Serializable
 {
@@ -20,14 +22,10 @@ public class Case implements Serializable
     "PRES_INDIC_INDEF_SG_3"
   };
   
-  /**
-   * The map of Case instances by their {@link #name}s.
-   */
-  protected final static Map cases = new TreeMap();
   /**
    * Convenience constant for the empty Case.
    */
-  public final static Case empty = getCase("");
+  public final static Case empty = getCase(Registry.getDefault(), "", "");
   /**
    * The affix morpheme 
    */
@@ -41,7 +39,8 @@ public class Case implements Serializable
 
   /**
    * Return a Case instance for <code>name</code> with zero morpheme.
-   * Return the Case instance from {@link #cases} for <code>name</code> if any.
+   * Return the Case instance of the current registry for <code>name</code>
+   * if any.
    * Create and return a new one otherwise.
    * @param name the name of the case
    * @return the Case instance for <code>name</code> with zero morpheme 
@@ -53,7 +52,7 @@ public class Case implements Serializable
 
   /**
    * Return a Case instance for <code>name</code> with allomorph
-   * <code>affix</code>. Return the Case instance from {@link #cases}
+   * <code>affix</code>. Return the Case instance of the current registry
    * for <code>affix</code> and <code>name</code> if any. Create and
    * return a new one otherwise.
    * @param affix the allomorph of the case
@@ -63,6 +62,25 @@ public class Case implements Serializable
    */
   public static Case getCase(String affix, String name)
   {
+    return getCase(Registry.getCurrent(), affix, name);
+  }
+
+  /**
+   * Return the Case instance of <code>registry</code> for <code>name</code>
+   * with allomorph <code>affix</code>. Create it if there is none.
+   * @param registry the registry to map in
+   * @param affix the allomorph of the case
+   * @param name the name of the case
+   * @return the Case instance for <code>name</code> with allomorph
+   * <code>affix</code> 
+   */
+  public static Case getCase(Registry registry, String affix, String name)
+  {
+    if (affix.length() == 0 && name.length() == 0 && empty != null)
+    {
+      return empty;
+    }
+    ConcurrentMap cases = registry.getCases();
     Comparables c = new Comparables(affix, name, false);
     Case cas = (Case)cases.get(c);
     if (cas == null)
@@ -78,18 +96,23 @@ public class Case implements Serializable
       {
         cas = new Case(affix, name, false);                           
       }
-      cases.put(c, cas);
+      Case old = (Case)cases.putIfAbsent(c, cas);
+      if (old != null)
+      {
+        cas = old;
+      }
     }
     return cas;
   }
 
   /**
-   * Return an iterator for all the Case instances created so far.
+   * Return an iterator for all the Case instances created so far in the
+   * current registry.
    * @return an iterator for all the Case instances created so far
    */
   public static Iterator getCaseIterator()
   {
-    return cases.values().iterator();
+    return Registry.getCurrent().getCases().values().iterator();
   }
 
   /**
@@ -105,6 +128,15 @@ public class Case implements Serializable
     this.zero = zero;
   }
   
+  /**
+   * Replace deserialized instances with the mapped ones.
+   * @return the mapped Case instance for {@link #affix} and {@link #name}
+   */
+  private Object readResolve()
+  {
+    return getCase(affix, name);
+  }
+
   public boolean zero()
   {
     return zero;
@@ -5,6 +5,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.LinkedList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
@@ -14,8 +17,8 @@ public class Derivative implements Serializable
 {
   protected SimpleDerivative derivative;
 
-  protected List preCases = new LinkedList();
-  protected List postCases = new LinkedList();
+  protected transient List preCases = new LinkedList();
+  protected transient List postCases = new LinkedList();
 
   protected String postCase;
 
@@ -34,6 +37,22 @@ public class Derivative implements Serializable
     postCases.add(cas);
   }
 
+  private void writeObject(ObjectOutputStream out)
+    throws IOException
+  {
+    out.defaultWriteObject();
+    SwordExtension.writeList(out, preCases);
+    SwordExtension.writeList(out, postCases);
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    preCases = SwordExtension.readList(in);
+    postCases = SwordExtension.readList(in);
+  }
+
   public List getPreCases()
   {
     return preCases;
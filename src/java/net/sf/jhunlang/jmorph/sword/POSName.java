@@ -1,20 +1,21 @@
 package net.sf.jhunlang.jmorph.sword;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentMap;
 
 import java.io.Serializable;
 
+import net.sf.jhunlang.jmorph.Registry;
+
 /**
  * POSName instances represent part of speech categories.
- * They are mapped by their names.
+ * They are mapped by their names in the pos names of the current
+ * {@link Registry}. The {@link #empty} POSName is shared by all registries.
  */ 
 public class POSName implements Serializable
 {
-  protected final static Map posNames = new TreeMap();
-
-  public final static POSName empty = getPOSName("");
+  public final static POSName empty = getPOSName(Registry.getDefault(), "");
 
   protected String name;
 
@@ -25,15 +26,38 @@ public class POSName implements Serializable
 
   public static POSName getPOSName(String name)
   {
+    return getPOSName(Registry.getCurrent(), name);
+  }
+
+  public static POSName getPOSName(Registry registry, String name)
+  {
+    if (name.length() == 0 && empty != null)
+    {
+      return empty;
+    }
+    ConcurrentMap posNames = registry.getPOSNames();
     POSName posName = (POSName)posNames.get(name);
     if (posName == null)
     {
       posName = new POSName(name);
-      posNames.put(name, posName);
+      POSName old = (POSName)posNames.putIfAbsent(name, posName);
+      if (old != null)
+      {
+        posName = old;
+      }
     }
     return posName;
   }
 
+  /**
+   * Replace deserialized instances with the mapped ones.
+   * @return the mapped POSName instance for {@link #name}
+   */
+  private Object readResolve()
+  {
+    return getPOSName(name);
+  }
+
   public String getName()
   {
     return name;
@@ -41,7 +65,7 @@ public class POSName implements Serializable
 
   public static Iterator getPOSNameIterator()
   {
-    return posNames.values().iterator();
+    return Registry.getCurrent().getPOSNames().values().iterator();
   }
 
   public String contentString()
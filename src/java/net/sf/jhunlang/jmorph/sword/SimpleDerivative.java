@@ -1,25 +1,21 @@
 package net.sf.jhunlang.jmorph.sword;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentMap;
 
 import java.io.Serializable;
 
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.util.Comparables;
 
 /**
  * SimpleDerivative represent derivative categories. They are mapped by their
- * [{@link #affix}, {@link #type}, {@link #pos}] triplets.
+ * [{@link #affix}, {@link #type}, {@link #pos}] triplets in the simple
+ * derivatives of the current {@link Registry}.
  */ 
 public class SimpleDerivative implements Serializable
 {
-  /**
-   * The map of SimpleDerivative instances by their
-   * {@link #affix}, {@link #type} and {@link #pos}.
-   */
-  protected final static Map derivatives = new TreeMap();
-
   /**
    * The affix morpheme 
    */
@@ -36,7 +32,7 @@ public class SimpleDerivative implements Serializable
   /**
    * Return a SimpleDerivative instance for <code>affix</code>,
    * <code>type</code> and <code>pos</code>. Return the SimpleDerivative
-   * instance from {@link #derivatives} for the parameters if any; create
+   * instance of the current registry for the parameters if any; create
    * and return a new one otherwise.
    * @param affix the morpheme
    * @param type the type
@@ -46,26 +42,51 @@ public class SimpleDerivative implements Serializable
    */
   public static SimpleDerivative getSimpleDerivative(
     String affix, String type, String pos)
+  {
+    return getSimpleDerivative(Registry.getCurrent(), affix, type, pos);
+  }
+
+  /**
+   * Return the SimpleDerivative instance of <code>registry</code> for
+   * <code>affix</code>, <code>type</code> and <code>pos</code>. Create it
+   * if there is none.
+   * @param registry the registry to map in
+   * @param affix the morpheme
+   * @param type the type
+   * @param pos the resulting part-of-speech
+   * @return the SimpleDerivative instance for <code>affix</code>,
+   * <code>type</code> and <code>pos</code>  
+   */
+  public static SimpleDerivative getSimpleDerivative(
+    Registry registry, String affix, String type, String pos)
   {
     Comparables c = new Comparables(affix, 
       new Comparables(type, pos, false), false);
 
+    ConcurrentMap derivatives = registry.getSimpleDerivatives();
     SimpleDerivative derivative = (SimpleDerivative)derivatives.get(c);
     if (derivative == null)
     {
-      derivative = new SimpleDerivative(affix, type, POSName.getPOSName(pos));
-      derivatives.put(c, derivative);
+      derivative = new SimpleDerivative(
+        affix, type, POSName.getPOSName(registry, pos));
+      SimpleDerivative old =
+        (SimpleDerivative)derivatives.putIfAbsent(c, derivative);
+      if (old != null)
+      {
+        derivative = old;
+      }
     }
     return derivative;
   }
 
   /**
-   * Return an iterator for all the SimpleDerivative instances created so far.
+   * Return an iterator for all the SimpleDerivative instances created so far
+   * in the current registry.
    * @return an iterator for all the SimpleDerivative instances created so far
    */
   public static Iterator getSimpleDerivativeIterator()
   {
-    return derivatives.values().iterator();
+    return Registry.getCurrent().getSimpleDerivatives().values().iterator();
   }
 
   /**
@@ -82,6 +103,16 @@ public class SimpleDerivative implements Serializable
     this.pos = pos;
   }
 
+  /**
+   * Replace deserialized instances with the mapped ones.
+   * @return the mapped SimpleDerivative instance for {@link #affix},
+   * {@link #type} and {@link #pos}
+   */
+  private Object readResolve()
+  {
+    return getSimpleDerivative(affix, type, pos.getName());
+  }
+
   /**
    * Return the morpheme of this SimpleDerivative instance.
    * @return the morpheme of this SimpleDerivative instance
@@ -46,7 +46,7 @@ public class SwordAffixExtension extends SwordExtension
         
       DictEntry id = new SwordEntry(
           entry.inflex(word),
-          flags.getFlagString().toCharArray(),
+          flags,
           (SwordEntryExtension)root.getInflexion(),
           d);
 
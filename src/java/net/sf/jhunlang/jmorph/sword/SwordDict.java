@@ -4,7 +4,7 @@ import java.util.Iterator;
 import java.util.Collection;
 import java.util.Map;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import net.sf.jhunlang.jmorph.DictEntry;
 import net.sf.jhunlang.jmorph.WordList;
@@ -15,9 +15,15 @@ import net.sf.jhunlang.jmorph.WordList;
 public class SwordDict extends WordList
 {
   /**
-   * DictEntry's having root words.
+   * The number of rooted entries per thread below which {@link #sync(int)}
+   * resolves the roots in the calling thread.
    */
-  protected Map rooted = new HashMap();
+  public final static int SYNC_SLICE = 1024;
+
+  /**
+   * DictEntry's having root words in the order they have been recorded.
+   */
+  protected Map rooted = new LinkedHashMap();
 
   /**
    * Create a new SwordDict instance
@@ -34,6 +40,7 @@ public class SwordDict extends WordList
    */
   public void setRoot(SwordEntry entry, String root)
   {
+    checkFrozen();
     rooted.put(entry, root);
   }
 
@@ -46,23 +53,98 @@ public class SwordDict extends WordList
    */
   public void sync()
   {
+    checkFrozen();
     Iterator it = rooted.entrySet().iterator();
     while (it.hasNext())
     {
       Map.Entry entry = (Map.Entry)it.next();
-      SwordEntry s = (SwordEntry)entry.getKey();
-      String root = (String)entry.getValue();
-      DictEntry rootEntry = get(root);
-
-      s.setRoot(rootEntry);
+      link((SwordEntry)entry.getKey(), get((String)entry.getValue()));
+    }
+  }
 
-      Collection c = (Collection)reverseRoots.get(rootEntry);
-      if (c == null)
+  /**
+   * Set root of entries collected in <code>rooted</code> as {@link #sync()}
+   * does with the root words resolved by <code>threads</code> threads.
+   * The roots are set and the reverse roots are built in the calling thread
+   * in the order of <code>rooted</code>, so the result is the same.
+   * @param threads the number of threads
+   */
+  public void sync(int threads)
+  {
+    checkFrozen();
+    threads = Math.min(threads, rooted.size() / SYNC_SLICE);
+    if (threads <= 1)
+    {
+      sync();
+      return;
+    }
+    final Map.Entry[] entries =
+      (Map.Entry[])rooted.entrySet().toArray(new Map.Entry[rooted.size()]);
+    final DictEntry[] roots = new DictEntry[entries.length];
+    Thread[] workers = new Thread[threads];
+    for(int i = 0; i < threads; i++)
+    {
+      final int from = (int)((long)entries.length * i / threads);
+      final int to = (int)((long)entries.length * (i + 1) / threads);
+      workers[i] = new Thread("sync-" + i)
+      {
+        public void run()
+        {
+          for(int j = from; j < to; j++)
+          {
+            roots[j] = get((String)entries[j].getValue());
+          }
+        }
+      };
+      workers[i].start();
+    }
+    boolean interrupted = false;
+    for(int i = 0; i < threads; i++)
+    {
+      try
+      {
+        workers[i].join();
+      }
+      catch (InterruptedException e)
       {
-        c = new ArrayList(1);
-        reverseRoots.put(rootEntry, c);
+        interrupted = true;
+        i--;
       }
-      c.add(s);
     }
+    if (interrupted)
+    {
+      Thread.currentThread().interrupt();
+    }
+    for(int i = 0; i < entries.length; i++)
+    {
+      link((SwordEntry)entries[i].getKey(), roots[i]);
+    }
+  }
+
+  /**
+   * Set <code>rootEntry</code> as the root of <code>s</code> and add
+   * <code>s</code> to the reverse roots of <code>rootEntry</code>.
+   */
+  protected void link(SwordEntry s, DictEntry rootEntry)
+  {
+    s.setRoot(rootEntry);
+
+    Collection c = (Collection)reverseRoots.get(rootEntry);
+    if (c == null)
+    {
+      c = new ArrayList(1);
+      reverseRoots.put(rootEntry, c);
+    }
+    c.add(s);
+  }
+
+  /**
+   * Merge the rooted entries of <code>part</code>.
+   * @param part the word list a chunk of lines has been parsed into
+   */
+  public void merge(WordList part)
+  {
+    checkFrozen();
+    rooted.putAll(((SwordDict)part).rooted);
   }
 }
@@ -21,6 +21,14 @@ public class SwordEntry extends DictEntry
     super(word);
   }
 
+  /**
+   * Create a SwordEntry the word of which is set later.
+   * @see DictEntry#DictEntry()
+   */
+  protected SwordEntry()
+  {
+  }
+
   /**
    * Create a SwodEntry instance for <code>word</code> with flags
    * specified in <code>flagCharacters</code>.
@@ -63,6 +71,37 @@ public class SwordEntry extends DictEntry
     this.inflexion = inflexion;
   }
 
+  /**
+   * Create a SwodEntry instance for <code>word</code> with <code>flags</code>
+   * and with <code>inflexion</code>.
+   * @param word the word
+   * @param flags the affix flags
+   * @param inflexion the inflexion of the word or <code>null</code>
+   * @exception IllegalArgumentException if the word is null
+   */
+  public SwordEntry(
+    String word, AffixFlags flags, SwordEntryExtension inflexion)
+  {
+    super(word, flags);
+    this.inflexion = inflexion;
+  }
+
+  /**
+   * Create a SwodEntry instance for <code>word</code> with <code>flags</code>
+   * and with <code>inflexion</code> and <code>root</code>.
+   * @param word the word
+   * @param flags the affix flags
+   * @param inflexion the inflexion of the word or <code>null</code>
+   * @param root the root of the word
+   * @exception IllegalArgumentException if the word is null
+   */
+  public SwordEntry(String word, AffixFlags flags,
+    SwordEntryExtension inflexion, DictEntry root)
+  {
+    this(word, flags, inflexion);
+    this.root = root;
+  }
+
   /**
    * Create a SwodEntry representing the derivation of <code>root</code> by
    * <code>deriver</code.
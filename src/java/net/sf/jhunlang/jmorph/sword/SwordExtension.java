@@ -5,12 +5,19 @@ import java.util.ListIterator;
 import java.util.List;
 import java.util.LinkedList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import net.sf.jhunlang.jmorph.DictEntryExtension;
 
 public class SwordExtension implements DictEntryExtension
 {
-  protected List derivatives = new LinkedList();
-  protected List cases = new LinkedList();
+  // the value computed before isAdd was added, read by mapped word lists
+  private final static long serialVersionUID = 6429238643794618260L;
+
+  protected transient List derivatives = new LinkedList();
+  protected transient List cases = new LinkedList();
 
   protected boolean add;
 
@@ -36,6 +43,11 @@ public class SwordExtension implements DictEntryExtension
     add = b;
   }
 
+  public boolean isAdd()
+  {
+    return add;
+  }
+
   public POSName getPOSName()
   {
     int index = derivatives.size() - 1;
@@ -95,6 +107,54 @@ public class SwordExtension implements DictEntryExtension
     return derivatives;
   }
 
+  /**
+   * Write the elements of <code>list</code> preceded by its size.
+   * @param out the stream to write to
+   * @param list the list to write
+   */
+  protected static void writeList(ObjectOutputStream out, List list)
+    throws IOException
+  {
+    out.writeInt(list.size());
+    Iterator it = list.iterator();
+    while (it.hasNext())
+    {
+      out.writeObject(it.next());
+    }
+  }
+
+  /**
+   * Read a list written by {@link #writeList(ObjectOutputStream, List)}.
+   * @param in the stream to read from
+   * @return the list read
+   */
+  protected static List readList(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    List list = new LinkedList();
+    for(int size = in.readInt(); size > 0; size--)
+    {
+      list.add(in.readObject());
+    }
+    return list;
+  }
+
+  private void writeObject(ObjectOutputStream out)
+    throws IOException
+  {
+    out.defaultWriteObject();
+    writeList(out, derivatives);
+    writeList(out, cases);
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    derivatives = readList(in);
+    cases = readList(in);
+  }
+
   public String getCaseEnding()
   {
     if (caseEnding == null)
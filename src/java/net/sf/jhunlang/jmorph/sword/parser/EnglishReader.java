@@ -8,6 +8,7 @@ import java.io.LineNumberReader;
 
 import net.sf.jhunlang.jmorph.DictEntry;
 import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.parser.ByteScanner;
 import net.sf.jhunlang.jmorph.parser.DictionaryReader;
 import net.sf.jhunlang.jmorph.parser.ParseException;
 import net.sf.jhunlang.jmorph.sword.SwordDict;
@@ -116,6 +117,20 @@ public class EnglishReader extends DictionaryReader
     }
   }
 
+  /**
+   * Return {@link SwordEntry} built from the decoded current line of
+   * <code>scanner</code>.
+   * @param wl the WordList
+   * @param scanner the scanner positioned at the line
+   * @param lineNumber the number of the line
+   */
+  protected DictEntry parseLine(
+    WordList wl, ByteScanner scanner, int lineNumber)
+    throws ParseException
+  {
+    return parseLine(wl, null, decode(scanner, lineNumber));
+  }
+
   protected void done(WordList wl)
   {
     super.done(wl);
@@ -149,9 +149,12 @@ public class SwordAffixReader extends AffixReader implements Rules.Controller
         }
         else if (type.equals(REC))
         {
+          // the derivator levels hold the same entries, so a single
+          // Rules instance stands for all of them
           int x = Integer.parseInt(st.nextToken());
-          while (x-- != 0)
+          if (x > 0)
           {
+            rules.setRecursion(x);
             rules = new Rules(rules, this);
           }
         }
@@ -161,7 +164,7 @@ public class SwordAffixReader extends AffixReader implements Rules.Controller
         }
       }
     }
-    SwordReader.derivatives = derivatives;
+    rules.getRegistry().setDerivatives(derivatives);
     return rules;
   }
 
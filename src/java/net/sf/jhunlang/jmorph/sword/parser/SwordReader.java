@@ -1,13 +1,13 @@
 package net.sf.jhunlang.jmorph.sword.parser;
 
 import java.util.StringTokenizer;
-import java.util.Collection;
-import java.util.LinkedList;
 
 import java.io.LineNumberReader;
 
 import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Registry;
 import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.parser.ByteScanner;
 import net.sf.jhunlang.jmorph.parser.DictionaryReader;
 import net.sf.jhunlang.jmorph.parser.ParseException;
 import net.sf.jhunlang.jmorph.sword.SwordDict;
@@ -22,23 +22,30 @@ import net.sf.jhunlang.jmorph.sword.SwordEntryExtension;
 public class SwordReader extends DictionaryReader
 {
   /**
-   * The collection of string s marking derivatives; an affix rule with
-   * morphological description of x_Y_z is a derivative if Y is in this
-   * collection.
+   * Return if <code>morph</code> is a derivative of the current registry.
+   * @param morph
+   * @return if <code>morph</code> marks a derivative
+   * @see #derivative(Registry, String)
    */
-  public static Collection derivatives = new LinkedList();
+  public static boolean derivative(String morph)
+  {
+    return derivative(Registry.getCurrent(), morph);
+  }
 
   /**
-   * Return if <code>morph</code> is a derivative i.e. if {@link #derivatives}
-   * contains it. The present implementation returns true if <code>morph</code>
-   * is 'PREF', the szoszablya convention for preverbs.
+   * Return if <code>morph</code> is a derivative i.e. if the derivatives
+   * of <code>registry</code> contain it; an affix rule with morphological
+   * description of x_Y_z is a derivative if Y is among them. The
+   * derivatives are set by {@link SwordAffixReader}. Return true if
+   * <code>morph</code> is 'PREF', the szoszablya convention for preverbs.
+   * @param registry the registry of the model
    * @param morph
    * @return if <code>morph</code> marks a derivative
    */
-  public static boolean derivative(String morph)
+  public static boolean derivative(Registry registry, String morph)
   {
-    return
-      morph.equals(SwordExtensionParser.PREF) || derivatives.contains(morph);
+    return morph.equals(SwordExtensionParser.PREF) ||
+      registry.isDerivative(morph);
   }
 
   /**
@@ -67,8 +74,6 @@ public class SwordReader extends DictionaryReader
   protected DictEntry parseLine(WordList wl, LineNumberReader lr, String line)
     throws ParseException
   {
-    SwordDict dict = (SwordDict)wl;
-
     // get word part until first space. Word part is word or word/flags
     // the remainder starts with either stem or [, stem lasting to [
     StringTokenizer st = new StringTokenizer(line);
@@ -90,16 +95,76 @@ public class SwordReader extends DictionaryReader
       flagCharacters = wordPart.substring(index + 1).toCharArray();
       word = wordPart.substring(0, index);
     }
-    if (st.hasMoreTokens())
+    return createEntry((SwordDict)wl, word, flagCharacters,
+      st.hasMoreTokens() ? st.nextToken() : null);
+  }
+
+  /**
+   * Return {@link SwordEntry} built from the current line of
+   * <code>scanner</code> as {@link #parseLine(WordList, LineNumberReader,
+   * String)} builds it from the decoded line. Only the word, the flags and
+   * the description are decoded.
+   * @param wl the WordList
+   * @param scanner the scanner positioned at the line
+   * @param lineNumber the number of the line
+   */
+  protected DictEntry parseLine(
+    WordList wl, ByteScanner scanner, int lineNumber)
+    throws ParseException
+  {
+    parser.setLineNumber(lineNumber);
+    int end = scanner.getLineEnd();
+    int start = scanner.skip(scanner.getLineStart());
+    int wordEnd = scanner.token(start);
+
+    char[] flagCharacters;
+    String word;
+
+    int index = scanner.indexOf(SEPARATOR, start, wordEnd);
+
+    // no flags if no SEPARATOR
+    if (index == -1)
     {
-      String descriptionPart = st.nextToken();
+      flagCharacters = NO_FLAGS;
+      word = scanner.decode(start, wordEnd);
+    }
+    else
+    {
+      flagCharacters = scanner.decodeChars(index + 1, wordEnd);
+      word = scanner.decode(start, index);
+    }
 
+    String descriptionPart = null;
+    int from = scanner.skip(wordEnd);
+    if (from < end)
+    {
+      descriptionPart = scanner.decode(from, scanner.token(from));
+    }
+    return createEntry((SwordDict)wl, word, flagCharacters, descriptionPart);
+  }
+
+  /**
+   * Return {@link SwordEntry} for <code>word</code> and
+   * <code>flagCharacters</code> with the extension parsed from
+   * <code>descriptionPart</code> if not <code>null</code>.
+   * @param dict the SwordDict the returned will be added to
+   * @param word the word
+   * @param flagCharacters the flags
+   * @param descriptionPart the description or <code>null</code>
+   */
+  protected SwordEntry createEntry(SwordDict dict, String word,
+    char[] flagCharacters, String descriptionPart)
+    throws ParseException
+  {
+    if (descriptionPart != null)
+    {
       SwordEntryExtension ext = new SwordEntryExtension();
       SwordEntryExtensionParser extParser = new SwordEntryExtensionParser(ext);
       
       parser.setTokenizer(new StringTokenizer(descriptionPart));
 
-      String root = extParser.parseDescription(parser, derivatives);
+      String root = extParser.parseDescription(
+        parser, Registry.getCurrent().getDerivatives());
 
       SwordEntry entry = new SwordEntry(word, flagCharacters, ext);
 
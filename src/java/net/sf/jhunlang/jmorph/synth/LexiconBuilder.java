@@ -0,0 +1,1034 @@
+package net.sf.jhunlang.jmorph.synth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import net.sf.jhunlang.jmorph.AffixEntry;
+import net.sf.jhunlang.jmorph.DictEntry;
+import net.sf.jhunlang.jmorph.Dictionaries;
+import net.sf.jhunlang.jmorph.Rules;
+import net.sf.jhunlang.jmorph.SuffixEntry;
+import net.sf.jhunlang.jmorph.WordList;
+import net.sf.jhunlang.jmorph.analysis.AnalyserContext;
+import net.sf.jhunlang.jmorph.analysis.AnalyserControl;
+import net.sf.jhunlang.jmorph.analysis.AnalyserImpl;
+import net.sf.jhunlang.jmorph.analysis.AnalysisEntry;
+import net.sf.jhunlang.jmorph.analysis.Lexicon;
+import net.sf.jhunlang.jmorph.analysis.TruncatedAnalyses;
+import net.sf.jhunlang.jmorph.cl.Cl;
+import net.sf.jhunlang.jmorph.factory.Loader;
+
+/**
+ * LexiconBuilder builds the {@link Lexicon} of the rules and dictionaries
+ * it is created for. Each dictionary entry, its homonyms included, is
+ * expanded by the inflexional suffix entries its flags admit as the
+ * {@link Generator} of type {@link Generator#INFLEXION} does; the
+ * lowercase forms, restricted to the words of the filter if one is set,
+ * are collected with the codes of their analyses. A form is left out if
+ * the stem of any of its analyses cannot be got back from it by the suffix
+ * entry or the dictionary entry cannot be selected among those of its
+ * stem.<p>
+ * The forms are sorted in runs of {@link #CHUNK} records; the runs not
+ * fitting in memory are written to temporary files and merged. The
+ * transducer is built from the sorted forms by the incremental algorithm
+ * of Daciuk et al. registering the equivalent states once.<p>
+ * If verification is on (the default) then each form is analysed by an
+ * {@link AnalyserImpl} of the same rules and dictionaries for each depth
+ * up to {@link #DEPTH} and each of {@link AnalyserControl#XES}. The form
+ * is kept only if all its analyses can be coded and the lexicon would
+ * answer each of those controls as the analyser does; the codes are
+ * kept in the order of the analyser. Verification makes the answers of
+ * the lexicon exact at the price of (depth + 1) &times; 2 full analyses
+ * per form: 6 at the default {@link AnalyserControl#FIRST_SUFFIX}, 20 at
+ * {@link AnalyserControl#ALL_COMPOUNDS}, where the compound analyses of
+ * the forms dominate the build time. Forms having derivational readings
+ * or readings by prefixes are left to the analyser so.<p>
+ * Usage:
+ * <pre>
+ *   java [-Dlexicon.verify=false] [-Dlexicon.depth=d] [-Dinput=words]
+ *     net.sf.jhunlang.jmorph.synth.LexiconBuilder [definition] lexicon
+ * </pre>
+ * The words of the optional input file, one per line, restrict the forms
+ * of the lexicon.
+ */
+public class LexiconBuilder extends Generator
+{
+  /**
+   * System property telling if the analyses are verified.
+   */
+  public final static String VERIFY = "lexicon.verify";
+  /**
+   * System property for the depth of analysis verified.
+   */
+  public final static String DEPTH = "lexicon.depth";
+  /**
+   * System property for the number of records sorted in memory.
+   */
+  public final static String CHUNK = "lexicon.chunk";
+  /**
+   * The code of analyses that cannot be coded.
+   */
+  protected final static int POISON = -1;
+
+  /**
+   * The numbers of the suffix entries.
+   */
+  protected Map ids = new IdentityHashMap();
+  /**
+   * The words the forms are restricted to or <code>null</code>.
+   */
+  protected Set filter;
+  /**
+   * Tells if the analyses are verified.
+   */
+  protected boolean verify =
+    Boolean.valueOf(System.getProperty(VERIFY, "true")).booleanValue();
+  /**
+   * The depth of analysis the lexicon answers up to.
+   */
+  protected int depth;
+  /**
+   * The number of records sorted in memory.
+   */
+  protected int chunk = Integer.getInteger(CHUNK, 1 << 20).intValue();
+
+  /**
+   * The records of the current run.
+   */
+  protected Record[] records;
+  /**
+   * The number of records of the current run.
+   */
+  protected int size;
+  /**
+   * The files of the runs written.
+   */
+  protected List runs = new ArrayList();
+  /**
+   * The word of the dictionary entry being expanded.
+   */
+  protected String stem;
+  /**
+   * The selector of the dictionary entry being expanded.
+   */
+  protected int selector;
+  /**
+   * The analyser verifying the forms.
+   */
+  protected AnalyserImpl analyser;
+  /**
+   * The contexts of verification by depth and by X.
+   */
+  protected AnalyserContext[][] contexts;
+
+  /**
+   * The number of records collected.
+   */
+  protected long recordCount;
+  /**
+   * The number of distinct forms collected.
+   */
+  protected int formCount;
+  /**
+   * The number of forms left out.
+   */
+  protected int dropCount;
+
+  /**
+   * Create a LexiconBuilder for <code>rules</code> and
+   * <code>dictionaries</code>.
+   * @param rules the rules
+   * @param dictionaries the dictionaries
+   */
+  public LexiconBuilder(Rules rules, Dictionaries dictionaries)
+  {
+    super(rules, dictionaries, INFLEXION);
+    setDepth(
+      Integer.getInteger(DEPTH, AnalyserControl.FIRST_SUFFIX).intValue());
+    SuffixEntry[] affixes = Lexicon.affixes(rules);
+    for(int i = 0; i < affixes.length; i++)
+    {
+      ids.put(affixes[i], Integer.valueOf(i));
+    }
+  }
+
+  /**
+   * Restrict the forms of the lexicon to <code>words</code>.
+   * @param words the words or <code>null</code> for all forms
+   */
+  public void setFilter(Collection words)
+  {
+    filter = words == null ? null : new HashSet(words);
+  }
+
+  public void setVerify(boolean verify)
+  {
+    this.verify = verify;
+  }
+
+  public boolean getVerify()
+  {
+    return verify;
+  }
+
+  /**
+   * Set the depth of analysis the lexicon answers up to. Unverified
+   * lexicons answer up to {@link AnalyserControl#FIRST_SUFFIX}.
+   * @param depth the depth
+   * @exception IllegalArgumentException if depth is not one of the legal
+   * values of {@link AnalyserControl}
+   */
+  public void setDepth(int depth)
+  {
+    if (depth < 0 || depth > AnalyserControl.ALL_COMPOUNDS)
+    {
+      throw new IllegalArgumentException("" + depth);
+    }
+    this.depth = depth;
+  }
+
+  public int getDepth()
+  {
+    return verify ? depth : AnalyserControl.FIRST_SUFFIX;
+  }
+
+  public void setChunk(int chunk)
+  {
+    this.chunk = chunk;
+  }
+
+  /**
+   * Return the number of records collected by the last build.
+   */
+  public long getRecordCount()
+  {
+    return recordCount;
+  }
+
+  /**
+   * Return the number of distinct forms collected by the last build.
+   */
+  public int getFormCount()
+  {
+    return formCount;
+  }
+
+  /**
+   * Return the number of forms the last build left out.
+   */
+  public int getDropCount()
+  {
+    return dropCount;
+  }
+
+  /**
+   * Build and return the lexicon.
+   * @return the lexicon
+   * @throws IOException if the runs cannot be written or read
+   */
+  public Lexicon build()
+    throws IOException
+  {
+    records = new Record[Math.max(1, chunk)];
+    size = 0;
+    runs.clear();
+    recordCount = 0;
+    formCount = 0;
+    dropCount = 0;
+    if (verify)
+    {
+      analyser = new AnalyserImpl(rules, dictionaries);
+      contexts = new AnalyserContext[depth + 1][AnalyserControl.XES.length];
+      for(int i = 0; i <= depth; i++)
+      {
+        for(int j = 0; j < AnalyserControl.XES.length; j++)
+        {
+          contexts[i][j] = new AnalyserContext(
+            new AnalyserControl(i, AnalyserControl.XES[j]));
+        }
+      }
+    }
+
+    Iterator it = dictionaries.iterator();
+    while (it.hasNext())
+    {
+      Iterator wit = ((WordList)it.next()).getWords().values().iterator();
+      while (wit.hasNext())
+      {
+        Object o = wit.next();
+        if (o instanceof Map)
+        {
+          Iterator mit = ((Map)o).values().iterator();
+          while (mit.hasNext())
+          {
+            expandHomonyms((DictEntry)mit.next());
+          }
+        }
+        else
+        {
+          expandHomonyms((DictEntry)o);
+        }
+      }
+    }
+
+    Run run;
+    try
+    {
+      if (runs.size() == 0)
+      {
+        Arrays.sort(records, 0, size);
+        run = new ArrayRun(records, size);
+      }
+      else
+      {
+        flush();
+        run = new MergedRun(runs);
+      }
+      records = null;
+      return build(run);
+    }
+    finally
+    {
+      records = null;
+      analyser = null;
+      contexts = null;
+      for(int i = 0; i < runs.size(); i++)
+      {
+        ((File)runs.get(i)).delete();
+      }
+      runs.clear();
+    }
+  }
+
+  /**
+   * Expand <code>entry</code> and its homonyms.
+   */
+  protected void expandHomonyms(DictEntry entry)
+  {
+    expand(entry);
+    Iterator it = entry.getHomonyms().iterator();
+    while (it.hasNext())
+    {
+      expand((DictEntry)it.next());
+    }
+  }
+
+  /**
+   * Collect <code>entry</code> and its inflexions.
+   */
+  protected void expand(DictEntry entry)
+  {
+    stem = entry.getWord();
+    List entries = Lexicon.entries(dictionaries, stem);
+    selector = -1;
+    for(int i = 0; i < entries.size() && selector < 0; i++)
+    {
+      if (entries.get(i) == entry)
+      {
+        selector = i;
+      }
+    }
+    if (selector < 0 || selector > Lexicon.MAX_SELECTOR)
+    {
+      return;
+    }
+    add(stem, Lexicon.code(-1, selector));
+    generate(entry, null);
+  }
+
+  /**
+   * Collect the form and the code of <code>analysis</code>.
+   */
+  protected void put(Map generations, AnalysisEntry analysis)
+  {
+    String form = analysis.getInflexedWord();
+    SuffixEntry suffix = (SuffixEntry)analysis.getAffixEntry0();
+    Integer id = (Integer)ids.get(suffix);
+    add(form, id != null && suffix.reverse(form).equals(stem) ?
+      Lexicon.code(id.intValue(), selector) : POISON);
+  }
+
+  /**
+   * Add the record of <code>form</code> and <code>code</code> unless
+   * <code>form</code> is not lowercase or it is filtered out.
+   */
+  protected void add(String form, int code)
+  {
+    if ((filter != null && !filter.contains(form)) ||
+        !form.equals(form.toLowerCase()))
+    {
+      return;
+    }
+    if (size == records.length)
+    {
+      flush();
+    }
+    records[size++] = new Record(form, code);
+    recordCount++;
+  }
+
+  /**
+   * Sort the records collected and write them to a new run file.
+   */
+  protected void flush()
+  {
+    Arrays.sort(records, 0, size);
+    try
+    {
+      File file = File.createTempFile("lexicon", ".run");
+      file.deleteOnExit();
+      runs.add(file);
+      DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+      try
+      {
+        for(int i = 0; i < size; i++)
+        {
+          out.writeUTF(records[i].form);
+          out.writeInt(records[i].code);
+          records[i] = null;
+        }
+      }
+      finally
+      {
+        out.close();
+      }
+    }
+    catch (IOException iox)
+    {
+      throw new IllegalStateException("Cannot write run: " + iox);
+    }
+    size = 0;
+  }
+
+  /**
+   * Build the lexicon of the sorted records of <code>run</code>.
+   */
+  protected Lexicon build(Run run)
+    throws IOException
+  {
+    Map sets = new HashMap();
+    List codes = new ArrayList();
+    Automaton automaton = new Automaton();
+
+    int[] buffer = new int[16];
+    Record record = run.next();
+    while (record != null)
+    {
+      String form = record.form;
+      int n = 0;
+      for(; record != null && record.form.equals(form); record = run.next())
+      {
+        if (n == 0 || buffer[n - 1] != record.code)
+        {
+          if (n == buffer.length)
+          {
+            int[] b = new int[2 * n];
+            System.arraycopy(buffer, 0, b, 0, n);
+            buffer = b;
+          }
+          buffer[n++] = record.code;
+        }
+      }
+      formCount++;
+      int[] set = null;
+      if (buffer[0] != POISON)
+      {
+        set = new int[n];
+        System.arraycopy(buffer, 0, set, 0, n);
+        if (verify)
+        {
+          set = verify(form, set);
+        }
+      }
+      if (set == null)
+      {
+        dropCount++;
+        continue;
+      }
+      Codes key = new Codes(set);
+      Integer value = (Integer)sets.get(key);
+      if (value == null)
+      {
+        value = Integer.valueOf(codes.size());
+        sets.put(key, value);
+        codes.add(set);
+      }
+      automaton.add(form, value.intValue());
+    }
+    run.close();
+    automaton.finish();
+    return automaton.compile(rules, dictionaries, verify, getDepth(),
+      formCount - dropCount, (int[][])codes.toArray(new int[codes.size()][]));
+  }
+
+  /**
+   * Return the codes of <code>form</code> in the order of the analyser or
+   * <code>null</code> if the lexicon would not answer as the analyser does.
+   * @param form the form
+   * @param generated the codes of the generated analyses
+   * @return the codes verified or <code>null</code>
+   */
+  protected int[] verify(String form, int[] generated)
+  {
+    int[] codes = null;
+    for(int i = depth; i >= 0; i--)
+    {
+      for(int j = 0; j < contexts[i].length; j++)
+      {
+        int[] found = codes(form, analyser.analyse(form, contexts[i][j]));
+        if (found == null)
+        {
+          return null;
+        }
+        if (codes == null)
+        {
+          codes = found;
+        }
+        if (!Arrays.equals(found, answer(codes, i)))
+        {
+          return null;
+        }
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Return the codes the lexicon answers for <code>depth</code> if it holds
+   * <code>codes</code>.
+   */
+  protected static int[] answer(int[] codes, int depth)
+  {
+    if (depth != AnalyserControl.FIRST_STEM)
+    {
+      return codes;
+    }
+    int n = 0;
+    for(int i = 0; i < codes.length; i++)
+    {
+      if (Lexicon.affix(codes[i]) < 0)
+      {
+        n++;
+      }
+    }
+    if (n == 0 || n == codes.length)
+    {
+      return codes;
+    }
+    int[] stems = new int[n];
+    n = 0;
+    for(int i = 0; i < codes.length; i++)
+    {
+      if (Lexicon.affix(codes[i]) < 0)
+      {
+        stems[n++] = codes[i];
+      }
+    }
+    return stems;
+  }
+
+  /**
+   * Return the codes of <code>analyses</code> of <code>form</code> or
+   * <code>null</code> if any of them cannot be coded.
+   */
+  protected int[] codes(String form, List analyses)
+  {
+    if (analyses.size() == 0 || TruncatedAnalyses.truncated(analyses))
+    {
+      return null;
+    }
+    int[] codes = new int[analyses.size()];
+    for(int i = 0; i < codes.length; i++)
+    {
+      Object o = analyses.get(i);
+      if (!(o instanceof AnalysisEntry))
+      {
+        return null;
+      }
+      AnalysisEntry analysis = (AnalysisEntry)o;
+      AffixEntry affix = analysis.getAffixEntry0();
+      if (analysis.getAffixEntry1() != null ||
+          (affix != null && !(affix instanceof SuffixEntry)))
+      {
+        return null;
+      }
+      DictEntry entry = analysis.getDictEntry();
+      String word = entry.getWord();
+      int id = -1;
+      if (affix != null)
+      {
+        Integer i0 = (Integer)ids.get(affix);
+        if (i0 == null || !((SuffixEntry)affix).reverse(form).equals(word))
+        {
+          return null;
+        }
+        id = i0.intValue();
+      }
+      else if (!word.equals(form))
+      {
+        return null;
+      }
+      List entries = Lexicon.entries(dictionaries, word);
+      int selector = -1;
+      for(int j = 0; j < entries.size() && selector < 0; j++)
+      {
+        if (entries.get(j) == entry)
+        {
+          selector = j;
+        }
+      }
+      if (selector < 0 || selector > Lexicon.MAX_SELECTOR)
+      {
+        return null;
+      }
+      codes[i] = Lexicon.code(id, selector);
+    }
+    return codes;
+  }
+
+  /**
+   * A form and the code of one of its analyses.
+   */
+  protected static class Record implements Comparable
+  {
+    protected final String form;
+    protected final int code;
+
+    protected Record(String form, int code)
+    {
+      this.form = form;
+      this.code = code;
+    }
+
+    public int compareTo(Object o)
+    {
+      Record other = (Record)o;
+      int c = form.compareTo(other.form);
+      if (c != 0)
+      {
+        return c;
+      }
+      return code < other.code ? -1 : (code == other.code ? 0 : 1);
+    }
+  }
+
+  /**
+   * A set of codes as a key of a map.
+   */
+  protected static class Codes
+  {
+    protected final int[] codes;
+    protected final int hash;
+
+    protected Codes(int[] codes)
+    {
+      this.codes = codes;
+      hash = Arrays.hashCode(codes);
+    }
+
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    public boolean equals(Object o)
+    {
+      return o instanceof Codes && Arrays.equals(codes, ((Codes)o).codes);
+    }
+  }
+
+  /**
+   * Sorted records.
+   */
+  protected static abstract class Run
+  {
+    /**
+     * Return the next record or <code>null</code> at the end.
+     */
+    protected abstract Record next()
+      throws IOException;
+
+    protected void close()
+      throws IOException
+    {}
+  }
+
+  /**
+   * The sorted records of an array.
+   */
+  protected static class ArrayRun extends Run
+  {
+    protected final Record[] records;
+    protected final int size;
+    protected int index;
+
+    protected ArrayRun(Record[] records, int size)
+    {
+      this.records = records;
+      this.size = size;
+    }
+
+    protected Record next()
+    {
+      return index < size ? records[index++] : null;
+    }
+  }
+
+  /**
+   * The sorted records of a run file.
+   */
+  protected static class FileRun extends Run implements Comparable
+  {
+    protected final DataInputStream in;
+    protected Record current;
+
+    protected FileRun(File file)
+      throws IOException
+    {
+      in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file), 1 << 16));
+    }
+
+    protected Record next()
+      throws IOException
+    {
+      try
+      {
+        String form = in.readUTF();
+        current = new Record(form, in.readInt());
+      }
+      catch (EOFException eofx)
+      {
+        current = null;
+      }
+      return current;
+    }
+
+    protected void close()
+      throws IOException
+    {
+      in.close();
+    }
+
+    public int compareTo(Object o)
+    {
+      return current.compareTo(((FileRun)o).current);
+    }
+  }
+
+  /**
+   * The records of run files merged.
+   */
+  protected static class MergedRun extends Run
+  {
+    protected final PriorityQueue queue = new PriorityQueue();
+    protected final List all = new ArrayList();
+
+    protected MergedRun(List files)
+      throws IOException
+    {
+      for(int i = 0; i < files.size(); i++)
+      {
+        FileRun run = new FileRun((File)files.get(i));
+        all.add(run);
+        if (run.next() != null)
+        {
+          queue.add(run);
+        }
+      }
+    }
+
+    protected Record next()
+      throws IOException
+    {
+      FileRun run = (FileRun)queue.poll();
+      if (run == null)
+      {
+        return null;
+      }
+      Record record = run.current;
+      if (run.next() != null)
+      {
+        queue.add(run);
+      }
+      return record;
+    }
+
+    protected void close()
+      throws IOException
+    {
+      for(int i = 0; i < all.size(); i++)
+      {
+        ((FileRun)all.get(i)).close();
+      }
+    }
+  }
+
+  /**
+   * A state of the automaton under construction. The hash code and the
+   * equality of states registered depend on their transitions and value
+   * which do not change any more.
+   */
+  protected static class State
+  {
+    protected char[] labels = new char[2];
+    protected State[] targets = new State[2];
+    protected int size;
+    protected int value = -1;
+    protected int id = -1;
+    protected int hash;
+
+    protected void add(char label, State target)
+    {
+      if (size == labels.length)
+      {
+        char[] l = new char[2 * size];
+        System.arraycopy(labels, 0, l, 0, size);
+        labels = l;
+        State[] t = new State[2 * size];
+        System.arraycopy(targets, 0, t, 0, size);
+        targets = t;
+      }
+      labels[size] = label;
+      targets[size++] = target;
+    }
+
+    public int hashCode()
+    {
+      if (hash == 0)
+      {
+        int h = value;
+        for(int i = 0; i < size; i++)
+        {
+          h = 31 * h + labels[i];
+          h = 31 * h + System.identityHashCode(targets[i]);
+        }
+        hash = h == 0 ? 1 : h;
+      }
+      return hash;
+    }
+
+    public boolean equals(Object o)
+    {
+      State other = (State)o;
+      if (value != other.value || size != other.size)
+      {
+        return false;
+      }
+      for(int i = 0; i < size; i++)
+      {
+        if (labels[i] != other.labels[i] || targets[i] != other.targets[i])
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The minimal automaton of the words added in ascending order.
+   */
+  protected static class Automaton
+  {
+    protected final State root = new State();
+    protected final Map register = new HashMap();
+    /**
+     * The states along the previous word.
+     */
+    protected State[] path = new State[64];
+    protected String previous = "";
+
+    protected Automaton()
+    {
+      path[0] = root;
+    }
+
+    /**
+     * Add <code>word</code> mapped to <code>value</code>. The word must
+     * follow the words added before.
+     */
+    protected void add(String word, int value)
+    {
+      int prefix = 0;
+      int max = Math.min(word.length(), previous.length());
+      while (prefix < max && word.charAt(prefix) == previous.charAt(prefix))
+      {
+        prefix++;
+      }
+      minimize(prefix);
+      if (word.length() >= path.length)
+      {
+        State[] p = new State[2 * word.length()];
+        System.arraycopy(path, 0, p, 0, path.length);
+        path = p;
+      }
+      for(int i = prefix; i < word.length(); i++)
+      {
+        State state = new State();
+        path[i].add(word.charAt(i), state);
+        path[i + 1] = state;
+      }
+      path[word.length()].value = value;
+      previous = word;
+    }
+
+    /**
+     * Replace the states of the previous word after <code>prefix</code>
+     * by their registered equivalents or register them.
+     */
+    protected void minimize(int prefix)
+    {
+      for(int i = previous.length(); i > prefix; i--)
+      {
+        State state = path[i];
+        State registered = (State)register.get(state);
+        if (registered == null)
+        {
+          register.put(state, state);
+        }
+        else
+        {
+          State parent = path[i - 1];
+          parent.targets[parent.size - 1] = registered;
+        }
+        path[i] = null;
+      }
+    }
+
+    protected void finish()
+    {
+      minimize(0);
+    }
+
+    /**
+     * Return the lexicon of this automaton numbering the states in
+     * breadth-first order from the root.
+     */
+    protected Lexicon compile(Rules rules, Dictionaries dictionaries,
+      boolean verified, int depth, int forms, int[][] codes)
+    {
+      List states = new ArrayList();
+      root.id = 0;
+      states.add(root);
+      int transitions = 0;
+      for(int i = 0; i < states.size(); i++)
+      {
+        State state = (State)states.get(i);
+        transitions += state.size;
+        for(int j = 0; j < state.size; j++)
+        {
+          State target = state.targets[j];
+          if (target.id < 0)
+          {
+            target.id = states.size();
+            states.add(target);
+          }
+        }
+      }
+      int[] first = new int[states.size() + 1];
+      int[] values = new int[states.size()];
+      char[] labels = new char[transitions];
+      int[] targets = new int[transitions];
+      int t = 0;
+      for(int i = 0; i < states.size(); i++)
+      {
+        State state = (State)states.get(i);
+        first[i] = t;
+        values[i] = state.value;
+        for(int j = 0; j < state.size; j++)
+        {
+          labels[t] = state.labels[j];
+          targets[t++] = state.targets[j].id;
+        }
+      }
+      first[states.size()] = t;
+      return new Lexicon(rules, dictionaries, verified, depth, forms, codes,
+        first, labels, targets, values);
+    }
+  }
+
+  /**
+   * Build the lexicon of the model specified by the definition file. The
+   * command line parameters are the definition file (the bundled
+   * {@link Loader#DEF_URL} if omitted) and the lexicon file to write.
+   * @param args the command line parameters
+   */
+  public static void main(String[] args)
+    throws Exception
+  {
+    if (args.length < 1 || args.length > 2)
+    {
+      System.err.println("Usage: LexiconBuilder [definition] lexicon");
+      System.exit(2);
+    }
+
+    String[] defArgs = new String[args.length - 1];
+    System.arraycopy(args, 0, defArgs, 0, defArgs.length);
+
+    long start = System.currentTimeMillis();
+    Loader loader = new Loader();
+    loader.load(defArgs);
+    long loaded = System.currentTimeMillis();
+
+    LexiconBuilder builder =
+      new LexiconBuilder(loader.getRules(), loader.getDic());
+    String input = System.getProperty(Cl.INPUT);
+    if (input != null)
+    {
+      List words = new ArrayList();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new FileInputStream(input),
+        System.getProperty(Cl.ENCODING, Cl.DEFAULT_ENCODING)));
+      try
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          line = line.trim();
+          if (line.length() > 0)
+          {
+            words.add(line);
+          }
+        }
+      }
+      finally
+      {
+        reader.close();
+      }
+      builder.setFilter(words);
+    }
+    Lexicon lexicon = builder.build();
+    long built = System.currentTimeMillis();
+
+    File file = new File(args[args.length - 1]);
+    lexicon.write(file);
+
+    System.out.println("Loaded model in " + (loaded - start) + " ms, " +
+      "built " + lexicon + " of " + builder.getRecordCount() + " records, " +
+      builder.getDropCount() + " forms left out, in " + (built - loaded) +
+      " ms, wrote " + file.length() + " bytes to " + file);
+  }
+}
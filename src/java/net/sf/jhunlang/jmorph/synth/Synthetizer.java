@@ -629,7 +629,7 @@ public class Synthetizer
         return false;
       }
       String morph1 = morph.substring(firstIndex + 1, lastIndex);
-      return SwordReader.derivative(morph1);
+      return SwordReader.derivative(rules.getRegistry(), morph1);
     }
     return false;
   }
@@ -0,0 +1,116 @@
+package net.sf.jhunlang.jmorph.util;
+
+/**
+ * BloomFilter is a set of strings that may answer <code>true</code> for
+ * strings never added but never answers <code>false</code> for a string
+ * added. A string sets {@link #hashes} bits of a bit array; the bits are
+ * derived from the <code>hashCode</code> of the string, so strings probed
+ * repeatedly are hashed once. With 10 bits per string and 7 hashes about 1
+ * in 100 strings not added is let through.
+ */
+public class BloomFilter
+{
+  /**
+   * The default number of bits per string.
+   */
+  public final static int BITS_PER_KEY = 10;
+  /**
+   * The default number of bits set by a string.
+   */
+  public final static int HASHES = 7;
+
+  protected final long[] bits;
+  protected final int mask;
+  protected final int hashes;
+
+  /**
+   * Create a filter for <code>keys</code> strings with the default
+   * {@link #BITS_PER_KEY} and {@link #HASHES}.
+   * @param keys the expected number of strings
+   */
+  public BloomFilter(int keys)
+  {
+    this(keys, BITS_PER_KEY, HASHES);
+  }
+
+  /**
+   * Create a filter for <code>keys</code> strings. The number of bits is
+   * rounded up to a power of 2.
+   * @param keys the expected number of strings
+   * @param bitsPerKey the number of bits per string
+   * @param hashes the number of bits set by a string
+   */
+  public BloomFilter(int keys, int bitsPerKey, int hashes)
+  {
+    long n = Math.max(64L, (long)keys * bitsPerKey);
+    int size = 64;
+    while (size < n && size < (1 << 30))
+    {
+      size <<= 1;
+    }
+    bits = new long[size >>> 6];
+    mask = size - 1;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Add <code>key</code> to this filter.
+   * @param key the string to add
+   */
+  public void add(String key)
+  {
+    int h = key.hashCode();
+    int h1 = mix(h);
+    int h2 = mix(h ^ 0x9e3779b9) | 1;
+    for(int i = 0; i < hashes; i++)
+    {
+      int bit = (h1 + i * h2) & mask;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Return <code>false</code> if <code>key</code> has not been added to
+   * this filter. Return <code>true</code> if it may have been added.
+   * @param key the string to check
+   * @return if <code>key</code> may have been added
+   */
+  public boolean mightContain(String key)
+  {
+    int h = key.hashCode();
+    int h1 = mix(h);
+    int h2 = mix(h ^ 0x9e3779b9) | 1;
+    for(int i = 0; i < hashes; i++)
+    {
+      int bit = (h1 + i * h2) & mask;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected static int mix(int h)
+  {
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    h *= 0xc2b2ae35;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Return the number of bits of this filter.
+   * @return the number of bits
+   */
+  public int getSize()
+  {
+    return mask + 1;
+  }
+
+  public String toString()
+  {
+    return "BloomFilter[" + getSize() + " bits, " + hashes + " hashes]";
+  }
+}
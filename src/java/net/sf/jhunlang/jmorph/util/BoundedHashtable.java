@@ -1,6 +1,6 @@
 package net.sf.jhunlang.jmorph.util;
 
-// not thread safe; removes oldest if size exceeds capacity.
+// removes oldest if size exceeds capacity by more than dropLimit.
 public class BoundedHashtable extends CacheHashtable
 {
   protected int capacity;
@@ -13,23 +13,27 @@ public class BoundedHashtable extends CacheHashtable
     this.dropLimit = dropLimit;
   }
 
-  public void setCapacity(int capacity)
+  public synchronized void setCapacity(int capacity)
   {
     this.capacity = capacity;
     remove(size() - capacity);
   }
 
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
   protected int drop()
   {
     int drop = size() - capacity;
     return drop > dropLimit ? drop : 0;
   }
 
-  public Object clone()
+  public synchronized Object clone()
   {
     BoundedHashtable bht = (BoundedHashtable)super.clone();
     bht.capacity = capacity;
     return bht;
   }
 }
-
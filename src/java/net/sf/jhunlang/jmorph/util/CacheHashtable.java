@@ -2,89 +2,112 @@ package net.sf.jhunlang.jmorph.util;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.TreeSet;
 
-// not thread safe; removes oldest if size exceeds capacity.
+/**
+ * CacheHashtable is a Hashtable remembering the order its keys were put
+ * in. The entries are chained in a doubly linked list from the oldest to
+ * the youngest so that putting, removing and dropping the oldest entries
+ * take constant time. Putting a key again makes it the youngest.
+ * Subclasses tell by {@link #drop()} how many of the oldest entries to
+ * drop after a put.<p>
+ * The methods are synchronized on the table like those of Hashtable.
+ */
 public abstract class CacheHashtable extends Hashtable
 {
-  protected long time;
-  protected TreeSet entries = new TreeSet();
+  /**
+   * The sentinel of the list of entries; its next is the oldest and its
+   * previous is the youngest entry.
+   */
+  protected Entry head = new Entry(null, null);
 
   // remove drop oldest keys
-  public void remove(int drop)
+  public synchronized void remove(int drop)
   {
-    while(drop-- > 0)
+    while(drop-- > 0 && head.next != head)
     {
-      Entry e = (Entry)entries.first();
-      remove(e.key());
-      entries.remove(e);
+      Entry e = head.next;
+      super.remove(e.key);
+      e.unlink();
     }
   }
 
-  public Object remove(Object key)
+  public synchronized Object remove(Object key)
   {
     Entry o = (Entry)super.remove(key);
-    if ( o != null )
+    if (o != null)
     {
-      entries.remove(o);
+      o.unlink();
     }
-    return o == null ? null : o.value();
+    return o == null ? null : o.value;
   }
 
-  public Object put(Object key, Object value)
+  public synchronized Object put(Object key, Object value)
   {
     Entry e = new Entry(key, value);
     Entry o = (Entry)super.put(key, e);
 
     if (o != null)
     {
-      entries.remove(o);
+      o.unlink();
     }
 
-    entries.add(e);
+    e.link(head);
     remove(drop());
 
-    return o == null ? null : o.value();
+    return o == null ? null : o.value;
   }
 
-  public Object first()
+  public synchronized Object first()
   {
-    Entry e = (Entry)entries.first();
-    return e == null ? null : e.value();
+    return head.next == head ? null : head.next.value;
   }
 
-  public Object last()
+  public synchronized Object last()
   {
-    Entry e = (Entry)entries.last();
-    return e == null ? null : e.value();
+    return head.prev == head ? null : head.prev.value;
   }
 
-  public Object get(Object key)
+  public synchronized Object get(Object key)
   {
     Entry o = (Entry)super.get(key);
-    return o == null ? null : o.value();
+    return o == null ? null : o.value;
   }
 
-  public void clear()
+  public synchronized void clear()
   {
     super.clear();
-    entries.clear();
+    head.next = head.prev = head;
   }
 
-  public Enumeration elements()
+  public synchronized Enumeration elements()
   {
     return new EntryEnum(super.elements());
   }
 
-  public Object clone()
+  public synchronized Object clone()
   {
     CacheHashtable cht = (CacheHashtable)super.clone();
-    cht.entries = (TreeSet)entries.clone();
+    cht.relink(head);
     return cht;
   }
 
   protected abstract int drop();
 
+  /**
+   * Replace the entries shared with the table of <code>oldHead</code>
+   * after cloning by entries of their own chained in the same order.
+   */
+  private void relink(Entry oldHead)
+  {
+    head = new Entry(null, null);
+    for(Entry o = oldHead.next; o != oldHead; o = o.next)
+    {
+      Entry e = new Entry(o.key, o.value);
+      super.put(o.key, e);
+      e.link(head);
+    }
+  }
+
   private class EntryEnum implements Enumeration
   {
     Enumeration en;
@@ -101,54 +124,37 @@ public abstract class CacheHashtable extends Hashtable
 
     public Object nextElement()
     {
-      return ((Entry)en.nextElement()).value();
+      return ((Entry)en.nextElement()).value;
     }
   }
 
-  private class Entry implements Comparable
+  protected static class Entry
   {
-    protected Long age;
     protected Object key;
     protected Object value;
-    protected int hashCode;
+    protected Entry prev = this;
+    protected Entry next = this;
 
     Entry(Object key, Object value)
     {
-      age = new Long(time++);
       this.key = key;
       this.value = value;
-      hashCode = this.value.hashCode();
     }
 
-    Object key()
+    // link as the youngest before head
+    void link(Entry head)
     {
-      return key;
+      prev = head.prev;
+      next = head;
+      prev.next = this;
+      head.prev = this;
     }
 
-    Object value()
+    void unlink()
     {
-      return value;
-    }
-
-    Long age()
-    {
-      return age;
-    }
-
-    public int hashCode()
-    {
-      return hashCode;
-    }
-
-    public boolean equals(Object o)
-    {
-      return o != null && (o instanceof Entry) && compareTo(o) == 0;
-    }
-
-    public int compareTo(Object o)
-    {
-      return age.compareTo(((Entry)o).age());
+      prev.next = next;
+      next.prev = prev;
+      prev = next = this;
     }
   }
 }
-
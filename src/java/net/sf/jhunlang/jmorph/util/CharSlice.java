@@ -0,0 +1,69 @@
+package net.sf.jhunlang.jmorph.util;
+
+/**
+ * CharSlice is a <code>CharSequence</code> view of a range of a
+ * <code>char</code> array. The array is not copied; a slice can be
+ * repositioned by {@link #set(char[], int, int)} so that a single instance
+ * can stand for several ranges one after the other. The string of the
+ * range is created only by {@link #toString()}.
+ */
+public class CharSlice implements CharSequence
+{
+  protected char[] chars;
+  protected int offset;
+  protected int length;
+
+  public CharSlice()
+  {
+    this(new char[0], 0, 0);
+  }
+
+  public CharSlice(char[] chars, int offset, int length)
+  {
+    set(chars, offset, length);
+  }
+
+  /**
+   * Make this slice the view of <code>length</code> characters of
+   * <code>chars</code> starting at <code>offset</code>.
+   * @param chars the characters
+   * @param offset the index of the first character of the slice
+   * @param length the length of the slice
+   * @return this slice
+   */
+  public CharSlice set(char[] chars, int offset, int length)
+  {
+    this.chars = chars;
+    this.offset = offset;
+    this.length = length;
+    return this;
+  }
+
+  public int length()
+  {
+    return length;
+  }
+
+  public char charAt(int index)
+  {
+    if (index < 0 || index >= length)
+    {
+      throw new IndexOutOfBoundsException("" + index);
+    }
+    return chars[offset + index];
+  }
+
+  public CharSequence subSequence(int start, int end)
+  {
+    if (start < 0 || end > length || start > end)
+    {
+      throw new IndexOutOfBoundsException(start + ", " + end);
+    }
+    return new CharSlice(chars, offset + start, end - start);
+  }
+
+  public String toString()
+  {
+    return new String(chars, offset, length);
+  }
+}
@@ -1,7 +1,11 @@
 package net.sf.jhunlang.jmorph.util;
 
-public class Pair
+import java.io.Serializable;
+
+public class Pair implements Serializable
 {
+  private final static long serialVersionUID = 1L;
+
   protected final Object a;
   protected final Object  b;
 
@@ -0,0 +1,101 @@
+package net.sf.jhunlang.jmorph.util;
+
+/**
+ * StripedBoundedCache is a bounded cache for concurrent use. It spreads its
+ * keys by hash over a power of 2 number of {@link BoundedHashtable}
+ * stripes, each locked on its own, so threads working on keys of different
+ * stripes do not wait for each other. The capacity and the drop limit are
+ * shared out evenly among the stripes; each stripe drops its oldest keys
+ * when its size exceeds its capacity by more than its drop limit. With a
+ * single stripe the cache behaves like a {@link BoundedHashtable}.
+ */
+public class StripedBoundedCache
+{
+  protected final BoundedHashtable[] stripes;
+
+  /**
+   * Create a cache of one stripe.
+   * @param capacity the number of keys kept
+   * @param dropLimit the number of keys allowed above capacity
+   */
+  public StripedBoundedCache(int capacity, int dropLimit)
+  {
+    this(capacity, dropLimit, 1);
+  }
+
+  /**
+   * Create a cache of <code>concurrency</code> stripes rounded up to
+   * a power of 2.
+   * @param capacity the number of keys kept
+   * @param dropLimit the number of keys allowed above capacity
+   * @param concurrency the number of stripes
+   */
+  public StripedBoundedCache(int capacity, int dropLimit, int concurrency)
+  {
+    int n = 1;
+    while (n < concurrency && n < capacity)
+    {
+      n <<= 1;
+    }
+    stripes = new BoundedHashtable[n];
+    for(int i = 0; i < n; i++)
+    {
+      stripes[i] = new BoundedHashtable(
+        (capacity + n - 1 - i) / n, (dropLimit + n - 1 - i) / n);
+    }
+  }
+
+  protected BoundedHashtable stripe(Object key)
+  {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return stripes[h & (stripes.length - 1)];
+  }
+
+  public Object get(Object key)
+  {
+    return stripe(key).get(key);
+  }
+
+  public Object put(Object key, Object value)
+  {
+    return stripe(key).put(key, value);
+  }
+
+  public Object remove(Object key)
+  {
+    return stripe(key).remove(key);
+  }
+
+  public boolean containsKey(Object key)
+  {
+    return stripe(key).containsKey(key);
+  }
+
+  public void clear()
+  {
+    for(int i = 0; i < stripes.length; i++)
+    {
+      stripes[i].clear();
+    }
+  }
+
+  public int size()
+  {
+    int size = 0;
+    for(int i = 0; i < stripes.length; i++)
+    {
+      size += stripes[i].size();
+    }
+    return size;
+  }
+
+  /**
+   * Return the number of stripes.
+   * @return the number of stripes
+   */
+  public int getConcurrency()
+  {
+    return stripes.length;
+  }
+}